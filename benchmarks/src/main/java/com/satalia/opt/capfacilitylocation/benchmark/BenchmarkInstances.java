@@ -0,0 +1,73 @@
+package com.satalia.opt.capfacilitylocation.benchmark;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the instance files used by the benchmarks. Instances are referred to by name:
+ *
+ * <ul>
+ *   <li>{@code cap61} ... {@code cap72}: the Beasley benchmarks shipped with the solver
+ *   <li>{@code synthetic-<F>x<C>}: an instance with F facilities and C clients created by the
+ *       {@link InstanceGenerator}
+ * </ul>
+ *
+ * Files are created once per JVM in a temporary directory.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public final class BenchmarkInstances {
+
+  private static final String SYNTHETIC_PREFIX = "synthetic-";
+  private static final long SEED = 42;
+  private static final double CAPACITY_RATIO = 3;
+
+  private static final Map<String, Path> FILES = new ConcurrentHashMap<>();
+  private static Path directory;
+
+  private BenchmarkInstances() {}
+
+  /**
+   * Returns the path of the instance file with the given name, creating it if necessary.
+   *
+   * @param name the instance name, e.g. "cap61" or "synthetic-100x1000"
+   * @return the path to the instance file in Beasley's format
+   */
+  public static String file(String name) {
+    return FILES.computeIfAbsent(name, BenchmarkInstances::create).toString();
+  }
+
+  private static synchronized Path create(String name) {
+    try {
+      if (directory == null) {
+        directory = Files.createTempDirectory("capfacilitylocation-benchmarks");
+        directory.toFile().deleteOnExit();
+      }
+      Path file = directory.resolve(name);
+      file.toFile().deleteOnExit();
+      if (name.startsWith(SYNTHETIC_PREFIX)) {
+        String[] size = name.substring(SYNTHETIC_PREFIX.length()).split("x");
+        new InstanceGenerator(
+                Integer.parseInt(size[0]), Integer.parseInt(size[1]), CAPACITY_RATIO, SEED)
+            .write(file.toString());
+      } else {
+        try (InputStream in = BenchmarkInstances.class.getResourceAsStream("/beasley/" + name)) {
+          if (in == null) {
+            throw new IllegalArgumentException("Unknown benchmark instance: " + name);
+          }
+          Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.satalia.opt.capfacilitylocation.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler (to report allocation rates) and exports the results as
+ * JSON to {@code jmh-results.json}. All JMH command line options are accepted and take precedence,
+ * e.g. {@code -rff other.json} or a regular expression selecting the benchmarks to run.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class BenchmarkMain {
+
+  private static final String RESULT_FILE = "jmh-results.json";
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    Options options =
+        new OptionsBuilder()
+            .parent(commandLineOptions)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(
+                commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+            .result(commandLineOptions.getResult().orElse(RESULT_FILE))
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,66 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import com.satalia.opt.capfacilitylocation.benchmark.BenchmarkInstances;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading instances from Beasley's text format and from the binary instance format.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkReaderBenchmark {
+
+  @Param({
+    "cap61",
+    "cap62",
+    "cap63",
+    "cap64",
+    "cap71",
+    "cap72",
+    "synthetic-100x1000",
+    "synthetic-500x5000",
+    "synthetic-1000x10000"
+  })
+  public String instance;
+
+  private String textFile;
+  private String binaryFile;
+
+  @Setup
+  public void setup() throws IOException {
+    textFile = BenchmarkInstances.file(instance);
+    File binary = File.createTempFile(instance, ".bin");
+    binary.deleteOnExit();
+    binaryFile = binary.getPath();
+    BinaryInstanceWriter.convert(textFile, binaryFile, false);
+  }
+
+  @Benchmark
+  public ProblemInput readBeasleyBenchmark() throws IOException {
+    return new BenchmarkReader(textFile).readBeasleyBenchmark();
+  }
+
+  @Benchmark
+  public ProblemInput readBinaryInstance() throws IOException {
+    return new BinaryInstanceReader(binaryFile).read();
+  }
+}
@@ -0,0 +1,61 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.benchmark.BenchmarkInstances;
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks assigning the clients to a set of opened facilities, as in site-selection loops that
+ * evaluate many sets on one instance: each invocation closes or reopens one facility of the set
+ * opened by the local search heuristic. Does not need the native solver library.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentSolverBenchmark {
+
+  @Param({"cap61", "cap72", "synthetic-100x1000", "synthetic-200x5000"})
+  public String instance;
+
+  private AssignmentSolver solver;
+  private BitSet opened;
+  private int[] openedFacilities;
+  private int next;
+
+  @Setup
+  public void setup() throws IOException {
+    ProblemInput input = InstanceLoader.load(BenchmarkInstances.file(instance));
+    solver = new AssignmentSolver(input);
+    opened = new BitSet();
+    new LocalSearchSolver(input)
+        .solve()
+        .getOpenedFacilities()
+        .forEach(facility -> opened.set(facility.getIndex()));
+    openedFacilities = opened.stream().toArray();
+  }
+
+  @Benchmark
+  public AssignmentResult solve() {
+    opened.flip(openedFacilities[next++ % openedFacilities.length]);
+    return solver.solve(opened);
+  }
+}
@@ -0,0 +1,117 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.benchmark.BenchmarkInstances;
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the stages of the MIP solver: model construction (variables, constraints and
+ * objective), solving, and extracting the solution. Requires the jniortools native library on the
+ * {@code java.library.path}.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CbcSolverBenchmark {
+
+  /** Instances for model construction, including larger synthetic instances. */
+  @State(Scope.Benchmark)
+  public static class ModelState {
+    @Param({"cap61", "cap64", "cap72", "synthetic-100x1000", "synthetic-200x5000"})
+    public String instance;
+
+    /** the cost of naming all variables and constraints */
+    @Param({"false", "true"})
+    public boolean names;
+
+    ProblemInput input;
+    ModelOptions modelOptions;
+
+    @Setup
+    public void setup() throws IOException {
+      input = InstanceLoader.load(BenchmarkInstances.file(instance));
+      modelOptions = new ModelOptions();
+      modelOptions.setNames(names);
+    }
+  }
+
+  /** Instances that CBC solves to optimality within seconds. */
+  @State(Scope.Benchmark)
+  public static class SolveState {
+    @Param({"cap61", "cap62", "cap63", "cap64", "cap71", "cap72"})
+    public String instance;
+
+    /** compare cold starts with starts from the local search heuristic */
+    @Param({"false", "true"})
+    public boolean greedyWarmStart;
+
+    /** compare the plain formulation with the one strengthened by cuts */
+    @Param({"false", "true"})
+    public boolean cuts;
+
+    ProblemInput input;
+    ModelOptions modelOptions;
+    CbcSolver solver;
+
+    @Setup(Level.Trial)
+    public void loadInstance() throws IOException {
+      input = InstanceLoader.load(BenchmarkInstances.file(instance));
+      modelOptions = new ModelOptions();
+      modelOptions.setCuts(cuts);
+    }
+
+    @Setup(Level.Invocation)
+    public void buildModel() {
+      solver = new CbcSolver(input, modelOptions);
+      solver.setGreedyWarmStart(greedyWarmStart);
+    }
+  }
+
+  /** Solved instances to extract solutions from. */
+  @State(Scope.Benchmark)
+  public static class SolvedState {
+    @Param({"cap61", "cap64", "cap72"})
+    public String instance;
+
+    CbcSolver solver;
+
+    @Setup
+    public void setup() throws IOException {
+      solver = new CbcSolver(InstanceLoader.load(BenchmarkInstances.file(instance)));
+      solver.solve();
+    }
+  }
+
+  @Benchmark
+  public CbcSolver buildModel(ModelState state) {
+    return new CbcSolver(state.input, state.modelOptions);
+  }
+
+  @Benchmark
+  public Solution solve(SolveState state) {
+    return state.solver.solve();
+  }
+
+  @Benchmark
+  public Solution extractSolution(SolvedState state) {
+    return state.solver.extractSolution();
+  }
+}
@@ -0,0 +1,46 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.benchmark.BenchmarkInstances;
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks computing the objective value of a solution.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolutionBenchmark {
+
+  @Param({"cap61", "cap64", "cap72"})
+  public String instance;
+
+  private Solution solution;
+
+  @Setup
+  public void setup() throws IOException {
+    solution = new CbcSolver(InstanceLoader.load(BenchmarkInstances.file(instance))).solve();
+  }
+
+  @Benchmark
+  public double calculateObjectiveValue() {
+    return solution.calculateObjectiveValue();
+  }
+}
@@ -0,0 +1,84 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.solving.BatchResult;
+import com.satalia.opt.capfacilitylocation.solving.BatchSolver;
+import com.satalia.opt.capfacilitylocation.solving.SolveStatus;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/** Solves many instances concurrently and writes the results to one file. */
+@Command(
+    name = "batch",
+    mixinStandardHelpOptions = true,
+    description = "Solves all instances in the given directories or matching the given globs.")
+class BatchCommand implements Callable<Void> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchCommand.class);
+
+  @Parameters(
+      arity = "1..*",
+      paramLabel = "<directory-or-glob>",
+      description = "Instance files, directories or globs such as 'beasley/cap6*'.")
+  private List<String> instances;
+
+  @Option(
+      names = "--workers",
+      paramLabel = "<workers>",
+      description = "Number of concurrent solves (default: available processors / threads).")
+  private int numWorkers = 0;
+
+  @Option(
+      names = {"-o", "--output"},
+      paramLabel = "<results-file>",
+      description = "Results file (default: ${DEFAULT-VALUE}).")
+  private String resultsFile = "results.csv";
+
+  @Mixin private SolveOptions solveOptions;
+
+  @Override
+  public Void call() throws Exception {
+    List<String> files = new ArrayList<>();
+    for (String instance : instances) {
+      files.addAll(BatchSolver.findInstances(instance));
+    }
+    int workers = numWorkers;
+    if (workers <= 0) { // do not oversubscribe the cores
+      workers =
+          Math.max(1, Runtime.getRuntime().availableProcessors() / solveOptions.getNumThreads());
+    }
+    BatchSolver batchSolver = new BatchSolver(workers, solveOptions.toParameters());
+    batchSolver.setGreedyWarmStart(solveOptions.greedyWarmStart);
+    batchSolver.setModelOptions(solveOptions.toModelOptions());
+    batchSolver.setPresolve(solveOptions.presolve);
+    batchSolver.setResultCache(solveOptions.openResultCache());
+    List<BatchResult> results;
+    try (Writer metricsOut = solveOptions.openMetricsFile()) {
+      batchSolver.setMetricsRegistry(SolveOptions.toRegistry(metricsOut));
+      batchSolver.setProgressMillis(solveOptions.getProgressMillis());
+      results = batchSolver.solve(files);
+    }
+    BatchSolver.writeResults(results, resultsFile);
+
+    long solved = results.stream().filter(result -> result.getStatus().hasSolution()).count();
+    long optimal =
+        results.stream().filter(result -> result.getStatus() == SolveStatus.OPTIMAL).count();
+    LOG.info(
+        "Solved "
+            + solved
+            + " of "
+            + results.size()
+            + " instances ("
+            + optimal
+            + " optimal). Results written to "
+            + resultsFile);
+    return null;
+  }
+}
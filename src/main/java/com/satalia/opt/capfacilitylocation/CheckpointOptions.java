@@ -0,0 +1,35 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.solving.CheckpointingSolver;
+import picocli.CommandLine.Option;
+
+/** The command line options of checkpoints, shared by the solve and the resume commands. */
+class CheckpointOptions {
+
+  @Option(
+      names = "--checkpoint-interval",
+      paramLabel = "<seconds>",
+      description = "Write the checkpoint at this interval (default: ${DEFAULT-VALUE}).")
+  private double intervalSeconds = CheckpointingSolver.DEFAULT_INTERVAL_MILLIS / 1000.0;
+
+  @Option(
+      names = "--checkpoint-slice",
+      paramLabel = "<seconds>",
+      description =
+          "Split the solve into slices of this length, each warm started from the incumbent and "
+              + "checkpointed; needed to checkpoint incumbents of CBC and requires a time limit "
+              + "(default: no slices).")
+  private double sliceSeconds = 0;
+
+  /**
+   * @param timeLimitMillis the time limit of the solve, or 0 for none
+   * @throws RuntimeException if the solve is split into slices without a time limit
+   */
+  void configure(CheckpointingSolver solver, long timeLimitMillis) {
+    if (sliceSeconds > 0 && timeLimitMillis <= 0) {
+      throw new RuntimeException("--checkpoint-slice requires a time limit.");
+    }
+    solver.setInterval(Math.max(1, Math.round(intervalSeconds * 1000)));
+    solver.setSlice(Math.round(sliceSeconds * 1000));
+  }
+}
@@ -1,37 +1,244 @@
 package com.satalia.opt.capfacilitylocation;
 
-import com.satalia.opt.capfacilitylocation.input.BenchmarkReader;
+import com.satalia.opt.capfacilitylocation.input.BinaryInstanceConverter;
+import com.satalia.opt.capfacilitylocation.input.InstanceGenerator;
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.PresolvedInput;
+import com.satalia.opt.capfacilitylocation.input.Presolver;
 import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.metrics.Phase;
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+import com.satalia.opt.capfacilitylocation.solving.CachingEngineProvider;
 import com.satalia.opt.capfacilitylocation.solving.CbcSolver;
+import com.satalia.opt.capfacilitylocation.solving.CheckpointingSolver;
+import com.satalia.opt.capfacilitylocation.solving.LnsSolver;
+import com.satalia.opt.capfacilitylocation.solving.ModelOptions;
+import com.satalia.opt.capfacilitylocation.solving.PortfolioSolver;
+import com.satalia.opt.capfacilitylocation.solving.Postsolver;
+import com.satalia.opt.capfacilitylocation.solving.ResultCache;
 import com.satalia.opt.capfacilitylocation.solving.Solution;
+import com.satalia.opt.capfacilitylocation.solving.SolveParameters;
+import com.satalia.opt.capfacilitylocation.solving.SolveResult;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngine;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngineProvider;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngines;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
 
-public class Main {
+@Command(
+    name = "capfacilitylocation",
+    mixinStandardHelpOptions = true,
+    description = "Solves the single-source capacitated facility location problem.",
+    subcommands = {
+      BatchCommand.class,
+      BinaryInstanceConverter.class,
+      InstanceGenerator.GenerateCommand.class,
+      ResumeCommand.class,
+      ServeCommand.class,
+      SweepCommand.class
+    })
+public class Main implements Runnable {
 
   private static final Logger LOG = LoggerFactory.getLogger(Main.class);
 
+  @Parameters(
+      arity = "0..1",
+      paramLabel = "<instance-file>",
+      description = "The instance to solve (default: the Beasley cap62 instance).")
+  private String inputFile;
+
+  @Option(
+      names = "--export-lp",
+      paramLabel = "<lp-file>",
+      description = "Export the model with readable names to this file in LP format.")
+  private String lpExportFile;
+
+  @Option(
+      names = "--lns",
+      paramLabel = "<workers>",
+      description =
+          "Improve the local search solution by re-optimising neighbourhoods with this many "
+              + "concurrent solvers, until the time limit (default: 60 seconds).")
+  private int lnsWorkers = 0;
+
+  @Option(
+      names = "--engine",
+      paramLabel = "<engine>",
+      description = "The solver engine, e.g. cbc or local-search (default: ${DEFAULT-VALUE}).")
+  private String engineName = "cbc";
+
+  @Option(
+      names = "--portfolio",
+      paramLabel = "<engines>",
+      split = ",",
+      description =
+          "Race these engines concurrently, e.g. cbc,local-search,cbc; repeated engines get "
+              + "different seeds.")
+  private List<String> portfolio;
+
+  @Option(
+      names = "--checkpoint",
+      paramLabel = "<file>",
+      description =
+          "Write the progress of the solve to this file, from which the resume command continues "
+              + "it, e.g. after the process was stopped.")
+  private String checkpointFile;
+
+  @Mixin private SolveOptions solveOptions;
+
+  @Mixin private CheckpointOptions checkpointOptions;
+
   public static void main(String[] args) {
+    new CommandLine(new Main()).parseWithHandler(new CommandLine.RunLast(), args);
+  }
 
-    String inputFile;
-    if (args.length != 1) { // TODO: implement proper CLI
-      LOG.warn(
-          "Expecting 1 program argument: the path to instance to solve. Solving Beasley cap62 instance.");
+  @Override
+  public void run() {
+    if (inputFile == null) {
+      LOG.warn("Expecting the path to the instance to solve. Solving Beasley cap62 instance.");
       inputFile = "src/main/resources/beasley/cap62"; // run the Beasley cap62 instance by default
-    } else {
-      inputFile = args[0];
     }
 
-    try {
-      BenchmarkReader reader = new BenchmarkReader(inputFile);
-      ProblemInput problemInput = reader.readBeasleyBenchmark();
-      CbcSolver solver = new CbcSolver(problemInput);
-      Solution solution = solver.solve();
-      System.out.println(solution);
+    try (Writer metricsOut = solveOptions.openMetricsFile()) {
+      SolveMetrics metrics = new SolveMetrics(SolveOptions.toRegistry(metricsOut));
+      metrics.setInstance("file", inputFile);
+      if (solveOptions.getProgressMillis() > 0) {
+        metrics.startProgress(solveOptions.getProgressMillis());
+      }
+      try {
+        solve(metrics);
+      } finally {
+        metrics.complete();
+      }
 
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
+
+  private void solve(SolveMetrics metrics) throws IOException {
+    if (checkpointFile != null && (lnsWorkers > 0 || portfolio != null || solveOptions.presolve)) {
+      throw new RuntimeException(
+          "A checkpoint can only be written by a single engine without presolve.");
+    }
+    ProblemInput problemInput;
+    try (Phase phase = metrics.startPhase("read")) {
+      problemInput = InstanceLoader.load(inputFile);
+    }
+    PresolvedInput presolved = null;
+    if (solveOptions.presolve) {
+      try (Phase phase = metrics.startPhase("presolve")) {
+        presolved = new Presolver(problemInput).presolve();
+      }
+      problemInput = presolved.getReducedInput();
+    }
+    if (lnsWorkers > 0) {
+      metrics.setStatistic("engine", "lns");
+      solveWithLns(problemInput, presolved, metrics);
+      return;
+    }
+    ModelOptions modelOptions = solveOptions.toModelOptions();
+    if (lpExportFile != null) {
+      modelOptions.setNames(true);
+      modelOptions.setLpExportFile(lpExportFile);
+    }
+    SolveResult result;
+    if (portfolio != null) {
+      metrics.setStatistic("engine", "portfolio:" + String.join(",", portfolio));
+      // the engines of the portfolio solve concurrently, so they are measured as one phase
+      try (Phase phase = metrics.startPhase("solve")) {
+        result = solveWithPortfolio(problemInput, modelOptions);
+      }
+    } else {
+      metrics.setStatistic("engine", engineName);
+      modelOptions.setMetrics(metrics);
+      SolverEngineProvider provider = SolverEngines.find(engineName);
+      ResultCache cache = solveOptions.openResultCache();
+      if (cache != null) {
+        CachingEngineProvider cachingProvider = new CachingEngineProvider(provider, cache);
+        cachingProvider.setEngineSetup(this::setUpEngine);
+        provider = cachingProvider;
+      }
+      try (SolverEngine engine = provider.create(problemInput, modelOptions)) {
+        setUpEngine(engine);
+        if (checkpointFile != null) {
+          CheckpointingSolver solver =
+              new CheckpointingSolver(
+                  problemInput, engine, engineName, Paths.get(checkpointFile));
+          checkpointOptions.configure(
+              solver, solveOptions.toParameters().getTimeLimitMillis());
+          result = solver.solve(solveOptions.toParameters(), null);
+        } else if (provider.getName().equals("cbc")) {
+          // the MIP solver records its own build and solve phases
+          result = engine.solve(solveOptions.toParameters(), null);
+        } else {
+          try (Phase phase = metrics.startPhase("solve")) {
+            result = engine.solve(solveOptions.toParameters(), null);
+          }
+        }
+      }
+      if (cache != null) {
+        metrics.setStatistic("cacheHit", cache.getHits() > 0);
+        LOG.info(cache.toString());
+      }
+    }
+    if (presolved != null) {
+      try (Phase phase = metrics.startPhase("postsolve")) {
+        result = Postsolver.postsolve(presolved, result);
+      }
+    }
+    result.recordTo(metrics);
+    System.out.println(result.getStatus().hasSolution() ? result.getSolution() : result);
+  }
+
+  private void setUpEngine(SolverEngine engine) {
+    if (engine instanceof CbcSolver) {
+      ((CbcSolver) engine).setGreedyWarmStart(solveOptions.greedyWarmStart);
+    }
+  }
+
+  private SolveResult solveWithPortfolio(ProblemInput problemInput, ModelOptions modelOptions) {
+    SolveParameters parameters = solveOptions.toParameters();
+    PortfolioSolver solver = new PortfolioSolver(problemInput);
+    solver.setModelOptions(modelOptions);
+    for (int i = 0; i < portfolio.size(); i++) {
+      SolveParameters engineParameters = parameters.copy();
+      engineParameters.setSeed(i);
+      solver.addEngine(SolverEngines.find(portfolio.get(i)), engineParameters);
+    }
+    return solver.solve(parameters, null);
+  }
+
+  private void solveWithLns(
+      ProblemInput problemInput, PresolvedInput presolved, SolveMetrics metrics) {
+    SolveParameters parameters = solveOptions.toParameters();
+    LnsSolver solver = new LnsSolver(problemInput);
+    solver.setNumWorkers(lnsWorkers);
+    if (parameters.getTimeLimitMillis() > 0) {
+      solver.setTimeLimit(parameters.getTimeLimitMillis());
+    }
+    solver.setIncumbentListener(
+        (incumbent, bound, elapsedMillis) ->
+            metrics.incumbent(incumbent.getObjectiveValue(), bound));
+    Solution solution;
+    try (Phase phase = metrics.startPhase("solve")) {
+      solution = solver.solve();
+    }
+    if (presolved != null) {
+      try (Phase phase = metrics.startPhase("postsolve")) {
+        solution = Postsolver.postsolve(presolved, solution);
+      }
+    }
+    metrics.setStatistic("objective", solution.getObjectiveValue());
+    System.out.println(solution);
+  }
 }
@@ -0,0 +1,61 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.solving.Checkpoint;
+import com.satalia.opt.capfacilitylocation.solving.CheckpointingSolver;
+import com.satalia.opt.capfacilitylocation.solving.ModelOptions;
+import com.satalia.opt.capfacilitylocation.solving.SolveResult;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngine;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngines;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/** Continues a solve from its checkpoint. */
+@Command(
+    name = "resume",
+    mixinStandardHelpOptions = true,
+    description =
+        "Continues a solve started with --checkpoint, warm started from the checkpoint's "
+            + "incumbent with the rest of its time limit, and keeps writing the checkpoint.")
+class ResumeCommand implements Callable<Void> {
+
+  @Parameters(index = "0", paramLabel = "<instance-file>", description = "The instance solved.")
+  private String inputFile;
+
+  @Parameters(index = "1", paramLabel = "<checkpoint-file>", description = "The checkpoint.")
+  private String checkpointFile;
+
+  @Option(
+      names = "--candidates",
+      paramLabel = "<k>",
+      description =
+          "Build the sparse model, pricing from each client's k cheapest facilities "
+              + "(default: full model).")
+  private int numCandidates = 0;
+
+  @Mixin private CheckpointOptions checkpointOptions;
+
+  @Override
+  public Void call() throws Exception {
+    Path file = Paths.get(checkpointFile);
+    Checkpoint checkpoint = Checkpoint.read(file);
+    ProblemInput input = InstanceLoader.load(inputFile);
+    ModelOptions modelOptions = new ModelOptions();
+    modelOptions.setNumCandidates(numCandidates);
+    try (SolverEngine engine =
+        SolverEngines.find(checkpoint.getEngine()).create(input, modelOptions)) {
+      CheckpointingSolver solver =
+          new CheckpointingSolver(input, engine, checkpoint.getEngine(), file);
+      checkpointOptions.configure(solver, checkpoint.getParameters().getTimeLimitMillis());
+      SolveResult result = solver.resume(checkpoint, null);
+      System.out.println(result.getStatus().hasSolution() ? result.getSolution() : result);
+    }
+    return null;
+  }
+}
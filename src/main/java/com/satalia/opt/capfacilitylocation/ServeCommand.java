@@ -0,0 +1,68 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.server.SolveServer;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+/** Runs the HTTP solve service until the JVM is stopped. */
+@Command(
+    name = "serve",
+    mixinStandardHelpOptions = true,
+    description = "Solves instances submitted over a local HTTP API.")
+class ServeCommand implements Callable<Void> {
+
+  @Option(
+      names = "--port",
+      paramLabel = "<port>",
+      description = "Port on the loopback interface (default: ${DEFAULT-VALUE}).")
+  private int port = 8080;
+
+  @Option(
+      names = "--workers",
+      paramLabel = "<workers>",
+      description = "Number of concurrent solves (default: available processors / threads).")
+  private int numWorkers = 0;
+
+  @Option(
+      names = "--queue",
+      paramLabel = "<jobs>",
+      description =
+          "Number of jobs that can wait for a worker before submissions are rejected "
+              + "(default: ${DEFAULT-VALUE}).")
+  private int queueCapacity = 100;
+
+  @Option(
+      names = "--engine",
+      paramLabel = "<engine>",
+      description = "The solver engine of jobs that do not choose one (default: ${DEFAULT-VALUE}).")
+  private String engineName = "cbc";
+
+  @Option(
+      names = "--max-body-mb",
+      paramLabel = "<megabytes>",
+      description =
+          "Largest instance accepted; larger submissions get status 413 "
+              + "(default: ${DEFAULT-VALUE}).")
+  private long maxBodyMegabytes = SolveServer.DEFAULT_MAX_BODY_BYTES >> 20;
+
+  @Mixin private SolveOptions solveOptions;
+
+  @Override
+  public Void call() throws Exception {
+    int workers = numWorkers;
+    if (workers <= 0) { // do not oversubscribe the cores
+      workers =
+          Math.max(1, Runtime.getRuntime().availableProcessors() / solveOptions.getNumThreads());
+    }
+    SolveServer server =
+        new SolveServer(port, workers, queueCapacity, solveOptions.toParameters(), engineName);
+    server.setResultCache(solveOptions.openResultCache());
+    server.setMaxBodyBytes(maxBodyMegabytes << 20);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    server.start();
+    Thread.currentThread().join(); // the server threads handle the requests
+    return null;
+  }
+}
@@ -0,0 +1,144 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.metrics.JsonMetricsRegistry;
+import com.satalia.opt.capfacilitylocation.metrics.MetricsRegistry;
+import com.satalia.opt.capfacilitylocation.solving.ModelOptions;
+import com.satalia.opt.capfacilitylocation.solving.ResultCache;
+import com.satalia.opt.capfacilitylocation.solving.SolveParameters;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import picocli.CommandLine.Option;
+
+/** The command line options of a solve, shared by the single and the batch solve commands. */
+class SolveOptions {
+
+  /** the number of results the cache keeps in memory */
+  private static final int CACHE_ENTRIES = 1000;
+
+  @Option(
+      names = "--time-limit",
+      paramLabel = "<seconds>",
+      description = "Wall-clock time limit of each solve in seconds (default: none).")
+  private double timeLimitSeconds = 0;
+
+  @Option(
+      names = "--gap",
+      paramLabel = "<relative-gap>",
+      description = "Stop when the relative optimality gap is reached (default: ${DEFAULT-VALUE}).")
+  private double relativeGap = SolveParameters.DEFAULT_RELATIVE_GAP;
+
+  @Option(
+      names = "--absolute-gap",
+      paramLabel = "<gap>",
+      description = "Stop when the absolute optimality gap is reached (default: none).")
+  private double absoluteGap = 0;
+
+  @Option(
+      names = "--threads",
+      paramLabel = "<threads>",
+      description = "Number of threads of each solve (default: ${DEFAULT-VALUE}).")
+  private int numThreads = 1;
+
+  @Option(
+      names = "--candidates",
+      paramLabel = "<k>",
+      description =
+          "Build the sparse model, pricing from each client's k cheapest facilities "
+              + "(default: full model).")
+  private int numCandidates = 0;
+
+  @Option(
+      names = "--cuts",
+      description = "Strengthen the model with cuts separated on the LP relaxation.")
+  private boolean cuts = false;
+
+  @Option(names = "--presolve", description = "Reduce the instance before solving.")
+  boolean presolve = false;
+
+  @Option(
+      names = "--greedy-warm-start",
+      description = "Warm start the MIP solver with the local search heuristic.")
+  boolean greedyWarmStart = false;
+
+  @Option(
+      names = "--metrics",
+      paramLabel = "<file>",
+      description =
+          "Append the metrics of each solve (phase timings, CPU time, allocations, solver "
+              + "statistics) to this file as one line of JSON.")
+  private String metricsFile;
+
+  @Option(
+      names = "--progress",
+      paramLabel = "<seconds>",
+      description = "With --metrics, also append a progress sample of each solve at this interval.")
+  private double progressSeconds = 0;
+
+  @Option(
+      names = "--cache",
+      paramLabel = "<directory>",
+      description =
+          "Cache the results in this directory: optimal results of the same instance are "
+              + "reused, feasible ones warm start the solve.")
+  private String cacheDirectory;
+
+  @Option(
+      names = "--cache-size",
+      paramLabel = "<megabytes>",
+      description = "Maximum size of the cache directory (default: ${DEFAULT-VALUE}).")
+  private long cacheMegabytes = 1024;
+
+  SolveParameters toParameters() {
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(Math.round(timeLimitSeconds * 1000));
+    parameters.setRelativeGap(relativeGap);
+    parameters.setAbsoluteGap(absoluteGap);
+    parameters.setNumThreads(numThreads);
+    return parameters;
+  }
+
+  ModelOptions toModelOptions() {
+    ModelOptions modelOptions = new ModelOptions();
+    modelOptions.setNumCandidates(numCandidates);
+    modelOptions.setCuts(cuts);
+    return modelOptions;
+  }
+
+  int getNumThreads() {
+    return numThreads;
+  }
+
+  /** @return the writer appending to the metrics file, or null if there is none */
+  Writer openMetricsFile() throws IOException {
+    if (metricsFile == null) {
+      return null;
+    }
+    return Files.newBufferedWriter(
+        Paths.get(metricsFile),
+        StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+  }
+
+  /** @return the registry writing to the metrics file, or one ignoring all metrics */
+  static MetricsRegistry toRegistry(Writer metricsOut) {
+    return metricsOut == null ? MetricsRegistry.NONE : new JsonMetricsRegistry(metricsOut);
+  }
+
+  /** @return the result cache in the cache directory, or null if there is none */
+  ResultCache openResultCache() throws IOException {
+    if (cacheDirectory == null) {
+      return null;
+    }
+    return new ResultCache(CACHE_ENTRIES, Paths.get(cacheDirectory), cacheMegabytes << 20);
+  }
+
+  /** @return the period of the progress samples, or 0 for none */
+  long getProgressMillis() {
+    return metricsFile == null ? 0 : Math.max(0, Math.round(progressSeconds * 1000));
+  }
+}
@@ -0,0 +1,97 @@
+package com.satalia.opt.capfacilitylocation;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.solving.ScenarioSummary;
+import com.satalia.opt.capfacilitylocation.solving.ScenarioSweep;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngines;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/** Solves random demand and cost scenarios of one instance and summarises the solutions. */
+@Command(
+    name = "sweep",
+    mixinStandardHelpOptions = true,
+    description =
+        "Solves random scenarios of an instance, each scaling all demands by one random factor "
+            + "and the costs of each facility by another, and summarises the solutions. "
+            + "The demand factor only changes the load on the capacities, not the costs.")
+class SweepCommand implements Callable<Void> {
+
+  @Parameters(paramLabel = "<instance-file>", description = "The instance to change.")
+  private String inputFile;
+
+  @Option(
+      names = "--scenarios",
+      paramLabel = "<scenarios>",
+      description = "Number of scenarios (default: ${DEFAULT-VALUE}).")
+  private int numScenarios = 100;
+
+  @Option(
+      names = "--demand-spread",
+      paramLabel = "<sd>",
+      description =
+          "Standard deviation of the demand factor, which leaves the costs to meet the demands "
+              + "unchanged (default: ${DEFAULT-VALUE}).")
+  private double demandSpread = 0.1;
+
+  @Option(
+      names = "--cost-spread",
+      paramLabel = "<sd>",
+      description = "Standard deviation of the cost factors (default: ${DEFAULT-VALUE}).")
+  private double costSpread = 0.1;
+
+  @Option(
+      names = "--seed",
+      paramLabel = "<seed>",
+      description = "Seed of the scenarios (default: ${DEFAULT-VALUE}).")
+  private long seed = 0;
+
+  @Option(
+      names = "--workers",
+      paramLabel = "<workers>",
+      description = "Number of concurrent solves (default: available processors / threads).")
+  private int numWorkers = 0;
+
+  @Option(
+      names = "--engine",
+      paramLabel = "<engine>",
+      description = "The solver engine of each scenario (default: ${DEFAULT-VALUE}).")
+  private String engineName = "cbc";
+
+  @Mixin private SolveOptions solveOptions;
+
+  @Override
+  public Void call() throws Exception {
+    ProblemInput input = InstanceLoader.load(inputFile);
+    int workers = numWorkers;
+    if (workers <= 0) { // do not oversubscribe the cores
+      workers =
+          Math.max(1, Runtime.getRuntime().availableProcessors() / solveOptions.getNumThreads());
+    }
+    ScenarioSweep sweep = new ScenarioSweep(input, workers);
+    sweep.setEngine(SolverEngines.find(engineName));
+    sweep.setModelOptions(solveOptions.toModelOptions());
+    sweep.setParameters(solveOptions.toParameters());
+    ScenarioSummary summary =
+        sweep.solve(numScenarios, scenario -> randomScenario(input, scenario));
+    System.out.println(summary);
+    return null;
+  }
+
+  /** @return the scenario, which only depends on the seed and its number */
+  private InstanceDelta randomScenario(ProblemInput input, int scenario) {
+    Random random = new Random(seed * 1000003 + scenario);
+    InstanceDelta delta = new InstanceDelta();
+    delta.scaleDemands(Math.max(0, 1 + demandSpread * random.nextGaussian()));
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      delta.scaleCosts(facility, Math.max(0, 1 + costSpread * random.nextGaussian()));
+    }
+    return delta;
+  }
+}
@@ -1,166 +1,326 @@
 package com.satalia.opt.capfacilitylocation.input;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
 
 /**
  * Reads the problem input from a benchmark file. Currently Beasley's benchmark format is supported
  * (see http://www.di.unipi.it/optimize/Data/mexch/BeasleyData.zip or
  * http://or-brescia.unibs.it/instances/instances_sscflp)
  *
+ * <p>The file is memory-mapped and tokenized directly from the mapped bytes. Numbers may be
+ * separated by any amount of whitespace, so rows of the cost matrix may also wrap across lines
+ * (as in some OR-Library files). Once the header and the demand line are read, the cost matrix is
+ * parsed in parallel chunks straight into the primitive storage of the {@link ProblemInput}.
+ *
  * @author Andrea Rendl-Pitrey
  */
 public class BenchmarkReader {
 
-  // final containers for creating the ProblemSetup
-  private List<Facility> facilities;
-  private List<Client> clients;
+  /** the size of the chunks of the cost matrix that are parsed in parallel */
+  private static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+  /** the size of the window that is mapped to read the header and client demand */
+  private static final int HEADER_WINDOW_SIZE = 64 << 20;
+  /** the maximal number of bytes of a single number in the benchmark file */
+  private static final int MAX_NUMBER_LENGTH = 128;
+
+  private final String filename;
+  /** whether to store the costs in single precision to halve the memory of the cost matrix */
+  private final boolean singlePrecisionCosts;
+  /** the number of bytes of the cost matrix parsed by one parallel task */
+  private final int chunkSize;
 
   // helper variables to collect data while reading the file
   private int numClients;
   private int numFacilities;
-  private ArrayList<Cost> facilityBuildingCost;
-  private ArrayList<Double> facilityCapacity;
+  private double[] facilityBuildingCost;
+  private double[] facilityCapacity;
+  private double[] clientDemand;
 
-  /** reader class to read the benchmark file */
-  private Reader reader;
+  /** costs in double precision, costs[facility * numClients + client] */
+  private double[] costs;
+  /** costs in single precision, only used if singlePrecisionCosts is set */
+  private float[] floatCosts;
 
-  private class Reader {
-    private int lineNumber = 0;
-    private BufferedReader reader;
+  public BenchmarkReader(final String filename) throws FileNotFoundException {
+    this(filename, false);
+  }
 
-    Reader(final String filename) throws FileNotFoundException {
-      FileReader fileReader = new FileReader(filename);
-      reader = new BufferedReader(fileReader);
-    }
+  /**
+   * @param filename the benchmark file
+   * @param singlePrecisionCosts if true, the cost matrix is stored in single precision
+   * @throws FileNotFoundException if the benchmark file does not exist
+   */
+  public BenchmarkReader(final String filename, final boolean singlePrecisionCosts)
+      throws FileNotFoundException {
+    this(filename, singlePrecisionCosts, DEFAULT_CHUNK_SIZE);
+  }
 
-    String readNextLine() throws IOException {
-      String line = reader.readLine();
-      lineNumber++;
-      return line;
+  BenchmarkReader(final String filename, final boolean singlePrecisionCosts, final int chunkSize)
+      throws FileNotFoundException {
+    if (!new File(filename).isFile()) {
+      throw new FileNotFoundException("Cannot find benchmark file: " + filename);
     }
+    this.filename = filename;
+    this.singlePrecisionCosts = singlePrecisionCosts;
+    this.chunkSize = chunkSize;
+  }
 
-    int getLineNumber() {
-      return lineNumber;
+  public ProblemInput readBeasleyBenchmark() throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      Tokenizer tokenizer = new Tokenizer(channel);
+      extractNumberOfFacilitiesAndClients(tokenizer); // header is "numFacilities numClients"
+      this.facilityBuildingCost = new double[numFacilities];
+      this.facilityCapacity = new double[numFacilities];
+      this.clientDemand = new double[numClients];
+      if ((long) numFacilities * numClients > Integer.MAX_VALUE - 8) {
+        throw new RuntimeException(
+            "Cost matrix with "
+                + numFacilities
+                + " x "
+                + numClients
+                + " entries is too large to be stored in a single array.");
+      }
+      if (singlePrecisionCosts) {
+        this.floatCosts = new float[numFacilities * numClients];
+      } else {
+        this.costs = new double[numFacilities * numClients];
+      }
+
+      readFacilityInfo(tokenizer);
+      readClientInfo(tokenizer);
+      readClientCosts(channel, tokenizer.getPosition());
     }
+
+    CostMatrix costMatrix =
+        singlePrecisionCosts
+            ? new FloatCostMatrix(numFacilities, numClients, floatCosts)
+            : new DenseCostMatrix(numFacilities, numClients, costs);
+    return new ProblemInput(facilityCapacity, facilityBuildingCost, clientDemand, costMatrix);
   }
 
-  public BenchmarkReader(final String filename) throws FileNotFoundException {
-    this.reader = new Reader(filename);
+  private void extractNumberOfFacilitiesAndClients(Tokenizer tokenizer) throws IOException {
+    numFacilities = readCount(tokenizer, "number of facilities");
+    numClients = readCount(tokenizer, "number of clients");
   }
 
-  public ProblemInput readBeasleyBenchmark() throws IOException {
-    extractNumberOfFacilitiesAndClients(); // first line contains "numFacilities numClients"
-    this.facilities = new ArrayList<>(numFacilities);
-    this.clients = new ArrayList<>(numClients);
-    this.facilityBuildingCost = new ArrayList<>(numFacilities);
-    this.facilityCapacity = new ArrayList<>(numFacilities);
+  private int readCount(Tokenizer tokenizer, String what) throws IOException {
+    double value = tokenizer.nextNumber(what);
+    if (value < 0 || value > Integer.MAX_VALUE || value != Math.rint(value)) {
+      throw new RuntimeException(
+          "Invalid benchmark file. Expecting the " + what + " instead of: " + value);
+    }
+    return (int) value;
+  }
 
-    readFacilityInfo();
-    readClientInfo();
-    readClientCosts();
+  private void readFacilityInfo(Tokenizer tokenizer) throws IOException {
+    for (int facility = 0; facility < numFacilities; facility++) {
+      // Format: "capacity cost"
+      facilityCapacity[facility] = tokenizer.nextNumber("capacity of facility " + facility);
+      facilityBuildingCost[facility] = tokenizer.nextNumber("cost of facility " + facility);
+    }
+  }
 
-    return new ProblemInput(facilities, clients);
+  private void readClientInfo(Tokenizer tokenizer) throws IOException {
+    for (int client = 0; client < numClients; client++) {
+      clientDemand[client] = tokenizer.nextNumber("demand of client " + client);
+    }
   }
 
-  private void extractNumberOfFacilitiesAndClients() throws IOException {
-    String line = reader.readNextLine();
-    String[] words = line.split(" ");
-    if (words.length != 2) {
+  /**
+   * Parses the cost matrix that starts at the given byte offset. The remainder of the file is
+   * split into chunks that are processed in parallel: the first pass counts the numbers that start
+   * in each chunk, which fixes the position of each chunk's first number in the row-major cost
+   * matrix; the second pass parses the numbers straight into the cost matrix.
+   */
+  private void readClientCosts(FileChannel channel, long start) throws IOException {
+    final long end = channel.size();
+    final int numChunks = (int) Math.max(1, (end - start + chunkSize - 1) / chunkSize);
+    final long expectedCosts = (long) numFacilities * numClients;
+
+    long[] numbersInChunk = new long[numChunks];
+    try {
+      IntStream.range(0, numChunks)
+          .parallel()
+          .forEach(chunk -> numbersInChunk[chunk] = processChunk(channel, start, chunk, -1));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    long[] firstNumberOfChunk = new long[numChunks];
+    long totalNumbers = 0;
+    for (int chunk = 0; chunk < numChunks; chunk++) {
+      firstNumberOfChunk[chunk] = totalNumbers;
+      totalNumbers += numbersInChunk[chunk];
+    }
+    if (totalNumbers != expectedCosts) {
       throw new RuntimeException(
-          "Invalid benchmark file. Expecting 2 words in line 1 instead of: " + line);
+          "Expecting "
+              + numFacilities
+              + " x "
+              + numClients
+              + " = "
+              + expectedCosts
+              + " demand costs for serving clients instead of "
+              + totalNumbers);
+    }
+
+    try {
+      IntStream.range(0, numChunks)
+          .parallel()
+          .forEach(chunk -> processChunk(channel, start, chunk, firstNumberOfChunk[chunk]));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
-    numFacilities = Integer.parseInt(words[0]);
-    numClients = Integer.parseInt(words[1]);
   }
 
-  private void readFacilityInfo() throws IOException {
-    int facilityCount = 1;
-    while (facilityCount <= this.numFacilities) {
-      String line = reader.readNextLine();
-      if (line == null) {
-        throw new RuntimeException(
-            "Expecting facility info for facility in line "
-                + reader.getLineNumber()
-                + " instead of:"
-                + facilityCount);
+  /**
+   * Counts (if firstNumber is negative) or parses the numbers that start in the given chunk. A
+   * number belongs to the chunk its first byte is in; it may end in the next chunk.
+   *
+   * @return the number of numbers starting in the chunk
+   */
+  private long processChunk(FileChannel channel, long dataStart, int chunk, long firstNumber) {
+    try {
+      final long fileSize = channel.size();
+      final long chunkStart = dataStart + (long) chunk * chunkSize;
+      final long chunkEnd = Math.min(fileSize, chunkStart + chunkSize);
+      // map one byte before the chunk, to see whether the first number started in the previous
+      // chunk, and enough bytes after the chunk to finish its last number
+      final long mapStart = chunk == 0 ? chunkStart : chunkStart - 1;
+      final long mapEnd = Math.min(fileSize, chunkEnd + MAX_NUMBER_LENGTH);
+      if (mapEnd <= mapStart) {
+        return 0;
       }
-      String[] words = line.split(" "); // Format of line: "capacity cost"
-      if (words.length != 2) {
-        throw new RuntimeException(
-            "Invalid benchmark file. Expecting 2 words in line "
-                + reader.getLineNumber()
-                + " instead of: "
-                + line);
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+      final int from = (int) (chunkStart - mapStart);
+      final int to = (int) (chunkEnd - mapStart);
+      final int limit = buffer.limit();
+
+      int pos = from;
+      if (chunk > 0 && !isWhitespace(buffer.get(from - 1))) {
+        while (pos < to && !isWhitespace(buffer.get(pos))) {
+          pos++; // skip the tail of a number that started in the previous chunk
+        }
+      }
+      long count = 0;
+      while (true) {
+        while (pos < to && isWhitespace(buffer.get(pos))) {
+          pos++;
+        }
+        if (pos >= to) {
+          return count;
+        }
+        int numberEnd = pos;
+        while (numberEnd < limit && !isWhitespace(buffer.get(numberEnd))) {
+          numberEnd++;
+        }
+        if (numberEnd == limit && mapEnd < fileSize) {
+          throw new RuntimeException(
+              "Number at byte offset " + (mapStart + pos) + " is too long.");
+        }
+        if (firstNumber >= 0) {
+          long index = firstNumber + count;
+          double cost = parseNumber(buffer, pos, numberEnd, mapStart);
+          if (singlePrecisionCosts) {
+            floatCosts[(int) index] = (float) cost;
+          } else {
+            costs[(int) index] = cost;
+          }
+        }
+        count++;
+        pos = numberEnd;
       }
-      double capacity = Double.parseDouble(words[0]); // read capacity
-      double facilityCost = Double.parseDouble(words[1]); // read cost
-      this.facilityCapacity.add(capacity);
-      this.facilityBuildingCost.add(new Cost(facilityCost));
-      facilityCount++;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
-  private void readClientInfo() throws IOException {
-    // read the demand info
-    String line = reader.readNextLine();
-    String[] words = line.split(" ");
-    if (words.length != this.numClients) {
+  private static double parseNumber(MappedByteBuffer buffer, int start, int end, long offset) {
+    try {
+      return NumberParser.parse(buffer, start, end);
+    } catch (NumberFormatException e) {
       throw new RuntimeException(
-          "Reading client demand. Expecting "
-              + this.numClients
-              + " words in in line "
-              + reader.getLineNumber()
+          "Invalid benchmark file. Expecting a number at byte offset "
+              + (offset + start)
               + " instead of: "
-              + line);
-    }
-    Arrays.stream(words)
-        .forEach(
-            word -> {
-              double demand = Double.parseDouble(word);
-              clients.add(new Client(demand, "client-" + (clients.size() + 1)));
-            });
+              + NumberParser.toString(buffer, start, end));
+    }
   }
 
-  private void readClientCosts() throws IOException {
-    int facilityCount = 0;
-    while (facilityCount < this.numFacilities) {
-      String line = reader.readNextLine();
-      if (line == null) {
-        throw new RuntimeException(
-            "Expecting demand cost for serving clients in line "
-                + reader.getLineNumber()
-                + ", but line is empty.");
+  static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+  }
+
+  /** Sequentially reads the numbers of the header and client demand through a mapped window. */
+  private static class Tokenizer {
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    /** the absolute byte offset in the file */
+    private long position = 0;
+
+    Tokenizer(final FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.fileSize = channel.size();
+      mapWindow(0);
+    }
+
+    private void mapWindow(long start) throws IOException {
+      this.windowStart = start;
+      this.window =
+          channel.map(MapMode.READ_ONLY, start, Math.min(HEADER_WINDOW_SIZE, fileSize - start));
+    }
+
+    private byte byteAt(long offset) throws IOException {
+      if (offset >= windowStart + window.limit()) {
+        mapWindow(offset);
+      }
+      return window.get((int) (offset - windowStart));
+    }
+
+    double nextNumber(String what) throws IOException {
+      while (position < fileSize && isWhitespace(byteAt(position))) {
+        position++;
       }
-      Map<Client, Cost> costToMeetDemand = new HashMap<>(this.numFacilities);
-      String[] words = line.split(" "); // Format of line: "cost_c1  cost_c2 ... cost_cn"
-      if (words.length != this.numClients) {
+      if (position >= fileSize) {
         throw new RuntimeException(
-            "Expecting "
-                + this.numClients
-                + " words in line "
-                + reader.getLineNumber()
-                + " instead of "
-                + words.length);
+            "Invalid benchmark file. Expecting the " + what + " but reached the end of the file.");
       }
-      for (int clientCnt = 0; clientCnt < numClients; clientCnt++) {
-        final Client client = this.clients.get(clientCnt);
-        costToMeetDemand.put(client, new Cost(Double.parseDouble(words[clientCnt])));
+      if (position + MAX_NUMBER_LENGTH > windowStart + window.limit()
+          && windowStart + window.limit() < fileSize) {
+        mapWindow(position); // make sure the whole number is in the window
       }
-      facilities.add(
-          new Facility(
-              facilityCapacity.get(facilityCount),
-              facilityBuildingCost.get(facilityCount),
-              costToMeetDemand,
-              "facility-" + facilityCount));
-      facilityCount++;
+      final int start = (int) (position - windowStart);
+      int end = start;
+      while (end < window.limit() && !isWhitespace(window.get(end))) {
+        end++;
+      }
+      position = windowStart + end;
+      try {
+        return NumberParser.parse(window, start, end);
+      } catch (NumberFormatException e) {
+        throw new RuntimeException(
+            "Invalid benchmark file. Expecting the "
+                + what
+                + " at byte offset "
+                + (windowStart + start)
+                + " instead of: "
+                + NumberParser.toString(window, start, end));
+      }
+    }
+
+    long getPosition() {
+      return position;
     }
   }
 }
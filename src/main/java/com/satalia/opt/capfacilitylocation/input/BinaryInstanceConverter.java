@@ -0,0 +1,53 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Converts a Beasley benchmark file into the binary instance format.
+ *
+ * <p>Usage: {@code convert <benchmark-file> <binary-file> [--float]}
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@Command(
+    name = "convert",
+    mixinStandardHelpOptions = true,
+    description = "Converts a Beasley benchmark file into the binary instance format.")
+public class BinaryInstanceConverter implements Callable<Void> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BinaryInstanceConverter.class);
+
+  @Parameters(index = "0", paramLabel = "<benchmark-file>")
+  private String benchmarkFile;
+
+  @Parameters(index = "1", paramLabel = "<binary-file>")
+  private String binaryFile;
+
+  @Option(names = "--float", description = "Store the costs in single precision.")
+  private boolean singlePrecision;
+
+  public static void main(String[] args) {
+    CommandLine.call(new BinaryInstanceConverter(), args);
+  }
+
+  @Override
+  public Void call() throws Exception {
+    long start = System.currentTimeMillis();
+    BinaryInstanceWriter.convert(benchmarkFile, binaryFile, singlePrecision);
+    LOG.info(
+        "Converted "
+            + benchmarkFile
+            + " to "
+            + binaryFile
+            + " in "
+            + (System.currentTimeMillis() - start)
+            + " ms.");
+    return null;
+  }
+}
@@ -0,0 +1,47 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants of the versioned binary instance format. All values are little-endian:
+ *
+ * <pre>
+ * offset  size        content
+ *      0     4        magic "CFLB"
+ *      4     4        format version
+ *      8     4        flags (bit 0: costs stored as 4 byte floats instead of 8 byte doubles)
+ *     12     4        number of facilities F
+ *     16     4        number of clients C
+ *     20     4        reserved (0)
+ *     24     8        CRC32 checksum of all bytes from offset 32 to the end of the file
+ *     32   8*F        capacity of each facility (double)
+ *          8*F        building cost of each facility (double)
+ *          8*C        demand of each client (double)
+ *        4|8*F*C      cost matrix, row-major (facility-major)
+ * </pre>
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class BinaryInstanceFormat {
+
+  static final byte[] MAGIC = "CFLB".getBytes(StandardCharsets.US_ASCII);
+  static final int VERSION = 1;
+  static final int FLAG_SINGLE_PRECISION_COSTS = 1;
+  static final int HEADER_SIZE = 32;
+  static final int CHECKSUM_OFFSET = 24;
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  private BinaryInstanceFormat() {}
+
+  /** @return the byte offset of the cost matrix */
+  static long costMatrixOffset(int numFacilities, int numClients) {
+    return HEADER_SIZE + 8L * (2L * numFacilities + numClients);
+  }
+
+  /** @return the expected size of the file in bytes */
+  static long fileSize(int numFacilities, int numClients, boolean singlePrecisionCosts) {
+    return costMatrixOffset(numFacilities, numClients)
+        + (long) numFacilities * numClients * (singlePrecisionCosts ? 4 : 8);
+  }
+}
@@ -0,0 +1,158 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a problem input from the binary instance format (see {@link BinaryInstanceFormat}). The
+ * facility and client data is copied into the heap, the cost matrix is memory-mapped and read
+ * off-heap.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class BinaryInstanceReader {
+
+  private static final int CHECKSUM_SEGMENT_SIZE = 1 << 30;
+
+  private final String filename;
+  /** whether to verify the checksum, which reads the whole file once */
+  private final boolean verifyChecksum;
+
+  public BinaryInstanceReader(final String filename) throws FileNotFoundException {
+    this(filename, false);
+  }
+
+  public BinaryInstanceReader(final String filename, final boolean verifyChecksum)
+      throws FileNotFoundException {
+    if (!new File(filename).isFile()) {
+      throw new FileNotFoundException("Cannot find binary instance file: " + filename);
+    }
+    this.filename = filename;
+    this.verifyChecksum = verifyChecksum;
+  }
+
+  /**
+   * Returns true if the given file starts with the magic bytes of the binary instance format.
+   *
+   * @param filename the file to check
+   * @return true if the file is a binary instance file
+   */
+  public static boolean isBinaryInstance(final String filename) throws IOException {
+    byte[] magic = new byte[BinaryInstanceFormat.MAGIC.length];
+    try (InputStream in = Files.newInputStream(Paths.get(filename))) {
+      int read = 0;
+      while (read < magic.length) {
+        int n = in.read(magic, read, magic.length - read);
+        if (n < 0) {
+          return false;
+        }
+        read += n;
+      }
+    }
+    return Arrays.equals(magic, BinaryInstanceFormat.MAGIC);
+  }
+
+  public ProblemInput read() throws IOException {
+    // the mapped buffers remain valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      if (channel.size() < BinaryInstanceFormat.HEADER_SIZE) {
+        throw new RuntimeException("Invalid binary instance file, missing header: " + filename);
+      }
+      ByteBuffer header =
+          channel
+              .map(MapMode.READ_ONLY, 0, BinaryInstanceFormat.HEADER_SIZE)
+              .order(BinaryInstanceFormat.BYTE_ORDER);
+      byte[] magic = new byte[BinaryInstanceFormat.MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(magic, BinaryInstanceFormat.MAGIC)) {
+        throw new RuntimeException("Not a binary instance file: " + filename);
+      }
+      int version = header.getInt();
+      if (version != BinaryInstanceFormat.VERSION) {
+        throw new RuntimeException(
+            "Unsupported binary instance format version "
+                + version
+                + " (expecting "
+                + BinaryInstanceFormat.VERSION
+                + ") in file "
+                + filename);
+      }
+      boolean singlePrecisionCosts =
+          (header.getInt() & BinaryInstanceFormat.FLAG_SINGLE_PRECISION_COSTS) != 0;
+      int numFacilities = header.getInt();
+      int numClients = header.getInt();
+      header.getInt(); // reserved
+      long checksum = header.getLong();
+
+      long expectedSize =
+          BinaryInstanceFormat.fileSize(numFacilities, numClients, singlePrecisionCosts);
+      if (numFacilities < 0 || numClients < 0 || channel.size() != expectedSize) {
+        throw new RuntimeException(
+            "Invalid binary instance file "
+                + filename
+                + ": expecting "
+                + expectedSize
+                + " bytes for "
+                + numFacilities
+                + " facilities and "
+                + numClients
+                + " clients instead of "
+                + channel.size());
+      }
+      if (verifyChecksum) {
+        verifyChecksum(channel, checksum);
+      }
+
+      ByteBuffer data =
+          channel
+              .map(
+                  MapMode.READ_ONLY,
+                  BinaryInstanceFormat.HEADER_SIZE,
+                  BinaryInstanceFormat.costMatrixOffset(numFacilities, numClients)
+                      - BinaryInstanceFormat.HEADER_SIZE)
+              .order(BinaryInstanceFormat.BYTE_ORDER);
+      double[] capacities = new double[numFacilities];
+      double[] buildingCosts = new double[numFacilities];
+      double[] demands = new double[numClients];
+      data.asDoubleBuffer().get(capacities);
+      data.position(8 * numFacilities);
+      data.asDoubleBuffer().get(buildingCosts);
+      data.position(16 * numFacilities);
+      data.asDoubleBuffer().get(demands);
+
+      CostMatrix costs =
+          new MappedCostMatrix(
+              channel,
+              BinaryInstanceFormat.costMatrixOffset(numFacilities, numClients),
+              numFacilities,
+              numClients,
+              singlePrecisionCosts);
+      return new ProblemInput(capacities, buildingCosts, demands, costs);
+    }
+  }
+
+  private void verifyChecksum(FileChannel channel, long expectedChecksum) throws IOException {
+    CRC32 crc = new CRC32();
+    for (long position = BinaryInstanceFormat.HEADER_SIZE;
+        position < channel.size();
+        position += CHECKSUM_SEGMENT_SIZE) {
+      long size = Math.min(CHECKSUM_SEGMENT_SIZE, channel.size() - position);
+      MappedByteBuffer segment = channel.map(MapMode.READ_ONLY, position, size);
+      crc.update(segment);
+    }
+    if (crc.getValue() != expectedChecksum) {
+      throw new RuntimeException("Checksum mismatch, binary instance file is corrupt: " + filename);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a {@link ProblemInput} in the binary instance format (see {@link BinaryInstanceFormat}),
+ * which can be memory-mapped by the {@link BinaryInstanceReader} without parsing.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class BinaryInstanceWriter {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final String filename;
+  /** whether to store the costs as floats to halve the size of the cost matrix */
+  private final boolean singlePrecisionCosts;
+
+  public BinaryInstanceWriter(final String filename) {
+    this(filename, false);
+  }
+
+  public BinaryInstanceWriter(final String filename, final boolean singlePrecisionCosts) {
+    this.filename = filename;
+    this.singlePrecisionCosts = singlePrecisionCosts;
+  }
+
+  /**
+   * Converts a Beasley benchmark file (as read by {@link BenchmarkReader}) to the binary instance
+   * format.
+   *
+   * @param benchmarkFile the Beasley benchmark file
+   * @param binaryFile the binary file to write
+   * @param singlePrecisionCosts whether to store the costs as floats
+   */
+  public static void convert(
+      final String benchmarkFile, final String binaryFile, final boolean singlePrecisionCosts)
+      throws IOException {
+    ProblemInput input = new BenchmarkReader(benchmarkFile, singlePrecisionCosts).readBeasleyBenchmark();
+    new BinaryInstanceWriter(binaryFile, singlePrecisionCosts).write(input);
+  }
+
+  public void write(final ProblemInput input) throws IOException {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    try (FileChannel channel =
+        FileChannel.open(
+            Paths.get(filename),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header =
+          ByteBuffer.allocate(BinaryInstanceFormat.HEADER_SIZE)
+              .order(BinaryInstanceFormat.BYTE_ORDER);
+      header.put(BinaryInstanceFormat.MAGIC);
+      header.putInt(BinaryInstanceFormat.VERSION);
+      header.putInt(singlePrecisionCosts ? BinaryInstanceFormat.FLAG_SINGLE_PRECISION_COSTS : 0);
+      header.putInt(numFacilities);
+      header.putInt(numClients);
+      header.putInt(0);
+      header.putLong(0); // checksum, written when all data is written
+      header.flip();
+      writeFully(channel, header);
+
+      CRC32 checksum = new CRC32();
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BinaryInstanceFormat.BYTE_ORDER);
+      for (int facility = 0; facility < numFacilities; facility++) {
+        buffer = putDouble(channel, buffer, checksum, input.getCapacity(facility));
+      }
+      for (int facility = 0; facility < numFacilities; facility++) {
+        buffer = putDouble(channel, buffer, checksum, input.getBuildingCost(facility));
+      }
+      for (int client = 0; client < numClients; client++) {
+        buffer = putDouble(channel, buffer, checksum, input.getDemand(client));
+      }
+      for (int facility = 0; facility < numFacilities; facility++) {
+        for (int client = 0; client < numClients; client++) {
+          double cost = input.getCostToMeetDemand(facility, client);
+          if (singlePrecisionCosts) {
+            if (buffer.remaining() < 4) {
+              flush(channel, buffer, checksum);
+            }
+            buffer.putFloat((float) cost);
+          } else {
+            buffer = putDouble(channel, buffer, checksum, cost);
+          }
+        }
+      }
+      flush(channel, buffer, checksum);
+
+      ByteBuffer checksumBuffer = ByteBuffer.allocate(8).order(BinaryInstanceFormat.BYTE_ORDER);
+      checksumBuffer.putLong(checksum.getValue());
+      checksumBuffer.flip();
+      channel.position(BinaryInstanceFormat.CHECKSUM_OFFSET);
+      writeFully(channel, checksumBuffer);
+    }
+  }
+
+  private static ByteBuffer putDouble(
+      FileChannel channel, ByteBuffer buffer, CRC32 checksum, double value) throws IOException {
+    if (buffer.remaining() < 8) {
+      flush(channel, buffer, checksum);
+    }
+    return buffer.putDouble(value);
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum)
+      throws IOException {
+    buffer.flip();
+    checksum.update(buffer.duplicate());
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
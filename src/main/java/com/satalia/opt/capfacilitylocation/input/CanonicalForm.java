@@ -0,0 +1,175 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * A canonical order of the facilities and clients of a problem input and the SHA-256 hash of the
+ * input in that order, so that inputs that only differ in the order of their facilities and
+ * clients get the same hash, e.g. to look up earlier results.
+ *
+ * <p>Facilities and clients are ordered by a key that does not depend on their order: a 64-bit
+ * hash of their own data and of the multiset of their costs, each paired with the data of the
+ * client or facility. Facilities or clients with equal keys, which almost always have equal data
+ * and costs, stay in input order. Computing the form reads the cost matrix twice: once for the
+ * keys and once for the hash.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public final class CanonicalForm {
+
+  private final String hash;
+  /** the facility of the input at each canonical position, and the inverse */
+  private final int[] facilities;
+  private final int[] facilityPositions;
+  /** the client of the input at each canonical position, and the inverse */
+  private final int[] clients;
+  private final int[] clientPositions;
+
+  private CanonicalForm(
+      final String hash,
+      final int[] facilities,
+      final int[] facilityPositions,
+      final int[] clients,
+      final int[] clientPositions) {
+    this.hash = hash;
+    this.facilities = facilities;
+    this.facilityPositions = facilityPositions;
+    this.clients = clients;
+    this.clientPositions = clientPositions;
+  }
+
+  public static CanonicalForm of(ProblemInput input) {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    long[] facilityData = new long[numFacilities];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      facilityData[facility] =
+          mix(bits(input.getCapacity(facility)) * 31 + mix(bits(input.getBuildingCost(facility))));
+    }
+    long[] clientData = new long[numClients];
+    for (int client = 0; client < numClients; client++) {
+      clientData[client] = mix(bits(input.getDemand(client)));
+    }
+    // sums of hashes are independent of the order of the summands
+    long[] facilityKeys = new long[numFacilities];
+    long[] clientKeys = clientData.clone();
+    for (int facility = 0; facility < numFacilities; facility++) {
+      long key = facilityData[facility];
+      for (int client = 0; client < numClients; client++) {
+        final long cost = bits(input.getCostToMeetDemand(facility, client));
+        key += mix(cost ^ clientData[client]);
+        clientKeys[client] += mix(cost ^ facilityData[facility]);
+      }
+      facilityKeys[facility] = mix(key);
+    }
+    int[] facilities = order(facilityKeys);
+    int[] clients = order(clientKeys);
+    return new CanonicalForm(
+        digest(input, facilities, clients),
+        facilities,
+        inverse(facilities),
+        clients,
+        inverse(clients));
+  }
+
+  /** @return the hash of the input in canonical order, as 64 hexadecimal digits */
+  public String getHash() {
+    return hash;
+  }
+
+  /** @return the facility of the input at the canonical position */
+  public int getFacility(int position) {
+    return facilities[position];
+  }
+
+  /** @return the canonical position of the facility of the input */
+  public int getFacilityPosition(int facility) {
+    return facilityPositions[facility];
+  }
+
+  /** @return the client of the input at the canonical position */
+  public int getClient(int position) {
+    return clients[position];
+  }
+
+  /** @return the canonical position of the client of the input */
+  public int getClientPosition(int client) {
+    return clientPositions[client];
+  }
+
+  private static String digest(ProblemInput input, int[] facilities, int[] clients) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-256 is not available", e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(8 * Math.max(16, clients.length));
+    buffer.putLong(facilities.length).putLong(clients.length);
+    for (int facility : facilities) {
+      buffer = flushIfFull(digest, buffer, 16);
+      buffer.putLong(bits(input.getCapacity(facility)));
+      buffer.putLong(bits(input.getBuildingCost(facility)));
+    }
+    for (int client : clients) {
+      buffer = flushIfFull(digest, buffer, 8);
+      buffer.putLong(bits(input.getDemand(client)));
+    }
+    for (int facility : facilities) {
+      for (int client : clients) {
+        buffer = flushIfFull(digest, buffer, 8);
+        buffer.putLong(bits(input.getCostToMeetDemand(facility, client)));
+      }
+    }
+    buffer.flip();
+    digest.update(buffer);
+    StringBuilder hex = new StringBuilder(64);
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static ByteBuffer flushIfFull(MessageDigest digest, ByteBuffer buffer, int needed) {
+    if (buffer.remaining() < needed) {
+      buffer.flip();
+      digest.update(buffer);
+      buffer.clear();
+    }
+    return buffer;
+  }
+
+  /** @return the indices by increasing key, ties by increasing index */
+  private static int[] order(long[] keys) {
+    return IntStream.range(0, keys.length)
+        .boxed()
+        .sorted(Comparator.<Integer>comparingLong(i -> keys[i]).thenComparingInt(i -> i))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  private static int[] inverse(int[] order) {
+    int[] positions = new int[order.length];
+    for (int position = 0; position < order.length; position++) {
+      positions[order[position]] = position;
+    }
+    return positions;
+  }
+
+  /** @return the bits of the value, the same for 0 and -0 */
+  private static long bits(double value) {
+    return Double.doubleToLongBits(value == 0 ? 0.0 : value);
+  }
+
+  /** The finaliser of SplitMix64, which spreads each input bit over all output bits. */
+  private static long mix(long value) {
+    long z = value + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
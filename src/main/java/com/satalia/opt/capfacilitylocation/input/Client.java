@@ -1,37 +1,47 @@
 package com.satalia.opt.capfacilitylocation.input;
 
 /**
- * Represents a client in the capacitated facility problem.
+ * Represents a client in the capacitated facility problem. A client is a lightweight view on the
+ * client's data in the {@link ProblemInput}.
  *
  * @author Andrea Rendl-Pitrey
  */
 public class Client {
 
-  /** the demand of the client */
-  private final double demand;
+  /** the problem input holding the client's data */
+  private final ProblemInput input;
+  /** the number of the client in the problem input */
+  private final int index;
 
-  /** the id/name of the string */
-  private String id;
+  Client(final ProblemInput input, final int index) {
+    this.input = input;
+    this.index = index;
+  }
 
-  public Client(final double demand, final String id) {
-    this.demand = demand;
-    this.id = id;
+  public int getIndex() {
+    return this.index;
   }
 
   public double getDemand() {
-    return this.demand;
+    return input.getDemand(index);
   }
 
   @Override
   public boolean equals(Object o) {
-    if(o instanceof Client) {
-      return id.equals(((Client) o).id);
+    if (o instanceof Client) {
+      Client other = (Client) o;
+      return index == other.index && input == other.input;
     }
     return false;
   }
 
+  @Override
+  public int hashCode() {
+    return index;
+  }
+
   @Override
   public String toString() {
-    return id;
+    return "client-" + (index + 1);
   }
 }
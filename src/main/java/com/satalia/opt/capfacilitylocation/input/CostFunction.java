@@ -0,0 +1,29 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * The cost to meet the demand of a client by a facility, computed from their distance. Costs must
+ * not decrease with the distance, so that the nearest facilities of a client are its cheapest.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@FunctionalInterface
+public interface CostFunction {
+
+  /**
+   * @param distance the Euclidean distance between the facility and the client
+   * @param demand the demand of the client
+   * @return the cost to meet the demand of the client by the facility
+   */
+  double cost(double distance, double demand);
+
+  /**
+   * @param rate the cost per unit of distance and demand
+   * @return the cost function distance * demand * rate
+   */
+  static CostFunction linear(final double rate) {
+    if (rate < 0) {
+      throw new RuntimeException("Cost rate must be larger or equal to zero: " + rate);
+    }
+    return (distance, demand) -> distance * demand * rate;
+  }
+}
@@ -0,0 +1,24 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * Index-addressed storage of the cost to meet the demand of each client by each facility. Costs
+ * are accessed with primitive facility and client numbers, so reading a cost never allocates.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+interface CostMatrix {
+
+  int getNumFacilities();
+
+  int getNumClients();
+
+  /**
+   * Returns the cost for when the given facility serves the given client. Implementations do not
+   * check the bounds of the facility and client numbers.
+   *
+   * @param facility the facility number
+   * @param client the client number
+   * @return the cost for when the given facility serves the given client
+   */
+  double get(int facility, int client);
+}
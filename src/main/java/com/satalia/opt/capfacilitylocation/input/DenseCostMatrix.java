@@ -0,0 +1,44 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * Cost matrix stored in one contiguous, row-major (facility-major) double array.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class DenseCostMatrix implements CostMatrix {
+
+  private final int numFacilities;
+  private final int numClients;
+  /** costs[facility * numClients + client] */
+  private final double[] costs;
+
+  DenseCostMatrix(final int numFacilities, final int numClients, final double[] costs) {
+    if ((long) numFacilities * numClients != costs.length) {
+      throw new RuntimeException(
+          "Expecting "
+              + numFacilities
+              + " x "
+              + numClients
+              + " costs instead of "
+              + costs.length);
+    }
+    this.numFacilities = numFacilities;
+    this.numClients = numClients;
+    this.costs = costs;
+  }
+
+  @Override
+  public int getNumFacilities() {
+    return numFacilities;
+  }
+
+  @Override
+  public int getNumClients() {
+    return numClients;
+  }
+
+  @Override
+  public double get(int facility, int client) {
+    return costs[facility * numClients + client];
+  }
+}
@@ -1,48 +1,33 @@
 package com.satalia.opt.capfacilitylocation.input;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * Represents a facility in the capacitated facility location problem
+ * Represents a facility in the capacitated facility location problem. A facility is a lightweight
+ * view on the facility's data in the {@link ProblemInput}.
  *
  * @author Andrea Rendl-Pitrey
  */
 public class Facility {
 
-  /** the capacity of the facility (how much demand it can match) */
-  private final double capacity;
-  /** the cost to build the facility */
-  private final Cost buildingCost;
-  /** the cost to meet the demand of each client (incl. production and transportation costs) */
-  private final Map<Client, Cost> costToMeetDemand;
-  /** the unique name/identifier for the facility */
-  private final String id;
+  /** the problem input holding the facility's data */
+  private final ProblemInput input;
+  /** the number of the facility in the problem input */
+  private final int index;
 
-  public Facility(
-      final double capacity,
-      final Cost buildingCost,
-      final Map<Client, Cost> costToMeetDemand,
-      final String id) {
-    if (capacity < 0) {
-      throw new RuntimeException("Capacity must be larger or equal to zero instead of " + capacity);
-    }
-    this.capacity = capacity;
-    if (!buildingCost.isGreaterOrEqualZero()) {
-      throw new RuntimeException(
-          "Cost for setting up the facility must be larger than zero instead of: " + buildingCost);
-    }
-    this.buildingCost = buildingCost;
-    this.costToMeetDemand = new HashMap<>(costToMeetDemand); // create a copy
-    this.id = id;
+  Facility(final ProblemInput input, final int index) {
+    this.input = input;
+    this.index = index;
+  }
+
+  public int getIndex() {
+    return index;
   }
 
   public double getCapacity() {
-    return capacity;
+    return input.getCapacity(index);
   }
 
-  public Cost getBuildingCost() {
-    return buildingCost;
+  public double getBuildingCost() {
+    return input.getBuildingCost(index);
   }
 
   /**
@@ -51,20 +36,26 @@ public class Facility {
    * @param client
    * @return the cost it would take if the client's demand was met by the given Facility
    */
-  public Cost getCostToMeetDemand(final Client client) {
-    return costToMeetDemand.get(client);
+  public double getCostToMeetDemand(final Client client) {
+    return input.getCostToMeetDemand(index, client.getIndex());
   }
 
   @Override
   public boolean equals(Object o) {
     if (o instanceof Facility) {
-      return id.equals(((Facility) o).id);
+      Facility other = (Facility) o;
+      return index == other.index && input == other.input;
     }
     return false;
   }
 
+  @Override
+  public int hashCode() {
+    return index;
+  }
+
   @Override
   public String toString() {
-    return id;
+    return "facility-" + index;
   }
 }
@@ -0,0 +1,147 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Cost matrix that computes each cost on demand from the coordinates of the facility and the
+ * client, so memory is linear in the number of facilities and clients instead of their product.
+ * Rows of facilities whose costs are read often are computed once and kept in a small
+ * direct-mapped cache: a facility's row is cached after a quarter of its costs were computed
+ * individually, replacing the row in its slot.
+ *
+ * <p>A {@link KdTree} over the facilities finds the nearest, hence cheapest, facilities of a
+ * client without computing all its costs.
+ *
+ * <p>The cache is safe for concurrent readers: rows are immutable once published, and a reader
+ * that misses a row that another thread is caching just computes the cost itself.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class GeographicCostMatrix implements CostMatrix {
+
+  static final int DEFAULT_CACHED_ROWS = 64;
+  /** the minimal number of computed costs of a facility before its row is cached */
+  private static final int MIN_ROW_MISSES = 16;
+
+  private final double[] facilityX;
+  private final double[] facilityY;
+  private final double[] clientX;
+  private final double[] clientY;
+  private final double[] demands;
+  private final CostFunction costFunction;
+  private final KdTree facilityTree;
+
+  private final Row[] cache;
+  /** the number of costs of each facility computed since its row was last cached */
+  private final int[] misses;
+  private final int rowThreshold;
+
+  GeographicCostMatrix(
+      final double[] facilityX,
+      final double[] facilityY,
+      final double[] clientX,
+      final double[] clientY,
+      final double[] demands,
+      final CostFunction costFunction,
+      final int cachedRows) {
+    this.facilityX = facilityX;
+    this.facilityY = facilityY;
+    this.clientX = clientX;
+    this.clientY = clientY;
+    this.demands = demands;
+    this.costFunction = costFunction;
+    this.facilityTree = new KdTree(facilityX, facilityY);
+    this.cache = new Row[cachedRows];
+    this.misses = new int[facilityX.length];
+    this.rowThreshold = Math.max(MIN_ROW_MISSES, clientX.length / 4);
+  }
+
+  @Override
+  public int getNumFacilities() {
+    return facilityX.length;
+  }
+
+  @Override
+  public int getNumClients() {
+    return clientX.length;
+  }
+
+  @Override
+  public double get(int facility, int client) {
+    if (cache.length == 0) {
+      return compute(facility, client);
+    }
+    final int slot = facility % cache.length;
+    final Row row = cache[slot];
+    if (row != null && row.facility == facility) {
+      return row.costs[client];
+    }
+    // a lost update by a concurrent reader only delays caching the row
+    if (++misses[facility] >= rowThreshold) {
+      misses[facility] = 0;
+      double[] costs = new double[clientX.length];
+      for (int c = 0; c < costs.length; c++) {
+        costs[c] = compute(facility, c);
+      }
+      cache[slot] = new Row(facility, costs);
+      return costs[client];
+    }
+    return compute(facility, client);
+  }
+
+  /**
+   * @param facilities the facilities of the subset
+   * @param clients the clients of the subset
+   * @return the costs of the subset, computed from copies of their coordinates
+   */
+  GeographicCostMatrix subset(int[] facilities, int[] clients) {
+    return new GeographicCostMatrix(
+        select(facilityX, facilities),
+        select(facilityY, facilities),
+        select(clientX, clients),
+        select(clientY, clients),
+        select(demands, clients),
+        costFunction,
+        cache.length);
+  }
+
+  private static double[] select(double[] values, int[] indices) {
+    double[] selected = new double[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      selected[i] = values[indices[i]];
+    }
+    return selected;
+  }
+
+  /**
+   * @param client the client
+   * @param k the maximum number of facilities
+   * @param accept the facilities that may be returned, or null for all facilities
+   * @return the k accepted facilities nearest to the client, by increasing distance
+   */
+  int[] nearestFacilities(int client, int k, IntPredicate accept) {
+    return facilityTree.nearest(clientX[client], clientY[client], k, accept);
+  }
+
+  /** @return the distance between the facility and the client */
+  double distance(int facility, int client) {
+    final double dx = facilityX[facility] - clientX[client];
+    final double dy = facilityY[facility] - clientY[client];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private double compute(int facility, int client) {
+    return costFunction.cost(distance(facility, client), demands[client]);
+  }
+
+  /** The costs of one facility. */
+  private static class Row {
+    final int facility;
+    final double[] costs;
+
+    Row(final int facility, final double[] costs) {
+      this.facility = facility;
+      this.costs = costs;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * An instance given by the coordinates of its facilities and clients and a cost function of their
+ * distance, instead of a cost matrix. Its {@link ProblemInput} computes the costs on demand and
+ * caches a few hot rows, so memory is linear in the number of facilities and clients: an instance
+ * with 50000 clients and 5000 facilities, whose cost matrix alone would take 2GB, needs about
+ * 30MB, most of it for the row cache.
+ * Spatial indices over the facilities and the clients answer neighbourhood queries without
+ * computing any costs.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class GeographicInstance {
+
+  private final double[] facilityX;
+  private final double[] facilityY;
+  private final double[] clientX;
+  private final double[] clientY;
+  private final GeographicCostMatrix costs;
+  private final KdTree clientTree;
+  private final ProblemInput input;
+
+  /**
+   * @param facilityX the x coordinate of each facility
+   * @param facilityY the y coordinate of each facility
+   * @param capacities the capacity of each facility
+   * @param buildingCosts the cost to build each facility
+   * @param clientX the x coordinate of each client
+   * @param clientY the y coordinate of each client
+   * @param demands the demand of each client
+   * @param costFunction the cost to meet the demand of a client by a facility at a distance
+   */
+  public GeographicInstance(
+      final double[] facilityX,
+      final double[] facilityY,
+      final double[] capacities,
+      final double[] buildingCosts,
+      final double[] clientX,
+      final double[] clientY,
+      final double[] demands,
+      final CostFunction costFunction) {
+    this(
+        facilityX,
+        facilityY,
+        capacities,
+        buildingCosts,
+        clientX,
+        clientY,
+        demands,
+        costFunction,
+        GeographicCostMatrix.DEFAULT_CACHED_ROWS);
+  }
+
+  /**
+   * @param cachedRows the number of facilities whose costs are cached, 0 to compute every cost
+   */
+  public GeographicInstance(
+      final double[] facilityX,
+      final double[] facilityY,
+      final double[] capacities,
+      final double[] buildingCosts,
+      final double[] clientX,
+      final double[] clientY,
+      final double[] demands,
+      final CostFunction costFunction,
+      final int cachedRows) {
+    if (facilityX.length != facilityY.length || clientX.length != clientY.length) {
+      throw new RuntimeException(
+          "Inconsistent number of coordinates: "
+              + facilityX.length
+              + " x and "
+              + facilityY.length
+              + " y of facilities, "
+              + clientX.length
+              + " x and "
+              + clientY.length
+              + " y of clients.");
+    }
+    if (cachedRows < 0) {
+      throw new RuntimeException("Number of cached rows cannot be negative: " + cachedRows);
+    }
+    this.facilityX = facilityX.clone();
+    this.facilityY = facilityY.clone();
+    this.clientX = clientX.clone();
+    this.clientY = clientY.clone();
+    double[] clientDemands = demands.clone();
+    this.costs =
+        new GeographicCostMatrix(
+            this.facilityX,
+            this.facilityY,
+            this.clientX,
+            this.clientY,
+            clientDemands,
+            costFunction,
+            cachedRows);
+    this.clientTree = new KdTree(this.clientX, this.clientY);
+    this.input =
+        new ProblemInput(capacities.clone(), buildingCosts.clone(), clientDemands, costs);
+  }
+
+  /** @return the problem input, with costs computed on demand */
+  public ProblemInput getProblemInput() {
+    return input;
+  }
+
+  /**
+   * @param client the client
+   * @param k the maximum number of facilities
+   * @return the k facilities nearest to the client, by increasing distance
+   */
+  public int[] nearestFacilities(int client, int k) {
+    checkClient(client);
+    return costs.nearestFacilities(client, k, null);
+  }
+
+  /**
+   * @param facility the facility
+   * @param radius the maximum distance
+   * @return the clients within the radius of the facility, by increasing client number
+   */
+  public int[] clientsWithinRadius(int facility, double radius) {
+    checkFacility(facility);
+    return clientTree.withinRadius(facilityX[facility], facilityY[facility], radius);
+  }
+
+  /** @return the distance between the facility and the client */
+  public double getDistance(int facility, int client) {
+    checkFacility(facility);
+    checkClient(client);
+    return costs.distance(facility, client);
+  }
+
+  private void checkClient(int client) {
+    if (client < 0 || client >= clientX.length) {
+      throw new RuntimeException("Cannot find client, invalid client number: " + client);
+    }
+  }
+
+  private void checkFacility(int facility) {
+    if (facility < 0 || facility >= facilityX.length) {
+      throw new RuntimeException("Cannot find facility, invalid facility number: " + facility);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A sparse change of a problem input: new demands, capacities, building costs and costs to meet
+ * demand for some clients and facilities, a factor for all demands and factors for the costs of
+ * some facilities, e.g. a scenario of a sweep. Applying the delta to an input creates a modified
+ * input that shares the unchanged cost matrix rows with the original, so many modified inputs of
+ * one large instance take little more memory than the instance itself. Later changes of the same
+ * value replace earlier ones, and values that are set replace scaled values. Changed demands only
+ * change the capacity side: the costs to meet a client's demand stay the same unless they are
+ * changed or scaled, too, although Beasley costs are for the whole demand.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class InstanceDelta {
+
+  private final Map<Integer, Double> demands = new HashMap<>();
+  private double demandFactor = 1;
+  private final Map<Integer, Double> capacities = new HashMap<>();
+  private final Map<Integer, Double> buildingCosts = new HashMap<>();
+  /** the factor of the costs of each scaled facility */
+  private final Map<Integer, Double> costFactors = new HashMap<>();
+  /** the changed costs by facility and client */
+  private final Map<Integer, Map<Integer, Double>> costs = new HashMap<>();
+
+  /**
+   * Changes the demand of the client. The cost to meet its demand stays the same unless it is
+   * changed with {@link #setCost(int, int, double)}.
+   */
+  public void setDemand(int client, double demand) {
+    if (!(demand >= 0)) {
+      throw new RuntimeException("Demand must be larger or equal to zero instead of " + demand);
+    }
+    demands.put(client, demand);
+  }
+
+  /**
+   * Scales the demands without scaling the costs to meet them, see {@link #setDemand(int, double)}.
+   *
+   * @param factor the factor of the demands of all clients whose demand is not set
+   */
+  public void scaleDemands(double factor) {
+    if (!(factor >= 0) || Double.isInfinite(factor)) {
+      throw new RuntimeException(
+          "Demand factor must be larger or equal to zero instead of " + factor);
+    }
+    demandFactor = factor;
+  }
+
+  public void setCapacity(int facility, double capacity) {
+    if (!(capacity >= 0)) {
+      throw new RuntimeException(
+          "Capacity must be larger or equal to zero instead of " + capacity);
+    }
+    capacities.put(facility, capacity);
+  }
+
+  public void setBuildingCost(int facility, double buildingCost) {
+    if (!(buildingCost >= 0)) {
+      throw new RuntimeException(
+          "Cost for setting up the facility must be larger than zero instead of: " + buildingCost);
+    }
+    buildingCosts.put(facility, buildingCost);
+  }
+
+  /** @param cost the new cost to meet the demand of the client by the facility */
+  public void setCost(int facility, int client, double cost) {
+    if (Double.isNaN(cost) || Double.isInfinite(cost)) {
+      throw new RuntimeException("Cost must be finite instead of " + cost);
+    }
+    costs.computeIfAbsent(facility, f -> new HashMap<>()).put(client, cost);
+  }
+
+  /**
+   * Scales the costs of the facility without copying them.
+   *
+   * @param factor the factor of the costs to meet demand by the facility that are not set
+   */
+  public void scaleCosts(int facility, double factor) {
+    if (!(factor >= 0) || Double.isInfinite(factor)) {
+      throw new RuntimeException(
+          "Cost factor must be larger or equal to zero instead of " + factor);
+    }
+    costFactors.put(facility, factor);
+  }
+
+  /** @return true if the delta changes nothing */
+  public boolean isEmpty() {
+    return demands.isEmpty()
+        && demandFactor == 1
+        && capacities.isEmpty()
+        && buildingCosts.isEmpty()
+        && costFactors.isEmpty()
+        && costs.isEmpty();
+  }
+
+  /**
+   * Creates the modified input. The facility and client data are copied, the cost matrix is not:
+   * only the rows of facilities with changed costs are copied, and an input without cost changes
+   * shares the cost matrix (and the spatial index of inputs with coordinates) of the original.
+   *
+   * @param input the original input, which is not changed
+   * @return the input with the changes of this delta
+   */
+  public ProblemInput applyTo(ProblemInput input) {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    double[] newCapacities = input.facilities().mapToDouble(input::getCapacity).toArray();
+    double[] newBuildingCosts = input.facilities().mapToDouble(input::getBuildingCost).toArray();
+    double[] newDemands =
+        input.clients().mapToDouble(client -> input.getDemand(client) * demandFactor).toArray();
+    apply(capacities, newCapacities, "facility");
+    apply(buildingCosts, newBuildingCosts, "facility");
+    apply(demands, newDemands, "client");
+    final CostMatrix originalCosts = input.getCosts();
+    CostMatrix newCosts = originalCosts;
+    if (!costFactors.isEmpty() || !costs.isEmpty()) {
+      double[] factors = null;
+      if (!costFactors.isEmpty()) {
+        factors = new double[numFacilities];
+        Arrays.fill(factors, 1);
+        apply(costFactors, factors, "facility");
+      }
+      double[][] rows = new double[numFacilities][];
+      for (Map.Entry<Integer, Map<Integer, Double>> row : costs.entrySet()) {
+        final int facility = check(row.getKey(), numFacilities, "facility");
+        final double factor = factors == null ? 1 : factors[facility];
+        rows[facility] = new double[numClients];
+        for (int client = 0; client < numClients; client++) {
+          rows[facility][client] = originalCosts.get(facility, client) * factor;
+        }
+        apply(row.getValue(), rows[facility], "client");
+      }
+      newCosts = new OverlayCostMatrix(originalCosts, factors, rows);
+    }
+    return new ProblemInput(newCapacities, newBuildingCosts, newDemands, newCosts);
+  }
+
+  private static void apply(Map<Integer, Double> changes, double[] values, String kind) {
+    for (Map.Entry<Integer, Double> change : changes.entrySet()) {
+      values[check(change.getKey(), values.length, kind)] = change.getValue();
+    }
+  }
+
+  private static int check(int index, int size, String kind) {
+    if (index < 0 || index >= size) {
+      throw new RuntimeException("Cannot find " + kind + ", invalid " + kind + " number: " + index);
+    }
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    int numCosts = 0;
+    for (Map<Integer, Double> row : costs.values()) {
+      numCosts += row.size();
+    }
+    return "Delta of "
+        + demands.size()
+        + " demands (others scaled by "
+        + demandFactor
+        + "), "
+        + capacities.size()
+        + " capacities, "
+        + buildingCosts.size()
+        + " building costs, "
+        + costFactors.size()
+        + " scaled facility costs and "
+        + numCosts
+        + " costs";
+  }
+}
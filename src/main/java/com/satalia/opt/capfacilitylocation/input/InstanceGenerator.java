@@ -0,0 +1,244 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Generates random instances of arbitrary size in Beasley's benchmark format, following the scheme
+ * of Cornuéjols, Sridharan and Thizy (1991) that is also used by Holmberg et al. (1999):
+ *
+ * <ul>
+ *   <li>facilities and clients are placed uniformly at random in the unit square
+ *   <li>demand d_c is uniform in [5, 35]
+ *   <li>capacity s_f is uniform in [10, 160], then all capacities are scaled such that the total
+ *       capacity is the given ratio times the total demand (the capacity tightness)
+ *   <li>building cost is uniform in [0, 90] plus uniform in [100, 110] times sqrt(s_f)
+ *   <li>the cost to meet the demand of client c by facility f is 10 * distance(f, c) * d_c
+ * </ul>
+ *
+ * The cost matrix is streamed to the file row by row from the coordinates, so memory use is linear
+ * in the number of facilities and clients. Instances are reproducible for a given seed.
+ *
+ * <p>Usage: {@code InstanceGenerator <facilities> <clients> <capacity-ratio> <seed> <file>}
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class InstanceGenerator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InstanceGenerator.class);
+  private static final int BUFFER_SIZE = 1 << 20;
+  /** the cost per unit of distance and demand */
+  private static final double COST_RATE = 10;
+
+  private final int numFacilities;
+  private final int numClients;
+  /** total capacity divided by total demand, larger than 1 for feasible instances */
+  private final double capacityRatio;
+  private final long seed;
+
+  // the generated data, except for the cost matrix
+  private double[] facilityX;
+  private double[] facilityY;
+  private double[] clientX;
+  private double[] clientY;
+  private double[] demands;
+  private double[] capacities;
+  private double[] buildingCosts;
+
+  public InstanceGenerator(
+      final int numFacilities, final int numClients, final double capacityRatio, final long seed) {
+    if (numFacilities <= 0 || numClients <= 0) {
+      throw new RuntimeException(
+          "Expecting a positive number of facilities and clients instead of "
+              + numFacilities
+              + " and "
+              + numClients);
+    }
+    if (capacityRatio <= 0) {
+      throw new RuntimeException("Capacity ratio must be larger than zero: " + capacityRatio);
+    }
+    this.numFacilities = numFacilities;
+    this.numClients = numClients;
+    this.capacityRatio = capacityRatio;
+    this.seed = seed;
+  }
+
+  public static void main(String[] args) {
+    CommandLine.call(new GenerateCommand(), args);
+  }
+
+  /** Generates an instance from the command line. */
+  @Command(
+      name = "generate",
+      mixinStandardHelpOptions = true,
+      description = "Generates a random instance in Beasley's format.")
+  public static class GenerateCommand implements Callable<Void> {
+
+    @Parameters(index = "0", paramLabel = "<facilities>")
+    private int numFacilities;
+
+    @Parameters(index = "1", paramLabel = "<clients>")
+    private int numClients;
+
+    @Parameters(index = "2", paramLabel = "<capacity-ratio>")
+    private double capacityRatio;
+
+    @Parameters(index = "3", paramLabel = "<seed>")
+    private long seed;
+
+    @Parameters(index = "4", paramLabel = "<file>")
+    private String filename;
+
+    @Override
+    public Void call() throws IOException {
+      new InstanceGenerator(numFacilities, numClients, capacityRatio, seed).write(filename);
+      return null;
+    }
+  }
+
+  /**
+   * Generates the instance and writes it in Beasley's format to the given file.
+   *
+   * @param filename the file to write
+   */
+  public void write(final String filename) throws IOException {
+    long start = System.currentTimeMillis();
+    generate();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename), BUFFER_SIZE)) {
+      NumberWriter writer = new NumberWriter(out);
+      writer.writeInt(numFacilities);
+      writer.separator(' ');
+      writer.writeInt(numClients);
+      writer.separator('\n');
+      for (int facility = 0; facility < numFacilities; facility++) {
+        writer.writeNumber(capacities[facility]);
+        writer.separator(' ');
+        writer.writeNumber(buildingCosts[facility]);
+        writer.separator('\n');
+      }
+      for (int client = 0; client < numClients; client++) {
+        writer.writeNumber(demands[client]);
+        writer.separator(client + 1 < numClients ? ' ' : '\n');
+      }
+      for (int facility = 0; facility < numFacilities; facility++) {
+        for (int client = 0; client < numClients; client++) {
+          writer.writeNumber(cost(facility, client));
+          writer.separator(client + 1 < numClients ? ' ' : '\n');
+        }
+      }
+    }
+    LOG.info(
+        "Generated instance with "
+            + numFacilities
+            + " facilities and "
+            + numClients
+            + " clients in "
+            + (System.currentTimeMillis() - start)
+            + " ms: "
+            + filename);
+  }
+
+  /**
+   * Generates the instance with costs computed on demand from the coordinates instead of a cost
+   * matrix. The costs are not rounded to the two decimals of the file.
+   *
+   * @return the instance
+   */
+  public GeographicInstance generateGeographic() {
+    generate();
+    return new GeographicInstance(
+        facilityX,
+        facilityY,
+        capacities,
+        buildingCosts,
+        clientX,
+        clientY,
+        demands,
+        CostFunction.linear(COST_RATE));
+  }
+
+  private void generate() {
+    Random random = new Random(seed);
+    facilityX = new double[numFacilities];
+    facilityY = new double[numFacilities];
+    clientX = new double[numClients];
+    clientY = new double[numClients];
+    demands = new double[numClients];
+    capacities = new double[numFacilities];
+    buildingCosts = new double[numFacilities];
+
+    double totalDemand = 0;
+    for (int client = 0; client < numClients; client++) {
+      clientX[client] = random.nextDouble();
+      clientY[client] = random.nextDouble();
+      demands[client] = 5 + random.nextInt(31);
+      totalDemand += demands[client];
+    }
+    double totalCapacity = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      facilityX[facility] = random.nextDouble();
+      facilityY[facility] = random.nextDouble();
+      capacities[facility] = 10 + random.nextInt(151);
+      totalCapacity += capacities[facility];
+    }
+    double scale = capacityRatio * totalDemand / totalCapacity;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      capacities[facility] = round(capacities[facility] * scale);
+      buildingCosts[facility] =
+          round(
+              random.nextInt(91)
+                  + (100 + random.nextInt(11)) * Math.sqrt(capacities[facility]));
+    }
+  }
+
+  private double cost(int facility, int client) {
+    double dx = facilityX[facility] - clientX[client];
+    double dy = facilityY[facility] - clientY[client];
+    return COST_RATE * Math.sqrt(dx * dx + dy * dy) * demands[client];
+  }
+
+  /** rounds to the two decimals that are written to the file */
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  /** Writes non-negative numbers with two decimals without creating intermediate strings. */
+  private static class NumberWriter {
+    private final OutputStream out;
+    private final byte[] digits = new byte[20];
+
+    NumberWriter(final OutputStream out) {
+      this.out = out;
+    }
+
+    void separator(char c) throws IOException {
+      out.write(c);
+    }
+
+    void writeInt(long value) throws IOException {
+      int pos = digits.length;
+      do {
+        digits[--pos] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value > 0);
+      out.write(digits, pos, digits.length - pos);
+    }
+
+    void writeNumber(double value) throws IOException {
+      long cents = Math.round(value * 100);
+      writeInt(cents / 100);
+      out.write('.');
+      out.write((int) ('0' + cents / 10 % 10));
+      out.write((int) ('0' + cents % 10));
+    }
+  }
+}
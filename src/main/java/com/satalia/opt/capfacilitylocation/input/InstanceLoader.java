@@ -0,0 +1,21 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.io.IOException;
+
+/**
+ * Loads a problem input from a file in any of the supported formats: the binary instance format
+ * (detected by its magic bytes) or Beasley's benchmark format.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public final class InstanceLoader {
+
+  private InstanceLoader() {}
+
+  public static ProblemInput load(final String filename) throws IOException {
+    if (BinaryInstanceReader.isBinaryInstance(filename)) {
+      return new BinaryInstanceReader(filename).read();
+    }
+    return new BenchmarkReader(filename).readBeasleyBenchmark();
+  }
+}
@@ -0,0 +1,273 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Static 2-d tree over points in the plane, answering k-nearest-neighbour and radius queries. The
+ * tree is implicit: the points are stored once in a permutation array, in which the median of
+ * each range [low, high) is its node and the two halves are its subtrees, split alternately by x
+ * and y. Memory is linear in the number of points. Queries only read the tree and allocate their
+ * own buffers, so they can be run concurrently.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class KdTree {
+
+  private final double[] x;
+  private final double[] y;
+  /** the points in tree order: order[(low + high) / 2] is the node of range [low, high) */
+  private final int[] order;
+
+  KdTree(final double[] x, final double[] y) {
+    if (x.length != y.length) {
+      throw new RuntimeException(
+          "Inconsistent number of coordinates: " + x.length + " x and " + y.length + " y");
+    }
+    this.x = x;
+    this.y = y;
+    this.order = new int[x.length];
+    for (int point = 0; point < order.length; point++) {
+      order[point] = point;
+    }
+    build(0, order.length, 0);
+  }
+
+  int size() {
+    return order.length;
+  }
+
+  private void build(int low, int high, int depth) {
+    while (high - low > 1) {
+      final int median = (low + high) >>> 1;
+      select(low, high, median, (depth & 1) == 0 ? x : y);
+      build(median + 1, high, depth + 1);
+      high = median; // the left subtree, without recursion
+      depth++;
+    }
+  }
+
+  /** Partially sorts order[low, high) by the key such that order[k] is in its sorted position. */
+  private void select(int low, int high, int k, double[] key) {
+    int left = low;
+    int right = high - 1;
+    while (left < right) {
+      final double pivot = key[order[(left + right) >>> 1]];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (key[order[i]] < pivot) {
+          i++;
+        }
+        while (key[order[j]] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          final int swap = order[i];
+          order[i++] = order[j];
+          order[j--] = swap;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Finds the accepted points nearest to the query point.
+   *
+   * @param qx the x coordinate of the query point
+   * @param qy the y coordinate of the query point
+   * @param k the maximum number of points to find
+   * @param accept the points that may be returned, or null for all points
+   * @return at most k accepted points, by increasing distance (ties by increasing index)
+   */
+  int[] nearest(double qx, double qy, int k, IntPredicate accept) {
+    Neighbours neighbours = new Neighbours(Math.min(k, order.length));
+    if (neighbours.capacity > 0) {
+      nearest(0, order.length, 0, qx, qy, accept, neighbours);
+    }
+    return neighbours.sorted();
+  }
+
+  private void nearest(
+      int low,
+      int high,
+      int depth,
+      double qx,
+      double qy,
+      IntPredicate accept,
+      Neighbours neighbours) {
+    while (low < high) {
+      final int median = (low + high) >>> 1;
+      final int point = order[median];
+      if (accept == null || accept.test(point)) {
+        neighbours.offer(point, squaredDistance(point, qx, qy));
+      }
+      final double diff = (depth & 1) == 0 ? qx - x[point] : qy - y[point];
+      // the side of the query point first, then the other side if it can contain a closer point
+      if (diff < 0) {
+        nearest(low, median, depth + 1, qx, qy, accept, neighbours);
+        if (!neighbours.isCloser(diff * diff)) {
+          return;
+        }
+        low = median + 1;
+      } else {
+        nearest(median + 1, high, depth + 1, qx, qy, accept, neighbours);
+        if (!neighbours.isCloser(diff * diff)) {
+          return;
+        }
+        high = median;
+      }
+      depth++;
+    }
+  }
+
+  /**
+   * @param qx the x coordinate of the query point
+   * @param qy the y coordinate of the query point
+   * @param radius the maximum distance
+   * @return the points within the radius of the query point, by increasing index
+   */
+  int[] withinRadius(double qx, double qy, double radius) {
+    PointList points = new PointList();
+    if (radius >= 0) {
+      withinRadius(0, order.length, 0, qx, qy, radius, points);
+    }
+    int[] result = Arrays.copyOf(points.points, points.size);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private void withinRadius(
+      int low, int high, int depth, double qx, double qy, double radius, PointList points) {
+    final double squaredRadius = radius * radius;
+    while (low < high) {
+      final int median = (low + high) >>> 1;
+      final int point = order[median];
+      if (squaredDistance(point, qx, qy) <= squaredRadius) {
+        points.add(point);
+      }
+      final double diff = (depth & 1) == 0 ? qx - x[point] : qy - y[point];
+      if (diff >= -radius) {
+        // the right subtree can contain points within the radius
+        withinRadius(median + 1, high, depth + 1, qx, qy, radius, points);
+      }
+      if (diff > radius) {
+        // the left subtree cannot
+        return;
+      }
+      high = median;
+      depth++;
+    }
+  }
+
+  private double squaredDistance(int point, double qx, double qy) {
+    final double dx = x[point] - qx;
+    final double dy = y[point] - qy;
+    return dx * dx + dy * dy;
+  }
+
+  /** The best points of a nearest neighbour query, in a max-heap by squared distance. */
+  private static class Neighbours {
+    final int capacity;
+    final int[] points;
+    final double[] distances;
+    int size;
+
+    Neighbours(final int capacity) {
+      this.capacity = capacity;
+      this.points = new int[capacity];
+      this.distances = new double[capacity];
+    }
+
+    /** @return true if a point at this squared distance would be one of the best points */
+    boolean isCloser(double squaredDistance) {
+      return size < capacity || squaredDistance <= distances[0];
+    }
+
+    void offer(int point, double squaredDistance) {
+      if (size < capacity) {
+        // sift up
+        int i = size++;
+        while (i > 0 && isWorse(squaredDistance, point, (i - 1) / 2)) {
+          points[i] = points[(i - 1) / 2];
+          distances[i] = distances[(i - 1) / 2];
+          i = (i - 1) / 2;
+        }
+        points[i] = point;
+        distances[i] = squaredDistance;
+      } else if (isWorse(distances[0], points[0], squaredDistance, point)) {
+        // replace the worst point and sift down
+        int i = 0;
+        while (2 * i + 1 < size) {
+          int child = 2 * i + 1;
+          if (child + 1 < size && isWorse(distances[child + 1], points[child + 1], child)) {
+            child++;
+          }
+          if (!isWorse(distances[child], points[child], squaredDistance, point)) {
+            break;
+          }
+          points[i] = points[child];
+          distances[i] = distances[child];
+          i = child;
+        }
+        points[i] = point;
+        distances[i] = squaredDistance;
+      }
+    }
+
+    private boolean isWorse(double distance, int point, int index) {
+      return isWorse(distance, point, distances[index], points[index]);
+    }
+
+    private static boolean isWorse(
+        double distance, int point, double otherDistance, int otherPoint) {
+      return distance > otherDistance || (distance == otherDistance && point > otherPoint);
+    }
+
+    /** @return the points by increasing distance, emptying the heap */
+    int[] sorted() {
+      int[] result = new int[size];
+      while (size > 0) {
+        result[size - 1] = points[0];
+        final int lastPoint = points[--size];
+        final double lastDistance = distances[size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+          int child = 2 * i + 1;
+          if (child + 1 < size && isWorse(distances[child + 1], points[child + 1], child)) {
+            child++;
+          }
+          if (!isWorse(distances[child], points[child], lastDistance, lastPoint)) {
+            break;
+          }
+          points[i] = points[child];
+          distances[i] = distances[child];
+          i = child;
+        }
+        points[i] = lastPoint;
+        distances[i] = lastDistance;
+      }
+      return result;
+    }
+  }
+
+  /** A growable list of points. */
+  private static class PointList {
+    int[] points = new int[16];
+    int size;
+
+    void add(int point) {
+      if (size == points.length) {
+        points = Arrays.copyOf(points, 2 * size);
+      }
+      points[size++] = point;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Cost matrix that is read off-heap from a memory-mapped binary instance file (see {@link
+ * BinaryInstanceFormat}). The costs are never copied into the Java heap, so several JVMs solving
+ * the same instance share one page-cached copy of the matrix. The matrix is mapped in segments of
+ * at most 1GB, since a single mapped buffer cannot exceed 2GB.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class MappedCostMatrix implements CostMatrix {
+
+  private static final int SEGMENT_SHIFT = 30;
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final int numFacilities;
+  private final int numClients;
+  /** log2 of the number of bytes per cost: 2 for floats, 3 for doubles */
+  private final int costShift;
+  private final MappedByteBuffer[] segments;
+
+  MappedCostMatrix(
+      final FileChannel channel,
+      final long offset,
+      final int numFacilities,
+      final int numClients,
+      final boolean singlePrecisionCosts)
+      throws IOException {
+    this.numFacilities = numFacilities;
+    this.numClients = numClients;
+    this.costShift = singlePrecisionCosts ? 2 : 3;
+    final long size = ((long) numFacilities * numClients) << costShift;
+    final int numSegments = (int) Math.max(1, (size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    this.segments = new MappedByteBuffer[numSegments];
+    for (int segment = 0; segment < numSegments; segment++) {
+      final long segmentStart = (long) segment << SEGMENT_SHIFT;
+      final long segmentSize = Math.min(SEGMENT_SIZE, size - segmentStart);
+      segments[segment] =
+          channel.map(MapMode.READ_ONLY, offset + segmentStart, segmentSize);
+      segments[segment].order(BinaryInstanceFormat.BYTE_ORDER);
+    }
+  }
+
+  @Override
+  public int getNumFacilities() {
+    return numFacilities;
+  }
+
+  @Override
+  public int getNumClients() {
+    return numClients;
+  }
+
+  @Override
+  public double get(int facility, int client) {
+    // segments are a multiple of the cost size, so a cost never spans two segments
+    final long position = ((long) facility * numClients + client) << costShift;
+    final MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+    final int index = (int) (position & SEGMENT_MASK);
+    return costShift == 3 ? segment.getDouble(index) : segment.getFloat(index);
+  }
+}
@@ -0,0 +1,124 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses decimal numbers directly from the bytes of a buffer, without creating intermediate
+ * strings. Numbers with at most 15 significant digits and a small decimal exponent (which covers
+ * all benchmark files) are converted exactly with a single floating point multiplication or
+ * division; all other numbers fall back to {@link Double#parseDouble(String)}.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class NumberParser {
+
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final int MAX_FAST_EXPONENT = 22;
+  private static final double[] POWERS_OF_TEN = new double[MAX_FAST_EXPONENT + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private NumberParser() {}
+
+  /**
+   * Parses the number stored in the bytes [start, end) of the buffer.
+   *
+   * @throws NumberFormatException if the bytes do not contain a valid number
+   */
+  static double parse(ByteBuffer buffer, int start, int end) {
+    int pos = start;
+    boolean negative = false;
+    if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+      negative = buffer.get(pos) == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    // integer part
+    while (pos < end && isDigit(buffer.get(pos))) {
+      int digit = buffer.get(pos) - '0';
+      if (mantissa != 0 || digit != 0) {
+        significantDigits++;
+      }
+      if (significantDigits <= MAX_FAST_DIGITS) {
+        mantissa = mantissa * 10 + digit;
+      } else {
+        exponent++;
+      }
+      hasDigits = true;
+      pos++;
+    }
+    // fractional part
+    if (pos < end && buffer.get(pos) == '.') {
+      pos++;
+      while (pos < end && isDigit(buffer.get(pos))) {
+        int digit = buffer.get(pos) - '0';
+        if (mantissa != 0 || digit != 0) {
+          significantDigits++;
+        }
+        if (significantDigits <= MAX_FAST_DIGITS) {
+          mantissa = mantissa * 10 + digit;
+          exponent--;
+        }
+        hasDigits = true;
+        pos++;
+      }
+    }
+    // exponent
+    if (hasDigits && pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+      pos++;
+      boolean negativeExponent = false;
+      if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+        negativeExponent = buffer.get(pos) == '-';
+        pos++;
+      }
+      if (pos == end) {
+        return parseSlow(buffer, start, end);
+      }
+      int explicitExponent = 0;
+      while (pos < end && isDigit(buffer.get(pos))) {
+        explicitExponent = Math.min(explicitExponent * 10 + (buffer.get(pos) - '0'), 100_000);
+        pos++;
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if (!hasDigits || pos != end || significantDigits > MAX_FAST_DIGITS) {
+      return parseSlow(buffer, start, end); // handles errors, NaN, Infinity and long numbers
+    }
+    double value;
+    if (mantissa == 0) {
+      value = 0;
+    } else if (exponent >= 0 && exponent <= MAX_FAST_EXPONENT) {
+      value = mantissa * POWERS_OF_TEN[exponent];
+    } else if (exponent < 0 && -exponent <= MAX_FAST_EXPONENT) {
+      value = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      return parseSlow(buffer, start, end);
+    }
+    return negative ? -value : value;
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private static double parseSlow(ByteBuffer buffer, int start, int end) {
+    return Double.parseDouble(toString(buffer, start, end));
+  }
+
+  static String toString(ByteBuffer buffer, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+}
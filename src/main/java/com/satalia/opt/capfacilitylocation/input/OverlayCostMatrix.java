@@ -0,0 +1,45 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * A cost matrix that differs from another one in a few facility rows. Rows can be scaled by a
+ * factor, which is applied when a cost is read, and rows with individually changed costs are
+ * copied on write; all other costs are read from the underlying matrix, which is shared, not
+ * copied.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class OverlayCostMatrix implements CostMatrix {
+
+  private final CostMatrix costs;
+  /** the factor of each facility row, null if no row is scaled */
+  private final double[] factors;
+  /** the costs of each changed facility row, null for the rows of the underlying matrix */
+  private final double[][] rows;
+
+  OverlayCostMatrix(final CostMatrix costs, final double[] factors, final double[][] rows) {
+    this.costs = costs;
+    this.factors = factors;
+    this.rows = rows;
+  }
+
+  @Override
+  public int getNumFacilities() {
+    return costs.getNumFacilities();
+  }
+
+  @Override
+  public int getNumClients() {
+    return costs.getNumClients();
+  }
+
+  @Override
+  public double get(int facility, int client) {
+    final double[] row = rows[facility];
+    if (row != null) {
+      return row[client];
+    }
+    return factors == null
+        ? costs.get(facility, client)
+        : costs.get(facility, client) * factors[facility];
+  }
+}
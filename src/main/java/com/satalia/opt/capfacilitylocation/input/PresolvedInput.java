@@ -0,0 +1,107 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * The result of the {@link Presolver}: a reduced problem input, and the mapping of its facilities
+ * and clients back to the original input.
+ *
+ * <p>Every solution of the reduced input maps to a solution of the original input whose objective
+ * value is the reduced objective value plus the objective offset, and an optimal reduced solution
+ * maps to an optimal original solution.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class PresolvedInput {
+
+  private final ProblemInput originalInput;
+  private final ProblemInput reducedInput;
+  /** the original index of each facility of the reduced input */
+  private final int[] originalFacility;
+  /** the client of the reduced input that each original client is merged into */
+  private final int[] reducedClient;
+  /** the building costs of the mandatory facilities, which are 0 in the reduced input */
+  private final double objectiveOffset;
+  private final long presolveMillis;
+
+  PresolvedInput(
+      final ProblemInput originalInput,
+      final ProblemInput reducedInput,
+      final int[] originalFacility,
+      final int[] reducedClient,
+      final double objectiveOffset,
+      final long presolveMillis) {
+    this.originalInput = originalInput;
+    this.reducedInput = reducedInput;
+    this.originalFacility = originalFacility;
+    this.reducedClient = reducedClient;
+    this.objectiveOffset = objectiveOffset;
+    this.presolveMillis = presolveMillis;
+  }
+
+  public ProblemInput getOriginalInput() {
+    return originalInput;
+  }
+
+  public ProblemInput getReducedInput() {
+    return reducedInput;
+  }
+
+  /** @return the index in the original input of the facility of the reduced input */
+  public int getOriginalFacility(int reducedFacility) {
+    return originalFacility[reducedFacility];
+  }
+
+  /** @return the constant to add to the objective value of a reduced solution */
+  public double getObjectiveOffset() {
+    return objectiveOffset;
+  }
+
+  public long getPresolveMillis() {
+    return presolveMillis;
+  }
+
+  /** @return the number of facility-client pairs of the reduced input relative to the original */
+  public double getReductionRatio() {
+    double original = (double) originalInput.getNumFacilities() * originalInput.getNumClients();
+    double reduced = (double) reducedInput.getNumFacilities() * reducedInput.getNumClients();
+    return original == 0 ? 1 : reduced / original;
+  }
+
+  /**
+   * Maps an assignment of the reduced input back to the original input.
+   *
+   * @param reducedFacilityOfClient the facility of the reduced input serving each reduced client
+   * @return the facility of the original input serving each original client
+   */
+  public int[] postsolve(int[] reducedFacilityOfClient) {
+    if (reducedFacilityOfClient.length != reducedInput.getNumClients()) {
+      throw new RuntimeException(
+          "Expecting an assignment of the "
+              + reducedInput.getNumClients()
+              + " reduced clients instead of "
+              + reducedFacilityOfClient.length);
+    }
+    int[] facilityOfClient = new int[reducedClient.length];
+    for (int client = 0; client < reducedClient.length; client++) {
+      facilityOfClient[client] = originalFacility[reducedFacilityOfClient[reducedClient[client]]];
+    }
+    return facilityOfClient;
+  }
+
+  @Override
+  public String toString() {
+    return "Presolved "
+        + originalInput.getNumFacilities()
+        + " x "
+        + originalInput.getNumClients()
+        + " to "
+        + reducedInput.getNumFacilities()
+        + " x "
+        + reducedInput.getNumClients()
+        + String.format(" (%.1f%%)", 100 * getReductionRatio())
+        + ", objective offset "
+        + objectiveOffset
+        + " in "
+        + presolveMillis
+        + " ms";
+  }
+}
@@ -0,0 +1,303 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduces a problem input before solving, with reductions that keep at least one optimal solution
+ * of the single-source problem:
+ *
+ * <ul>
+ *   <li>capacity tightening: the capacity of a facility is at most the total demand of the clients
+ *       whose demand fits into it
+ *   <li>facilities that cannot serve any client are removed
+ *   <li>dominance: a facility g is removed if another facility f can serve all clients at once
+ *       (capacity_f >= total demand), is not more expensive to build, and is not more expensive to
+ *       serve any client from. In a solution with g, moving all of g's clients to f is feasible
+ *       and not more expensive.
+ *   <li>mandatory facilities: if the other facilities cannot meet the total demand, a facility is
+ *       opened in every solution; its building cost becomes a constant objective offset
+ *   <li>clients without demand and with the same costs are merged into one client with the summed
+ *       costs: they do not use capacity, so each is served by the cheapest opened facility
+ * </ul>
+ *
+ * Clients with positive demand are never merged, even if they are identical: in the single-source
+ * problem they may be served by different facilities. Assignments of a client to a facility its
+ * demand does not fit into are not removed from the input but left to the solvers, which never
+ * create them.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class Presolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Presolver.class);
+
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final int numClients;
+
+  public Presolver(final ProblemInput input) {
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.numClients = input.getNumClients();
+  }
+
+  public PresolvedInput presolve() {
+    final long start = System.currentTimeMillis();
+    double[] demands = input.clients().mapToDouble(input::getDemand).toArray();
+    double[] capacities = input.facilities().mapToDouble(input::getCapacity).toArray();
+    double[] buildingCosts = input.facilities().mapToDouble(input::getBuildingCost).toArray();
+    final double totalDemand = Arrays.stream(demands).sum();
+
+    // capacity tightening, and facilities that cannot serve any client
+    boolean[] removed = new boolean[numFacilities];
+    int tightened = 0;
+    int useless = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      double assignableDemand = 0;
+      boolean canServe = false;
+      for (int client = 0; client < numClients; client++) {
+        if (demands[client] <= capacities[facility]) {
+          assignableDemand += demands[client];
+          canServe = true;
+        }
+      }
+      if (!canServe) {
+        removed[facility] = true;
+        useless++;
+      } else if (assignableDemand < capacities[facility]) {
+        capacities[facility] = assignableDemand;
+        tightened++;
+      }
+    }
+
+    final int dominated =
+        removeDominatedFacilities(capacities, buildingCosts, totalDemand, removed);
+
+    // mandatory facilities
+    double totalCapacity = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      totalCapacity += removed[facility] ? 0 : capacities[facility];
+    }
+    double objectiveOffset = 0;
+    int mandatory = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (!removed[facility]
+          && totalCapacity - capacities[facility] < totalDemand
+          && totalCapacity >= totalDemand) {
+        objectiveOffset += buildingCosts[facility];
+        buildingCosts[facility] = 0;
+        mandatory++;
+      }
+    }
+
+    int[] reducedClient = mergeClientsWithoutDemand(demands, removed);
+
+    // the reduced input
+    int numReducedFacilities = numFacilities - useless - dominated;
+    int numReducedClients = 0;
+    for (int client = 0; client < numClients; client++) {
+      numReducedClients = Math.max(numReducedClients, reducedClient[client] + 1);
+    }
+    int[] originalFacility = new int[numReducedFacilities];
+    for (int facility = 0, reduced = 0; facility < numFacilities; facility++) {
+      if (!removed[facility]) {
+        originalFacility[reduced++] = facility;
+      }
+    }
+    ProblemInput reducedInput;
+    if (numReducedFacilities == numFacilities
+        && numReducedClients == numClients
+        && tightened == 0
+        && mandatory == 0) {
+      reducedInput = input;
+    } else {
+      reducedInput =
+          createReducedInput(
+              originalFacility,
+              reducedClient,
+              numReducedClients,
+              capacities,
+              buildingCosts,
+              demands);
+    }
+
+    PresolvedInput presolved =
+        new PresolvedInput(
+            input,
+            reducedInput,
+            originalFacility,
+            reducedClient,
+            objectiveOffset,
+            System.currentTimeMillis() - start);
+    LOG.info(
+        presolved
+            + ": "
+            + tightened
+            + " capacities tightened, "
+            + useless
+            + " useless and "
+            + dominated
+            + " dominated facilities removed, "
+            + mandatory
+            + " mandatory facilities, "
+            + (numClients - numReducedClients)
+            + " clients merged.");
+    return presolved;
+  }
+
+  /** Removes the facilities dominated by a facility that can serve all clients. */
+  private int removeDominatedFacilities(
+      double[] capacities, double[] buildingCosts, double totalDemand, boolean[] removed) {
+    int dominated = 0;
+    for (int dominating = 0; dominating < numFacilities; dominating++) {
+      if (removed[dominating] || capacities[dominating] < totalDemand) {
+        continue;
+      }
+      for (int facility = 0; facility < numFacilities; facility++) {
+        if (facility != dominating
+            && !removed[facility]
+            && buildingCosts[dominating] <= buildingCosts[facility]
+            && hasLowerOrEqualCosts(dominating, facility)) {
+          removed[facility] = true;
+          dominated++;
+        }
+      }
+    }
+    return dominated;
+  }
+
+  private boolean hasLowerOrEqualCosts(int dominating, int facility) {
+    for (int client = 0; client < numClients; client++) {
+      if (input.getCostToMeetDemand(dominating, client)
+          > input.getCostToMeetDemand(facility, client)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Merges the clients without demand that have the same costs for the remaining facilities.
+   *
+   * @return the client of the reduced input for each original client
+   */
+  private int[] mergeClientsWithoutDemand(double[] demands, boolean[] removed) {
+    int[] reducedClient = IntStream.range(0, numClients).toArray();
+    int numWithoutDemand = 0;
+    int[] withoutDemand = new int[numClients];
+    for (int client = 0; client < numClients; client++) {
+      if (demands[client] == 0) {
+        withoutDemand[numWithoutDemand++] = client;
+      }
+    }
+    if (numWithoutDemand < 2) {
+      return reducedClient; // nothing to merge, so the costs are not read
+    }
+    // hash the cost columns of the clients without demand, reading the cost matrix row by row
+    long[] hashes = new long[numWithoutDemand];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (removed[facility]) {
+        continue;
+      }
+      for (int i = 0; i < numWithoutDemand; i++) {
+        hashes[i] =
+            31 * hashes[i]
+                + Double.doubleToLongBits(input.getCostToMeetDemand(facility, withoutDemand[i]));
+      }
+    }
+    // sort by the high bits of the hash with the index in the low bits, so that a primitive sort
+    // groups equal hashes; the columns are compared within a group, so truncated hashes are fine
+    final int indexBits = 64 - Long.numberOfLeadingZeros(numWithoutDemand - 1);
+    final long indexMask = (1L << indexBits) - 1;
+    long[] keys = new long[numWithoutDemand];
+    for (int i = 0; i < numWithoutDemand; i++) {
+      keys[i] = (hashes[i] & ~indexMask) | i;
+    }
+    Arrays.sort(keys);
+    int[] representative = IntStream.range(0, numClients).toArray();
+    for (int i = 0; i < numWithoutDemand; i++) {
+      final int client = withoutDemand[(int) (keys[i] & indexMask)];
+      for (int j = i - 1; j >= 0 && (keys[j] & ~indexMask) == (keys[i] & ~indexMask); j--) {
+        final int other = withoutDemand[(int) (keys[j] & indexMask)];
+        if (representative[other] == other && hasSameCosts(client, other, removed)) {
+          representative[client] = other;
+          break;
+        }
+      }
+    }
+    // number the remaining clients in their original order
+    int numReducedClients = 0;
+    for (int client = 0; client < numClients; client++) {
+      if (representative[client] == client) {
+        reducedClient[client] = numReducedClients++;
+      }
+    }
+    for (int client = 0; client < numClients; client++) {
+      reducedClient[client] = reducedClient[representative[client]];
+    }
+    return reducedClient;
+  }
+
+  private boolean hasSameCosts(int client, int other, boolean[] removed) {
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (!removed[facility]
+          && input.getCostToMeetDemand(facility, client)
+              != input.getCostToMeetDemand(facility, other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private ProblemInput createReducedInput(
+      int[] originalFacility,
+      int[] reducedClient,
+      int numReducedClients,
+      double[] capacities,
+      double[] buildingCosts,
+      double[] demands) {
+    final int numReducedFacilities = originalFacility.length;
+    if (numReducedClients == numClients) {
+      // no clients were merged, so the reduced costs are a view on the original costs rather than
+      // a copy, which also keeps costs computed from coordinates from being materialised
+      double[] reducedCapacities = new double[numReducedFacilities];
+      double[] reducedBuildingCosts = new double[numReducedFacilities];
+      for (int reduced = 0; reduced < numReducedFacilities; reduced++) {
+        reducedCapacities[reduced] = capacities[originalFacility[reduced]];
+        reducedBuildingCosts[reduced] = buildingCosts[originalFacility[reduced]];
+      }
+      return input.subproblem(
+          originalFacility,
+          IntStream.range(0, numClients).toArray(),
+          reducedCapacities,
+          reducedBuildingCosts);
+    }
+    if ((long) numReducedFacilities * numReducedClients > Integer.MAX_VALUE - 8) {
+      throw new RuntimeException("Reduced cost matrix is too large to be stored in an array.");
+    }
+    double[] reducedCapacities = new double[numReducedFacilities];
+    double[] reducedBuildingCosts = new double[numReducedFacilities];
+    double[] reducedCosts = new double[numReducedFacilities * numReducedClients];
+    for (int reduced = 0; reduced < numReducedFacilities; reduced++) {
+      final int facility = originalFacility[reduced];
+      reducedCapacities[reduced] = capacities[facility];
+      reducedBuildingCosts[reduced] = buildingCosts[facility];
+      final int row = reduced * numReducedClients;
+      for (int client = 0; client < numClients; client++) {
+        reducedCosts[row + reducedClient[client]] += input.getCostToMeetDemand(facility, client);
+      }
+    }
+    double[] reducedDemands = new double[numReducedClients];
+    for (int client = 0; client < numClients; client++) {
+      reducedDemands[reducedClient[client]] += demands[client];
+    }
+    return new ProblemInput(
+        reducedCapacities,
+        reducedBuildingCosts,
+        reducedDemands,
+        new DenseCostMatrix(numReducedFacilities, numReducedClients, reducedCosts));
+  }
+}
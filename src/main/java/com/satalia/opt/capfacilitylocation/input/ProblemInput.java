@@ -1,70 +1,253 @@
 package com.satalia.opt.capfacilitylocation.input;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
+/**
+ * The input of the capacitated facility location problem. All data is stored in index-addressed
+ * primitive arrays: the capacity and building cost of each facility, the demand of each client and
+ * the cost matrix. {@link Facility} and {@link Client} objects are lightweight views on this data.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
 public class ProblemInput {
 
-  private final List<Facility> facilities;
-  private final List<Client> clients;
+  /** the capacity of each facility (how much demand it can match) */
+  private final double[] capacities;
+  /** the cost to build each facility */
+  private final double[] buildingCosts;
+  /** the demand of each client */
+  private final double[] demands;
+  /** the cost to meet the demand of each client by each facility */
+  private final CostMatrix costs;
 
-  ProblemInput(final List<Facility> facilities, final List<Client> clients) {
-    this.facilities = facilities;
-    this.clients = clients;
+  ProblemInput(
+      final double[] capacities,
+      final double[] buildingCosts,
+      final double[] demands,
+      final CostMatrix costs) {
+    if (capacities.length != buildingCosts.length
+        || capacities.length != costs.getNumFacilities()) {
+      throw new RuntimeException(
+          "Inconsistent number of facilities: "
+              + capacities.length
+              + " capacities, "
+              + buildingCosts.length
+              + " building costs and "
+              + costs.getNumFacilities()
+              + " cost matrix rows.");
+    }
+    if (demands.length != costs.getNumClients()) {
+      throw new RuntimeException(
+          "Inconsistent number of clients: "
+              + demands.length
+              + " demands and "
+              + costs.getNumClients()
+              + " cost matrix columns.");
+    }
+    for (int facility = 0; facility < capacities.length; facility++) {
+      if (capacities[facility] < 0) {
+        throw new RuntimeException(
+            "Capacity must be larger or equal to zero instead of " + capacities[facility]);
+      }
+      if (buildingCosts[facility] < 0) {
+        throw new RuntimeException(
+            "Cost for setting up the facility must be larger than zero instead of: "
+                + buildingCosts[facility]);
+      }
+    }
+    this.capacities = capacities;
+    this.buildingCosts = buildingCosts;
+    this.demands = demands;
+    this.costs = costs;
   }
 
   List<Facility> getFacilities() {
-    return this.facilities;
+    return new AbstractList<Facility>() {
+      @Override
+      public Facility get(int facility) {
+        return getFacility(facility);
+      }
+
+      @Override
+      public int size() {
+        return getNumFacilities();
+      }
+    };
   }
 
   List<Client> getClients() {
-    return this.clients;
+    return new AbstractList<Client>() {
+      @Override
+      public Client get(int client) {
+        return getClient(client);
+      }
+
+      @Override
+      public int size() {
+        return getNumClients();
+      }
+    };
   }
 
   public int getNumFacilities() {
-    return this.facilities.size();
+    return this.capacities.length;
   }
 
   public int getNumClients() {
-    return this.clients.size();
+    return this.demands.length;
   }
 
   public IntStream clients() {
-    return IntStream.range(0, clients.size());
+    return IntStream.range(0, demands.length);
   }
 
   public IntStream facilities() {
-    return IntStream.range(0, facilities.size());
+    return IntStream.range(0, capacities.length);
   }
 
   public Client getClient(int client) {
-    if(client < 0 || client >= clients.size()) {
-      throw new RuntimeException("Cannot find client, invalid client number: " + client);
-    }
-    return clients.get(client);
+    checkClient(client);
+    return new Client(this, client);
   }
 
   public Facility getFacility(int facility) {
-    if(facility < 0 || facility >= facilities.size()) {
-      throw new RuntimeException("Cannot find facility, invalid facility number: " + facility);
-    }
-    return facilities.get(facility);
+    checkFacility(facility);
+    return new Facility(this, facility);
   }
 
   /**
    * returns the cost for when the given facility serves the given client. Throws an exception
-   * if the facility or client numbers are out of bounds.
+   * if the facility or client numbers are out of bounds. Does not allocate.
    * @param facility
    * @param client
    * @return the cost for when the given facility serves the given client
    */
   public double getCostToMeetDemand(int facility, int client) {
-    Facility f = getFacility(facility);
-    Client c = getClient(client);
-    return f.getCostToMeetDemand(c).getCost();
+    checkFacility(facility);
+    checkClient(client);
+    return costs.get(facility, client);
   }
 
   public double getBuildingCost(int facility) {
-    return getFacility(facility).getBuildingCost().getCost();
+    checkFacility(facility);
+    return buildingCosts[facility];
+  }
+
+  public double getCapacity(int facility) {
+    checkFacility(facility);
+    return capacities[facility];
+  }
+
+  public double getDemand(int client) {
+    checkClient(client);
+    return demands[client];
+  }
+
+  /** @return the cost matrix, for the views and overlays of this input */
+  CostMatrix getCosts() {
+    return costs;
+  }
+
+  /**
+   * Finds the cheapest facilities of each client among those with enough capacity for its
+   * demand. Inputs with coordinates answer this from a spatial index; otherwise the cost matrix
+   * is read once, row by row.
+   *
+   * @param numCandidates the maximum number of facilities per client
+   * @return candidates[client * numCandidates + rank]: the facilities of each client by
+   *     increasing cost (ties by increasing facility number), padded with -1
+   */
+  public int[] cheapestFacilities(int numCandidates) {
+    if (numCandidates < 1) {
+      throw new RuntimeException("Expecting at least one candidate instead of " + numCandidates);
+    }
+    final int numClients = getNumClients();
+    int[] candidates = new int[numClients * numCandidates];
+    Arrays.fill(candidates, -1);
+    if (costs instanceof GeographicCostMatrix) {
+      GeographicCostMatrix geographic = (GeographicCostMatrix) costs;
+      for (int client = 0; client < numClients; client++) {
+        final double demand = demands[client];
+        int[] nearest =
+            geographic.nearestFacilities(
+                client, numCandidates, facility -> capacities[facility] >= demand);
+        System.arraycopy(nearest, 0, candidates, client * numCandidates, nearest.length);
+      }
+      return candidates;
+    }
+    double[] candidateCosts = new double[candidates.length];
+    int[] listSize = new int[numClients];
+    // facilities in the outer loop to read the row-major cost matrix sequentially
+    for (int facility = 0; facility < getNumFacilities(); facility++) {
+      for (int client = 0; client < numClients; client++) {
+        if (demands[client] > capacities[facility]) {
+          continue;
+        }
+        final double cost = costs.get(facility, client);
+        final int base = client * numCandidates;
+        int rank = listSize[client];
+        if (rank == numCandidates) {
+          if (cost >= candidateCosts[base + rank - 1]) {
+            continue;
+          }
+          rank--; // drop the most expensive candidate
+        } else {
+          listSize[client]++;
+        }
+        while (rank > 0 && candidateCosts[base + rank - 1] > cost) {
+          candidates[base + rank] = candidates[base + rank - 1];
+          candidateCosts[base + rank] = candidateCosts[base + rank - 1];
+          rank--;
+        }
+        candidates[base + rank] = facility;
+        candidateCosts[base + rank] = cost;
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Creates the subproblem over the given facilities and clients, e.g. a neighbourhood that is
+   * re-optimised while the rest of a solution stays fixed. Facility i of the subproblem is
+   * facilities[i] of this input, and client j is clients[j]. The costs are a view on this input's
+   * cost matrix, not a copy; costs computed from coordinates stay computed on demand.
+   *
+   * @param facilities the facilities of the subproblem
+   * @param clients the clients of the subproblem
+   * @param capacities the capacity of each facility of the subproblem, e.g. the capacity left by
+   *     the fixed part of a solution
+   * @param buildingCosts the building cost of each facility of the subproblem, e.g. 0 for
+   *     facilities that the fixed part of a solution opens anyway
+   * @return the subproblem
+   */
+  public ProblemInput subproblem(
+      int[] facilities, int[] clients, double[] capacities, double[] buildingCosts) {
+    for (int facility : facilities) {
+      checkFacility(facility);
+    }
+    double[] subDemands = new double[clients.length];
+    for (int client = 0; client < clients.length; client++) {
+      subDemands[client] = getDemand(clients[client]);
+    }
+    CostMatrix subCosts =
+        costs instanceof GeographicCostMatrix
+            ? ((GeographicCostMatrix) costs).subset(facilities, clients)
+            : new SubsetCostMatrix(costs, facilities.clone(), clients.clone());
+    return new ProblemInput(capacities.clone(), buildingCosts.clone(), subDemands, subCosts);
+  }
+
+  private void checkClient(int client) {
+    if (client < 0 || client >= demands.length) {
+      throw new RuntimeException("Cannot find client, invalid client number: " + client);
+    }
+  }
+
+  private void checkFacility(int facility) {
+    if (facility < 0 || facility >= capacities.length) {
+      throw new RuntimeException("Cannot find facility, invalid facility number: " + facility);
+    }
   }
 }
@@ -0,0 +1,37 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+/**
+ * A view on the costs of a subset of the facilities and clients of another cost matrix, for
+ * subproblems that must not copy the costs.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class SubsetCostMatrix implements CostMatrix {
+
+  private final CostMatrix costs;
+  /** the facility of the underlying matrix of each facility of the subset */
+  private final int[] facilities;
+  /** the client of the underlying matrix of each client of the subset */
+  private final int[] clients;
+
+  SubsetCostMatrix(final CostMatrix costs, final int[] facilities, final int[] clients) {
+    this.costs = costs;
+    this.facilities = facilities;
+    this.clients = clients;
+  }
+
+  @Override
+  public int getNumFacilities() {
+    return facilities.length;
+  }
+
+  @Override
+  public int getNumClients() {
+    return clients.length;
+  }
+
+  @Override
+  public double get(int facility, int client) {
+    return costs.get(facilities[facility], clients[client]);
+  }
+}
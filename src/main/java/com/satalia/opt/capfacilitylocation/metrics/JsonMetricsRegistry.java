@@ -0,0 +1,45 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the record of each solve, and each progress sample, as one line of JSON (JSON Lines), so
+ * that the output can be appended to and processed line by line. Write errors are logged, not
+ * thrown, so that metrics never fail a solve.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class JsonMetricsRegistry implements MetricsRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonMetricsRegistry.class);
+
+  private final Writer out;
+
+  /** @param out the writer of the lines, flushed after each line and never closed */
+  public JsonMetricsRegistry(final Writer out) {
+    this.out = out;
+  }
+
+  @Override
+  public void solveCompleted(SolveMetrics metrics) {
+    writeLine(metrics.toJson());
+  }
+
+  @Override
+  public void progress(ProgressSample sample) {
+    writeLine(sample.toJson());
+  }
+
+  private synchronized void writeLine(String json) {
+    try {
+      out.write(json);
+      out.write('\n');
+      out.flush();
+    } catch (IOException e) {
+      LOG.warn("Could not write metrics.", e);
+    }
+  }
+}
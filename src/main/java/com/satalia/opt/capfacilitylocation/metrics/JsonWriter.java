@@ -0,0 +1,151 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+/**
+ * Writes a JSON document to a string without intermediate objects, e.g.
+ *
+ * <pre>
+ * new JsonWriter().beginObject().name("status").value("OPTIMAL").endObject().toString()
+ * </pre>
+ *
+ * Commas are inserted automatically. Numbers that JSON cannot represent (infinity and NaN) are
+ * written as null.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class JsonWriter {
+
+  private final StringBuilder json = new StringBuilder();
+  /** whether the next value or name is the first of its object or array */
+  private boolean first = true;
+
+  public JsonWriter beginObject() {
+    separate();
+    json.append('{');
+    first = true;
+    return this;
+  }
+
+  public JsonWriter endObject() {
+    json.append('}');
+    first = false;
+    return this;
+  }
+
+  public JsonWriter beginArray() {
+    separate();
+    json.append('[');
+    first = true;
+    return this;
+  }
+
+  public JsonWriter endArray() {
+    json.append(']');
+    first = false;
+    return this;
+  }
+
+  /** Writes the name of the next value of an object. */
+  public JsonWriter name(String name) {
+    separate();
+    string(name);
+    json.append(':');
+    first = true; // no comma between the name and its value
+    return this;
+  }
+
+  public JsonWriter value(String value) {
+    separate();
+    if (value == null) {
+      json.append("null");
+    } else {
+      string(value);
+    }
+    return this;
+  }
+
+  public JsonWriter value(long value) {
+    separate();
+    json.append(value);
+    return this;
+  }
+
+  public JsonWriter value(double value) {
+    separate();
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      json.append("null");
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      json.append((long) value);
+    } else {
+      json.append(value);
+    }
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    separate();
+    json.append(value);
+    return this;
+  }
+
+  /** Writes a number, string or boolean, or null for other values. */
+  public JsonWriter value(Object value) {
+    if (value instanceof Long || value instanceof Integer) {
+      return value(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      return value(((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      return value(((Boolean) value).booleanValue());
+    }
+    return value(value == null ? null : value.toString());
+  }
+
+  /** Writes an already serialised JSON value. */
+  public JsonWriter rawValue(String json) {
+    separate();
+    this.json.append(json);
+    return this;
+  }
+
+  private void separate() {
+    if (!first) {
+      json.append(',');
+    }
+    first = false;
+  }
+
+  private void string(String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  @Override
+  public String toString() {
+    return json.toString();
+  }
+}
@@ -0,0 +1,26 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+/**
+ * Receives the metrics of solves, e.g. to write them to a file ({@link JsonMetricsRegistry}) or to
+ * forward them to a monitoring system. Methods may be called from solving and sampling threads
+ * concurrently and should return quickly.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public interface MetricsRegistry {
+
+  /** A registry that ignores all metrics. */
+  MetricsRegistry NONE = metrics -> {};
+
+  /** @param metrics the metrics of a completed solve */
+  void solveCompleted(SolveMetrics metrics);
+
+  /**
+   * @param metrics the metrics of the running solve
+   * @param phase the phase that just completed
+   */
+  default void phaseCompleted(SolveMetrics metrics, PhaseMetrics phase) {}
+
+  /** @param sample a periodic sample of a running solve */
+  default void progress(ProgressSample sample) {}
+}
@@ -0,0 +1,51 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+/**
+ * A running phase of a solve, started with {@link SolveMetrics#startPhase(String)} and recorded
+ * when it is closed. The CPU time and allocations are those of the thread that started the phase,
+ * so a phase must be closed on the same thread, and work it hands to other threads (or to native
+ * code that allocates outside the Java heap) is not counted.
+ *
+ * <pre>
+ * try (Phase phase = metrics.startPhase("build")) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class Phase implements AutoCloseable {
+
+  private final SolveMetrics metrics;
+  private final String name;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startAllocatedBytes;
+  private boolean closed;
+
+  Phase(final SolveMetrics metrics, final String name) {
+    this.metrics = metrics;
+    this.name = name;
+    this.startCpuNanos = ThreadMeters.cpuNanos();
+    this.startAllocatedBytes = ThreadMeters.allocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Ends the phase and records its measurements; later calls do nothing. */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    final long wallNanos = System.nanoTime() - startNanos;
+    final long cpuNanos = startCpuNanos < 0 ? -1 : ThreadMeters.cpuNanos() - startCpuNanos;
+    final long allocatedBytes =
+        startAllocatedBytes < 0 ? -1 : ThreadMeters.allocatedBytes() - startAllocatedBytes;
+    metrics.phaseCompleted(this, new PhaseMetrics(name, wallNanos, cpuNanos, allocatedBytes));
+  }
+}
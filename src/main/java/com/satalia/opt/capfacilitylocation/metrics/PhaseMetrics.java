@@ -0,0 +1,67 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+/**
+ * The measurements of one phase of a solve, e.g. reading the instance or building the model: wall
+ * time, and the CPU time and allocated bytes of the thread that ran it. Measurements the JVM does
+ * not support are -1.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class PhaseMetrics {
+
+  private final String name;
+  private final long wallNanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+
+  public PhaseMetrics(
+      final String name, final long wallNanos, final long cpuNanos, final long allocatedBytes) {
+    this.name = name;
+    this.wallNanos = wallNanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /** @return the CPU time of the thread that ran the phase, or -1 if not supported */
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  /** @return the bytes allocated by the thread that ran the phase, or -1 if not supported */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  void write(JsonWriter json) {
+    json.beginObject()
+        .name("name")
+        .value(name)
+        .name("wallMillis")
+        .value(wallNanos / 1e6)
+        .name("cpuMillis")
+        .value(cpuNanos < 0 ? -1 : cpuNanos / 1e6)
+        .name("allocatedBytes")
+        .value(allocatedBytes)
+        .endObject();
+  }
+
+  @Override
+  public String toString() {
+    return name
+        + ": "
+        + String.format("%.3f", wallNanos / 1e6)
+        + " ms wall, "
+        + String.format("%.3f", cpuNanos / 1e6)
+        + " ms CPU, "
+        + allocatedBytes
+        + " bytes allocated";
+  }
+}
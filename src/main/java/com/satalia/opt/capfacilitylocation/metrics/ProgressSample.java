@@ -0,0 +1,91 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+/**
+ * A periodic sample of a running solve: the phase it is in, the CPU time and heap usage of the
+ * process, and the best objective and bound reported so far.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class ProgressSample {
+
+  private final String solveId;
+  private final long elapsedMillis;
+  private final String phase;
+  private final long processCpuNanos;
+  private final long heapUsedBytes;
+  private final double objective;
+  private final double bound;
+
+  ProgressSample(
+      final String solveId,
+      final long elapsedMillis,
+      final String phase,
+      final long processCpuNanos,
+      final long heapUsedBytes,
+      final double objective,
+      final double bound) {
+    this.solveId = solveId;
+    this.elapsedMillis = elapsedMillis;
+    this.phase = phase;
+    this.processCpuNanos = processCpuNanos;
+    this.heapUsedBytes = heapUsedBytes;
+    this.objective = objective;
+    this.bound = bound;
+  }
+
+  public String getSolveId() {
+    return solveId;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /** @return the running phase, or null between phases */
+  public String getPhase() {
+    return phase;
+  }
+
+  /** @return the CPU time of the whole process, or -1 if not supported */
+  public long getProcessCpuNanos() {
+    return processCpuNanos;
+  }
+
+  public long getHeapUsedBytes() {
+    return heapUsedBytes;
+  }
+
+  /** @return the best objective value so far, or infinity if none is known */
+  public double getObjective() {
+    return objective;
+  }
+
+  /** @return the best bound so far, or negative infinity if none is known */
+  public double getBound() {
+    return bound;
+  }
+
+  /** @return the sample as one JSON object with "type": "progress" */
+  public String toJson() {
+    return new JsonWriter()
+        .beginObject()
+        .name("type")
+        .value("progress")
+        .name("solveId")
+        .value(solveId)
+        .name("elapsedMillis")
+        .value(elapsedMillis)
+        .name("phase")
+        .value(phase)
+        .name("processCpuMillis")
+        .value(processCpuNanos < 0 ? -1 : processCpuNanos / 1e6)
+        .name("heapUsedBytes")
+        .value(heapUsedBytes)
+        .name("objective")
+        .value(objective)
+        .name("bound")
+        .value(bound)
+        .endObject()
+        .toString();
+  }
+}
@@ -0,0 +1,211 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the metrics of one solve: the shape of the instance, the wall time, CPU time and
+ * allocations of each phase (see {@link Phase}) and the statistics of the solver, e.g. status,
+ * bound and node count. When the solve is complete, the metrics are passed to the {@link
+ * MetricsRegistry} and can be written as one JSON record with {@link #toJson()}.
+ *
+ * <p>Optionally, the running solve is sampled periodically on a background thread, which also
+ * covers long solver calls that report nothing until they return.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class SolveMetrics {
+
+  private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+  private final String id = UUID.randomUUID().toString();
+  private final MetricsRegistry registry;
+  private final Instant start = Instant.now();
+  private final long startNanos = System.nanoTime();
+
+  // guarded by this
+  private final List<PhaseMetrics> phases = new ArrayList<>();
+  private final Map<String, Object> instance = new LinkedHashMap<>();
+  private final Map<String, Object> statistics = new LinkedHashMap<>();
+  private ScheduledExecutorService sampler;
+  private long wallNanos = -1;
+
+  // read by the sampler
+  private volatile String currentPhase;
+  private volatile double objective = Double.POSITIVE_INFINITY;
+  private volatile double bound = Double.NEGATIVE_INFINITY;
+
+  /** Collects metrics that are not reported anywhere, but can be read from this object. */
+  public SolveMetrics() {
+    this(MetricsRegistry.NONE);
+  }
+
+  public SolveMetrics(final MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /** @return the unique id of the solve, shared by its record and its progress samples */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Starts a phase on the current thread, which is recorded when it is closed.
+   *
+   * @param name the name of the phase, e.g. "read", "build", "solve"
+   * @return the running phase
+   */
+  public Phase startPhase(String name) {
+    currentPhase = name;
+    return new Phase(this, name);
+  }
+
+  void phaseCompleted(Phase phase, PhaseMetrics measurements) {
+    synchronized (this) {
+      phases.add(measurements);
+    }
+    if (phase.getName().equals(currentPhase)) {
+      currentPhase = null;
+    }
+    registry.phaseCompleted(this, measurements);
+  }
+
+  /** @return the completed phases, in the order they completed */
+  public synchronized List<PhaseMetrics> getPhases() {
+    return new ArrayList<>(phases);
+  }
+
+  /** @return the last completed phase with the name, or null if there is none */
+  public synchronized PhaseMetrics getPhase(String name) {
+    for (int i = phases.size() - 1; i >= 0; i--) {
+      if (phases.get(i).getName().equals(name)) {
+        return phases.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param key a property of the instance, e.g. "facilities"
+   * @param value a number, string or boolean
+   */
+  public synchronized void setInstance(String key, Object value) {
+    instance.put(key, value);
+  }
+
+  /**
+   * @param key a statistic of the solver, e.g. "nodes"
+   * @param value a number, string or boolean
+   */
+  public synchronized void setStatistic(String key, Object value) {
+    statistics.put(key, value);
+  }
+
+  /** @return the statistic, or null if it was not set */
+  public synchronized Object getStatistic(String key) {
+    return statistics.get(key);
+  }
+
+  /**
+   * Reports the best solution and bound so far, for the progress samples.
+   *
+   * @param objective the objective value of the best solution
+   * @param bound the best bound, or negative infinity if none is known
+   */
+  public void incumbent(double objective, double bound) {
+    this.objective = Math.min(this.objective, objective);
+    this.bound = Math.max(this.bound, bound);
+  }
+
+  /**
+   * Starts sampling the solve until it is complete.
+   *
+   * @param periodMillis the time between two samples
+   */
+  public synchronized void startProgress(long periodMillis) {
+    if (periodMillis <= 0) {
+      throw new RuntimeException("Sampling period must be positive: " + periodMillis);
+    }
+    if (sampler != null || wallNanos >= 0) {
+      return;
+    }
+    sampler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "metrics-" + id);
+              thread.setDaemon(true);
+              return thread;
+            });
+    sampler.scheduleAtFixedRate(
+        () -> registry.progress(sample()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** @return a sample of the running solve */
+  public ProgressSample sample() {
+    return new ProgressSample(
+        id,
+        (System.nanoTime() - startNanos) / 1000000,
+        currentPhase,
+        ThreadMeters.processCpuNanos(),
+        MEMORY.getHeapMemoryUsage().getUsed(),
+        objective,
+        bound);
+  }
+
+  /** Ends the solve: stops sampling and passes the metrics to the registry, once. */
+  public void complete() {
+    synchronized (this) {
+      if (wallNanos >= 0) {
+        return;
+      }
+      wallNanos = System.nanoTime() - startNanos;
+      if (sampler != null) {
+        sampler.shutdownNow();
+        sampler = null;
+      }
+    }
+    registry.solveCompleted(this);
+  }
+
+  /** @return the wall time from the creation to the completion of the solve, or -1 if running */
+  public synchronized long getWallNanos() {
+    return wallNanos;
+  }
+
+  /** @return the metrics as one JSON object with "type": "solve" */
+  public synchronized String toJson() {
+    JsonWriter json =
+        new JsonWriter()
+            .beginObject()
+            .name("type")
+            .value("solve")
+            .name("solveId")
+            .value(id)
+            .name("start")
+            .value(start.toString())
+            .name("wallMillis")
+            .value(wallNanos < 0 ? -1 : wallNanos / 1e6);
+    json.name("instance").beginObject();
+    for (Map.Entry<String, Object> entry : instance.entrySet()) {
+      json.name(entry.getKey()).value(entry.getValue());
+    }
+    json.endObject().name("phases").beginArray();
+    for (PhaseMetrics phase : phases) {
+      phase.write(json);
+    }
+    json.endArray().name("statistics").beginObject();
+    for (Map.Entry<String, Object> entry : statistics.entrySet()) {
+      json.name(entry.getKey()).value(entry.getValue());
+    }
+    return json.endObject().endObject().toString();
+  }
+}
@@ -0,0 +1,55 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the CPU time and the allocated bytes of the current thread, and the CPU time of the
+ * process, where the JVM supports it.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class ThreadMeters {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final OperatingSystemMXBean OS = ManagementFactory.getOperatingSystemMXBean();
+  private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+  private static final boolean ALLOCATED_BYTES = isAllocatedBytesSupported();
+
+  private ThreadMeters() {}
+
+  private static boolean isAllocatedBytesSupported() {
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+      return false;
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+    if (!threads.isThreadAllocatedMemorySupported()) {
+      return false;
+    }
+    if (!threads.isThreadAllocatedMemoryEnabled()) {
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    return true;
+  }
+
+  /** @return the CPU time of the current thread in nanoseconds, or -1 if not supported */
+  static long cpuNanos() {
+    return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+  }
+
+  /** @return the bytes allocated by the current thread so far, or -1 if not supported */
+  static long allocatedBytes() {
+    return ALLOCATED_BYTES
+        ? ((com.sun.management.ThreadMXBean) THREADS)
+            .getThreadAllocatedBytes(Thread.currentThread().getId())
+        : -1;
+  }
+
+  /** @return the CPU time of the process in nanoseconds, or -1 if not supported */
+  static long processCpuNanos() {
+    return OS instanceof com.sun.management.OperatingSystemMXBean
+        ? ((com.sun.management.OperatingSystemMXBean) OS).getProcessCpuTime()
+        : -1;
+  }
+}
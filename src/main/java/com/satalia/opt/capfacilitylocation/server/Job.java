@@ -0,0 +1,291 @@
+package com.satalia.opt.capfacilitylocation.server;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.metrics.JsonWriter;
+import com.satalia.opt.capfacilitylocation.solving.ModelOptions;
+import com.satalia.opt.capfacilitylocation.solving.Solution;
+import com.satalia.opt.capfacilitylocation.solving.SolveParameters;
+import com.satalia.opt.capfacilitylocation.solving.SolveResult;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngine;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngineProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A solve submitted to the {@link SolveServer}: the instance file spooled from the request, the
+ * engine and parameters, and the state, incumbents and result of the solve. All methods are
+ * thread-safe; threads waiting for progress are notified on the job.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class Job implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Job.class);
+
+  enum State {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED;
+
+    boolean isFinished() {
+      return this == DONE || this == FAILED || this == CANCELLED;
+    }
+  }
+
+  private final String id = UUID.randomUUID().toString();
+  /** the instance, deleted when the job finishes */
+  private final Path instanceFile;
+  private final SolverEngineProvider engineProvider;
+  private final SolveParameters parameters;
+  /** called once when the job has finished */
+  private final Consumer<Job> finished;
+  private final long submittedMillis = System.currentTimeMillis();
+
+  // guarded by this
+  private State state = State.QUEUED;
+  private long startedMillis = -1;
+  private long finishedMillis = -1;
+  /** objective value, bound and elapsed milliseconds of each incumbent */
+  private final List<double[]> incumbents = new ArrayList<>();
+  private Solution bestSolution;
+  private SolveResult result;
+  private String error;
+  private SolverEngine engine;
+
+  Job(
+      final Path instanceFile,
+      final SolverEngineProvider engineProvider,
+      final SolveParameters parameters,
+      final Consumer<Job> finished) {
+    this.instanceFile = instanceFile;
+    this.engineProvider = engineProvider;
+    this.parameters = parameters;
+    this.finished = finished;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+
+  /** @return the time from submission to start, or to now if the job is queued */
+  synchronized long getQueuedMillis() {
+    return (startedMillis < 0 ? currentOrFinished() : startedMillis) - submittedMillis;
+  }
+
+  /** @return the time from submission to finish, or to now if the job is not finished */
+  synchronized long getTotalMillis() {
+    return currentOrFinished() - submittedMillis;
+  }
+
+  private long currentOrFinished() {
+    return finishedMillis < 0 ? System.currentTimeMillis() : finishedMillis;
+  }
+
+  synchronized int getNumIncumbents() {
+    return incumbents.size();
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      if (state != State.QUEUED) {
+        return; // cancelled while queued
+      }
+      state = State.RUNNING;
+      startedMillis = System.currentTimeMillis();
+      notifyAll();
+    }
+    try {
+      ProblemInput input = InstanceLoader.load(instanceFile.toString());
+      try (SolverEngine solver = engineProvider.create(input, new ModelOptions())) {
+        synchronized (this) {
+          if (state == State.CANCELLED) {
+            return;
+          }
+          engine = solver;
+        }
+        SolveResult solveResult = solver.solve(parameters, this::incumbentFound);
+        finish(State.DONE, solveResult, null);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Job " + id + " failed.", e);
+      finish(State.FAILED, null, String.valueOf(e));
+    } finally {
+      finish(State.FAILED, null, "The solve stopped unexpectedly."); // unless finished before
+    }
+  }
+
+  private synchronized void incumbentFound(Solution solution, double bound, long elapsedMillis) {
+    if (bestSolution == null || solution.getObjectiveValue() < bestSolution.getObjectiveValue()) {
+      bestSolution = solution;
+      incumbents.add(new double[] {solution.getObjectiveValue(), bound, elapsedMillis});
+      notifyAll();
+    }
+  }
+
+  /**
+   * Cancels the job: a queued job does not start, and a running engine is asked to stop. Engines
+   * that cannot be interrupted, such as CBC, run to their time limit, but their result is dropped.
+   *
+   * @return false if the job had already finished
+   */
+  boolean cancel() {
+    SolverEngine running;
+    synchronized (this) {
+      if (state.isFinished()) {
+        return false;
+      }
+      running = engine;
+    }
+    if (running != null) {
+      running.cancel();
+    }
+    finish(State.CANCELLED, null, null);
+    return true;
+  }
+
+  /** Finishes the job, unless it has finished already. */
+  private void finish(State finalState, SolveResult solveResult, String errorMessage) {
+    synchronized (this) {
+      if (state.isFinished()) {
+        return;
+      }
+      state = finalState;
+      result = solveResult;
+      error = errorMessage;
+      finishedMillis = System.currentTimeMillis();
+      engine = null;
+      notifyAll();
+    }
+    try {
+      Files.deleteIfExists(instanceFile);
+    } catch (IOException e) {
+      LOG.warn("Could not delete " + instanceFile, e);
+    }
+    finished.accept(this);
+  }
+
+  /**
+   * Waits until the job has more incumbents than given or has finished.
+   *
+   * @return true if there is progress, false if the timeout elapsed first
+   */
+  synchronized boolean awaitProgress(int numIncumbents, long timeoutMillis)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (incumbents.size() <= numIncumbents && !state.isFinished()) {
+      final long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+
+  /** Writes the incumbents from the given one as JSON objects with "type": "incumbent". */
+  synchronized List<String> incumbentsFrom(int first) {
+    List<String> lines = new ArrayList<>();
+    for (int i = first; i < incumbents.size(); i++) {
+      lines.add(
+          writeIncumbent(new JsonWriter().beginObject().name("type").value("incumbent"), i)
+              .endObject()
+              .toString());
+    }
+    return lines;
+  }
+
+  private JsonWriter writeIncumbent(JsonWriter json, int i) {
+    double[] incumbent = incumbents.get(i);
+    return json.name("objective")
+        .value(incumbent[0])
+        .name("bound")
+        .value(incumbent[1])
+        .name("elapsedMillis")
+        .value((long) incumbent[2]);
+  }
+
+  /** @return the state, timings, incumbents and result as JSON with "type": "status" */
+  synchronized String toJson() {
+    JsonWriter json =
+        new JsonWriter()
+            .beginObject()
+            .name("type")
+            .value("status")
+            .name("id")
+            .value(id)
+            .name("state")
+            .value(state.toString())
+            .name("engine")
+            .value(engineProvider.getName())
+            .name("queuedMillis")
+            .value(getQueuedMillis())
+            .name("totalMillis")
+            .value(getTotalMillis());
+    if (result != null) {
+      json.name("status")
+          .value(result.getStatus().toString())
+          .name("objective")
+          .value(result.getObjectiveValue())
+          .name("bound")
+          .value(result.getBound())
+          .name("gap")
+          .value(result.getGap());
+    } else if (bestSolution != null) {
+      json.name("objective").value(bestSolution.getObjectiveValue());
+    }
+    if (error != null) {
+      json.name("error").value(error);
+    }
+    json.name("incumbents").beginArray();
+    for (int i = 0; i < incumbents.size(); i++) {
+      writeIncumbent(json.beginObject(), i).endObject();
+    }
+    return json.endArray().endObject().toString();
+  }
+
+  /**
+   * @return the solution of the finished job, or else the best incumbent so far, as JSON; null if
+   *     there is none
+   */
+  synchronized String solutionToJson() {
+    Solution solution = result != null ? result.getSolution() : bestSolution;
+    if (solution == null) {
+      return null;
+    }
+    JsonWriter json =
+        new JsonWriter()
+            .beginObject()
+            .name("id")
+            .value(id)
+            .name("final")
+            .value(result != null)
+            .name("objective")
+            .value(solution.getObjectiveValue());
+    json.name("openedFacilities").beginArray();
+    for (int facility = 0; facility < solution.getInput().getNumFacilities(); facility++) {
+      if (solution.isOpened(facility)) {
+        json.value(facility);
+      }
+    }
+    json.endArray().name("facilityOfClient").beginArray();
+    for (int client = 0; client < solution.getInput().getNumClients(); client++) {
+      json.value(solution.getFacilityOfClient(client));
+    }
+    return json.endArray().endObject().toString();
+  }
+}
@@ -0,0 +1,58 @@
+package com.satalia.opt.capfacilitylocation.server;
+
+import java.util.Arrays;
+
+/**
+ * The percentiles of the most recent latencies, e.g. of the queue wait of jobs, over a sliding
+ * window of fixed size.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class LatencyStats {
+
+  /** the latencies in a ring buffer */
+  private final long[] window;
+  private long count;
+
+  LatencyStats(final int windowSize) {
+    this.window = new long[windowSize];
+  }
+
+  synchronized void record(long millis) {
+    window[(int) (count % window.length)] = millis;
+    count++;
+  }
+
+  /** @return the number of latencies recorded */
+  synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the latency at the percentile of the window (nearest rank), or -1 if none was recorded
+   */
+  synchronized long percentile(double percentile) {
+    final int size = (int) Math.min(count, window.length);
+    if (size == 0) {
+      return -1;
+    }
+    long[] sorted = Arrays.copyOf(window, size);
+    Arrays.sort(sorted);
+    final int rank = (int) Math.ceil(percentile / 100 * size);
+    return sorted[Math.max(0, rank - 1)];
+  }
+
+  /** @return the mean latency of the window, or -1 if none was recorded */
+  synchronized double mean() {
+    final int size = (int) Math.min(count, window.length);
+    if (size == 0) {
+      return -1;
+    }
+    long sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += window[i];
+    }
+    return sum / (double) size;
+  }
+}
@@ -0,0 +1,424 @@
+package com.satalia.opt.capfacilitylocation.server;
+
+import com.satalia.opt.capfacilitylocation.metrics.JsonWriter;
+import com.satalia.opt.capfacilitylocation.solving.CachingEngineProvider;
+import com.satalia.opt.capfacilitylocation.solving.ResultCache;
+import com.satalia.opt.capfacilitylocation.solving.SolveParameters;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngineProvider;
+import com.satalia.opt.capfacilitylocation.solving.SolverEngines;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-running solve service on the JDK's built-in HTTP server, so that the native library is
+ * loaded and the code is compiled once for many solves. Jobs are solved asynchronously by a fixed
+ * number of workers from a bounded queue; when the queue is full, submissions are rejected with
+ * status 429 and a Retry-After estimate, and bodies larger than a limit are rejected with status
+ * 413.
+ *
+ * <h2>API:</h2>
+ *
+ * <ul>
+ *   <li>POST /jobs with an instance in Beasley's or the binary format as body, and optionally the
+ *       query parameters engine, timeLimit (seconds), gap and threads (at most those of the
+ *       default parameters): 202 with the job status
+ *   <li>GET /jobs/{id}: the state, timings, incumbents and result of the job
+ *   <li>GET /jobs/{id}/events: a stream of one JSON line per incumbent, ending with the final
+ *       status
+ *   <li>GET /jobs/{id}/solution: the final solution, or the best incumbent of a running job
+ *   <li>DELETE /jobs/{id}: cancels the job
+ *   <li>GET /stats: queue depth, job counts, percentiles of the queue and total latency and
+ *       the hits and misses of the result cache
+ * </ul>
+ *
+ * <p>Request bodies are spooled to temporary files, which are read with the usual instance readers
+ * and deleted when the job finishes. Finished jobs are kept for polling up to a limit, oldest
+ * first out.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class SolveServer implements AutoCloseable {
+
+  /** the default maximum size of a request body, about 10^8 costs in Beasley's format */
+  public static final long DEFAULT_MAX_BODY_BYTES = 1L << 30;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SolveServer.class);
+
+  /** the number of finished jobs kept for polling */
+  private static final int MAX_FINISHED_JOBS = 1000;
+  /** the number of latencies the percentiles are computed from */
+  private static final int LATENCY_WINDOW = 1000;
+  /** the maximum time a stream of events waits for progress before checking the connection */
+  private static final long EVENT_WAIT_MILLIS = 1000;
+
+  private final HttpServer server;
+  private final ExecutorService handlers;
+  private final ThreadPoolExecutor workers;
+  private final int numWorkers;
+  private final SolveParameters defaultParameters;
+  private final String defaultEngine;
+  private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+  // guarded by itself
+  private final Deque<String> finishedJobs = new ArrayDeque<>();
+  private final LatencyStats queueLatency = new LatencyStats(LATENCY_WINDOW);
+  private final LatencyStats totalLatency = new LatencyStats(LATENCY_WINDOW);
+  private final AtomicLong numSubmitted = new AtomicLong();
+  private final AtomicLong numRejected = new AtomicLong();
+  private final AtomicInteger workerNumber = new AtomicInteger();
+  private volatile ResultCache resultCache;
+  private volatile long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+
+  /**
+   * Creates the server; it accepts requests once it is started.
+   *
+   * @param port the port on the loopback interface, or 0 for any free port
+   * @param numWorkers the number of jobs solved concurrently
+   * @param queueCapacity the number of jobs that can wait for a worker
+   * @param defaultParameters the parameters of jobs that do not set them, e.g. the time limit;
+   *     their number of threads is the maximum of each job
+   * @param defaultEngine the name of the engine of jobs that do not set one
+   */
+  public SolveServer(
+      final int port,
+      final int numWorkers,
+      final int queueCapacity,
+      final SolveParameters defaultParameters,
+      final String defaultEngine)
+      throws IOException {
+    if (numWorkers < 1 || queueCapacity < 1) {
+      throw new RuntimeException(
+          "Expecting at least one worker and queue slot instead of "
+              + numWorkers
+              + " and "
+              + queueCapacity);
+    }
+    this.numWorkers = numWorkers;
+    this.defaultParameters = defaultParameters;
+    this.defaultEngine = defaultEngine;
+    this.workers =
+        new ThreadPoolExecutor(
+            numWorkers,
+            numWorkers,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> new Thread(runnable, "solve-worker-" + workerNumber.incrementAndGet()));
+    this.handlers = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+    server.setExecutor(handlers);
+    server.createContext("/jobs", this::handleJobs);
+    server.createContext("/stats", this::handleStats);
+  }
+
+  /** @param resultCache the cache of the results of all jobs, or null for none */
+  public void setResultCache(ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /** @param maxBodyBytes the maximum size of a submitted instance; larger ones get status 413 */
+  public void setMaxBodyBytes(long maxBodyBytes) {
+    if (maxBodyBytes < 1) {
+      throw new RuntimeException(
+          "Maximum body size must be at least one byte instead of " + maxBodyBytes);
+    }
+    this.maxBodyBytes = maxBodyBytes;
+  }
+
+  public void start() {
+    server.start();
+    LOG.info(
+        "Solve server listening on port "
+            + getPort()
+            + " with "
+            + numWorkers
+            + " workers and "
+            + workers.getQueue().remainingCapacity()
+            + " queue slots.");
+  }
+
+  /** @return the port the server listens on */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stops accepting requests and cancels all unfinished jobs. */
+  @Override
+  public void close() {
+    server.stop(0);
+    for (Job job : jobs.values()) {
+      job.cancel();
+    }
+    workers.shutdownNow();
+    handlers.shutdownNow();
+  }
+
+  private void handleJobs(HttpExchange exchange) throws IOException {
+    try {
+      String[] path = exchange.getRequestURI().getPath().split("/");
+      // "", "jobs", id, sub-resource
+      String method = exchange.getRequestMethod();
+      if (path.length == 2 && method.equals("POST")) {
+        submit(exchange);
+        return;
+      }
+      Job job = path.length >= 3 ? jobs.get(path[2]) : null;
+      if (job == null || path.length > 4) {
+        send(exchange, 404, error("Cannot find job"));
+      } else if (path.length == 3 && method.equals("GET")) {
+        send(exchange, 200, job.toJson());
+      } else if (path.length == 3 && method.equals("DELETE")) {
+        job.cancel();
+        send(exchange, 200, job.toJson());
+      } else if (path.length == 4 && path[3].equals("solution") && method.equals("GET")) {
+        String solution = job.solutionToJson();
+        if (solution == null) {
+          send(exchange, 404, error("No solution yet"));
+        } else {
+          send(exchange, 200, solution);
+        }
+      } else if (path.length == 4 && path[3].equals("events") && method.equals("GET")) {
+        streamEvents(exchange, job);
+      } else {
+        send(
+            exchange, 405, error("Unsupported request " + method + " " + exchange.getRequestURI()));
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to handle " + exchange.getRequestURI(), e);
+      send(exchange, 400, error(String.valueOf(e.getMessage())));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void submit(HttpExchange exchange) throws IOException {
+    // reject before reading a large body if the queue is known to be full
+    if (workers.getQueue().remainingCapacity() == 0) {
+      reject(exchange);
+      return;
+    }
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    SolveParameters parameters = defaultParameters.copy();
+    if (query.containsKey("timeLimit")) {
+      parameters.setTimeLimitMillis(Math.round(Double.parseDouble(query.get("timeLimit")) * 1000));
+    }
+    if (query.containsKey("gap")) {
+      parameters.setRelativeGap(Double.parseDouble(query.get("gap")));
+    }
+    if (query.containsKey("threads")) {
+      // at most the threads per job of the server, so that the workers do not oversubscribe
+      parameters.setNumThreads(
+          Math.min(Integer.parseInt(query.get("threads")), defaultParameters.getNumThreads()));
+    }
+    SolverEngineProvider engine = SolverEngines.find(query.getOrDefault("engine", defaultEngine));
+    ResultCache cache = resultCache;
+    if (cache != null) {
+      engine = new CachingEngineProvider(engine, cache);
+    }
+
+    final long limit = maxBodyBytes;
+    final String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (contentLength != null && Long.parseLong(contentLength) > limit) {
+      send(exchange, 413, error("The instance is larger than " + limit + " bytes"));
+      return;
+    }
+    Path instanceFile = Files.createTempFile("instance-", ".job");
+    // a chunked body has no length, so the limit is checked while spooling, too
+    if (!spool(exchange.getRequestBody(), instanceFile, limit)) {
+      Files.deleteIfExists(instanceFile);
+      send(exchange, 413, error("The instance is larger than " + limit + " bytes"));
+      return;
+    }
+    Job job = new Job(instanceFile, engine, parameters, this::jobFinished);
+    jobs.put(job.getId(), job);
+    try {
+      workers.execute(job);
+    } catch (RejectedExecutionException e) {
+      jobs.remove(job.getId());
+      Files.deleteIfExists(instanceFile);
+      reject(exchange);
+      return;
+    }
+    numSubmitted.incrementAndGet();
+    exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+    send(exchange, 202, job.toJson());
+  }
+
+  /** @return whether the body fits the limit; if not, the file holds only a part of it */
+  private static boolean spool(InputStream body, Path file, long limit) throws IOException {
+    long size = 0;
+    try (InputStream in = body;
+        OutputStream out = Files.newOutputStream(file)) {
+      byte[] buffer = new byte[65536];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        size += read;
+        if (size > limit) {
+          return false;
+        }
+        out.write(buffer, 0, read);
+      }
+    }
+    return true;
+  }
+
+  /** Rejects a submission with an estimate of when a queue slot is free. */
+  private void reject(HttpExchange exchange) throws IOException {
+    numRejected.incrementAndGet();
+    final double meanRunMillis = Math.max(1000, totalLatency.mean() - queueLatency.mean());
+    final long retrySeconds =
+        retryAfterSeconds(meanRunMillis, workers.getQueue().size(), numWorkers);
+    exchange.getResponseHeaders().set("Retry-After", Long.toString(retrySeconds));
+    send(exchange, 429, error("The job queue is full"));
+  }
+
+  /**
+   * @return the seconds until a queue slot is free, at least one: the queue drains at numWorkers
+   *     jobs per mean job duration, so a fraction of a job per worker counts, too
+   */
+  static long retryAfterSeconds(double meanRunMillis, int numQueued, int numWorkers) {
+    final double waitMillis = meanRunMillis * (1 + (double) numQueued / numWorkers);
+    return Math.max(1, (long) Math.ceil(waitMillis / 1000));
+  }
+
+  private void jobFinished(Job job) {
+    workers.remove(job); // a job cancelled while queued frees its slot
+    queueLatency.record(job.getQueuedMillis());
+    totalLatency.record(job.getTotalMillis());
+    synchronized (finishedJobs) {
+      finishedJobs.addLast(job.getId());
+      while (finishedJobs.size() > MAX_FINISHED_JOBS) {
+        jobs.remove(finishedJobs.removeFirst());
+      }
+    }
+    LOG.info("Job " + job.getId() + " " + job.getState() + " in " + job.getTotalMillis() + " ms.");
+  }
+
+  /** Streams one JSON line per incumbent as it is found and the final status last. */
+  private void streamEvents(HttpExchange exchange, Job job) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+    exchange.sendResponseHeaders(200, 0); // chunked
+    try (OutputStream out = exchange.getResponseBody()) {
+      int numSent = 0;
+      while (true) {
+        final boolean finished = job.getState().isFinished();
+        for (String line : job.incumbentsFrom(numSent)) {
+          out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+          numSent++;
+        }
+        out.flush();
+        if (finished) {
+          break;
+        }
+        job.awaitProgress(numSent, EVENT_WAIT_MILLIS);
+      }
+      out.write((job.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handleStats(HttpExchange exchange) throws IOException {
+    try {
+      JsonWriter json =
+          new JsonWriter()
+              .beginObject()
+              .name("workers")
+              .value(numWorkers)
+              .name("running")
+              .value(workers.getActiveCount())
+              .name("queueDepth")
+              .value(workers.getQueue().size())
+              .name("queueCapacity")
+              .value(workers.getQueue().size() + workers.getQueue().remainingCapacity())
+              .name("submitted")
+              .value(numSubmitted.get())
+              .name("rejected")
+              .value(numRejected.get())
+              .name("finished")
+              .value(queueLatency.getCount());
+      writePercentiles(json.name("queueMillis"), queueLatency);
+      writePercentiles(json.name("totalMillis"), totalLatency);
+      ResultCache cache = resultCache;
+      if (cache != null) {
+        json.name("cache")
+            .beginObject()
+            .name("hits")
+            .value(cache.getHits())
+            .name("optimalHits")
+            .value(cache.getOptimalHits())
+            .name("misses")
+            .value(cache.getMisses())
+            .endObject();
+      }
+      send(exchange, 200, json.endObject().toString());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void writePercentiles(JsonWriter json, LatencyStats latency) {
+    json.beginObject()
+        .name("p50")
+        .value(latency.percentile(50))
+        .name("p90")
+        .value(latency.percentile(90))
+        .name("p99")
+        .value(latency.percentile(99))
+        .name("max")
+        .value(latency.percentile(100))
+        .endObject();
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery)
+      throws UnsupportedEncodingException {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      final int equals = parameter.indexOf('=');
+      if (equals > 0) {
+        query.put(
+            URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+      }
+    }
+    return query;
+  }
+
+  private static String error(String message) {
+    return new JsonWriter().beginObject().name("error").value(message).endObject().toString();
+  }
+
+  private static void send(HttpExchange exchange, int status, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
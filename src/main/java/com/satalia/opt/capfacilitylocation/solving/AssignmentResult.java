@@ -0,0 +1,118 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.BitSet;
+
+/**
+ * The result of the {@link AssignmentSolver} for one set of opened facilities: the best assignment
+ * of the clients to the opened facilities that was found, its cost, and a lower bound on the cost
+ * of any assignment to these facilities.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class AssignmentResult {
+
+  /** the relative gap below which the assignment counts as optimal */
+  private static final double OPTIMALITY_TOLERANCE = 1e-9;
+
+  private final ProblemInput input;
+  private final BitSet openedFacilities;
+  /** the facility serving each client, or null if no feasible assignment was found */
+  private final int[] assignment;
+  private final double assignmentCost;
+  private final double lowerBound;
+  private final double buildingCost;
+  private final long elapsedNanos;
+
+  AssignmentResult(
+      final ProblemInput input,
+      final BitSet openedFacilities,
+      final int[] assignment,
+      final double assignmentCost,
+      final double lowerBound,
+      final double buildingCost,
+      final long elapsedNanos) {
+    this.input = input;
+    this.openedFacilities = openedFacilities;
+    this.assignment = assignment;
+    this.assignmentCost = assignmentCost;
+    this.lowerBound = lowerBound;
+    this.buildingCost = buildingCost;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /** @return true if an assignment that respects all capacities was found */
+  public boolean isFeasible() {
+    return assignment != null;
+  }
+
+  /** @return true if the assignment is proven optimal for the opened facilities */
+  public boolean isOptimal() {
+    return isFeasible() && getGap() <= OPTIMALITY_TOLERANCE;
+  }
+
+  /** @return the cost of meeting the clients' demand, or infinity if there is no assignment */
+  public double getAssignmentCost() {
+    return assignmentCost;
+  }
+
+  /**
+   * @return a lower bound on the assignment cost for the opened facilities; infinity if they
+   *     cannot serve all clients
+   */
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  /** @return the building cost of the opened facilities */
+  public double getBuildingCost() {
+    return buildingCost;
+  }
+
+  /** @return the building and assignment cost, or infinity if there is no assignment */
+  public double getObjectiveValue() {
+    return buildingCost + assignmentCost;
+  }
+
+  /** @return the relative gap between the assignment cost and its lower bound */
+  public double getGap() {
+    if (!isFeasible()) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return assignmentCost == 0 ? 0 : (assignmentCost - lowerBound) / Math.abs(assignmentCost);
+  }
+
+  /** @return the facility serving each client, or null if no assignment was found */
+  public int[] getAssignment() {
+    return assignment == null ? null : assignment.clone();
+  }
+
+  /**
+   * @return the solution that opens the facilities, including those that serve no client, or null
+   *     if no assignment was found
+   */
+  public Solution getSolution() {
+    return assignment == null
+        ? null
+        : new Solution(input, assignment.clone(), (BitSet) openedFacilities.clone());
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "Assignment to "
+        + openedFacilities.cardinality()
+        + " opened facilities: cost "
+        + assignmentCost
+        + ", lower bound "
+        + lowerBound
+        + ", gap "
+        + String.format("%.4f%%", 100 * getGap())
+        + " in "
+        + String.format("%.3f", elapsedNanos / 1e6)
+        + " ms";
+  }
+}
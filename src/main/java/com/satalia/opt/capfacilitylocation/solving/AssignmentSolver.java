@@ -0,0 +1,596 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Assigns the clients to a fixed set of opened facilities, that is, solves the generalized
+ * assignment problem of minimising the cost of meeting the clients' demand without exceeding the
+ * capacities, with each client served by a single facility. This is the inner problem of
+ * site-selection workflows, which evaluate many candidate sets of opened facilities on one input.
+ *
+ * <ul>
+ *   <li>construction: clients with the largest regret (the cost difference between their cheapest
+ *       and second cheapest opened facility) are assigned first, each to the cheapest opened
+ *       facility with enough residual capacity. Exceeded capacities are repaired by shifting
+ *       clients out or swapping them for clients with less demand. If that fails, the clients are
+ *       packed by best fit decreasing instead, and finally by best fit in random orders, leaving
+ *       the cost to the improvement.
+ *   <li>improvement: a client is shifted to a cheaper facility, or, if its demand does not fit,
+ *       moved by an ejection chain: another client is ejected from the cheaper facility to one of
+ *       its candidates (possibly the first client's facility), and so on for up to three moves, if
+ *       the total cost decreases
+ *   <li>lower bound: the Lagrangian relaxation of the capacity constraints, whose dual converges
+ *       to the bound of the transportation relaxation (demand may be split among facilities),
+ *       maximised by subgradient optimisation
+ * </ul>
+ *
+ * All buffers are allocated once per input, and the Lagrangian multipliers are kept from one set
+ * of opened facilities to the next, which speeds up the bound for similar sets. Not thread-safe:
+ * use one solver per thread.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class AssignmentSolver {
+
+  private static final int DEFAULT_CANDIDATES = 8;
+  private static final int DEFAULT_BOUND_ITERATIONS = 50;
+  /** the maximal number of passes over all clients of the improvement */
+  private static final int MAX_PASSES = 100;
+  /** the minimal decrease of the cost for a move to count as an improvement */
+  private static final double EPSILON = 1e-6;
+  private static final double CAPACITY_EPSILON = 1e-9;
+  private static final int NONE = -1;
+  /** the maximal number of moves of an ejection chain */
+  private static final int MAX_CHAIN_LENGTH = 3;
+  /** the number of random orders tried if neither construction finds a feasible assignment */
+  private static final int RANDOM_ATTEMPTS = 20;
+
+  private enum Construction {
+    REGRET,
+    BEST_FIT_DECREASING,
+    RANDOM_BEST_FIT
+  }
+
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final int numClients;
+  private final int maxCandidates;
+  private final double[] demand;
+  private final double[] capacity;
+  private final double totalDemand;
+
+  private int boundIterations = DEFAULT_BOUND_ITERATIONS;
+
+  // the opened facilities
+  private final int[] openFacilities;
+  private int numOpen;
+  /** the cheapest opened facilities of each client: candidates[client * maxCandidates + rank] */
+  private final int[] candidates;
+  private final double[] candidateCosts;
+  private int numCandidates;
+
+  // the current assignment
+  private final int[] assignment;
+  private final double[] assignmentCost;
+  private final double[] residualCapacity;
+  /** the clients of each facility, as doubly linked lists */
+  private final int[] firstClient;
+  private final int[] nextClient;
+  private final int[] previousClient;
+  private double cost;
+
+  // construction order and the Lagrangian relaxation
+  private final int[] order;
+  private final double[] keys;
+  private final double[] multipliers;
+  private final double[] subgradient;
+  private final Random random = new Random();
+  /** the clients in the current ejection chain, and the ejectable clients at each depth */
+  private final boolean[] inChain;
+  private final int[][] chainBuffers;
+
+  public AssignmentSolver(final ProblemInput input) {
+    this(input, DEFAULT_CANDIDATES);
+  }
+
+  /**
+   * @param input the problem input
+   * @param maxCandidates the number of cheapest opened facilities considered for each client by
+   *     the improvement
+   */
+  public AssignmentSolver(final ProblemInput input, final int maxCandidates) {
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.numClients = input.getNumClients();
+    this.maxCandidates = Math.max(1, Math.min(maxCandidates, numFacilities));
+    this.demand = input.clients().mapToDouble(input::getDemand).toArray();
+    this.capacity = input.facilities().mapToDouble(input::getCapacity).toArray();
+    this.totalDemand = Arrays.stream(demand).sum();
+
+    this.openFacilities = new int[numFacilities];
+    this.candidates = new int[numClients * this.maxCandidates];
+    this.candidateCosts = new double[numClients * this.maxCandidates];
+    this.assignment = new int[numClients];
+    this.assignmentCost = new double[numClients];
+    this.residualCapacity = new double[numFacilities];
+    this.firstClient = new int[numFacilities];
+    this.nextClient = new int[numClients];
+    this.previousClient = new int[numClients];
+    this.order = new int[numClients];
+    this.keys = new double[numClients];
+    this.multipliers = new double[numFacilities];
+    this.subgradient = new double[numFacilities];
+    this.inChain = new boolean[numClients];
+    this.chainBuffers = new int[MAX_CHAIN_LENGTH][numClients];
+  }
+
+  /**
+   * @param boundIterations the number of subgradient iterations of the lower bound; 0 for the
+   *     bound of serving each client by its cheapest opened facility
+   */
+  public void setBoundIterations(int boundIterations) {
+    if (boundIterations < 0) {
+      throw new RuntimeException(
+          "Number of bound iterations cannot be negative: " + boundIterations);
+    }
+    this.boundIterations = boundIterations;
+  }
+
+  /**
+   * Assigns the clients to the opened facilities.
+   *
+   * @param openedFacilities the opened facilities
+   * @return the best assignment found and a lower bound on its cost
+   */
+  public AssignmentResult solve(BitSet openedFacilities) {
+    final long start = System.nanoTime();
+    if (openedFacilities.length() > numFacilities) {
+      throw new RuntimeException(
+          "Invalid facility "
+              + (openedFacilities.length() - 1)
+              + " for "
+              + numFacilities
+              + " facilities");
+    }
+    double buildingCost = 0;
+    double openCapacity = 0;
+    double maxCapacity = 0;
+    numOpen = 0;
+    numCandidates = 0; // the candidate lists of the previous open set are invalid
+    for (int facility = openedFacilities.nextSetBit(0);
+        facility >= 0;
+        facility = openedFacilities.nextSetBit(facility + 1)) {
+      openFacilities[numOpen++] = facility;
+      buildingCost += input.getBuildingCost(facility);
+      openCapacity += capacity[facility];
+      maxCapacity = Math.max(maxCapacity, capacity[facility]);
+    }
+    BitSet opened = (BitSet) openedFacilities.clone();
+    // without an opened facility, clients cannot be served even if none has demand
+    if (openCapacity < totalDemand - CAPACITY_EPSILON
+        || !allClientsFit(maxCapacity)
+        || (numOpen == 0 && numClients > 0)) {
+      return new AssignmentResult(
+          input,
+          opened,
+          null,
+          Double.POSITIVE_INFINITY,
+          Double.POSITIVE_INFINITY,
+          buildingCost,
+          System.nanoTime() - start);
+    }
+
+    buildCandidateLists();
+    boolean found =
+        constructAndRepair(Construction.REGRET)
+            || constructAndRepair(Construction.BEST_FIT_DECREASING);
+    random.setSeed(numOpen);
+    for (int attempt = 0; !found && attempt < RANDOM_ATTEMPTS; attempt++) {
+      found = constructAndRepair(Construction.RANDOM_BEST_FIT);
+    }
+    if (found) {
+      improve();
+    }
+    double upperBound = found ? cost : Double.POSITIVE_INFINITY;
+    double lowerBound = Math.min(lagrangianBound(upperBound), upperBound);
+    return new AssignmentResult(
+        input,
+        opened,
+        found ? assignment.clone() : null,
+        upperBound,
+        lowerBound,
+        buildingCost,
+        System.nanoTime() - start);
+  }
+
+  private boolean allClientsFit(double maxCapacity) {
+    for (int client = 0; client < numClients; client++) {
+      if (demand[client] > maxCapacity + CAPACITY_EPSILON) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Selects the cheapest opened facilities of each client, by insertion into a sorted array. */
+  private void buildCandidateLists() {
+    numCandidates = Math.min(maxCandidates, numOpen);
+    for (int client = 0; client < numClients; client++) {
+      final int offset = client * maxCandidates;
+      int size = 0;
+      for (int i = 0; i < numOpen; i++) {
+        final int facility = openFacilities[i];
+        final double facilityCost = input.getCostToMeetDemand(facility, client);
+        if (size == numCandidates && facilityCost >= candidateCosts[offset + size - 1]) {
+          continue;
+        }
+        int rank = size == numCandidates ? size - 1 : size++;
+        while (rank > 0 && candidateCosts[offset + rank - 1] > facilityCost) {
+          candidates[offset + rank] = candidates[offset + rank - 1];
+          candidateCosts[offset + rank] = candidateCosts[offset + rank - 1];
+          rank--;
+        }
+        candidates[offset + rank] = facility;
+        candidateCosts[offset + rank] = facilityCost;
+      }
+    }
+  }
+
+  /**
+   * Assigns the clients in the order of decreasing regret, each to the cheapest opened facility
+   * with enough residual capacity, or in the order of decreasing demand, each to the facility with
+   * the least residual capacity it fits into (best fit decreasing, which packs tight capacities
+   * well). Clients that do not fit anywhere are assigned to the facility with the largest residual
+   * capacity, and the exceeded capacities are repaired.
+   *
+   * @return false if the capacities could not be repaired
+   */
+  private boolean constructAndRepair(Construction construction) {
+    for (int i = 0; i < numOpen; i++) {
+      residualCapacity[openFacilities[i]] = capacity[openFacilities[i]];
+      firstClient[openFacilities[i]] = NONE;
+    }
+    cost = 0;
+    for (int client = 0; client < numClients; client++) {
+      order[client] = client;
+      final int offset = client * maxCandidates;
+      switch (construction) {
+        case REGRET:
+          keys[client] =
+              numCandidates > 1
+                  ? candidateCosts[offset] - candidateCosts[offset + 1]
+                  : Double.NEGATIVE_INFINITY;
+          break;
+        case BEST_FIT_DECREASING:
+          keys[client] = -demand[client];
+          break;
+        default:
+          keys[client] = random.nextDouble();
+      }
+    }
+    IndexSort.sortAscending(order, keys, numClients);
+    for (int i = 0; i < numClients; i++) {
+      final int client = order[i];
+      int facility =
+          construction == Construction.REGRET
+              ? cheapestFittingFacility(client)
+              : bestFittingFacility(client);
+      if (facility == NONE) {
+        facility = largestResidualFacility();
+        if (facility == NONE) {
+          return false;
+        }
+      }
+      assign(client, facility, input.getCostToMeetDemand(facility, client));
+    }
+    return repair();
+  }
+
+  /** @return the facility with the least residual capacity that the client fits into */
+  private int bestFittingFacility(int client) {
+    int best = NONE;
+    for (int i = 0; i < numOpen; i++) {
+      final int facility = openFacilities[i];
+      if (residualCapacity[facility] >= demand[client] - CAPACITY_EPSILON
+          && (best == NONE || residualCapacity[facility] < residualCapacity[best])) {
+        best = facility;
+      }
+    }
+    return best;
+  }
+
+  /** @return the opened facility with the largest residual capacity, or NONE if none is open */
+  private int largestResidualFacility() {
+    int largest = NONE;
+    for (int i = 0; i < numOpen; i++) {
+      if (largest == NONE || residualCapacity[openFacilities[i]] > residualCapacity[largest]) {
+        largest = openFacilities[i];
+      }
+    }
+    return largest;
+  }
+
+  /**
+   * Moves clients out of the facilities whose capacity is exceeded: shifts a client to the
+   * cheapest facility it fits into, or swaps it with a client of less demand of another facility.
+   *
+   * @return true if no capacity is exceeded anymore
+   */
+  private boolean repair() {
+    boolean repaired = false;
+    for (int pass = 0; !repaired && pass < MAX_PASSES; pass++) {
+      repaired = true;
+      boolean progress = false;
+      for (int i = 0; i < numOpen; i++) {
+        final int facility = openFacilities[i];
+        int client = firstClient[facility];
+        while (client != NONE && residualCapacity[facility] < -CAPACITY_EPSILON) {
+          final int next = nextClient[client];
+          progress |= shiftOrSwapOut(client);
+          client = next;
+        }
+        repaired &= residualCapacity[facility] >= -CAPACITY_EPSILON;
+      }
+      if (!progress) {
+        break;
+      }
+    }
+    return repaired;
+  }
+
+  /** Moves the client out of its facility at the lowest cost increase, without exceeding others. */
+  private boolean shiftOrSwapOut(int client) {
+    final int facility = assignment[client];
+    int bestFacility = NONE;
+    int bestOther = NONE;
+    double bestDelta = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < numOpen; i++) {
+      final int target = openFacilities[i];
+      if (target == facility) {
+        continue;
+      }
+      final double delta = input.getCostToMeetDemand(target, client) - assignmentCost[client];
+      if (residualCapacity[target] >= demand[client] - CAPACITY_EPSILON) {
+        if (delta < bestDelta) {
+          bestFacility = target;
+          bestOther = NONE;
+          bestDelta = delta;
+        }
+        continue;
+      }
+      // swap with a client of less demand, which frees capacity of the exceeded facility
+      for (int other = firstClient[target]; other != NONE; other = nextClient[other]) {
+        if (demand[other] < demand[client]
+            && residualCapacity[target] + demand[other] >= demand[client] - CAPACITY_EPSILON) {
+          final double swapDelta =
+              delta + input.getCostToMeetDemand(facility, other) - assignmentCost[other];
+          if (swapDelta < bestDelta) {
+            bestFacility = target;
+            bestOther = other;
+            bestDelta = swapDelta;
+          }
+        }
+      }
+    }
+    if (bestFacility == NONE) {
+      return false;
+    }
+    if (bestOther != NONE) {
+      move(bestOther, facility, input.getCostToMeetDemand(facility, bestOther));
+    }
+    move(client, bestFacility, input.getCostToMeetDemand(bestFacility, client));
+    return true;
+  }
+
+  private int cheapestFittingFacility(int client) {
+    final int offset = client * maxCandidates;
+    for (int rank = 0; rank < numCandidates; rank++) {
+      if (residualCapacity[candidates[offset + rank]] >= demand[client] - CAPACITY_EPSILON) {
+        return candidates[offset + rank];
+      }
+    }
+    int cheapest = NONE;
+    double cheapestCost = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < numOpen; i++) {
+      final int facility = openFacilities[i];
+      if (residualCapacity[facility] >= demand[client] - CAPACITY_EPSILON) {
+        final double facilityCost = input.getCostToMeetDemand(facility, client);
+        if (facilityCost < cheapestCost) {
+          cheapest = facility;
+          cheapestCost = facilityCost;
+        }
+      }
+    }
+    return cheapest;
+  }
+
+  private void assign(int client, int facility, double clientCost) {
+    assignment[client] = facility;
+    assignmentCost[client] = clientCost;
+    residualCapacity[facility] -= demand[client];
+    cost += clientCost;
+    previousClient[client] = NONE;
+    nextClient[client] = firstClient[facility];
+    if (firstClient[facility] != NONE) {
+      previousClient[firstClient[facility]] = client;
+    }
+    firstClient[facility] = client;
+  }
+
+  private void unassign(int client) {
+    final int facility = assignment[client];
+    residualCapacity[facility] += demand[client];
+    cost -= assignmentCost[client];
+    if (previousClient[client] == NONE) {
+      firstClient[facility] = nextClient[client];
+    } else {
+      nextClient[previousClient[client]] = nextClient[client];
+    }
+    if (nextClient[client] != NONE) {
+      previousClient[nextClient[client]] = previousClient[client];
+    }
+  }
+
+  private void move(int client, int facility, double clientCost) {
+    unassign(client);
+    assign(client, facility, clientCost);
+  }
+
+  /** Applies improving shifts and ejection chains until none is left. */
+  private void improve() {
+    boolean improved = true;
+    for (int pass = 0; improved && pass < MAX_PASSES; pass++) {
+      improved = false;
+      for (int client = 0; client < numClients; client++) {
+        improved |= improveClient(client);
+      }
+    }
+  }
+
+  /** Moves the client to a cheaper candidate facility, ejecting other clients if necessary. */
+  private boolean improveClient(int client) {
+    final double clientCost = assignmentCost[client];
+    final int offset = client * maxCandidates;
+    for (int rank = 0; rank < numCandidates; rank++) {
+      final double delta = candidateCosts[offset + rank] - clientCost;
+      if (delta >= -EPSILON) {
+        return false; // no cheaper candidates left
+      }
+      final int target = candidates[offset + rank];
+      if (tryChainMove(client, target, candidateCosts[offset + rank], delta, 0)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves the client to the target facility and, if its capacity is exceeded, ejects another client
+   * of the target to one of its candidates, recursively up to the maximal chain length. The moves
+   * are applied tentatively and undone if the chain does not end with all capacities respected.
+   *
+   * @param delta the cost change of the chain including this move
+   * @param depth the number of moves before this one
+   * @return true if the chain improves the cost and was applied
+   */
+  private boolean tryChainMove(
+      int client, int target, double targetCost, double delta, int depth) {
+    final int facility = assignment[client];
+    final double clientCost = assignmentCost[client];
+    move(client, target, targetCost);
+    inChain[client] = true;
+    if (residualCapacity[target] >= -CAPACITY_EPSILON) {
+      inChain[client] = false;
+      return true;
+    }
+    if (depth + 1 < MAX_CHAIN_LENGTH) {
+      // the clients of the target, copied since the chain reorders the lists
+      int[] ejectable = chainBuffers[depth];
+      int numEjectable = 0;
+      for (int other = firstClient[target]; other != NONE; other = nextClient[other]) {
+        if (!inChain[other] && demand[other] >= -residualCapacity[target] - CAPACITY_EPSILON) {
+          ejectable[numEjectable++] = other;
+        }
+      }
+      for (int i = 0; i < numEjectable; i++) {
+        final int other = ejectable[i];
+        final int otherOffset = other * maxCandidates;
+        for (int rank = 0; rank < numCandidates; rank++) {
+          final double chainDelta =
+              delta + candidateCosts[otherOffset + rank] - assignmentCost[other];
+          if (chainDelta >= -EPSILON) {
+            break; // the candidates are sorted by cost
+          }
+          final int third = candidates[otherOffset + rank];
+          if (third != target
+              && tryChainMove(
+                  other, third, candidateCosts[otherOffset + rank], chainDelta, depth + 1)) {
+            inChain[client] = false;
+            return true;
+          }
+        }
+      }
+    }
+    move(client, facility, clientCost);
+    inChain[client] = false;
+    return false;
+  }
+
+  /**
+   * Maximises the Lagrangian relaxation of the capacity constraints, L(m) = sum (clients c) min
+   * (opened facilities f) (costToMeetDemand_f_c + m_f * demand_c) - sum (opened facilities f) m_f *
+   * capacity_f, over the multipliers m >= 0 by subgradient optimisation.
+   *
+   * @param upperBound the cost of the best assignment, or infinity
+   * @return the best lower bound
+   */
+  private double lagrangianBound(double upperBound) {
+    // the bound with zero multipliers: each client served by its cheapest opened facility, the
+    // first candidate of the lists built for the current open set
+    if (numCandidates == 0 && numClients > 0) {
+      throw new RuntimeException("The candidate lists were not built for the opened facilities.");
+    }
+    double bestBound = 0;
+    for (int client = 0; client < numClients; client++) {
+      bestBound += candidateCosts[client * maxCandidates];
+    }
+    double stepScale = 2;
+    int nonImproving = 0;
+    for (int iteration = 0; iteration <= boundIterations; iteration++) {
+      double bound = 0;
+      for (int i = 0; i < numOpen; i++) {
+        final int facility = openFacilities[i];
+        subgradient[facility] = -capacity[facility];
+        bound -= multipliers[facility] * capacity[facility];
+      }
+      for (int client = 0; client < numClients; client++) {
+        int cheapest = NONE;
+        double cheapestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < numOpen; i++) {
+          final int facility = openFacilities[i];
+          final double reducedCost =
+              input.getCostToMeetDemand(facility, client) + multipliers[facility] * demand[client];
+          if (reducedCost < cheapestCost) {
+            cheapest = facility;
+            cheapestCost = reducedCost;
+          }
+        }
+        bound += cheapestCost;
+        subgradient[cheapest] += demand[client];
+      }
+      if (bound > bestBound + EPSILON) {
+        bestBound = bound;
+        nonImproving = 0;
+      } else if (++nonImproving == 5) {
+        stepScale /= 2;
+        nonImproving = 0;
+      }
+      if (bestBound >= upperBound - EPSILON || iteration == boundIterations) {
+        break;
+      }
+      double norm = 0;
+      for (int i = 0; i < numOpen; i++) {
+        final int facility = openFacilities[i];
+        if (multipliers[facility] > 0 || subgradient[facility] > 0) {
+          norm += subgradient[facility] * subgradient[facility];
+        }
+      }
+      if (norm == 0) {
+        break; // the relaxed assignment respects all capacities: the bound is optimal
+      }
+      final double target =
+          upperBound < Double.POSITIVE_INFINITY
+              ? upperBound
+              : bound + 0.05 * Math.max(1, Math.abs(bound));
+      final double step = stepScale * (target - bound) / norm;
+      for (int i = 0; i < numOpen; i++) {
+        final int facility = openFacilities[i];
+        multipliers[facility] = Math.max(0, multipliers[facility] + step * subgradient[facility]);
+      }
+    }
+    return bestBound;
+  }
+}
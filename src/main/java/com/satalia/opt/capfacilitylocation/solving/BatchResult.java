@@ -0,0 +1,96 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * The result of solving one instance of a batch: the status, objective value and bound of the
+ * solve, and how long loading the instance, building the model and solving took.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class BatchResult {
+
+  private final String instance;
+  private final SolveStatus status;
+  private final double objectiveValue;
+  private final double bound;
+  private final double gap;
+  private final long loadMillis;
+  private final long buildMillis;
+  private final long solveMillis;
+  /** the error that stopped the solve, or null */
+  private final String error;
+
+  BatchResult(
+      final String instance,
+      final SolveResult result,
+      final long loadMillis,
+      final long buildMillis) {
+    this.instance = instance;
+    this.status = result.getStatus();
+    this.objectiveValue = result.getObjectiveValue();
+    this.bound = result.getBound();
+    this.gap = result.getGap();
+    this.loadMillis = loadMillis;
+    this.buildMillis = buildMillis;
+    this.solveMillis = result.getElapsedMillis();
+    this.error = null;
+  }
+
+  BatchResult(
+      final String instance, final String error, final long loadMillis, final long buildMillis) {
+    this.instance = instance;
+    this.status = SolveStatus.ERROR;
+    this.objectiveValue = Double.POSITIVE_INFINITY;
+    this.bound = Double.NEGATIVE_INFINITY;
+    this.gap = Double.POSITIVE_INFINITY;
+    this.loadMillis = loadMillis;
+    this.buildMillis = buildMillis;
+    this.solveMillis = 0;
+    this.error = error;
+  }
+
+  public String getInstance() {
+    return instance;
+  }
+
+  public SolveStatus getStatus() {
+    return status;
+  }
+
+  public double getObjectiveValue() {
+    return objectiveValue;
+  }
+
+  public double getBound() {
+    return bound;
+  }
+
+  public double getGap() {
+    return gap;
+  }
+
+  public long getLoadMillis() {
+    return loadMillis;
+  }
+
+  public long getBuildMillis() {
+    return buildMillis;
+  }
+
+  public long getSolveMillis() {
+    return solveMillis;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    return instance
+        + ": "
+        + status
+        + (error != null
+            ? " (" + error + ")"
+            : ", objective " + objectiveValue + ", bound " + bound + " in " + solveMillis + " ms");
+  }
+}
@@ -0,0 +1,275 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceLoader;
+import com.satalia.opt.capfacilitylocation.input.PresolvedInput;
+import com.satalia.opt.capfacilitylocation.input.Presolver;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.metrics.MetricsRegistry;
+import com.satalia.opt.capfacilitylocation.metrics.Phase;
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Solves many instances in one JVM on a bounded pool of workers. Each worker loads, models and
+ * solves one instance at a time and releases the native model before taking the next one, so at
+ * most one {@link CbcSolver} model per worker is alive. With w workers and t threads per solve,
+ * the batch uses at most w * t cores.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class BatchSolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchSolver.class);
+
+  private static final String RESULTS_HEADER =
+      "instance,status,objective,bound,gap,load_ms,build_ms,solve_ms,error";
+
+  private final int numWorkers;
+  /** the limits of each solve, including its number of threads */
+  private final SolveParameters parameters;
+  private boolean greedyWarmStart = false;
+  private ModelOptions modelOptions = new ModelOptions();
+  private boolean presolve = false;
+  private MetricsRegistry metricsRegistry = MetricsRegistry.NONE;
+  private long progressMillis = 0;
+  private ResultCache resultCache;
+
+  /**
+   * @param numWorkers the number of instances solved concurrently
+   * @param parameters the time limit, gap targets and number of threads of each solve
+   */
+  public BatchSolver(final int numWorkers, final SolveParameters parameters) {
+    if (numWorkers < 1) {
+      throw new RuntimeException("Expecting at least one worker instead of " + numWorkers);
+    }
+    this.numWorkers = numWorkers;
+    this.parameters = parameters;
+  }
+
+  /** @param greedyWarmStart whether to warm start each solve with the local search heuristic */
+  public void setGreedyWarmStart(boolean greedyWarmStart) {
+    this.greedyWarmStart = greedyWarmStart;
+  }
+
+  /** @param modelOptions the options for building the model of each instance */
+  public void setModelOptions(ModelOptions modelOptions) {
+    this.modelOptions = modelOptions;
+  }
+
+  /** @param presolve whether to reduce each instance with the {@link Presolver} before solving */
+  public void setPresolve(boolean presolve) {
+    this.presolve = presolve;
+  }
+
+  /** @param metricsRegistry the registry that the {@link SolveMetrics} of each solve go to */
+  public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+  }
+
+  /** @param progressMillis the period of the progress samples of each solve, or 0 for none */
+  public void setProgressMillis(long progressMillis) {
+    this.progressMillis = progressMillis;
+  }
+
+  /**
+   * @param resultCache the cache of the results: an instance with an optimal cached result is not
+   *     modelled at all, and a feasible cached result is the warm start of its solve
+   */
+  public void setResultCache(ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /**
+   * Solves the instances concurrently. A failing instance does not stop the batch, but gives a
+   * result with status {@link SolveStatus#ERROR}.
+   *
+   * @param instanceFiles the instance files, in Beasley's or the binary format
+   * @return the results in the order of the instance files
+   */
+  public List<BatchResult> solve(List<String> instanceFiles) throws InterruptedException {
+    final long start = System.currentTimeMillis();
+    ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+    try {
+      List<Future<BatchResult>> futures = new ArrayList<>(instanceFiles.size());
+      for (String instanceFile : instanceFiles) {
+        futures.add(workers.submit(() -> solveInstance(instanceFile)));
+      }
+      List<BatchResult> results = new ArrayList<>(instanceFiles.size());
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          results.add(futures.get(i).get());
+        } catch (ExecutionException e) {
+          results.add(new BatchResult(instanceFiles.get(i), String.valueOf(e.getCause()), 0, 0));
+        }
+      }
+      LOG.info(
+          "Solved "
+              + instanceFiles.size()
+              + " instances with "
+              + numWorkers
+              + " workers in "
+              + (System.currentTimeMillis() - start)
+              + " ms.");
+      if (resultCache != null) {
+        LOG.info(resultCache.toString());
+      }
+      return results;
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  private BatchResult solveInstance(String instanceFile) {
+    SolveMetrics metrics = new SolveMetrics(metricsRegistry);
+    metrics.setInstance("file", instanceFile);
+    if (progressMillis > 0) {
+      metrics.startProgress(progressMillis);
+    }
+    long start = System.currentTimeMillis();
+    long loadMillis = 0;
+    long buildMillis = 0;
+    try {
+      ProblemInput input;
+      try (Phase phase = metrics.startPhase("read")) {
+        input = InstanceLoader.load(instanceFile);
+      }
+      loadMillis = System.currentTimeMillis() - start;
+      // the presolve time is part of the solve time of the postsolved result
+      PresolvedInput presolved = null;
+      if (presolve) {
+        try (Phase phase = metrics.startPhase("presolve")) {
+          presolved = new Presolver(input).presolve();
+        }
+      }
+      ProblemInput solvedInput = presolved == null ? input : presolved.getReducedInput();
+      // the reduced instance is the key, so a cached solution needs no mapping before postsolve
+      ResultCache.Key key = resultCache == null ? null : resultCache.key(solvedInput, parameters);
+      SolveResult cached = key == null ? null : resultCache.lookup(key);
+      SolveResult solveResult;
+      if (cached != null && cached.getStatus() == SolveStatus.OPTIMAL) {
+        solveResult = cached;
+        metrics.setStatistic("cacheHit", true);
+        solveResult.recordTo(metrics);
+      } else {
+        start = System.currentTimeMillis();
+        ModelOptions options = modelOptions.copy();
+        options.setMetrics(metrics);
+        try (CbcSolver solver = new CbcSolver(solvedInput, options)) {
+          buildMillis = System.currentTimeMillis() - start;
+          solver.setGreedyWarmStart(greedyWarmStart);
+          if (cached != null) {
+            solver.setWarmStart(cached.getSolution());
+          }
+          solveResult = solver.solve(parameters);
+        }
+        if (key != null) {
+          resultCache.store(key, solveResult);
+        }
+      }
+      if (presolved != null) {
+        try (Phase phase = metrics.startPhase("postsolve")) {
+          solveResult = Postsolver.postsolve(presolved, solveResult);
+        }
+        solveResult.recordTo(metrics);
+      }
+      BatchResult result = new BatchResult(instanceFile, solveResult, loadMillis, buildMillis);
+      LOG.info(result.toString());
+      return result;
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Failed to solve " + instanceFile, e);
+      metrics.setStatistic("status", SolveStatus.ERROR.toString());
+      metrics.setStatistic("error", String.valueOf(e));
+      return new BatchResult(instanceFile, String.valueOf(e), loadMillis, buildMillis);
+    } finally {
+      metrics.complete();
+    }
+  }
+
+  /**
+   * Finds the instance files: a directory stands for all regular files in it, a path with a glob
+   * pattern in its file name (such as {@code beasley/cap6*}) for all files it matches, and any
+   * other path for itself.
+   *
+   * @return the instance files, sorted by name
+   */
+  public static List<String> findInstances(String pathOrGlob) throws IOException {
+    Path path = Paths.get(pathOrGlob);
+    String glob = "*";
+    if (!Files.isDirectory(path)) {
+      String name = path.getFileName() == null ? "" : path.getFileName().toString();
+      if (!name.matches(".*[*?\\[{].*")) {
+        if (!Files.isRegularFile(path)) {
+          throw new IOException("Cannot find instance file: " + pathOrGlob);
+        }
+        List<String> single = new ArrayList<>();
+        single.add(pathOrGlob);
+        return single;
+      }
+      glob = name;
+      path = path.getParent() == null ? Paths.get(".") : path.getParent();
+    }
+    List<String> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, glob)) {
+      for (Path file : stream) {
+        if (Files.isRegularFile(file)) {
+          files.add(file.toString());
+        }
+      }
+    }
+    files.sort(null);
+    return files;
+  }
+
+  /** Writes the results as comma separated values, one line per instance. */
+  public static void writeResults(List<BatchResult> results, String filename) throws IOException {
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+      writer.write(RESULTS_HEADER);
+      writer.newLine();
+      for (BatchResult result : results) {
+        writer.write(
+            String.join(
+                ",",
+                quote(result.getInstance()),
+                result.getStatus().toString(),
+                format(result.getObjectiveValue()),
+                format(result.getBound()),
+                format(result.getGap()),
+                Long.toString(result.getLoadMillis()),
+                Long.toString(result.getBuildMillis()),
+                Long.toString(result.getSolveMillis()),
+                result.getError() == null ? "" : quote(result.getError())));
+        writer.newLine();
+      }
+    }
+  }
+
+  /** @return the value, or an empty field if it is not finite */
+  private static String format(double value) {
+    return Double.isInfinite(value) || Double.isNaN(value)
+        ? ""
+        : String.format(Locale.ROOT, "%.6f", value);
+  }
+
+  private static String quote(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
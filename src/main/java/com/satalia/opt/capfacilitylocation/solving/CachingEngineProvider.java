@@ -0,0 +1,150 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the engines of a provider with a {@link ResultCache}: an optimal cached result is returned
+ * without creating the engine at all, a feasible one is the warm start of the engine (unless the
+ * warm start set on the engine is better), and every result with a solution is stored afterwards.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class CachingEngineProvider implements SolverEngineProvider {
+
+  private final SolverEngineProvider provider;
+  private final ResultCache cache;
+  private Consumer<SolverEngine> engineSetup = engine -> {};
+
+  /**
+   * @param provider the provider of the engines that solve on a cache miss
+   * @param cache the cache, which may be shared by several providers
+   */
+  public CachingEngineProvider(final SolverEngineProvider provider, final ResultCache cache) {
+    this.provider = provider;
+    this.cache = cache;
+  }
+
+  /**
+   * @param engineSetup called with each engine that is created on a cache miss before it solves,
+   *     e.g. to enable the greedy warm start of the {@link CbcSolver}
+   */
+  public void setEngineSetup(Consumer<SolverEngine> engineSetup) {
+    this.engineSetup = engineSetup;
+  }
+
+  @Override
+  public String getName() {
+    return provider.getName();
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return provider.isAvailable();
+  }
+
+  @Override
+  public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+    return new CachingEngine(input, modelOptions);
+  }
+
+  /**
+   * Creates its engine only when the cache cannot answer the solve. A cancel stops the running
+   * solve, or the next one if none is running, and a cancelled engine is replaced for later solves.
+   */
+  private class CachingEngine implements SolverEngine {
+    private final ProblemInput input;
+    private final ModelOptions modelOptions;
+    private Solution warmStart;
+    private SolverEngine engine;
+    /** whether the next or running solve is cancelled; cleared when that solve returns */
+    private boolean cancelled = false;
+    /** whether the engine was cancelled, which stops it for good */
+    private boolean engineCancelled = false;
+
+    CachingEngine(final ProblemInput input, final ModelOptions modelOptions) {
+      this.input = input;
+      this.modelOptions = modelOptions;
+    }
+
+    @Override
+    public void setWarmStart(Solution solution) {
+      this.warmStart = solution;
+    }
+
+    @Override
+    public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+      ResultCache.Key key = cache.key(input, parameters);
+      SolveResult cached = cache.lookup(key);
+      if (cached != null && cached.getStatus() == SolveStatus.OPTIMAL) {
+        if (listener != null) {
+          listener.incumbentFound(
+              cached.getSolution(), cached.getBound(), cached.getElapsedMillis());
+        }
+        return cached;
+      }
+      Solution start = warmStart;
+      if (cached != null
+          && (start == null
+              || cached.getSolution().getObjectiveValue() < start.getObjectiveValue())) {
+        start = cached.getSolution();
+      }
+      SolverEngine solver;
+      synchronized (this) {
+        if (engine != null && engineCancelled) {
+          // engines stay cancelled, so a cancelled engine is replaced
+          engine.close();
+          engine = null;
+        }
+        if (engine == null) {
+          // created once and solved again by later calls
+          engine = provider.create(input, modelOptions);
+          engineSetup.accept(engine);
+          engineCancelled = false;
+        }
+        solver = engine;
+        if (cancelled) {
+          solver.cancel();
+          engineCancelled = true;
+        }
+      }
+      try {
+        if (start != null) {
+          solver.setWarmStart(start);
+        }
+        SolveResult result = solver.solve(parameters, listener);
+        cache.store(key, result);
+        return result;
+      } finally {
+        synchronized (this) {
+          cancelled = false;
+        }
+      }
+    }
+
+    @Override
+    public void cancel() {
+      SolverEngine running;
+      synchronized (this) {
+        cancelled = true;
+        running = engine;
+        engineCancelled |= running != null;
+      }
+      if (running != null) {
+        running.cancel();
+      }
+    }
+
+    @Override
+    public void close() {
+      SolverEngine solver;
+      synchronized (this) {
+        solver = engine;
+        engine = null;
+      }
+      if (solver != null) {
+        solver.close();
+      }
+    }
+  }
+}
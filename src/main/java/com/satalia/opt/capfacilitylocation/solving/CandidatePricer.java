@@ -0,0 +1,324 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.google.ortools.linearsolver.MPConstraint;
+import com.google.ortools.linearsolver.MPObjective;
+import com.google.ortools.linearsolver.MPSolver;
+import com.google.ortools.linearsolver.MPSolver.ResultStatus;
+import com.google.ortools.linearsolver.MPVariable;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the assignment variables y_f_c of a sparse MIP model such that its optimal solution is
+ * optimal for the full model.
+ *
+ * <p>The LP relaxation of the model, strengthened with y_f_c <= x_f and sum (facilities f)
+ * (capacity_f * x_f) >= total demand, is solved over the columns of each client's k cheapest
+ * facilities and of an incumbent solution. Missing columns are priced with the duals u_c of the
+ * demand rows and v_f of the capacity rows: rc_f_c = costToMeetDemand_f_c - u_c - demand_c * v_f.
+ * Columns with negative reduced cost are added and the LP is solved again, until the LP is optimal
+ * for all columns, which makes its objective value a lower bound LB of the full problem.
+ *
+ * <p>Any solution that sets a variable with reduced cost rc to 1 costs at least LB + rc, so with an
+ * incumbent of value UB, variables with rc > UB - LB cannot be part of a better solution. The
+ * sparse model keeps exactly the columns with rc <= UB - LB (and the incumbent's), and fixes the
+ * facilities whose reduced cost proves them closed or open.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class CandidatePricer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CandidatePricer.class);
+
+  /** facility fixings in the result */
+  static final byte FREE = -1;
+  static final byte CLOSED = 0;
+  static final byte OPENED = 1;
+
+  private static final double EPSILON = 1e-7;
+  private static final int MAX_ROUNDS = 100;
+
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final int numClients;
+  private final int numCandidates;
+  private final int[] incumbent;
+  private final double incumbentObjective;
+
+  // the LP relaxation over the current columns
+  private MPSolver lp;
+  private MPVariable[] isFacilityOpened;
+  private MPConstraint[] demandConstraints;
+  private MPConstraint[] capacityConstraints;
+  /** the columns of the LP, columns.get(f * numClients + c) */
+  private BitSet columns;
+  private int numColumns;
+  private int[] columnFacility;
+  private int[] columnClient;
+  private MPVariable[] columnVariable;
+
+  /**
+   * @param input the problem input
+   * @param numCandidates the number of cheapest facilities of each client in the initial LP
+   * @param incumbent the facility serving each client in a feasible solution
+   */
+  CandidatePricer(final ProblemInput input, final int numCandidates, final int[] incumbent) {
+    if ((long) input.getNumFacilities() * input.getNumClients() > Integer.MAX_VALUE) {
+      throw new RuntimeException("Too many facility-client pairs for the sparse model.");
+    }
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.numClients = input.getNumClients();
+    this.numCandidates = Math.max(1, Math.min(numCandidates, numFacilities));
+    this.incumbent = incumbent;
+    this.incumbentObjective = Solution.fromAssignment(input, incumbent).getObjectiveValue();
+  }
+
+  /**
+   * Prices the columns and selects those of the sparse model.
+   *
+   * @return the selected columns, or null if the LP relaxation could not be solved
+   */
+  Result run() {
+    final long start = System.currentTimeMillis();
+    lp =
+        new MPSolver(
+            "capacitated_facility_location_lp",
+            MPSolver.OptimizationProblemType.GLOP_LINEAR_PROGRAMMING);
+    try {
+      createRelaxation();
+      int rounds = 0;
+      double[] demandDuals = new double[numClients];
+      double[] capacityDuals = new double[numFacilities];
+      while (true) {
+        ResultStatus status = lp.solve();
+        if (status != ResultStatus.OPTIMAL) {
+          LOG.warn("LP relaxation not solved to optimality (" + status + "), no pricing.");
+          return null;
+        }
+        rounds++;
+        readDuals(demandDuals, capacityDuals);
+        if (addNegativeColumns(demandDuals, capacityDuals) == 0) {
+          break;
+        }
+        if (rounds == MAX_ROUNDS) {
+          LOG.warn("Pricing did not converge in " + MAX_ROUNDS + " rounds, no pricing.");
+          return null;
+        }
+      }
+      final double lowerBound = lp.objective().value();
+      Result result = selectColumns(lowerBound, demandDuals, capacityDuals);
+      LOG.info(
+          "Priced columns in "
+              + rounds
+              + " rounds and "
+              + (System.currentTimeMillis() - start)
+              + " ms: LP bound "
+              + lowerBound
+              + ", incumbent "
+              + incumbentObjective
+              + ", keeping "
+              + result.numColumns
+              + " of "
+              + (long) numFacilities * numClients
+              + " assignment variables.");
+      return result;
+    } finally {
+      lp.delete();
+      lp = null;
+    }
+  }
+
+  private void createRelaxation() {
+    isFacilityOpened = new MPVariable[numFacilities];
+    demandConstraints = new MPConstraint[numClients];
+    capacityConstraints = new MPConstraint[numFacilities];
+    MPObjective objective = lp.objective();
+    MPConstraint totalCapacity = lp.makeConstraint(totalDemand(), MPSolver.infinity(), "");
+    for (int facility = 0; facility < numFacilities; facility++) {
+      isFacilityOpened[facility] = lp.makeNumVar(0, 1, "");
+      objective.setCoefficient(isFacilityOpened[facility], input.getBuildingCost(facility));
+      capacityConstraints[facility] = lp.makeConstraint(-MPSolver.infinity(), 0, "");
+      capacityConstraints[facility].setCoefficient(
+          isFacilityOpened[facility], -input.getCapacity(facility));
+      totalCapacity.setCoefficient(isFacilityOpened[facility], input.getCapacity(facility));
+    }
+    for (int client = 0; client < numClients; client++) {
+      demandConstraints[client] = lp.makeConstraint(1, 1, "");
+    }
+    objective.minimization();
+
+    columns = new BitSet(numFacilities * numClients);
+    int capacity = numClients * (numCandidates + 1);
+    columnFacility = new int[capacity];
+    columnClient = new int[capacity];
+    columnVariable = new MPVariable[capacity];
+    numColumns = 0;
+    // the numCandidates cheapest facilities with enough capacity for each client
+    int[] candidates = input.cheapestFacilities(numCandidates);
+    for (int client = 0; client < numClients; client++) {
+      addColumn(incumbent[client], client);
+      final int base = client * numCandidates;
+      for (int rank = 0; rank < numCandidates && candidates[base + rank] >= 0; rank++) {
+        addColumn(candidates[base + rank], client);
+      }
+    }
+  }
+
+  private double totalDemand() {
+    return input.clients().mapToDouble(input::getDemand).sum();
+  }
+
+  private void addColumn(int facility, int client) {
+    final int index = facility * numClients + client;
+    if (columns.get(index)) {
+      return;
+    }
+    columns.set(index);
+    if (numColumns == columnFacility.length) {
+      int capacity = 2 * numColumns;
+      columnFacility = Arrays.copyOf(columnFacility, capacity);
+      columnClient = Arrays.copyOf(columnClient, capacity);
+      columnVariable = Arrays.copyOf(columnVariable, capacity);
+    }
+    // y_f_c >= 0; y_f_c <= 1 is implied by the demand row
+    MPVariable variable = lp.makeNumVar(0, MPSolver.infinity(), "");
+    lp.objective().setCoefficient(variable, input.getCostToMeetDemand(facility, client));
+    demandConstraints[client].setCoefficient(variable, 1);
+    capacityConstraints[facility].setCoefficient(variable, input.getDemand(client));
+    MPConstraint link = lp.makeConstraint(-MPSolver.infinity(), 0, ""); // y_f_c <= x_f
+    link.setCoefficient(variable, 1);
+    link.setCoefficient(isFacilityOpened[facility], -1);
+    columnFacility[numColumns] = facility;
+    columnClient[numColumns] = client;
+    columnVariable[numColumns] = variable;
+    numColumns++;
+  }
+
+  private void readDuals(double[] demandDuals, double[] capacityDuals) {
+    for (int client = 0; client < numClients; client++) {
+      demandDuals[client] = demandConstraints[client].dualValue();
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      capacityDuals[facility] = capacityConstraints[facility].dualValue();
+    }
+  }
+
+  private double reducedCost(
+      int facility, int client, double[] demandDuals, double[] capacityDuals) {
+    return input.getCostToMeetDemand(facility, client)
+        - demandDuals[client]
+        - input.getDemand(client) * capacityDuals[facility];
+  }
+
+  /** Adds the missing columns with negative reduced cost. */
+  private int addNegativeColumns(double[] demandDuals, double[] capacityDuals) {
+    final double tolerance = EPSILON * Math.max(1, Math.abs(incumbentObjective));
+    int added = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      for (int client = 0; client < numClients; client++) {
+        if (!columns.get(facility * numClients + client)
+            && input.getDemand(client) <= input.getCapacity(facility)
+            && reducedCost(facility, client, demandDuals, capacityDuals) < -tolerance) {
+          addColumn(facility, client);
+          added++;
+        }
+      }
+    }
+    return added;
+  }
+
+  /** Keeps the columns that can be part of a solution better than the incumbent. */
+  private Result selectColumns(double lowerBound, double[] demandDuals, double[] capacityDuals) {
+    final double gap = gap(incumbentObjective, lowerBound);
+
+    byte[] fixing = new byte[numFacilities];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      fixing[facility] = fixing(isFacilityOpened[facility].reducedCost(), gap);
+    }
+    for (int client = 0; client < numClients; client++) {
+      fixing[incumbent[client]] = fixing[incumbent[client]] == OPENED ? OPENED : FREE;
+    }
+
+    BitSet keep = new BitSet(numFacilities * numClients);
+    for (int column = 0; column < numColumns; column++) {
+      final int facility = columnFacility[column];
+      if (fixing[facility] != CLOSED && isKept(columnVariable[column].reducedCost(), gap)) {
+        keep.set(facility * numClients + columnClient[column]);
+      }
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (fixing[facility] == CLOSED) {
+        continue;
+      }
+      for (int client = 0; client < numClients; client++) {
+        final int index = facility * numClients + client;
+        if (!columns.get(index)
+            && input.getDemand(client) <= input.getCapacity(facility)
+            && isKept(reducedCost(facility, client, demandDuals, capacityDuals), gap)) {
+          keep.set(index);
+        }
+      }
+    }
+    for (int client = 0; client < numClients; client++) {
+      keep.set(incumbent[client] * numClients + client);
+    }
+
+    // facility-major order, like the cost matrix
+    Result result = new Result(keep.cardinality(), fixing, lowerBound);
+    int column = 0;
+    for (int index = keep.nextSetBit(0); index >= 0; index = keep.nextSetBit(index + 1)) {
+      result.facility[column] = index / numClients;
+      result.client[column] = index % numClients;
+      column++;
+    }
+    return result;
+  }
+
+  /**
+   * @return UB - LB, plus a tolerance relative to the incumbent objective UB so that columns are
+   *     not dropped for rounding errors of the LP
+   */
+  static double gap(double incumbentObjective, double lowerBound) {
+    return incumbentObjective
+        - lowerBound
+        + EPSILON * Math.max(1, Math.abs(incumbentObjective));
+  }
+
+  /**
+   * @return whether a column with the reduced cost can be part of a solution better than the
+   *     incumbent, i.e. whether its reduced cost is at most the gap
+   */
+  static boolean isKept(double reducedCost, double gap) {
+    return reducedCost <= gap;
+  }
+
+  /**
+   * @return CLOSED if opening the facility costs more than the gap, OPENED if closing it does,
+   *     and FREE otherwise
+   */
+  static byte fixing(double reducedCost, double gap) {
+    return reducedCost > gap ? CLOSED : reducedCost < -gap ? OPENED : FREE;
+  }
+
+  /** The columns of the sparse model, facility fixings and the LP bound. */
+  static class Result {
+    final int numColumns;
+    final int[] facility;
+    final int[] client;
+    /** FREE, CLOSED or OPENED for each facility */
+    final byte[] fixing;
+    final double lowerBound;
+
+    Result(final int numColumns, final byte[] fixing, final double lowerBound) {
+      this.numColumns = numColumns;
+      this.facility = new int[numColumns];
+      this.client = new int[numColumns];
+      this.fixing = fixing;
+      this.lowerBound = lowerBound;
+    }
+  }
+}
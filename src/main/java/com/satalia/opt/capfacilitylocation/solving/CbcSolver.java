@@ -4,14 +4,18 @@ import com.google.ortools.linearsolver.MPConstraint;
 import com.google.ortools.linearsolver.MPObjective;
 import com.google.ortools.linearsolver.MPSolver;
 import com.google.ortools.linearsolver.MPSolver.ResultStatus;
+import com.google.ortools.linearsolver.MPSolverParameters;
 import com.google.ortools.linearsolver.MPVariable;
-import com.satalia.opt.capfacilitylocation.input.Client;
-import com.satalia.opt.capfacilitylocation.input.Facility;
 import com.satalia.opt.capfacilitylocation.input.ProblemInput;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.satalia.opt.capfacilitylocation.metrics.Phase;
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,140 +43,805 @@ import org.slf4j.LoggerFactory;
  * <p>MINIMISE sum (facilities f) (x_j * cost_f) + sum (clients c, facilities f) (y_f_c *
  * costToMeetDemand_f_c)
  *
+ * <p>The variables are kept in flat arrays indexed by facility (and client). Names are only
+ * generated and the model is only exported in LP format if requested in the {@link ModelOptions}
+ * (or for debug logging), which keeps the construction of large models cheap.
+ *
+ * <h2>Sparse model:</h2>
+ *
+ * <p>With {@link ModelOptions#setNumCandidates(int)}, only the assignment variables that can be
+ * part of a solution better than a heuristic incumbent are created: the {@link CandidatePricer}
+ * prices all columns against the LP relaxation, starting from each client's cheapest facilities,
+ * and drops or fixes variables by their reduced costs. The optimal solution of the sparse model is
+ * optimal for the full model.
+ *
+ * <h2>Cutting planes:</h2>
+ *
+ * <p>With {@link ModelOptions#setCuts(boolean)}, the model is strengthened with the total capacity
+ * row sum (facilities f) (capacity_f * x_f) >= total demand and with the linking cuts y_f_c <= x_f
+ * and extended cover cuts of the capacity rows that the {@link CutSeparator} finds violated by the
+ * LP relaxation, instead of adding all F x C linking rows up front.
+ *
+ * <h2>Warm start:</h2>
+ *
+ * <p>An initial solution can be passed to CBC as a hint for the x and y variables, either given
+ * explicitly or computed by a fast {@link LocalSearchSolver} descent before solving, so that CBC
+ * starts with a good incumbent and can prune from the first node.
+ *
+ * <h2>Anytime solving:</h2>
+ *
+ * <p>{@link #solve(SolveParameters, IncumbentListener)} stops at a time limit or gap target and
+ * returns the best solution found with its status and bound instead of throwing. CBC does not
+ * report intermediate solutions through or-tools, so the listener is notified of the warm start
+ * (and the improvements of the local search computing it) and of the final solution, if better.
+ *
+ * <h2>Modification:</h2>
+ *
+ * <p>A modifiable model, as used by the {@link WhatIfSession}, has a column for every facility
+ * and client, so that demand coefficients, capacities, costs and the bounds of x_f can be changed
+ * in place and the model re-solved without building it again. A warm start that is infeasible
+ * for the changed model is ignored.
+ *
+ * <h2>Metrics:</h2>
+ *
+ * <p>The phases build, warmStart, solve, extract and objective are measured in the {@link
+ * SolveMetrics} of the {@link ModelOptions}, with the shape of the instance and the statistics of
+ * CBC (status, objective, bound, gap, nodes, iterations and its own wall time).
+ *
+ * <p>The native or-tools library is loaded when the first solver is created, not when the class
+ * is loaded, so hosts without it can still use the other {@link SolverEngine}s.
+ *
  * @author Andrea Rendl-Pitrey
  */
-public class CbcSolver {
-
-  static {
-    System.loadLibrary("jniortools");
-  }
+public class CbcSolver implements SolverEngine {
 
   private static final Logger LOG = LoggerFactory.getLogger(CbcSolver.class);
 
-  /** the problem specification/input */
-  private final ProblemInput input;
+  /** values of binary variables above this are read as 1 */
+  private static final double INTEGRALITY_THRESHOLD = 0.5;
+  /** the maximum number of assignment variables, which are kept in an array */
+  static final long MAX_COLUMNS = Integer.MAX_VALUE - 8;
+
+  /** the problem specification/input, replaced by the modified input of a modifiable model */
+  private ProblemInput input;
   /** the MIP solver object */
   private MPSolver solver;
 
-  /** x: 0-1 variable that is 1 if facility i is opened */
-  private List<MPVariable> isFacilityOpened;
+  /** the options for building the model */
+  private final ModelOptions modelOptions;
+  /** the metrics of building and solving the model */
+  private final SolveMetrics metrics;
+
+  /** x: 0-1 variable that is 1 if facility f is opened, isFacilityOpened[f] */
+  private MPVariable[] isFacilityOpened;
   /**
    * y: 0-1 variable for each facility, for each client, that is 1 if demand met by the facility for
-   * the client
+   * the client, isDemandMet[column]. In the full model, column = f * numClients + c.
    */
-  private List<List<MPVariable>> isDemandMet;
+  private MPVariable[] isDemandMet;
+  /**
+   * the facility and client of each column, null if the model has a column for every facility and
+   * client
+   */
+  private int[] columnFacility;
+  private int[] columnClient;
+  /** the columns of facility f are firstColumn[f] to firstColumn[f + 1] - 1 */
+  private int[] firstColumn;
+  /**
+   * the facilities fixed by pricing in the sparse model or opened or closed in a modifiable model,
+   * null for the full model
+   */
+  private byte[] facilityFixing;
+  /** the capacity constraint of each facility */
+  private MPConstraint[] capacityConstraints;
+  /** whether the model has all columns and can be modified with the package-private setters */
+  private final boolean modifiable;
+
+  /** the facility serving each client in the warm start solution, null for a cold start */
+  private int[] warmStart;
+  /** whether to compute a warm start with the local search heuristic if none is given */
+  private boolean greedyWarmStart = false;
+
+  // model construction statistics
+  private long buildMillis;
+  private long buildPeakHeapBytes;
+  private long buildResidentSetBytes;
 
   public CbcSolver(ProblemInput problemInput) {
+    this(problemInput, new ModelOptions());
+  }
+
+  /**
+   * @param problemInput the problem input
+   * @param modelOptions the options for building the model, e.g. names and LP export
+   */
+  public CbcSolver(ProblemInput problemInput, ModelOptions modelOptions) {
+    this(problemInput, modelOptions, false);
+  }
+
+  /**
+   * @param problemInput the problem input
+   * @param modelOptions the options for building the model, without candidates and cuts if the
+   *     model is modifiable
+   * @param modifiable if true, the model has a column for every facility and client, including
+   *     those whose demand exceeds the capacity, so that demands, capacities and costs can be
+   *     changed in place
+   */
+  CbcSolver(ProblemInput problemInput, ModelOptions modelOptions, boolean modifiable) {
+    if (modifiable && (modelOptions.getNumCandidates() > 0 || modelOptions.hasCuts())) {
+      throw new RuntimeException(
+          "A modifiable model cannot be sparse or have cuts, which depend on the input.");
+    }
+    OrTools.load();
     this.input = problemInput;
-    this.solver =
-        new MPSolver(
-            "capacitated_facility_location",
-            MPSolver.OptimizationProblemType.CBC_MIXED_INTEGER_PROGRAMMING);
-    createVariables();
-    createConstraints();
-    createObjective();
-    LOG.info(
-        "Created model with "
-            + solver.numVariables()
-            + " variables and "
-            + solver.numConstraints()
-            + " constraints.");
-    LOG.debug("LP model: \n" + solver.exportModelAsLpFormat(true));
+    this.modifiable = modifiable;
+    this.modelOptions = modelOptions;
+    this.metrics =
+        modelOptions.getMetrics() != null ? modelOptions.getMetrics() : new SolveMetrics();
+    recordInstance();
+    try (Phase phase = metrics.startPhase("build")) {
+      final long start = System.currentTimeMillis();
+      final long residentSetBefore = MemoryProbe.residentSetBytes();
+      MemoryProbe.resetHeapPeak();
+      if (modifiable) {
+        facilityFixing = new byte[input.getNumFacilities()];
+        Arrays.fill(facilityFixing, CandidatePricer.FREE);
+      } else if (modelOptions.getNumCandidates() > 0) {
+        selectColumns(modelOptions.getNumCandidates());
+      } else {
+        selectFittingColumns();
+      }
+      indexColumns();
+      this.solver =
+          new MPSolver(
+              "capacitated_facility_location",
+              MPSolver.OptimizationProblemType.CBC_MIXED_INTEGER_PROGRAMMING);
+      createVariables();
+      createConstraints();
+      createObjective();
+      if (modelOptions.hasCuts()) {
+        addCuts();
+      }
+      this.buildMillis = System.currentTimeMillis() - start;
+      this.buildPeakHeapBytes = MemoryProbe.heapPeakBytes();
+      this.buildResidentSetBytes =
+          residentSetBefore < 0 ? -1 : MemoryProbe.residentSetBytes() - residentSetBefore;
+      LOG.info(
+          "Created model with "
+              + solver.numVariables()
+              + " variables and "
+              + solver.numConstraints()
+              + " constraints in "
+              + buildMillis
+              + " ms (peak heap "
+              + (buildPeakHeapBytes >> 20)
+              + " MB, resident set growth "
+              + (buildResidentSetBytes >> 20)
+              + " MB).");
+    }
+    metrics.setStatistic("variables", solver.numVariables());
+    metrics.setStatistic("constraints", solver.numConstraints());
+    metrics.setStatistic("buildPeakHeapBytes", buildPeakHeapBytes);
+    metrics.setStatistic("buildResidentSetBytes", buildResidentSetBytes);
+    exportModel();
+  }
+
+  private void recordInstance() {
+    final double totalDemand = input.clients().mapToDouble(input::getDemand).sum();
+    final double totalCapacity = input.facilities().mapToDouble(input::getCapacity).sum();
+    metrics.setInstance("facilities", input.getNumFacilities());
+    metrics.setInstance("clients", input.getNumClients());
+    metrics.setInstance("totalDemand", totalDemand);
+    metrics.setInstance("capacityRatio", totalCapacity / totalDemand);
+  }
+
+  /** @return the metrics of building and solving the model */
+  public SolveMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Selects the columns of the sparse model by pricing from the given number of cheapest facilities
+   * per client. The incumbent that pricing needs is computed by the local search heuristic and is
+   * also used as warm start.
+   */
+  private void selectColumns(int numCandidates) {
+    int[] incumbent = new LocalSearchSolver(input).solve().getAssignment();
+    CandidatePricer.Result columns = new CandidatePricer(input, numCandidates, incumbent).run();
+    if (columns == null) {
+      LOG.warn("Building the full model instead of the sparse model.");
+      return;
+    }
+    this.columnFacility = columns.facility;
+    this.columnClient = columns.client;
+    this.facilityFixing = columns.fixing;
+    this.warmStart = incumbent;
   }
 
+  /** Leaves out the assignments of clients to facilities their demand does not fit into. */
+  private void selectFittingColumns() {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    long numFitting = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      for (int client = 0; client < numClients; client++) {
+        numFitting += input.getDemand(client) <= input.getCapacity(facility) ? 1 : 0;
+      }
+    }
+    if (numFitting == (long) numFacilities * numClients) {
+      return; // the full model, with implicit columns, whose number is checked when indexing
+    }
+    columnFacility = new int[checkNumColumns(numFitting)];
+    columnClient = new int[columnFacility.length];
+    int column = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      for (int client = 0; client < numClients; client++) {
+        if (input.getDemand(client) <= input.getCapacity(facility)) {
+          columnFacility[column] = facility;
+          columnClient[column] = client;
+          column++;
+        }
+      }
+    }
+  }
+
+  /** Finds the first column of each facility, as the columns are in facility-major order. */
+  private void indexColumns() {
+    firstColumn = new int[input.getNumFacilities() + 1];
+    final int numColumns = numColumns();
+    for (int column = 0; column < numColumns; column++) {
+      firstColumn[columnFacility(column) + 1]++;
+    }
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      firstColumn[facility + 1] += firstColumn[facility];
+    }
+  }
+
+  /**
+   * @return the number of columns; without column arrays, every facility and client has a column
+   *     and column / numClients and column % numClients cannot overflow, since the number is an int
+   */
+  private int numColumns() {
+    return columnFacility == null
+        ? checkNumColumns((long) input.getNumFacilities() * input.getNumClients())
+        : columnFacility.length;
+  }
+
+  /** @throws RuntimeException if the columns cannot be indexed by an int */
+  static int checkNumColumns(long numColumns) {
+    if (numColumns > MAX_COLUMNS) {
+      throw new RuntimeException(
+          "The model would have "
+              + numColumns
+              + " assignment variables, more than the "
+              + MAX_COLUMNS
+              + " that can be stored in an array.");
+    }
+    return (int) numColumns;
+  }
+
+  private int columnFacility(int column) {
+    return columnFacility == null ? column / input.getNumClients() : columnFacility[column];
+  }
+
+  private int columnClient(int column) {
+    return columnClient == null ? column % input.getNumClients() : columnClient[column];
+  }
+
+  /** Exports the model if requested; the LP text is only rendered if it is used. */
+  private void exportModel() {
+    if (modelOptions.getLpExportFile() != null) {
+      try {
+        Files.write(
+            Paths.get(modelOptions.getLpExportFile()),
+            exportModelAsLpFormat().getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        LOG.error("Could not export the model to " + modelOptions.getLpExportFile(), e);
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("LP model: \n" + exportModelAsLpFormat());
+    }
+  }
+
+  /** @return the model in LP format, with generated names if the model has no names */
+  public String exportModelAsLpFormat() {
+    return solver.exportModelAsLpFormat(!modelOptions.hasNames());
+  }
+
+  public long getBuildMillis() {
+    return buildMillis;
+  }
+
+  /** @return the peak heap usage during model construction */
+  public long getBuildPeakHeapBytes() {
+    return buildPeakHeapBytes;
+  }
+
+  /**
+   * @return the growth of the resident set size during model construction, which includes the
+   *     native memory of the solver, or -1 if not available
+   */
+  public long getBuildResidentSetBytes() {
+    return buildResidentSetBytes;
+  }
+
+  /** @param solution the solution to pass to CBC as a hint */
+  @Override
+  public void setWarmStart(Solution solution) {
+    setWarmStart(solution.getAssignment());
+  }
+
+  /** @param facilityOfClient the number of the facility serving each client, passed as a hint */
+  public void setWarmStart(int[] facilityOfClient) {
+    checkWarmStart(facilityOfClient, input.getNumFacilities(), input.getNumClients());
+    this.warmStart = facilityOfClient.clone();
+  }
+
+  /**
+   * @throws RuntimeException if the warm start does not have a facility number for each client
+   */
+  static void checkWarmStart(int[] facilityOfClient, int numFacilities, int numClients) {
+    if (facilityOfClient.length != numClients) {
+      throw new RuntimeException(
+          "Expecting a warm start facility for each of the "
+              + numClients
+              + " clients instead of "
+              + facilityOfClient.length);
+    }
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      if (facilityOfClient[client] < 0 || facilityOfClient[client] >= numFacilities) {
+        throw new RuntimeException(
+            "Invalid warm start facility " + facilityOfClient[client] + " of client " + client);
+      }
+    }
+  }
+
+  /**
+   * @param greedyWarmStart if true and no warm start is set, a warm start is computed with the
+   *     {@link LocalSearchSolver} before solving
+   */
+  public void setGreedyWarmStart(boolean greedyWarmStart) {
+    this.greedyWarmStart = greedyWarmStart;
+  }
+
+  /**
+   * Solves the problem to optimality.
+   *
+   * @return the optimal solution
+   * @throws RuntimeException if no solution is found
+   */
   public Solution solve() {
-    ResultStatus resultStatus = solver.solve();
+    SolveResult result = solve(new SolveParameters());
+    if (!result.getStatus().hasSolution()) {
+      throw new RuntimeException("Could not solve problem. Solver result status: " + result);
+    }
+    return result.getSolution();
+  }
+
+  public SolveResult solve(SolveParameters parameters) {
+    return solve(parameters, null);
+  }
+
+  /**
+   * Solves the problem within the limits of the parameters. Does not throw if the solver stops
+   * without proving optimality, but returns the best solution found with its status and bound.
+   *
+   * @param parameters the time limit, gap targets and number of threads
+   * @param listener notified of the warm start and of each better solution, may be null
+   * @return the best solution found, its status and the best bound
+   */
+  @Override
+  public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+    final long start = System.currentTimeMillis();
+    Solution startSolution = null;
+    if (warmStart == null && greedyWarmStart) {
+      try (Phase phase = metrics.startPhase("warmStart")) {
+        LocalSearchSolver heuristic = new LocalSearchSolver(input);
+        heuristic.setIncumbentListener(listener);
+        startSolution = heuristic.solve();
+      }
+    } else if (warmStart != null) {
+      startSolution = createStartSolution(warmStart);
+      if (startSolution != null && listener != null) {
+        listener.incumbentFound(
+            startSolution, Double.NEGATIVE_INFINITY, System.currentTimeMillis() - start);
+      }
+    }
+    if (startSolution != null) {
+      setHint(startSolution);
+      metrics.incumbent(startSolution.getObjectiveValue(), Double.NEGATIVE_INFINITY);
+    } else if (modifiable) {
+      solver.setHint(new MPVariable[0], new double[0]); // the hint of the previous solve
+    }
+    final long warmStartMillis = System.currentTimeMillis() - start;
+
+    ResultStatus resultStatus;
+    try (Phase phase = metrics.startPhase("solve")) {
+      resultStatus = solver.solve(createSolverParameters(parameters, startSolution));
+    }
+    final long solveMillis = System.currentTimeMillis() - start - warmStartMillis;
+    LOG.info(
+        "CBC finished with status "
+            + resultStatus
+            + " in "
+            + solveMillis
+            + " ms and "
+            + solver.nodes()
+            + " nodes"
+            + (startSolution == null
+                ? " from a cold start."
+                : " from a warm start with objective "
+                    + startSolution.getObjectiveValue()
+                    + ", computed in "
+                    + warmStartMillis
+                    + " ms."));
+
+    SolveResult result = createResult(resultStatus, startSolution, start, listener);
+    LOG.info(result.toString());
+    recordStatistics(resultStatus, result);
+    return result;
+  }
+
+  private void recordStatistics(ResultStatus resultStatus, SolveResult result) {
+    result.recordTo(metrics);
+    metrics.setStatistic("solverStatus", resultStatus.toString());
+    metrics.setStatistic("nodes", solver.nodes());
+    metrics.setStatistic("iterations", solver.iterations());
+    metrics.setStatistic("solverWallMillis", solver.wallTime());
+  }
+
+  /** Applies the limits and targets to the solver. */
+  private MPSolverParameters createSolverParameters(
+      SolveParameters parameters, Solution startSolution) {
+    final double relativeGap = applyParameters(solver, parameters, startSolution);
+    MPSolverParameters solverParameters = new MPSolverParameters();
+    solverParameters.setDoubleParam(MPSolverParameters.DoubleParam.RELATIVE_MIP_GAP, relativeGap);
+    return solverParameters;
+  }
+
+  /**
+   * Sets the time limit, threads and CBC's own parameters of the solver. Each is set on every
+   * call, also to its default, since a modifiable model is solved again with other parameters and
+   * the solver keeps the settings of the previous solve.
+   *
+   * @return the relative gap, which is set in the parameters of the solve
+   */
+  static double applyParameters(
+      MPSolver solver, SolveParameters parameters, Solution startSolution) {
+    solver.setTimeLimit(Math.max(0, parameters.getTimeLimitMillis())); // 0 is no limit
+    final int numThreads = Math.max(1, parameters.getNumThreads());
+    if (!solver.setNumThreads(numThreads) && numThreads > 1) {
+      LOG.warn("Solver does not support " + numThreads + " threads.");
+    }
+    // CBC's own parameters are set in one string, since each call replaces the previous one
+    StringBuilder specific = new StringBuilder();
+    double relativeGap = parameters.getRelativeGap();
+    if (parameters.getAbsoluteGap() > 0) {
+      if (startSolution != null && startSolution.getObjectiveValue() > 0) {
+        // relative to the start objective, which is at least the final objective: never looser
+        relativeGap =
+            Math.max(relativeGap, parameters.getAbsoluteGap() / startSolution.getObjectiveValue());
+      } else {
+        specific.append("allowableGap ").append(parameters.getAbsoluteGap()).append('\n');
+      }
+    }
+    if (parameters.getSeed() != 0) {
+      specific
+          .append("randomCbcSeed ")
+          .append(Math.floorMod(parameters.getSeed(), (long) Integer.MAX_VALUE))
+          .append('\n');
+    }
+    // the empty string clears the parameters of the previous solve
+    if (!solver.setSolverSpecificParametersAsString(specific.toString())
+        && specific.length() > 0) {
+      LOG.warn(
+          "Solver does not support the parameters "
+              + specific.toString().trim().replace('\n', ',')
+              + "; only the relative gap is used.");
+    }
+    return relativeGap;
+  }
+
+  /** Maps the solver status to the result, falling back to the warm start if it is better. */
+  private SolveResult createResult(
+      ResultStatus resultStatus,
+      Solution startSolution,
+      long start,
+      IncumbentListener listener) {
     if (resultStatus == ResultStatus.OPTIMAL || resultStatus == ResultStatus.FEASIBLE) {
-      return extractSolution();
+      Solution solution = extractSolution();
+      double bound = Math.min(solver.objective().bestBound(), solution.getObjectiveValue());
+      if (startSolution != null
+          && startSolution.getObjectiveValue() < solution.getObjectiveValue()) {
+        solution = startSolution; // the solver ignored the hint and was stopped early
+      } else if (listener != null
+          && (startSolution == null
+              || solution.getObjectiveValue() < startSolution.getObjectiveValue())) {
+        listener.incumbentFound(solution, bound, System.currentTimeMillis() - start);
+      }
+      SolveStatus status =
+          resultStatus == ResultStatus.OPTIMAL ? SolveStatus.OPTIMAL : SolveStatus.FEASIBLE;
+      return new SolveResult(status, solution, bound, System.currentTimeMillis() - start);
+    }
+    final long elapsed = System.currentTimeMillis() - start;
+    switch (resultStatus) {
+      case INFEASIBLE:
+        return new SolveResult(SolveStatus.INFEASIBLE, null, Double.POSITIVE_INFINITY, elapsed);
+      case NOT_SOLVED:
+        if (startSolution != null) {
+          return new SolveResult(
+              SolveStatus.FEASIBLE, startSolution, Double.NEGATIVE_INFINITY, elapsed);
+        }
+        return new SolveResult(
+            SolveStatus.NO_SOLUTION_FOUND, null, Double.NEGATIVE_INFINITY, elapsed);
+      default:
+        LOG.error("Solver failed with status " + resultStatus);
+        return new SolveResult(
+            SolveStatus.ERROR, startSolution, Double.NEGATIVE_INFINITY, elapsed);
+    }
+  }
+
+  /** Releases the native memory of the model; the solver cannot be used afterwards. */
+  @Override
+  public void close() {
+    if (solver != null) {
+      solver.delete();
+      solver = null;
+    }
+  }
+
+  /**
+   * Replaces the input that solutions are evaluated on by the input of the changes made with the
+   * setters of the modifiable model. The model is not changed.
+   */
+  void setInput(ProblemInput modifiedInput) {
+    checkModifiable();
+    if (modifiedInput.getNumFacilities() != input.getNumFacilities()
+        || modifiedInput.getNumClients() != input.getNumClients()) {
+      throw new RuntimeException(
+          "Expecting an input with "
+              + input.getNumFacilities()
+              + " facilities and "
+              + input.getNumClients()
+              + " clients instead of "
+              + modifiedInput.getNumFacilities()
+              + " and "
+              + modifiedInput.getNumClients());
+    }
+    this.input = modifiedInput;
+  }
+
+  /** Changes the demand coefficients of the client in all capacity constraints. */
+  void setDemand(int client, double demand) {
+    checkModifiable();
+    final int numClients = input.getNumClients();
+    for (int facility = 0; facility < capacityConstraints.length; facility++) {
+      capacityConstraints[facility].setCoefficient(
+          isDemandMet[facility * numClients + client], demand);
+    }
+  }
+
+  /** Changes the coefficient of x_f in the capacity constraint of the facility. */
+  void setCapacity(int facility, double capacity) {
+    checkModifiable();
+    capacityConstraints[facility].setCoefficient(isFacilityOpened[facility], -capacity);
+  }
+
+  void setBuildingCost(int facility, double buildingCost) {
+    checkModifiable();
+    solver.objective().setCoefficient(isFacilityOpened[facility], buildingCost);
+  }
+
+  void setCost(int facility, int client, double cost) {
+    checkModifiable();
+    solver
+        .objective()
+        .setCoefficient(isDemandMet[facility * input.getNumClients() + client], cost);
+  }
+
+  /**
+   * Fixes the facility by the bounds of x_f.
+   *
+   * @param fixing {@link CandidatePricer#OPENED}, {@link CandidatePricer#CLOSED} or {@link
+   *     CandidatePricer#FREE}
+   */
+  void fixFacility(int facility, byte fixing) {
+    checkModifiable();
+    facilityFixing[facility] = fixing;
+    if (fixing == CandidatePricer.FREE) {
+      isFacilityOpened[facility].setBounds(0, 1);
     } else {
-      throw new RuntimeException("Could not solve problem. Solver result status: " + resultStatus);
-    }
-  }
-
-  private Solution extractSolution() {
-    List<Facility> openedFacilities = new ArrayList<>();
-    Map<Client, Facility> servicedBy = new HashMap<>();
-    input
-        .facilities()
-        .filter( // filter all facilities that should be opened
-            facility -> Double.compare(isFacilityOpened.get(facility).solutionValue(), 1.0) == 0)
-        .forEach(
-            facility -> { // store the facilities that are opened
-              openedFacilities.add(input.getFacility(facility));
-              input
-                  .clients()
-                  .filter( // filter all clients that are serviced by the open facility
-                      client ->
-                          Double.compare(isDemandMet.get(facility).get(client).solutionValue(), 1.0)
-                              == 0)
-                  .forEach(
-                      client -> // map each client to the facility it is being served by
-                      servicedBy.put(input.getClient(client), input.getFacility(facility)));
-            });
-    return new Solution(openedFacilities, servicedBy);
+      isFacilityOpened[facility].setBounds(fixing, fixing);
+    }
+  }
+
+  private void checkModifiable() {
+    if (!modifiable) {
+      throw new RuntimeException("The model was not created modifiable.");
+    }
+    if (solver == null) {
+      throw new RuntimeException("The model was closed.");
+    }
+  }
+
+  /** Creates CBC engines, available if the native or-tools library can be loaded. */
+  public static class Provider implements SolverEngineProvider {
+
+    @Override
+    public String getName() {
+      return "cbc";
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return OrTools.isAvailable();
+    }
+
+    @Override
+    public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+      return new CbcSolver(input, modelOptions);
+    }
+  }
+
+  /**
+   * Creates the solution of the warm start assignment, which also opens the facilities that are
+   * fixed open.
+   *
+   * @return the solution, or null if it violates a capacity or uses a facility that is fixed
+   *     closed, e.g. after the model was modified
+   */
+  private Solution createStartSolution(int[] facilityOfClient) {
+    BitSet opened = new BitSet(input.getNumFacilities());
+    for (int facility : facilityOfClient) {
+      opened.set(facility);
+    }
+    for (int facility = 0; facilityFixing != null && facility < facilityFixing.length; facility++) {
+      if (facilityFixing[facility] == CandidatePricer.OPENED) {
+        opened.set(facility);
+      } else if (facilityFixing[facility] == CandidatePricer.CLOSED && opened.get(facility)) {
+        LOG.info("Ignoring the warm start, which opens closed facility " + facility + ".");
+        return null;
+      }
+    }
+    Solution solution = new Solution(input, facilityOfClient.clone(), opened);
+    String violation = solution.findViolation();
+    if (violation != null) {
+      LOG.info("Ignoring the infeasible warm start: " + violation);
+      return null;
+    }
+    return solution;
+  }
+
+  /** Passes the solution to the solver as a hint. */
+  private void setHint(Solution solution) {
+    final int numFacilities = input.getNumFacilities();
+    MPVariable[] variables = new MPVariable[numFacilities + isDemandMet.length];
+    System.arraycopy(isFacilityOpened, 0, variables, 0, numFacilities);
+    System.arraycopy(isDemandMet, 0, variables, numFacilities, isDemandMet.length);
+    double[] values = new double[variables.length];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      values[facility] = solution.isOpened(facility) ? 1 : 0;
+    }
+    for (int column = 0; column < isDemandMet.length; column++) {
+      if (solution.getFacilityOfClient(columnClient(column)) == columnFacility(column)) {
+        values[numFacilities + column] = 1;
+      }
+    }
+    solver.setHint(variables, values);
+  }
+
+  /**
+   * Reads the solution from the variable values, treating binary variables with values above 1/2
+   * as 1, since CBC may return values such as 0.9999999 for integral variables. Only the columns of
+   * the opened facilities are scanned.
+   */
+  Solution extractSolution() {
+    BitSet opened = new BitSet(input.getNumFacilities());
+    int[] facilityOfClient = new int[input.getNumClients()];
+    try (Phase phase = metrics.startPhase("extract")) {
+      Arrays.fill(facilityOfClient, -1);
+      for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+        if (isFacilityOpened[facility].solutionValue() > INTEGRALITY_THRESHOLD) {
+          opened.set(facility);
+          for (int column = firstColumn[facility]; column < firstColumn[facility + 1]; column++) {
+            if (isDemandMet[column].solutionValue() > INTEGRALITY_THRESHOLD) {
+              facilityOfClient[columnClient(column)] = facility;
+            }
+          }
+        }
+      }
+    }
+    try (Phase phase = metrics.startPhase("objective")) {
+      return new Solution(input, facilityOfClient, opened);
+    }
   }
 
   private void createVariables() {
+    final int numFacilities = input.getNumFacilities();
+    final boolean names = modelOptions.hasNames();
+
     // x_f       binary:  1 if facility f is opened, 0 otherwise
-    isFacilityOpened = new ArrayList<>(input.getNumFacilities());
-    input
-        .facilities()
-        .forEach(facility -> isFacilityOpened.add(solver.makeIntVar(0, 1, "x_" + facility)));
+    isFacilityOpened = new MPVariable[numFacilities];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      isFacilityOpened[facility] = solver.makeIntVar(0, 1, names ? "x_" + facility : "");
+      if (facilityFixing != null && facilityFixing[facility] != CandidatePricer.FREE) {
+        isFacilityOpened[facility].setBounds(facilityFixing[facility], facilityFixing[facility]);
+      }
+    }
 
     // y_f_c     binary: 1 if demand is met by facility f for client c, 0 otherwise
-    isDemandMet = new ArrayList<>(input.getNumFacilities());
-    input
-        .facilities()
-        .forEach(
-            facility -> {
-              ArrayList<MPVariable> demandMetForClients = new ArrayList<>(input.getNumClients());
-              input
-                  .clients()
-                  .forEach(
-                      client ->
-                          demandMetForClients.add(
-                              solver.makeIntVar(0.0, 1.0, "y_f" + facility + "_c" + client)));
-              isDemandMet.add(demandMetForClients);
-            });
+    isDemandMet = new MPVariable[numColumns()];
+    for (int column = 0; column < isDemandMet.length; column++) {
+      isDemandMet[column] =
+          solver.makeIntVar(
+              0.0,
+              1.0,
+              names ? "y_f" + columnFacility(column) + "_c" + columnClient(column) : "");
+    }
   }
 
   private void createConstraints() {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    final boolean names = modelOptions.hasNames();
+
     // forall clients c:
     //     sum (facilities f) y_f_c = 1     all clients' demand is met
-    input
-        .clients()
-        .forEach(
-            client -> {
-              MPConstraint demandConstraint =
-                  solver.makeConstraint(1, 1, "demandConstraint-c" + client);
-              input
-                  .facilities()
-                  .forEach(
-                      facility ->
-                          demandConstraint.setCoefficient(
-                              isDemandMet.get(facility).get(client), 1.0));
-            });
+    MPConstraint[] demandConstraints = new MPConstraint[numClients];
+    for (int client = 0; client < numClients; client++) {
+      demandConstraints[client] =
+          solver.makeConstraint(1, 1, names ? "demandConstraint-c" + client : "");
+    }
 
     // forall facilities f:
     //     sum (clients c) (demand_c * y_f_c)  - capacity_f * x_f  <= 0      do not exceed f's
     // capacity
-    input
-        .facilities()
-        .forEach(
-            facility -> {
-              MPConstraint capacityConstraint =
-                  solver.makeConstraint(-MPSolver.infinity(), 0, "capacityConstraint-f" + facility);
-              input // sum (clients c) (demand_c * y_f_c)
-                  .clients()
-                  .forEach(
-                      client ->
-                          capacityConstraint.setCoefficient(
-                              isDemandMet.get(facility).get(client),
-                              input.getClient(client).getDemand()));
-              // capacity_f * x_f
-              capacityConstraint.setCoefficient(
-                  isFacilityOpened.get(facility), input.getFacility(facility).getCapacity() * -1);
-            });
+    capacityConstraints = new MPConstraint[numFacilities];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      capacityConstraints[facility] =
+          solver.makeConstraint(
+              -MPSolver.infinity(), 0, names ? "capacityConstraint-f" + facility : "");
+      // capacity_f * x_f
+      capacityConstraints[facility].setCoefficient(
+          isFacilityOpened[facility], input.getCapacity(facility) * -1);
+    }
+    // both constraint sets are filled in one pass over the columns, facility by facility
+    for (int column = 0; column < isDemandMet.length; column++) {
+      final int client = columnClient(column);
+      demandConstraints[client].setCoefficient(isDemandMet[column], 1.0);
+      capacityConstraints[columnFacility(column)].setCoefficient(
+          isDemandMet[column], input.getDemand(client));
+    }
+  }
+
+  /**
+   * Adds the total capacity row and the linking and cover cuts that the {@link CutSeparator} finds
+   * violated by the LP relaxation.
+   */
+  private void addCuts() {
+    final boolean names = modelOptions.hasNames();
+    // sum (facilities f) (capacity_f * x_f) >= total demand
+    MPConstraint totalCapacity =
+        solver.makeConstraint(
+            input.clients().mapToDouble(input::getDemand).sum(),
+            MPSolver.infinity(),
+            names ? "totalCapacity" : "");
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      totalCapacity.setCoefficient(isFacilityOpened[facility], input.getCapacity(facility));
+    }
+    List<CutSeparator.Cut> cuts =
+        new CutSeparator(input, firstColumn, this::columnClient, facilityFixing).run();
+    // sum (columns of f) y_f_c - k * x_f <= 0
+    for (int i = 0; i < cuts.size(); i++) {
+      CutSeparator.Cut cut = cuts.get(i);
+      MPConstraint constraint =
+          solver.makeConstraint(-MPSolver.infinity(), 0, names ? "cut-" + i : "");
+      for (int column : cut.columns) {
+        constraint.setCoefficient(isDemandMet[column], 1);
+      }
+      constraint.setCoefficient(isFacilityOpened[cut.facility], -cut.rhsCoefficient);
+    }
   }
 
   private void createObjective() {
@@ -180,24 +849,15 @@ public class CbcSolver {
     //      sum (facilities f) (x_j * cost_f)
     //    + sum (clients c, facilities f) (y_f_c * costToMeetDemand_f_c)
     MPObjective objective = solver.objective();
-    input
-        .facilities()
-        .forEach(
-            facility -> // sum (facilities f) (x_j * cost_f)
-            objective.setCoefficient(
-                    isFacilityOpened.get(facility), input.getBuildingCost(facility)));
-    input
-        .clients()
-        .forEach(
-            client ->
-                input
-                    .facilities()
-                    .forEach(
-                        facility -> // sum (clients c, facilities f) (y_f_c * costToMeetDemand_f_c)
-                        objective.setCoefficient(
-                                isDemandMet.get(facility).get(client),
-                                input.getCostToMeetDemand(facility, client))));
-
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      objective.setCoefficient(isFacilityOpened[facility], input.getBuildingCost(facility));
+    }
+    // column by column, in the order of the cost matrix
+    for (int column = 0; column < isDemandMet.length; column++) {
+      objective.setCoefficient(
+          isDemandMet[column],
+          input.getCostToMeetDemand(columnFacility(column), columnClient(column)));
+    }
     objective.minimization();
   }
 }
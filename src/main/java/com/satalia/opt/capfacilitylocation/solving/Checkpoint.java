@@ -0,0 +1,299 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.CanonicalForm;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The state of a solve that is persisted by the {@link CheckpointingSolver} so that it can be
+ * resumed after the process stopped: the hash of the instance, the engine and parameters, the time
+ * spent so far, the best bound and the best incumbent.
+ *
+ * <p>The incumbent is stored as the facility of each client in the {@link CanonicalForm} of the
+ * instance, with one, two or four bytes per client depending on the number of facilities, so a
+ * checkpoint of 50000 clients takes about 100KB. Files are written to a temporary file and then
+ * renamed, so a checkpoint file is always complete, also if the process stops while writing.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class Checkpoint {
+
+  private static final int MAGIC = 0x43464c43; // "CFLC"
+  private static final int FORMAT_VERSION = 1;
+
+  private final String instanceHash;
+  private final String engine;
+  private final SolveParameters parameters;
+  private final SolveStatus status;
+  private final long elapsedMillis;
+  private final double bound;
+  private final double objective;
+  /** the canonical facility of each canonical client, null if there is no incumbent */
+  private final int[] assignment;
+
+  private Checkpoint(
+      final String instanceHash,
+      final String engine,
+      final SolveParameters parameters,
+      final SolveStatus status,
+      final long elapsedMillis,
+      final double bound,
+      final double objective,
+      final int[] assignment) {
+    this.instanceHash = instanceHash;
+    this.engine = engine;
+    this.parameters = parameters;
+    this.status = status;
+    this.elapsedMillis = elapsedMillis;
+    this.bound = bound;
+    this.objective = objective;
+    this.assignment = assignment;
+  }
+
+  /**
+   * @param form the canonical form of the instance of the incumbent
+   * @param status the status of the solve: FEASIBLE or NO_SOLUTION_FOUND while it runs
+   * @param incumbent the best solution so far, or null if there is none
+   */
+  static Checkpoint of(
+      CanonicalForm form,
+      String engine,
+      SolveParameters parameters,
+      SolveStatus status,
+      long elapsedMillis,
+      double bound,
+      Solution incumbent) {
+    int[] assignment = null;
+    double objective = Double.POSITIVE_INFINITY;
+    if (incumbent != null) {
+      assignment = new int[incumbent.getInput().getNumClients()];
+      for (int position = 0; position < assignment.length; position++) {
+        assignment[position] =
+            form.getFacilityPosition(incumbent.getFacilityOfClient(form.getClient(position)));
+      }
+      objective = incumbent.getObjectiveValue();
+    }
+    return new Checkpoint(
+        form.getHash(),
+        engine,
+        parameters.copy(),
+        status,
+        elapsedMillis,
+        bound,
+        objective,
+        assignment);
+  }
+
+  /** @return the hash of the canonical form of the instance */
+  public String getInstanceHash() {
+    return instanceHash;
+  }
+
+  /** @return the name of the engine, see {@link SolverEngines} */
+  public String getEngine() {
+    return engine;
+  }
+
+  /** @return the parameters of the solve, with its whole time limit */
+  public SolveParameters getParameters() {
+    return parameters.copy();
+  }
+
+  /** @return the final status of the solve, or FEASIBLE or NO_SOLUTION_FOUND if it is running */
+  public SolveStatus getStatus() {
+    return status;
+  }
+
+  /** @return true if the solve proved optimality or infeasibility, so there is nothing to resume */
+  public boolean isFinished() {
+    return status == SolveStatus.OPTIMAL || status == SolveStatus.INFEASIBLE;
+  }
+
+  /** @return the time spent on the solve up to the checkpoint, over all resumes */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /** @return the time left of the time limit, or 0 if there is no time limit */
+  public long getRemainingMillis() {
+    if (parameters.getTimeLimitMillis() <= 0) {
+      return 0;
+    }
+    return Math.max(1, parameters.getTimeLimitMillis() - elapsedMillis);
+  }
+
+  /** @return the best bound, or -infinity if none is known */
+  public double getBound() {
+    return bound;
+  }
+
+  /** @return the objective value of the incumbent, or infinity if there is none */
+  public double getObjectiveValue() {
+    return objective;
+  }
+
+  public boolean hasIncumbent() {
+    return assignment != null;
+  }
+
+  /**
+   * @param input the instance of the checkpoint, with its facilities and clients in any order
+   * @param form the canonical form of the input
+   * @return the incumbent for the input, or null if there is none
+   */
+  public Solution getIncumbent(ProblemInput input, CanonicalForm form) {
+    if (!form.getHash().equals(instanceHash)) {
+      throw new RuntimeException(
+          "The checkpoint is of instance " + instanceHash + " instead of " + form.getHash());
+    }
+    if (assignment == null) {
+      return null;
+    }
+    if (assignment.length != input.getNumClients()) {
+      throw new RuntimeException(
+          "The checkpoint has "
+              + assignment.length
+              + " clients instead of "
+              + input.getNumClients());
+    }
+    int[] facilityOfClient = new int[assignment.length];
+    for (int position = 0; position < assignment.length; position++) {
+      if (assignment[position] < 0 || assignment[position] >= input.getNumFacilities()) {
+        throw new RuntimeException(
+            "The checkpoint assigns a client to a missing facility " + assignment[position]);
+      }
+      facilityOfClient[form.getClient(position)] = form.getFacility(assignment[position]);
+    }
+    return Solution.fromAssignment(input, facilityOfClient);
+  }
+
+  /** Writes the checkpoint to a temporary file next to the file and renames it to the file. */
+  public void write(Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        write(out);
+      }
+      Files.move(
+          temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private void write(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeUTF(instanceHash);
+    out.writeUTF(engine);
+    out.writeLong(parameters.getTimeLimitMillis());
+    out.writeDouble(parameters.getRelativeGap());
+    out.writeDouble(parameters.getAbsoluteGap());
+    out.writeInt(parameters.getNumThreads());
+    out.writeLong(parameters.getSeed());
+    out.writeUTF(status.name());
+    out.writeLong(elapsedMillis);
+    out.writeDouble(bound);
+    out.writeDouble(objective);
+    if (assignment == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(assignment.length);
+    int maxFacility = 0;
+    for (int facility : assignment) {
+      maxFacility = Math.max(maxFacility, facility);
+    }
+    final int width = byteWidth(maxFacility);
+    out.writeByte(width);
+    for (int facility : assignment) {
+      if (width == 1) {
+        out.writeByte(facility);
+      } else if (width == 2) {
+        out.writeShort(facility);
+      } else {
+        out.writeInt(facility);
+      }
+    }
+  }
+
+  /** Reads a checkpoint written by {@link #write(Path)}. */
+  public static Checkpoint read(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      final int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported checkpoint format version " + version + ": " + file);
+      }
+      final String instanceHash = in.readUTF();
+      final String engine = in.readUTF();
+      SolveParameters parameters = new SolveParameters();
+      parameters.setTimeLimitMillis(in.readLong());
+      parameters.setRelativeGap(in.readDouble());
+      parameters.setAbsoluteGap(in.readDouble());
+      parameters.setNumThreads(in.readInt());
+      parameters.setSeed(in.readLong());
+      SolveStatus status = SolveStatus.valueOf(in.readUTF());
+      final long elapsedMillis = in.readLong();
+      final double bound = in.readDouble();
+      final double objective = in.readDouble();
+      final int numClients = in.readInt();
+      int[] assignment = null;
+      if (numClients >= 0) {
+        assignment = new int[numClients];
+        final int width = in.readByte();
+        for (int position = 0; position < numClients; position++) {
+          if (width == 1) {
+            assignment[position] = in.readUnsignedByte();
+          } else if (width == 2) {
+            assignment[position] = in.readUnsignedShort();
+          } else {
+            assignment[position] = in.readInt();
+          }
+        }
+      }
+      return new Checkpoint(
+          instanceHash,
+          engine,
+          parameters,
+          status,
+          elapsedMillis,
+          bound,
+          objective,
+          assignment);
+    }
+  }
+
+  /** @return the number of bytes needed to store the non-negative value */
+  private static int byteWidth(int value) {
+    return value < 1 << 8 ? 1 : value < 1 << 16 ? 2 : 4;
+  }
+
+  @Override
+  public String toString() {
+    return "Checkpoint of "
+        + engine
+        + " on instance "
+        + instanceHash
+        + ": "
+        + status
+        + (assignment == null ? "" : ", objective " + objective)
+        + ", bound "
+        + bound
+        + " after "
+        + elapsedMillis
+        + " ms";
+  }
+}
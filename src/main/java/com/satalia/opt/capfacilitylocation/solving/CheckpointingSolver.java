@@ -0,0 +1,300 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.CanonicalForm;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an engine and persists its progress as a {@link Checkpoint}, so that a long solve can be
+ * resumed after the process stopped: warm started from the stored incumbent, with the stored bound
+ * and the rest of the time limit.
+ *
+ * <p>The checkpoint is written by a background thread at a fixed interval, after each slice and at
+ * the end of the solve. Engines that report their incumbents while solving, like the {@link
+ * LocalSearchSolver}, have them written at the next interval. CBC reports nothing until its solve
+ * returns, so for CBC the solve can be split into slices of a given length, each warm started from
+ * the incumbent of the previous one. Each slice restarts the branch-and-bound tree, so slices
+ * should be long, e.g. 10 minutes for a solve of hours; without slices, a resumed CBC solve only
+ * gains the time that was spent on it before.
+ *
+ * <p>A checkpoint is a few bytes per client, so writing it takes well below a millisecond per
+ * thousand clients; the hash of the instance, which reads the cost matrix twice, is computed once
+ * per solve.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class CheckpointingSolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointingSolver.class);
+
+  /** the default interval at which the checkpoint is written */
+  public static final long DEFAULT_INTERVAL_MILLIS = 60_000;
+
+  private final ProblemInput input;
+  private final SolverEngine engine;
+  private final String engineName;
+  private final Path checkpointFile;
+  private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+  private long sliceMillis = 0;
+  /** orders the writes, so that a later state is never overwritten by an earlier one */
+  private final Object writeLock = new Object();
+
+  // the state of the running solve, guarded by this
+  private CanonicalForm form;
+  private SolveParameters parameters;
+  /** the time spent before the solve was resumed */
+  private long previousMillis;
+  private long startMillis;
+  private double bound;
+  private Solution incumbent;
+  private int numWrites;
+
+  /**
+   * @param input the instance
+   * @param engine the engine solving the input, which is not closed by this solver
+   * @param engineName the name of the engine, with which it is found again on resume
+   * @param checkpointFile the file the checkpoint is written to
+   */
+  public CheckpointingSolver(
+      final ProblemInput input,
+      final SolverEngine engine,
+      final String engineName,
+      final Path checkpointFile) {
+    this.input = input;
+    this.engine = engine;
+    this.engineName = engineName;
+    this.checkpointFile = checkpointFile;
+  }
+
+  /** @param intervalMillis the interval at which the checkpoint is written, at least 1 ms */
+  public void setInterval(long intervalMillis) {
+    if (intervalMillis < 1) {
+      throw new RuntimeException("Expecting a positive interval instead of " + intervalMillis);
+    }
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * @param sliceMillis if positive, the solve is split into slices of at most this length, each
+   *     warm started from the incumbent and followed by a checkpoint, until the time limit, which
+   *     is then required, or until a slice improves neither the incumbent nor the bound
+   */
+  public void setSlice(long sliceMillis) {
+    this.sliceMillis = sliceMillis;
+  }
+
+  /**
+   * Solves the input from the start.
+   *
+   * @param parameters the parameters of the whole solve, including resumes
+   * @param listener notified of each better solution, may be null
+   */
+  public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+    return run(CanonicalForm.of(input), parameters, 0, Double.NEGATIVE_INFINITY, null, listener);
+  }
+
+  /**
+   * Continues the solve of the checkpoint, with its parameters and the rest of its time limit. A
+   * finished checkpoint is returned without solving.
+   *
+   * @param checkpoint a checkpoint of the input, with its facilities and clients in any order
+   * @param listener notified of each better solution, may be null
+   * @throws RuntimeException if the checkpoint is of another instance
+   */
+  public SolveResult resume(Checkpoint checkpoint, IncumbentListener listener) {
+    CanonicalForm canonicalForm = CanonicalForm.of(input);
+    Solution stored = checkpoint.getIncumbent(input, canonicalForm);
+    if (!checkpoint.getEngine().equals(engineName)) {
+      LOG.warn(
+          "Resuming the checkpoint of engine "
+              + checkpoint.getEngine()
+              + " with engine "
+              + engineName
+              + ".");
+    }
+    LOG.info("Resuming from " + checkpoint);
+    if (checkpoint.isFinished()) {
+      return new SolveResult(
+          checkpoint.getStatus(), stored, checkpoint.getBound(), checkpoint.getElapsedMillis());
+    }
+    if (stored != null && listener != null) {
+      listener.incumbentFound(stored, checkpoint.getBound(), checkpoint.getElapsedMillis());
+    }
+    return run(
+        canonicalForm,
+        checkpoint.getParameters(),
+        checkpoint.getElapsedMillis(),
+        checkpoint.getBound(),
+        stored,
+        listener);
+  }
+
+  /** @return the number of checkpoints written by the last solve */
+  public synchronized int getNumWrites() {
+    return numWrites;
+  }
+
+  private SolveResult run(
+      CanonicalForm canonicalForm,
+      SolveParameters solveParameters,
+      long elapsedMillis,
+      double startBound,
+      Solution startSolution,
+      IncumbentListener listener) {
+    if (sliceMillis > 0 && solveParameters.getTimeLimitMillis() <= 0) {
+      throw new RuntimeException("Solving in slices requires a time limit.");
+    }
+    synchronized (this) {
+      form = canonicalForm;
+      parameters = solveParameters;
+      previousMillis = elapsedMillis;
+      startMillis = System.currentTimeMillis();
+      bound = startBound;
+      incumbent = startSolution;
+      numWrites = 0;
+    }
+    ScheduledExecutorService timer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "checkpoint");
+              thread.setDaemon(true);
+              return thread;
+            });
+    timer.scheduleWithFixedDelay(
+        () -> write(SolveStatus.FEASIBLE), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    SolveStatus status = SolveStatus.NO_SOLUTION_FOUND;
+    try {
+      final long timeLimit = solveParameters.getTimeLimitMillis();
+      while (true) {
+        final double objectiveBefore = getObjectiveValue();
+        final double boundBefore = getBound();
+        final long remaining = timeLimit - getElapsedMillis();
+        if (timeLimit > 0 && remaining <= 0) {
+          break;
+        }
+        SolveParameters sliceParameters = solveParameters.copy();
+        if (sliceMillis > 0) {
+          sliceParameters.setTimeLimitMillis(
+              timeLimit > 0 ? Math.min(sliceMillis, remaining) : sliceMillis);
+        } else {
+          sliceParameters.setTimeLimitMillis(timeLimit > 0 ? remaining : 0);
+        }
+        Solution start = getIncumbent();
+        if (start != null) {
+          engine.setWarmStart(start);
+        }
+        SolveResult sliceResult =
+            engine.solve(
+                sliceParameters,
+                (solution, solutionBound, millis) -> {
+                  if (update(solution, solutionBound) && listener != null) {
+                    listener.incumbentFound(solution, getBound(), getElapsedMillis());
+                  }
+                });
+        update(sliceResult.getSolution(), sliceResult.getBound());
+        status = sliceResult.getStatus();
+        if (sliceMillis <= 0
+            || status == SolveStatus.OPTIMAL
+            || status == SolveStatus.INFEASIBLE
+            || status == SolveStatus.ERROR) {
+          break;
+        }
+        if (getObjectiveValue() >= objectiveBefore && getBound() <= boundBefore) {
+          LOG.info("Stopping after a slice that improved neither the incumbent nor the bound.");
+          break;
+        }
+        write(SolveStatus.FEASIBLE);
+      }
+    } finally {
+      stop(timer);
+    }
+    Solution solution = getIncumbent();
+    if (status != SolveStatus.OPTIMAL
+        && status != SolveStatus.INFEASIBLE
+        && status != SolveStatus.ERROR) {
+      status = solution == null ? SolveStatus.NO_SOLUTION_FOUND : SolveStatus.FEASIBLE;
+    }
+    write(status);
+    LOG.info(
+        "Solved with "
+            + getNumWrites()
+            + " checkpoints in "
+            + checkpointFile
+            + " after "
+            + getElapsedMillis()
+            + " ms in total.");
+    return new SolveResult(status, solution, getBound(), getElapsedMillis());
+  }
+
+  /**
+   * Cancels the periodic writes and waits for a running one to finish, so that it cannot overwrite
+   * the final checkpoint. The running write is not interrupted, which could leave no checkpoint.
+   */
+  private static void stop(ScheduledExecutorService timer) {
+    timer.shutdown();
+    try {
+      while (!timer.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("Waiting for a periodic checkpoint write to finish.");
+      }
+    } catch (InterruptedException e) {
+      timer.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** @return true if the solution is better than the incumbent */
+  private synchronized boolean update(Solution solution, double solutionBound) {
+    bound = Math.max(bound, solutionBound);
+    if (solution == null
+        || (incumbent != null && solution.getObjectiveValue() >= incumbent.getObjectiveValue())) {
+      return false;
+    }
+    incumbent = solution;
+    return true;
+  }
+
+  private synchronized Solution getIncumbent() {
+    return incumbent;
+  }
+
+  /** @return the objective value of the incumbent, or infinity if there is none */
+  private synchronized double getObjectiveValue() {
+    return incumbent == null ? Double.POSITIVE_INFINITY : incumbent.getObjectiveValue();
+  }
+
+  private synchronized double getBound() {
+    return bound;
+  }
+
+  /** @return the time spent on the solve, including that before it was resumed */
+  private synchronized long getElapsedMillis() {
+    return previousMillis + System.currentTimeMillis() - startMillis;
+  }
+
+  /** Writes the checkpoint; a failure is logged, so that it does not stop the solve. */
+  private void write(SolveStatus status) {
+    synchronized (writeLock) {
+      Checkpoint checkpoint;
+      synchronized (this) {
+        if (status == SolveStatus.FEASIBLE && incumbent == null) {
+          status = SolveStatus.NO_SOLUTION_FOUND;
+        }
+        checkpoint =
+            Checkpoint.of(
+                form, engineName, parameters, status, getElapsedMillis(), bound, incumbent);
+        numWrites++;
+      }
+      try {
+        checkpoint.write(checkpointFile);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Could not write the checkpoint " + checkpointFile, e);
+      }
+    }
+  }
+}
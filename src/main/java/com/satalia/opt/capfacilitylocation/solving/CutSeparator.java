@@ -0,0 +1,353 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.google.ortools.linearsolver.MPConstraint;
+import com.google.ortools.linearsolver.MPObjective;
+import com.google.ortools.linearsolver.MPSolver;
+import com.google.ortools.linearsolver.MPSolver.ResultStatus;
+import com.google.ortools.linearsolver.MPVariable;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Strengthens the LP relaxation of the MIP model with cutting planes, separated on an LP copy of
+ * the model over the same columns:
+ *
+ * <ul>
+ *   <li>the total capacity row: sum (facilities f) (capacity_f * x_f) >= total demand
+ *   <li>linking cuts y_f_c <= x_f, only for the pairs where the LP solution violates them
+ *   <li>extended cover cuts of each facility's capacity row: if the clients C of a cover have more
+ *       demand than capacity_f, then sum (clients c in E(C)) y_f_c <= (|C| - 1) * x_f, where E(C)
+ *       adds all clients with at least the largest demand in C
+ * </ul>
+ *
+ * The LP is solved and the violated cuts are added in rounds, until no cut is violated or the
+ * bound stalls. The cuts found are then added to the MIP model, so CBC starts with a stronger
+ * root relaxation than the aggregated capacity rows give, without creating all F x C linking rows.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class CutSeparator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CutSeparator.class);
+
+  private static final double EPSILON = 1e-6;
+  private static final int MAX_ROUNDS = 50;
+  /** stop when a round improves the bound by less than this, relative to the bound */
+  private static final double MIN_RELATIVE_IMPROVEMENT = 1e-4;
+
+  private final ProblemInput input;
+  private final IntUnaryOperator columnClient;
+  private final byte[] facilityFixing;
+  /** the columns of facility f are firstColumn[f] to firstColumn[f + 1] - 1 */
+  private final int[] firstColumn;
+
+  // the LP relaxation
+  private MPSolver lp;
+  private MPVariable[] isFacilityOpened;
+  private MPVariable[] isDemandMet;
+
+  // work buffers of the cover separation
+  private double[] values;
+  private double[] demands;
+  private int[] candidates;
+  private double[] keys;
+  private boolean[] inCover;
+
+  /**
+   * @param input the problem input
+   * @param firstColumn the first column of each facility, in facility-major order, and the number
+   *     of columns as last entry
+   * @param columnClient the client of each column
+   * @param facilityFixing FREE, CLOSED or OPENED for each facility, or null if none are fixed
+   */
+  CutSeparator(
+      final ProblemInput input,
+      final int[] firstColumn,
+      final IntUnaryOperator columnClient,
+      final byte[] facilityFixing) {
+    this.input = input;
+    this.firstColumn = firstColumn;
+    this.columnClient = columnClient;
+    this.facilityFixing = facilityFixing;
+  }
+
+  /**
+   * Separates cuts until the bound of the LP relaxation stalls.
+   *
+   * @return the linking and cover cuts to add to the MIP model, besides the total capacity row;
+   *     empty if the LP relaxation could not be solved
+   */
+  List<Cut> run() {
+    final long start = System.currentTimeMillis();
+    List<Cut> cuts = new ArrayList<>();
+    lp =
+        new MPSolver(
+            "capacitated_facility_location_cuts",
+            MPSolver.OptimizationProblemType.GLOP_LINEAR_PROGRAMMING);
+    try {
+      createRelaxation();
+      if (lp.solve() != ResultStatus.OPTIMAL) {
+        LOG.warn("LP relaxation not solved to optimality, no cuts.");
+        return cuts;
+      }
+      final double initialBound = lp.objective().value();
+      double bound = initialBound;
+      // the first round only adds the total capacity row
+      addTotalCapacityRow();
+      List<Cut> roundCuts = new ArrayList<>();
+      int rounds = 0;
+      int numLinkingCuts = 0;
+      do {
+        for (Cut cut : roundCuts) {
+          addToRelaxation(cut);
+        }
+        cuts.addAll(roundCuts);
+        ResultStatus status = lp.solve();
+        rounds++;
+        if (status != ResultStatus.OPTIMAL) {
+          LOG.warn("LP relaxation with cuts not solved to optimality (" + status + ").");
+          break;
+        }
+        final double previous = bound;
+        bound = lp.objective().value();
+        LOG.debug("Cut round " + rounds + ": " + roundCuts.size() + " cuts, LP bound " + bound);
+        if (rounds > 1
+            && bound - previous <= MIN_RELATIVE_IMPROVEMENT * Math.max(1, Math.abs(bound))) {
+          break;
+        }
+        roundCuts = new ArrayList<>();
+        numLinkingCuts += separateLinkingCuts(roundCuts);
+        separateCoverCuts(roundCuts);
+      } while (!roundCuts.isEmpty() && rounds < MAX_ROUNDS);
+      LOG.info(
+          "Root LP bound improved from "
+              + initialBound
+              + " to "
+              + bound
+              + String.format(
+                  " (+%.2f%%)", 100 * (bound - initialBound) / Math.max(1, Math.abs(initialBound)))
+              + " in "
+              + rounds
+              + " rounds and "
+              + (System.currentTimeMillis() - start)
+              + " ms, with the total capacity row, "
+              + numLinkingCuts
+              + " linking and "
+              + (cuts.size() - numLinkingCuts)
+              + " cover cuts.");
+      return cuts;
+    } finally {
+      lp.delete();
+      lp = null;
+    }
+  }
+
+  private void createRelaxation() {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    MPObjective objective = lp.objective();
+    isFacilityOpened = new MPVariable[numFacilities];
+    MPConstraint[] capacityConstraints = new MPConstraint[numFacilities];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      isFacilityOpened[facility] = lp.makeNumVar(0, 1, "");
+      if (facilityFixing != null && facilityFixing[facility] != CandidatePricer.FREE) {
+        isFacilityOpened[facility].setBounds(facilityFixing[facility], facilityFixing[facility]);
+      }
+      objective.setCoefficient(isFacilityOpened[facility], input.getBuildingCost(facility));
+      capacityConstraints[facility] = lp.makeConstraint(-MPSolver.infinity(), 0, "");
+      capacityConstraints[facility].setCoefficient(
+          isFacilityOpened[facility], -input.getCapacity(facility));
+    }
+    MPConstraint[] demandConstraints = new MPConstraint[numClients];
+    for (int client = 0; client < numClients; client++) {
+      demandConstraints[client] = lp.makeConstraint(1, 1, "");
+    }
+    isDemandMet = new MPVariable[firstColumn[numFacilities]];
+    for (int facility = 0; facility < numFacilities; facility++) {
+      for (int column = firstColumn[facility]; column < firstColumn[facility + 1]; column++) {
+        final int client = columnClient.applyAsInt(column);
+        // y_f_c <= 1 is implied by the demand row
+        isDemandMet[column] = lp.makeNumVar(0, MPSolver.infinity(), "");
+        objective.setCoefficient(isDemandMet[column], input.getCostToMeetDemand(facility, client));
+        demandConstraints[client].setCoefficient(isDemandMet[column], 1);
+        capacityConstraints[facility].setCoefficient(isDemandMet[column], input.getDemand(client));
+      }
+    }
+    objective.minimization();
+  }
+
+  private void addTotalCapacityRow() {
+    MPConstraint totalCapacity = lp.makeConstraint(totalDemand(), MPSolver.infinity(), "");
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      totalCapacity.setCoefficient(isFacilityOpened[facility], input.getCapacity(facility));
+    }
+  }
+
+  private double totalDemand() {
+    return input.clients().mapToDouble(input::getDemand).sum();
+  }
+
+  private void addToRelaxation(Cut cut) {
+    MPConstraint constraint = lp.makeConstraint(-MPSolver.infinity(), 0, "");
+    for (int column : cut.columns) {
+      constraint.setCoefficient(isDemandMet[column], 1);
+    }
+    constraint.setCoefficient(isFacilityOpened[cut.facility], -cut.rhsCoefficient);
+  }
+
+  /** Adds a cut y_f_c <= x_f for each column whose LP value exceeds its facility's. */
+  private int separateLinkingCuts(List<Cut> cuts) {
+    int added = 0;
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      final double opened = isFacilityOpened[facility].solutionValue();
+      for (int column = firstColumn[facility]; column < firstColumn[facility + 1]; column++) {
+        if (isDemandMet[column].solutionValue() > opened + EPSILON) {
+          cuts.add(new Cut(facility, new int[] {column}, 1));
+          added++;
+        }
+      }
+    }
+    return added;
+  }
+
+  /** Adds at most one violated extended cover cut per facility. */
+  private void separateCoverCuts(List<Cut> cuts) {
+    if (values == null) {
+      int maxColumns = 0;
+      for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+        maxColumns = Math.max(maxColumns, firstColumn[facility + 1] - firstColumn[facility]);
+      }
+      values = new double[maxColumns];
+      demands = new double[maxColumns];
+    }
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      final double opened = isFacilityOpened[facility].solutionValue();
+      if (opened < EPSILON) {
+        continue;
+      }
+      final int first = firstColumn[facility];
+      final int count = firstColumn[facility + 1] - first;
+      for (int i = 0; i < count; i++) {
+        values[i] = isDemandMet[first + i].solutionValue();
+        demands[i] = input.getDemand(columnClient.applyAsInt(first + i));
+      }
+      Cut cut =
+          separateCover(
+              facility, first, opened, values, demands, input.getCapacity(facility), count);
+      if (cut != null) {
+        cuts.add(cut);
+      }
+    }
+  }
+
+  /**
+   * Finds a cover of a knapsack row sum (items i) (weight_i * y_i) <= capacity * x whose extended
+   * cover cut is violated by the LP values. Greedily adds the items with the smallest (x - y_i) /
+   * weight_i, which minimises the slack sum (i in C) (x - y_i) of the cut, then removes items with
+   * the largest slack as long as it remains a cover, and extends it by all items that weigh at
+   * least as much as the heaviest item in the cover.
+   *
+   * @param facility the facility of the row
+   * @param firstColumn the column of the first item
+   * @param x the LP value of the facility variable
+   * @param values the LP values of the items
+   * @param weights the weights of the items
+   * @param capacity the capacity
+   * @param count the number of items
+   * @return the extended cover cut, or null if no cut is violated
+   */
+  Cut separateCover(
+      int facility,
+      int firstColumn,
+      double x,
+      double[] values,
+      double[] weights,
+      double capacity,
+      int count) {
+    if (candidates == null || candidates.length < count) {
+      candidates = new int[count];
+      keys = new double[count];
+      inCover = new boolean[count];
+    }
+    // only items with a positive value can be in a violated cover: each other item adds x to the
+    // slack, and the cut is violated only if the slack is less than x. Items without weight, of
+    // clients without demand, never help to exceed the capacity and have no finite sort key.
+    int numCandidates = 0;
+    double candidateWeight = 0;
+    for (int i = 0; i < count; i++) {
+      if (values[i] > EPSILON && weights[i] > EPSILON) {
+        candidates[numCandidates] = i;
+        keys[numCandidates] = (x - values[i]) / weights[i];
+        candidateWeight += weights[i];
+        numCandidates++;
+      }
+    }
+    if (candidateWeight <= capacity + EPSILON) {
+      return null;
+    }
+    IndexSort.sortAscending(candidates, keys, numCandidates);
+    int coverSize = 0;
+    double coverWeight = 0;
+    while (coverWeight <= capacity + EPSILON) {
+      coverWeight += weights[candidates[coverSize]];
+      coverSize++;
+    }
+    // make the cover minimal, removing the items with the largest slack first
+    for (int i = coverSize - 1; i >= 0; i--) {
+      final int item = candidates[i];
+      if (coverWeight - weights[item] > capacity + EPSILON) {
+        coverWeight -= weights[item];
+        candidates[i] = candidates[--coverSize];
+        candidates[coverSize] = item;
+      }
+    }
+    double lhs = 0;
+    double maxWeight = 0;
+    for (int i = 0; i < count; i++) {
+      inCover[i] = false;
+    }
+    for (int i = 0; i < coverSize; i++) {
+      inCover[candidates[i]] = true;
+      lhs += values[candidates[i]];
+      maxWeight = Math.max(maxWeight, weights[candidates[i]]);
+    }
+    // the extension by heavy items, which only strengthens the cut
+    int numExtended = 0;
+    for (int i = 0; i < count; i++) {
+      if (!inCover[i] && weights[i] >= maxWeight) {
+        lhs += values[i];
+        numExtended++;
+      }
+    }
+    if (lhs <= (coverSize - 1) * x + EPSILON) {
+      return null;
+    }
+    int[] columns = new int[coverSize + numExtended];
+    for (int i = 0; i < coverSize; i++) {
+      columns[i] = firstColumn + candidates[i];
+    }
+    for (int i = 0, extended = coverSize; i < count; i++) {
+      if (!inCover[i] && weights[i] >= maxWeight) {
+        columns[extended++] = firstColumn + i;
+      }
+    }
+    return new Cut(facility, columns, coverSize - 1);
+  }
+
+  /** A cut sum (columns) y_f_c <= rhsCoefficient * x_f. */
+  static class Cut {
+    final int facility;
+    final int[] columns;
+    final int rhsCoefficient;
+
+    Cut(final int facility, final int[] columns, final int rhsCoefficient) {
+      this.facility = facility;
+      this.columns = columns;
+      this.rhsCoefficient = rhsCoefficient;
+    }
+  }
+}
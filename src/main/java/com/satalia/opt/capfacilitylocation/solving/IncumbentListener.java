@@ -0,0 +1,20 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * Notified whenever a solver finds a solution that is better than all solutions it found before.
+ * Called on the solving thread, so implementations should return quickly.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+@FunctionalInterface
+public interface IncumbentListener {
+
+  /**
+   * @param solution the new best solution; its objective value is {@link
+   *     Solution#getObjectiveValue()}
+   * @param bound the best known lower bound on the optimal objective value, or negative infinity
+   *     if none is known yet
+   * @param elapsedMillis the time since the start of the solve
+   */
+  void incumbentFound(Solution solution, double bound, long elapsedMillis);
+}
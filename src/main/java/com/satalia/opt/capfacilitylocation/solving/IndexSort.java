@@ -0,0 +1,85 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * Allocation-free sorting of int values (typically facility or client numbers) by double keys.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class IndexSort {
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private IndexSort() {}
+
+  /**
+   * Sorts the first length entries of values and keys in parallel, by ascending key.
+   *
+   * @param values the values to sort along with the keys
+   * @param keys the sort keys
+   * @param length the number of entries to sort
+   */
+  static void sortAscending(int[] values, double[] keys, int length) {
+    quickSort(values, keys, 0, length - 1);
+  }
+
+  private static void quickSort(int[] values, double[] keys, int low, int high) {
+    while (high - low >= INSERTION_SORT_THRESHOLD) {
+      int mid = (low + high) >>> 1;
+      // median of three as pivot
+      if (keys[mid] < keys[low]) {
+        swap(values, keys, mid, low);
+      }
+      if (keys[high] < keys[low]) {
+        swap(values, keys, high, low);
+      }
+      if (keys[high] < keys[mid]) {
+        swap(values, keys, high, mid);
+      }
+      double pivot = keys[mid];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          i++;
+        }
+        while (keys[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(values, keys, i, j);
+          i++;
+          j--;
+        }
+      }
+      // recurse into the smaller part, loop on the larger one
+      if (j - low < high - i) {
+        quickSort(values, keys, low, j);
+        low = i;
+      } else {
+        quickSort(values, keys, i, high);
+        high = j;
+      }
+    }
+    for (int i = low + 1; i <= high; i++) {
+      int value = values[i];
+      double key = keys[i];
+      int j = i - 1;
+      while (j >= low && keys[j] > key) {
+        values[j + 1] = values[j];
+        keys[j + 1] = keys[j];
+        j--;
+      }
+      values[j + 1] = value;
+      keys[j + 1] = key;
+    }
+  }
+
+  private static void swap(int[] values, double[] keys, int i, int j) {
+    int value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+    double key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+  }
+}
@@ -0,0 +1,210 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * Solves 0-1 knapsack problems (maximise profit subject to a weight capacity) with a depth-first
+ * branch and bound over the items sorted by profit/weight ratio, bounding with the LP relaxation.
+ * All buffers are preallocated, so solving does not allocate. Not thread-safe: use one instance per
+ * thread.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+class KnapsackSolver {
+
+  private static final double EPSILON = 1e-9;
+
+  /** the maximal number of branch and bound nodes before giving up on proving optimality */
+  private final long nodeLimit;
+
+  // items in the order they were added
+  private final int[] items;
+  private final double[] profits;
+  private final double[] weights;
+  // items sorted by descending profit/weight ratio
+  private final int[] order;
+  private final double[] sortKeys;
+  private final int[] sortedItems;
+  private final double[] itemProfits;
+  private final double[] itemWeights;
+  /** prefix sums of weights and profits of the sorted items */
+  private final double[] weightPrefix;
+  private final double[] profitPrefix;
+  /** current and best decisions, by sorted position */
+  private final boolean[] taken;
+  private final boolean[] bestTaken;
+
+  private int numItems;
+  private double bestProfit;
+  private double upperBound;
+  private boolean optimal;
+
+  KnapsackSolver(final int maxItems, final long nodeLimit) {
+    this.nodeLimit = nodeLimit;
+    this.items = new int[maxItems];
+    this.profits = new double[maxItems];
+    this.weights = new double[maxItems];
+    this.order = new int[maxItems];
+    this.sortKeys = new double[maxItems];
+    this.sortedItems = new int[maxItems];
+    this.itemProfits = new double[maxItems];
+    this.itemWeights = new double[maxItems];
+    this.weightPrefix = new double[maxItems + 1];
+    this.profitPrefix = new double[maxItems + 1];
+    this.taken = new boolean[maxItems];
+    this.bestTaken = new boolean[maxItems];
+  }
+
+  /** Removes all items. */
+  void clear() {
+    numItems = 0;
+  }
+
+  /**
+   * Adds an item with positive profit.
+   *
+   * @param item the item id, e.g. the client number
+   * @param profit the profit of the item, larger than zero
+   * @param weight the weight of the item, at least zero
+   */
+  void addItem(int item, double profit, double weight) {
+    items[numItems] = item;
+    profits[numItems] = profit;
+    weights[numItems] = weight;
+    numItems++;
+  }
+
+  /**
+   * Solves the knapsack problem with the added items.
+   *
+   * @param capacity the weight capacity
+   * @return the profit of the best solution found
+   */
+  double solve(double capacity) {
+    // sort by descending profit/weight ratio (items without weight first)
+    for (int i = 0; i < numItems; i++) {
+      order[i] = i;
+      sortKeys[i] = weights[i] <= 0 ? Double.NEGATIVE_INFINITY : -profits[i] / weights[i];
+    }
+    IndexSort.sortAscending(order, sortKeys, numItems);
+    for (int i = 0; i < numItems; i++) {
+      sortedItems[i] = items[order[i]];
+      itemProfits[i] = profits[order[i]];
+      itemWeights[i] = weights[order[i]];
+      weightPrefix[i + 1] = weightPrefix[i] + itemWeights[i];
+      profitPrefix[i + 1] = profitPrefix[i] + itemProfits[i];
+    }
+    upperBound = lpBound(0, capacity);
+    greedy(capacity);
+    optimal = branchAndBound(capacity);
+    if (optimal) {
+      upperBound = bestProfit;
+    }
+    return bestProfit;
+  }
+
+  /** @return true if the best solution is proven optimal */
+  boolean isOptimal() {
+    return optimal;
+  }
+
+  /** @return an upper bound on the optimal profit: the best profit if optimal, else the LP bound */
+  double getUpperBound() {
+    return upperBound;
+  }
+
+  int getNumItems() {
+    return numItems;
+  }
+
+  /**
+   * @param position the position of the item in the sorted order, 0 to getNumItems()-1
+   * @return the item id at the given position
+   */
+  int getItem(int position) {
+    return sortedItems[position];
+  }
+
+  /**
+   * @param position the position of the item in the sorted order, 0 to getNumItems()-1
+   * @return true if the item at the given position is part of the best solution
+   */
+  boolean isTaken(int position) {
+    return bestTaken[position];
+  }
+
+  /** LP relaxation bound of the items from the given position on with the given capacity */
+  private double lpBound(int from, double capacity) {
+    // largest k with weightPrefix[k] - weightPrefix[from] <= capacity
+    double limit = weightPrefix[from] + capacity + EPSILON;
+    int low = from;
+    int high = numItems;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (weightPrefix[mid] <= limit) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    double bound = profitPrefix[low] - profitPrefix[from];
+    if (low < numItems) {
+      double residual = capacity - (weightPrefix[low] - weightPrefix[from]);
+      bound += Math.max(0, residual) * itemProfits[low] / itemWeights[low];
+    }
+    return bound;
+  }
+
+  private void greedy(double capacity) {
+    bestProfit = 0;
+    double load = 0;
+    for (int i = 0; i < numItems; i++) {
+      bestTaken[i] = load + itemWeights[i] <= capacity + EPSILON;
+      if (bestTaken[i]) {
+        load += itemWeights[i];
+        bestProfit += itemProfits[i];
+      }
+    }
+  }
+
+  /** @return true if the search completed within the node limit */
+  private boolean branchAndBound(double capacity) {
+    long nodes = 0;
+    int i = 0;
+    double load = 0;
+    double profit = 0;
+    while (true) {
+      if (++nodes > nodeLimit) {
+        return false;
+      }
+      boolean backtrack;
+      if (profit + lpBound(i, capacity - load) <= bestProfit + EPSILON) {
+        backtrack = true;
+      } else if (i == numItems) {
+        bestProfit = profit;
+        System.arraycopy(taken, 0, bestTaken, 0, numItems);
+        backtrack = true;
+      } else {
+        taken[i] = load + itemWeights[i] <= capacity + EPSILON;
+        if (taken[i]) {
+          load += itemWeights[i];
+          profit += itemProfits[i];
+        }
+        i++;
+        backtrack = false;
+      }
+      if (backtrack) {
+        // drop the last taken item and continue with the items after it
+        int j = i - 1;
+        while (j >= 0 && !taken[j]) {
+          j--;
+        }
+        if (j < 0) {
+          return true;
+        }
+        taken[j] = false;
+        load -= itemWeights[j];
+        profit -= itemProfits[j];
+        i = j + 1;
+      }
+    }
+  }
+}
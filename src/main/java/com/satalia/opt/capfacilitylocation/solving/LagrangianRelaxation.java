@@ -0,0 +1,421 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes a certified lower bound for the capacitated facility location problem by Lagrangian
+ * relaxation of the constraints "each client is served exactly once" of the MIP model in {@link
+ * CbcSolver}, with multipliers lambda_c. The relaxed problem decomposes by facility:
+ *
+ * <ul>
+ *   <li>forall facilities f: v_f = cost_f - max (sum (clients c) (lambda_c - costToMeetDemand_f_c)
+ *       * y_f_c) subject to sum (clients c) (demand_c * y_f_c) <= capacity_f <br>
+ *       a 0-1 knapsack problem, solved in parallel for all facilities
+ *   <li>L(lambda) = sum (clients c) lambda_c + min sum (facilities f) (v_f * x_f) subject to sum
+ *       (facilities f) (capacity_f * x_f) >= total demand <br>
+ *       the (valid) aggregate capacity constraint strengthens the bound
+ * </ul>
+ *
+ * Knapsacks are solved by branch and bound; if a knapsack exceeds the node limit, its LP bound is
+ * used instead, and the aggregate capacity problem is bounded by its LP relaxation, so L(lambda) is
+ * always a valid lower bound. The multipliers are updated with subgradient optimisation. The
+ * facilities opened in the relaxation are turned into a feasible solution by a greedy Lagrangian
+ * heuristic, which gives the upper bound.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class LagrangianRelaxation {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LagrangianRelaxation.class);
+
+  private static final long KNAPSACK_NODE_LIMIT = 100_000;
+  /** run the Lagrangian heuristic at least every so many iterations */
+  private static final int HEURISTIC_INTERVAL = 10;
+  /** halve the step size scale after so many iterations without improving the lower bound */
+  private static final int STALL_ITERATIONS = 20;
+  private static final double INITIAL_STEP_SCALE = 2;
+  private static final double MIN_STEP_SCALE = 1e-4;
+  private static final double EPSILON = 1e-9;
+
+  /** the problem specification/input */
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final int numClients;
+  private final int parallelism;
+  private final ThreadLocal<KnapsackSolver> knapsackSolvers;
+
+  private int maxIterations = 1000;
+  private double targetGap = 1e-4;
+  private long timeLimitMillis = Long.MAX_VALUE;
+
+  // Lagrangian multipliers and the solution of the relaxed problem
+  private final double[] multipliers;
+  /** the value v_f of the best knapsack solution of each facility */
+  private final double[] facilityValue;
+  /** a lower bound of v_f: equal to v_f if the knapsack was solved to optimality */
+  private final double[] facilityBound;
+  /** the clients selected by each facility's knapsack */
+  private final int[][] selectedClients;
+  private final boolean[] opened;
+  private final double[] subgradient;
+  /** facilities and keys for sorting in the aggregate capacity problem */
+  private final int[] facilityOrder;
+  private final double[] facilityKeys;
+  private final double totalDemand;
+
+  // Lagrangian heuristic
+  private final int[] clientsByDecreasingDemand;
+  private final int[] assignment;
+  private final double[] residualCapacity;
+  private final boolean[] heuristicOpened;
+  private int[] bestAssignment;
+  private double upperBound = Double.POSITIVE_INFINITY;
+
+  public LagrangianRelaxation(final ProblemInput input) {
+    this(input, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * @param input the problem input
+   * @param parallelism the number of threads solving the facility subproblems
+   */
+  public LagrangianRelaxation(final ProblemInput input, final int parallelism) {
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.numClients = input.getNumClients();
+    this.parallelism = Math.max(1, parallelism);
+    this.knapsackSolvers =
+        ThreadLocal.withInitial(() -> new KnapsackSolver(numClients, KNAPSACK_NODE_LIMIT));
+    this.multipliers = new double[numClients];
+    this.facilityValue = new double[numFacilities];
+    this.facilityBound = new double[numFacilities];
+    this.selectedClients = new int[numFacilities][];
+    this.opened = new boolean[numFacilities];
+    this.subgradient = new double[numClients];
+    this.facilityOrder = new int[numFacilities];
+    this.facilityKeys = new double[numFacilities];
+    this.totalDemand = input.clients().mapToDouble(input::getDemand).sum();
+
+    this.clientsByDecreasingDemand = new int[numClients];
+    double[] keys = new double[numClients];
+    for (int client = 0; client < numClients; client++) {
+      clientsByDecreasingDemand[client] = client;
+      keys[client] = -input.getDemand(client);
+    }
+    IndexSort.sortAscending(clientsByDecreasingDemand, keys, numClients);
+    this.assignment = new int[numClients];
+    this.residualCapacity = new double[numFacilities];
+    this.heuristicOpened = new boolean[numFacilities];
+  }
+
+  public void setMaxIterations(int maxIterations) {
+    this.maxIterations = maxIterations;
+  }
+
+  /** @param targetGap stop when the relative gap between the bounds is at most this value */
+  public void setTargetGap(double targetGap) {
+    this.targetGap = targetGap;
+  }
+
+  public void setTimeLimit(long timeLimitMillis) {
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  public LagrangianResult solve() {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return solve(pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private LagrangianResult solve(ForkJoinPool pool) {
+    final long start = System.currentTimeMillis();
+    double totalCapacity = input.facilities().mapToDouble(input::getCapacity).sum();
+    if (totalCapacity < totalDemand) {
+      throw new RuntimeException(
+          "Problem is infeasible: total capacity "
+              + totalCapacity
+              + " is smaller than total demand "
+              + totalDemand);
+    }
+    // upper bound with all facilities opened, multipliers start at the cheapest assignment cost
+    Arrays.fill(opened, true);
+    runHeuristic();
+    for (int client = 0; client < numClients; client++) {
+      double cheapest = Double.POSITIVE_INFINITY;
+      for (int facility = 0; facility < numFacilities; facility++) {
+        cheapest = Math.min(cheapest, input.getCostToMeetDemand(facility, client));
+      }
+      multipliers[client] = cheapest;
+    }
+
+    double lowerBound = Double.NEGATIVE_INFINITY;
+    double stepScale = INITIAL_STEP_SCALE;
+    int iterationsWithoutImprovement = 0;
+    int iteration = 0;
+    while (iteration < maxIterations
+        && stepScale > MIN_STEP_SCALE
+        && gap(lowerBound) > targetGap
+        && System.currentTimeMillis() - start < timeLimitMillis) {
+      iteration++;
+      double bound = solveRelaxation(pool);
+      boolean improved = bound > lowerBound + EPSILON;
+      if (improved) {
+        lowerBound = bound;
+        iterationsWithoutImprovement = 0;
+      } else if (++iterationsWithoutImprovement >= STALL_ITERATIONS) {
+        stepScale /= 2;
+        iterationsWithoutImprovement = 0;
+      }
+      if (improved || iteration % HEURISTIC_INTERVAL == 0) {
+        runHeuristic();
+      }
+
+      double norm = calculateSubgradient();
+      if (norm == 0) {
+        break; // the relaxed solution serves each client exactly once
+      }
+      // aim at the best known upper bound (or just above the bound before one is known)
+      double target =
+          upperBound < Double.POSITIVE_INFINITY ? upperBound : bound + Math.abs(bound) / 10 + 1;
+      double step = stepScale * (target - bound) / norm;
+      for (int client = 0; client < numClients; client++) {
+        multipliers[client] += step * subgradient[client];
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(
+            "Iteration " + iteration + ": bound " + bound + ", upper bound " + upperBound);
+      }
+    }
+
+    Solution solution =
+        bestAssignment == null ? null : Solution.fromAssignment(input, bestAssignment);
+    LagrangianResult result =
+        new LagrangianResult(
+            lowerBound, solution, iteration, System.currentTimeMillis() - start);
+    LOG.info(result.toString());
+    return result;
+  }
+
+  private double gap(double lowerBound) {
+    if (upperBound == Double.POSITIVE_INFINITY || lowerBound == Double.NEGATIVE_INFINITY) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return (upperBound - lowerBound) / Math.max(EPSILON, Math.abs(upperBound));
+  }
+
+  /**
+   * Solves the relaxed problem for the current multipliers.
+   *
+   * @return the Lagrangian lower bound L(lambda)
+   */
+  private double solveRelaxation(ForkJoinPool pool) {
+    pool.submit(() -> IntStream.range(0, numFacilities).parallel().forEach(this::solveFacility))
+        .join();
+
+    // lower bound of the aggregate capacity problem: the LP relaxation of the covering knapsack
+    // with the facility bounds as costs
+    double bound = coverDemandBound();
+
+    // solution of the aggregate capacity problem: open all facilities with negative value, then
+    // the facilities with the smallest value per capacity until the total demand can be met
+    double capacity = 0;
+    int numCandidates = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      opened[facility] = facilityValue[facility] < 0;
+      if (opened[facility]) {
+        capacity += input.getCapacity(facility);
+      } else if (input.getCapacity(facility) > 0) {
+        facilityOrder[numCandidates] = facility;
+        facilityKeys[numCandidates] = facilityValue[facility] / input.getCapacity(facility);
+        numCandidates++;
+      }
+    }
+    if (capacity < totalDemand) {
+      IndexSort.sortAscending(facilityOrder, facilityKeys, numCandidates);
+      for (int i = 0; i < numCandidates && capacity < totalDemand; i++) {
+        opened[facilityOrder[i]] = true;
+        capacity += input.getCapacity(facilityOrder[i]);
+      }
+    }
+    for (int client = 0; client < numClients; client++) {
+      bound += multipliers[client];
+    }
+    return bound;
+  }
+
+  /**
+   * @return min sum (facilities f) (facilityBound_f * x_f) subject to sum (facilities f)
+   *     (capacity_f * x_f) >= total demand, 0 <= x_f <= 1
+   */
+  private double coverDemandBound() {
+    double cost = 0;
+    double capacity = 0;
+    int numCandidates = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (facilityBound[facility] < 0) {
+        cost += facilityBound[facility];
+        capacity += input.getCapacity(facility);
+      } else if (input.getCapacity(facility) > 0) {
+        facilityOrder[numCandidates] = facility;
+        facilityKeys[numCandidates] = facilityBound[facility] / input.getCapacity(facility);
+        numCandidates++;
+      }
+    }
+    IndexSort.sortAscending(facilityOrder, facilityKeys, numCandidates);
+    for (int i = 0; i < numCandidates && capacity < totalDemand; i++) {
+      int facility = facilityOrder[i];
+      double fraction = Math.min(1, (totalDemand - capacity) / input.getCapacity(facility));
+      cost += fraction * facilityBound[facility];
+      capacity += fraction * input.getCapacity(facility);
+    }
+    return cost;
+  }
+
+  /** Solves the knapsack subproblem of the given facility for the current multipliers. */
+  private void solveFacility(int facility) {
+    KnapsackSolver knapsack = knapsackSolvers.get();
+    knapsack.clear();
+    final double capacity = input.getCapacity(facility);
+    for (int client = 0; client < numClients; client++) {
+      double profit = multipliers[client] - input.getCostToMeetDemand(facility, client);
+      if (profit > EPSILON && input.getDemand(client) <= capacity) {
+        knapsack.addItem(client, profit, input.getDemand(client));
+      }
+    }
+    double profit = knapsack.solve(capacity);
+    facilityValue[facility] = input.getBuildingCost(facility) - profit;
+    facilityBound[facility] = input.getBuildingCost(facility) - knapsack.getUpperBound();
+
+    int numSelected = 0;
+    for (int i = 0; i < knapsack.getNumItems(); i++) {
+      if (knapsack.isTaken(i)) {
+        numSelected++;
+      }
+    }
+    int[] selected = new int[numSelected];
+    numSelected = 0;
+    for (int i = 0; i < knapsack.getNumItems(); i++) {
+      if (knapsack.isTaken(i)) {
+        selected[numSelected++] = knapsack.getItem(i);
+      }
+    }
+    selectedClients[facility] = selected;
+  }
+
+  /**
+   * Computes the subgradient 1 - sum (facilities f) y_f_c of the relaxed constraints.
+   *
+   * @return the squared norm of the subgradient
+   */
+  private double calculateSubgradient() {
+    Arrays.fill(subgradient, 1);
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (opened[facility]) {
+        for (int client : selectedClients[facility]) {
+          subgradient[client]--;
+        }
+      }
+    }
+    double norm = 0;
+    for (int client = 0; client < numClients; client++) {
+      norm += subgradient[client] * subgradient[client];
+    }
+    return norm;
+  }
+
+  /**
+   * @return the cheapest facility with enough residual capacity among the opened (or closed)
+   *     facilities, including the building cost for closed facilities, or -1 if there is none
+   */
+  private int cheapestFacility(int client, double demand, boolean amongOpened) {
+    int best = -1;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (heuristicOpened[facility] == amongOpened
+          && residualCapacity[facility] + EPSILON >= demand) {
+        double cost = input.getCostToMeetDemand(facility, client);
+        if (!amongOpened) {
+          cost += input.getBuildingCost(facility);
+        }
+        if (cost < bestCost) {
+          best = facility;
+          bestCost = cost;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Lagrangian heuristic: assigns the clients by decreasing demand to the cheapest facility opened
+   * in the relaxation that has enough residual capacity, opening additional facilities if
+   * necessary, followed by one pass of moving clients to cheaper facilities. Updates the best
+   * solution.
+   */
+  private void runHeuristic() {
+    for (int facility = 0; facility < numFacilities; facility++) {
+      heuristicOpened[facility] = opened[facility];
+      residualCapacity[facility] = input.getCapacity(facility);
+    }
+    for (int client : clientsByDecreasingDemand) {
+      final double demand = input.getDemand(client);
+      int best = cheapestFacility(client, demand, true);
+      if (best < 0) {
+        best = cheapestFacility(client, demand, false);
+      }
+      if (best < 0) {
+        return; // no feasible assignment found
+      }
+      heuristicOpened[best] = true;
+      assignment[client] = best;
+      residualCapacity[best] -= demand;
+    }
+
+    // move clients to cheaper facilities that are used anyway
+    Arrays.fill(heuristicOpened, false);
+    for (int client = 0; client < numClients; client++) {
+      heuristicOpened[assignment[client]] = true;
+    }
+    for (int client = 0; client < numClients; client++) {
+      final double demand = input.getDemand(client);
+      int current = assignment[client];
+      double currentCost = input.getCostToMeetDemand(current, client);
+      for (int facility = 0; facility < numFacilities; facility++) {
+        if (heuristicOpened[facility]
+            && residualCapacity[facility] + EPSILON >= demand
+            && input.getCostToMeetDemand(facility, client) < currentCost) {
+          current = facility;
+          currentCost = input.getCostToMeetDemand(facility, client);
+        }
+      }
+      if (current != assignment[client]) {
+        residualCapacity[assignment[client]] += demand;
+        residualCapacity[current] -= demand;
+        assignment[client] = current;
+      }
+    }
+
+    Arrays.fill(heuristicOpened, false);
+    double objective = 0;
+    for (int client = 0; client < numClients; client++) {
+      int facility = assignment[client];
+      if (!heuristicOpened[facility]) {
+        heuristicOpened[facility] = true;
+        objective += input.getBuildingCost(facility);
+      }
+      objective += input.getCostToMeetDemand(facility, client);
+    }
+    if (objective < upperBound) {
+      upperBound = objective;
+      bestAssignment = assignment.clone();
+    }
+  }
+}
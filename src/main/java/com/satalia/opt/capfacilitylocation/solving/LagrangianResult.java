@@ -0,0 +1,72 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * The result of the {@link LagrangianRelaxation}: a certified lower bound, the best feasible
+ * solution found by the Lagrangian heuristic, and the optimality gap between the two.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class LagrangianResult {
+
+  private final double lowerBound;
+  /** the best solution found, or null if the heuristic found no feasible solution */
+  private final Solution solution;
+  private final int iterations;
+  private final long elapsedMillis;
+
+  LagrangianResult(
+      final double lowerBound,
+      final Solution solution,
+      final int iterations,
+      final long elapsedMillis) {
+    this.lowerBound = lowerBound;
+    this.solution = solution;
+    this.iterations = iterations;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  public Solution getSolution() {
+    return solution;
+  }
+
+  /** @return the objective value of the best solution, or infinity if there is none */
+  public double getUpperBound() {
+    return solution == null ? Double.POSITIVE_INFINITY : solution.getObjectiveValue();
+  }
+
+  /** @return the relative optimality gap (upper bound - lower bound) / upper bound */
+  public double getGap() {
+    if (solution == null) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double upperBound = getUpperBound();
+    return upperBound == 0 ? 0 : (upperBound - lowerBound) / Math.abs(upperBound);
+  }
+
+  public int getIterations() {
+    return iterations;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "Lagrangian lower bound: "
+        + lowerBound
+        + ", upper bound: "
+        + getUpperBound()
+        + ", gap: "
+        + String.format("%.4f%%", 100 * getGap())
+        + " after "
+        + iterations
+        + " iterations in "
+        + elapsedMillis
+        + " ms";
+  }
+}
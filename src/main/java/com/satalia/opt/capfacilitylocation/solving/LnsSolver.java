@@ -0,0 +1,446 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Large neighbourhood search for instances that are too large for one {@link CbcSolver} run. Starts
+ * from the {@link LocalSearchSolver} solution (or a given one) and repeatedly re-optimises a
+ * neighbourhood with CBC while the rest of the solution stays fixed:
+ *
+ * <ul>
+ *   <li>a neighbourhood is a set of facilities, either a cluster around a random facility (the
+ *       facilities that are cheapest for the clients of that facility) or random facilities, and
+ *       all clients they currently serve
+ *   <li>the subproblem over the neighbourhood is created as a {@link ProblemInput} view with {@link
+ *       ProblemInput#subproblem}, so it is built by the same model construction as the full
+ *       problem, and solved with a short time limit, warm started from the current assignment
+ * </ul>
+ *
+ * Several workers solve neighbourhoods concurrently, each with its own solver. A worker reserves
+ * the facilities of its neighbourhood, so concurrent neighbourhoods never overlap and every
+ * improvement can be merged into the global incumbent directly.
+ *
+ * <p>As a {@link SolverEngine}, the search runs one worker per thread of the parameters, until
+ * their time limit (or for a minute if there is none) or until it is cancelled.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class LnsSolver implements SolverEngine {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LnsSolver.class);
+
+  private static final int DEFAULT_NEIGHBOURHOOD_SIZE = 8;
+  private static final long DEFAULT_SUBPROBLEM_TIME_LIMIT_MILLIS = 2000;
+  /** the probability that a neighbourhood is a cluster rather than random facilities */
+  private static final double CLUSTER_PROBABILITY = 0.7;
+  /** the number of clients defining the cluster around a facility without clients */
+  private static final int CLUSTER_CLIENTS = 10;
+  private static final double EPSILON = 1e-6;
+  /** the number of failed subproblems in a row after which a worker gives up */
+  private static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+  /** Solves a subproblem, returning an assignment at least as good as the warm start. */
+  interface SubproblemSolver {
+    int[] solve(ProblemInput subproblem, int[] warmStart, long timeLimitMillis);
+  }
+
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final SubproblemSolver subproblemSolver;
+
+  private long timeLimitMillis = 60000;
+  private long subproblemTimeLimitMillis = DEFAULT_SUBPROBLEM_TIME_LIMIT_MILLIS;
+  private int numWorkers = Runtime.getRuntime().availableProcessors();
+  private int neighbourhoodSize = DEFAULT_NEIGHBOURHOOD_SIZE;
+  private long seed = 0;
+  private int[] initialAssignment;
+  private IncumbentListener listener;
+  private volatile boolean cancelled;
+
+  // the global incumbent and the reserved facilities, guarded by this
+  private int[] assignment;
+  private double objective;
+  private boolean[] reserved;
+  /** the listener of the current solve */
+  private IncumbentListener runListener;
+  private int numSubproblems;
+  private int numImprovements;
+  private long start;
+
+  public LnsSolver(final ProblemInput input) {
+    this(input, LnsSolver::solveWithCbc);
+  }
+
+  LnsSolver(final ProblemInput input, final SubproblemSolver subproblemSolver) {
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.subproblemSolver = subproblemSolver;
+  }
+
+  private static int[] solveWithCbc(
+      ProblemInput subproblem, int[] warmStart, long timeLimitMillis) {
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(timeLimitMillis);
+    // the workers already use the cores
+    parameters.setNumThreads(1);
+    try (CbcSolver solver = new CbcSolver(subproblem)) {
+      solver.setWarmStart(warmStart);
+      SolveResult result = solver.solve(parameters);
+      return result.getStatus().hasSolution() ? result.getSolution().getAssignment() : warmStart;
+    }
+  }
+
+  /** @param timeLimitMillis the wall-clock time of the search */
+  public void setTimeLimit(long timeLimitMillis) {
+    if (timeLimitMillis <= 0) {
+      throw new RuntimeException("Time limit must be positive: " + timeLimitMillis);
+    }
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  /** @param subproblemTimeLimitMillis the time limit of each subproblem solve */
+  public void setSubproblemTimeLimit(long subproblemTimeLimitMillis) {
+    if (subproblemTimeLimitMillis <= 0) {
+      throw new RuntimeException(
+          "Subproblem time limit must be positive: " + subproblemTimeLimitMillis);
+    }
+    this.subproblemTimeLimitMillis = subproblemTimeLimitMillis;
+  }
+
+  /** @param numWorkers the number of neighbourhoods solved concurrently */
+  public void setNumWorkers(int numWorkers) {
+    if (numWorkers < 1) {
+      throw new RuntimeException("Number of workers must be positive: " + numWorkers);
+    }
+    this.numWorkers = numWorkers;
+  }
+
+  /** @param neighbourhoodSize the number of facilities of a neighbourhood */
+  public void setNeighbourhoodSize(int neighbourhoodSize) {
+    if (neighbourhoodSize < 2) {
+      throw new RuntimeException("Neighbourhood size must be at least 2: " + neighbourhoodSize);
+    }
+    this.neighbourhoodSize = neighbourhoodSize;
+  }
+
+  /** @param seed the seed of the neighbourhood selection */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * @param solution the solution to start from instead of the local search solution
+   * @throws RuntimeException if the solution does not serve all clients within the capacities
+   */
+  public void setInitialSolution(Solution solution) {
+    int[] facilityOfClient = solution.getAssignment();
+    String violation = findViolation(facilityOfClient);
+    if (violation != null) {
+      throw new RuntimeException("Infeasible initial solution: " + violation);
+    }
+    this.initialAssignment = facilityOfClient;
+  }
+
+  /** @return why the assignment is not a feasible solution, or null if it is */
+  private String findViolation(int[] facilityOfClient) {
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      if (facilityOfClient[client] < 0) {
+        return "client " + client + " is not served";
+      }
+    }
+    return Solution.fromAssignment(input, facilityOfClient).findViolation();
+  }
+
+  /** @param listener notified of each improvement of the incumbent, may be null */
+  public void setIncumbentListener(IncumbentListener listener) {
+    this.listener = listener;
+  }
+
+  /** @param solution the solution to start from, ignored if it is infeasible */
+  @Override
+  public void setWarmStart(Solution solution) {
+    int[] facilityOfClient = solution.getAssignment();
+    String violation = findViolation(facilityOfClient);
+    if (violation != null) {
+      LOG.info("Ignoring the infeasible warm start: " + violation);
+      return;
+    }
+    this.initialAssignment = facilityOfClient;
+  }
+
+  /**
+   * Runs the search with the time limit, threads and seed of the parameters, which apply to this
+   * solve only; without a time limit in the parameters, the search runs for the time limit of the
+   * solver. The search only re-optimises neighbourhoods of the incumbent and proves no lower bound
+   * of the whole problem, so even an incumbent that no neighbourhood improves is only FEASIBLE.
+   */
+  @Override
+  public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+    final long start = System.currentTimeMillis();
+    Solution solution =
+        run(
+            parameters.getTimeLimitMillis() > 0 ? parameters.getTimeLimitMillis() : timeLimitMillis,
+            Math.max(1, parameters.getNumThreads()),
+            parameters.getSeed(),
+            listener);
+    return new SolveResult(
+        SolveStatus.FEASIBLE,
+        solution,
+        Double.NEGATIVE_INFINITY,
+        System.currentTimeMillis() - start);
+  }
+
+  /** Stops the workers after their current subproblem, for good. */
+  @Override
+  public void cancel() {
+    cancelled = true;
+  }
+
+  @Override
+  public void close() {}
+
+  /** @return the best solution found within the time limit */
+  public Solution solve() {
+    return run(timeLimitMillis, numWorkers, seed, listener);
+  }
+
+  /** Runs the search with the settings of one solve, leaving those of the solver unchanged. */
+  private Solution run(
+      long timeLimitMillis, int numWorkers, long seed, IncumbentListener listener) {
+    start = System.currentTimeMillis();
+    runListener = listener;
+    final long deadline = start + timeLimitMillis;
+    assignment =
+        initialAssignment != null
+            ? initialAssignment.clone()
+            : new LocalSearchSolver(input).solve().getAssignment();
+    objective = Solution.fromAssignment(input, assignment).getObjectiveValue();
+    final double initialObjective = objective;
+    reserved = new boolean[numFacilities];
+    numSubproblems = 0;
+    numImprovements = 0;
+
+    // at least one facility must be left for each worker's neighbourhood
+    final int workers = Math.max(1, Math.min(numWorkers, numFacilities / neighbourhoodSize));
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int worker = 0; worker < workers; worker++) {
+        final Random random = new Random(seed + worker);
+        futures.add(executor.submit(() -> search(random, deadline)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Large neighbourhood search failed.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    synchronized (this) {
+      LOG.info(
+          "Large neighbourhood search: "
+              + initialObjective
+              + " to "
+              + objective
+              + " with "
+              + numImprovements
+              + " improvements in "
+              + numSubproblems
+              + " subproblems on "
+              + workers
+              + " workers in "
+              + (System.currentTimeMillis() - start)
+              + " ms.");
+      return Solution.fromAssignment(input, assignment);
+    }
+  }
+
+  /** The loop of a worker. */
+  private void search(Random random, long deadline) {
+    int failures = 0;
+    while (System.currentTimeMillis() < deadline - 1
+        && !cancelled
+        && !Thread.currentThread().isInterrupted()) {
+      Neighbourhood neighbourhood = reserve(random);
+      try {
+        improve(neighbourhood, deadline);
+        failures = 0;
+      } catch (RuntimeException e) {
+        if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+          LOG.warn("Stopping a worker after " + failures + " failed subproblems in a row.", e);
+          return;
+        }
+        LOG.warn("Could not solve a subproblem, skipping it.", e);
+      } finally {
+        release(neighbourhood);
+      }
+    }
+  }
+
+  /** Selects and reserves the facilities of a neighbourhood among the unreserved ones. */
+  private synchronized Neighbourhood reserve(Random random) {
+    int[] facilities = new int[numFacilities];
+    double[] scores = new double[numFacilities];
+    int numFree = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (!reserved[facility]) {
+        facilities[numFree++] = facility;
+      }
+    }
+    final int seedFacility = facilities[random.nextInt(numFree)];
+    if (random.nextDouble() < CLUSTER_PROBABILITY) {
+      int[] clusterClients = clusterClients(seedFacility);
+      for (int i = 0; i < numFree; i++) {
+        // the seed facility first, then the cheapest facilities for its clients
+        double score = facilities[i] == seedFacility ? Double.NEGATIVE_INFINITY : 0;
+        for (int client : clusterClients) {
+          score += input.getCostToMeetDemand(facilities[i], client);
+        }
+        scores[i] = score;
+      }
+    } else {
+      for (int i = 0; i < numFree; i++) {
+        scores[i] = facilities[i] == seedFacility ? -1 : random.nextDouble();
+      }
+    }
+    IndexSort.sortAscending(facilities, scores, numFree);
+
+    Neighbourhood neighbourhood = new Neighbourhood();
+    neighbourhood.facilities = new int[Math.min(neighbourhoodSize, numFree)];
+    int[] localFacility = new int[numFacilities];
+    Arrays.fill(localFacility, -1);
+    for (int i = 0; i < neighbourhood.facilities.length; i++) {
+      neighbourhood.facilities[i] = facilities[i];
+      localFacility[facilities[i]] = i;
+      reserved[facilities[i]] = true;
+    }
+    int numClients = 0;
+    int[] clients = new int[assignment.length];
+    for (int client = 0; client < assignment.length; client++) {
+      if (localFacility[assignment[client]] >= 0) {
+        clients[numClients++] = client;
+      }
+    }
+    neighbourhood.clients = Arrays.copyOf(clients, numClients);
+    neighbourhood.warmStart = new int[numClients];
+    for (int i = 0; i < numClients; i++) {
+      neighbourhood.warmStart[i] = localFacility[assignment[neighbourhood.clients[i]]];
+    }
+    numSubproblems++;
+    return neighbourhood;
+  }
+
+  /** @return the clients of the facility, or its cheapest clients if it serves none */
+  private int[] clusterClients(int facility) {
+    int[] clients = new int[assignment.length];
+    int count = 0;
+    for (int client = 0; client < assignment.length; client++) {
+      if (assignment[client] == facility) {
+        clients[count++] = client;
+      }
+    }
+    if (count > 0) {
+      return Arrays.copyOf(clients, count);
+    }
+    double[] costs = new double[assignment.length];
+    for (int client = 0; client < assignment.length; client++) {
+      clients[client] = client;
+      costs[client] = input.getCostToMeetDemand(facility, client);
+    }
+    IndexSort.sortAscending(clients, costs, clients.length);
+    return Arrays.copyOf(clients, Math.min(CLUSTER_CLIENTS, clients.length));
+  }
+
+  private synchronized void release(Neighbourhood neighbourhood) {
+    for (int facility : neighbourhood.facilities) {
+      reserved[facility] = false;
+    }
+  }
+
+  /** Solves the subproblem of the neighbourhood and merges an improvement into the incumbent. */
+  private void improve(Neighbourhood neighbourhood, long deadline) {
+    if (neighbourhood.clients.length == 0) {
+      return;
+    }
+    final int size = neighbourhood.facilities.length;
+    double[] capacities = new double[size];
+    double[] buildingCosts = new double[size];
+    for (int i = 0; i < size; i++) {
+      capacities[i] = input.getCapacity(neighbourhood.facilities[i]);
+      buildingCosts[i] = input.getBuildingCost(neighbourhood.facilities[i]);
+    }
+    // all clients of the neighbourhood's facilities are in the subproblem, so the facilities have
+    // their full capacity and are only opened if the subproblem opens them
+    ProblemInput subproblem =
+        input.subproblem(
+            neighbourhood.facilities, neighbourhood.clients, capacities, buildingCosts);
+    final double before =
+        Solution.fromAssignment(subproblem, neighbourhood.warmStart).getObjectiveValue();
+    final long timeLimit =
+        Math.min(subproblemTimeLimitMillis, deadline - System.currentTimeMillis());
+    if (timeLimit <= 0) {
+      return;
+    }
+    int[] improved = subproblemSolver.solve(subproblem, neighbourhood.warmStart, timeLimit);
+    Solution solution = Solution.fromAssignment(subproblem, improved);
+    if (solution.isFeasible() && solution.getObjectiveValue() < before - EPSILON) {
+      merge(neighbourhood, improved, before - solution.getObjectiveValue());
+    }
+  }
+
+  private synchronized void merge(Neighbourhood neighbourhood, int[] improved, double improvement) {
+    for (int i = 0; i < neighbourhood.clients.length; i++) {
+      assignment[neighbourhood.clients[i]] = neighbourhood.facilities[improved[i]];
+    }
+    objective -= improvement;
+    numImprovements++;
+    LOG.debug("Neighbourhood improved the objective by " + improvement + " to " + objective);
+    if (runListener != null) {
+      runListener.incumbentFound(
+          Solution.fromAssignment(input, assignment),
+          Double.NEGATIVE_INFINITY,
+          System.currentTimeMillis() - start);
+    }
+  }
+
+  /** Creates large neighbourhood search engines, available if CBC is. */
+  public static class Provider implements SolverEngineProvider {
+
+    @Override
+    public String getName() {
+      return "lns";
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return OrTools.isAvailable();
+    }
+
+    @Override
+    public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+      return new LnsSolver(input);
+    }
+  }
+
+  /** The facilities of a neighbourhood and the clients they serve. */
+  private static class Neighbourhood {
+    int[] facilities;
+    int[] clients;
+    /** the current facility of each client, as index into facilities */
+    int[] warmStart;
+  }
+}
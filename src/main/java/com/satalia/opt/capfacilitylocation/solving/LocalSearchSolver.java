@@ -0,0 +1,746 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.Arrays;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A construction and local search heuristic for the single-source capacitated facility location
+ * problem, for when a good solution is needed quickly rather than an optimal one.
+ *
+ * <p>Each client keeps a list of its cheapest candidate facilities. The initial solution is built
+ * by a regret heuristic: clients with the largest difference between their best and second best
+ * candidate are assigned first, each to the facility with the lowest cost plus a share of the
+ * building cost proportional to the client's demand. The solution is then improved until no move
+ * improves it:
+ *
+ * <ul>
+ *   <li>client moves: shift a client to another facility, or swap the facilities of two clients
+ *   <li>facility moves: close a facility, open a facility, or close one facility and open another
+ * </ul>
+ *
+ * Client moves are evaluated in constant time from the residual capacities, the number of clients
+ * of each facility and the cost of each client's current assignment. Facility moves are applied
+ * tentatively and undone if they do not improve the objective. If a time limit is set, the local
+ * optimum is perturbed and improved again (iterated local search) until the time is up. All the
+ * state is allocated up front, so the search itself does not allocate.
+ *
+ * <p>As a {@link SolverEngine}, the search starts from the warm start instead of the
+ * construction, if one is given, and stops early when it is cancelled.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class LocalSearchSolver implements SolverEngine {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalSearchSolver.class);
+
+  private static final int DEFAULT_CANDIDATES = 16;
+  /** the fraction of the clients that are moved at random when perturbing a local optimum */
+  private static final double PERTURBATION_FRACTION = 0.05;
+  /** the minimal decrease of the objective for a move to count as an improvement */
+  private static final double EPSILON = 1e-6;
+  private static final double CAPACITY_EPSILON = 1e-9;
+  private static final int NONE = -1;
+
+  /** the problem specification/input */
+  private final ProblemInput input;
+  private final int numFacilities;
+  private final int numClients;
+  private final int numCandidates;
+  private final double[] demand;
+  private final double[] capacity;
+  private final double[] buildingCost;
+
+  /** candidates[client * numCandidates + rank]: the facilities of each client by increasing cost */
+  private final int[] candidates;
+  private final double[] candidateCosts;
+  /** the clients with facility f among their candidates: servableClients[servableStart[f] ...] */
+  private final int[] servableStart;
+  private final int[] servableClients;
+
+  private long timeLimitMillis = 0;
+  private long seed = 0;
+  private IncumbentListener listener;
+  /** the facility serving each client in the warm start solution, null to construct one */
+  private int[] warmStart;
+  private volatile boolean cancelled;
+
+  // the current solution
+  private final int[] assignment;
+  private final double[] assignmentCost;
+  private final double[] residualCapacity;
+  private final int[] numAssigned;
+  /** the clients of each facility, as doubly linked lists */
+  private final int[] firstClient;
+  private final int[] nextClient;
+  private final int[] previousClient;
+  private double objective;
+
+  // tentative facility moves and scratch space
+  private final int[] undoClients;
+  private final int[] undoFacilities;
+  private int undoSize;
+  private final int[] scratchClients;
+  private final double[] scratchKeys;
+  private final int[] swapCandidates;
+  private final boolean[] isSwapCandidate;
+
+  private final int[] bestAssignment;
+  private double bestObjective;
+  private long evaluatedMoves;
+
+  public LocalSearchSolver(final ProblemInput input) {
+    this(input, DEFAULT_CANDIDATES);
+  }
+
+  /**
+   * @param input the problem input
+   * @param numCandidates the number of cheapest facilities considered for each client by the
+   *     client moves
+   */
+  public LocalSearchSolver(final ProblemInput input, final int numCandidates) {
+    this.input = input;
+    this.numFacilities = input.getNumFacilities();
+    this.numClients = input.getNumClients();
+    this.numCandidates = Math.max(1, Math.min(numCandidates, numFacilities));
+    this.demand = input.clients().mapToDouble(input::getDemand).toArray();
+    this.capacity = input.facilities().mapToDouble(input::getCapacity).toArray();
+    this.buildingCost = input.facilities().mapToDouble(input::getBuildingCost).toArray();
+
+    this.candidates = input.cheapestFacilities(this.numCandidates);
+    this.candidateCosts = new double[numClients * this.numCandidates];
+    this.servableStart = new int[numFacilities + 1];
+    buildCandidateLists();
+    this.servableClients = new int[servableStart[numFacilities]];
+    buildServableClients();
+
+    this.assignment = new int[numClients];
+    this.assignmentCost = new double[numClients];
+    this.residualCapacity = new double[numFacilities];
+    this.numAssigned = new int[numFacilities];
+    this.firstClient = new int[numFacilities];
+    this.nextClient = new int[numClients];
+    this.previousClient = new int[numClients];
+    this.undoClients = new int[numClients];
+    this.undoFacilities = new int[numClients];
+    this.scratchClients = new int[numClients];
+    this.scratchKeys = new double[numClients];
+    this.swapCandidates = new int[numFacilities];
+    this.isSwapCandidate = new boolean[numFacilities];
+    this.bestAssignment = new int[numClients];
+  }
+
+  /**
+   * @param timeLimitMillis if positive, the local optimum is perturbed and improved again until
+   *     this time is up; otherwise the search stops at the first local optimum
+   */
+  public void setTimeLimit(long timeLimitMillis) {
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  /** @param seed the seed of the random perturbations */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** @param listener notified of each improving solution, may be null */
+  public void setIncumbentListener(IncumbentListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @param solution the solution to improve instead of constructing one; ignored if it does not
+   *     serve all clients within the capacities
+   */
+  @Override
+  public void setWarmStart(Solution solution) {
+    this.warmStart = null;
+    int[] facilityOfClient = solution.getAssignment();
+    for (int client = 0; client < numClients; client++) {
+      if (facilityOfClient[client] == NONE) {
+        LOG.info("Ignoring the warm start, which does not serve client " + client + ".");
+        return;
+      }
+    }
+    String violation = Solution.fromAssignment(input, facilityOfClient).findViolation();
+    if (violation != null) {
+      LOG.info("Ignoring the infeasible warm start: " + violation);
+      return;
+    }
+    this.warmStart = facilityOfClient;
+  }
+
+  /**
+   * Runs the search with the time limit and seed of the parameters. The local search proves no
+   * bound, so the result is feasible but never optimal.
+   */
+  @Override
+  public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+    final long start = System.currentTimeMillis();
+    setTimeLimit(parameters.getTimeLimitMillis());
+    setSeed(parameters.getSeed());
+    setIncumbentListener(listener);
+    Solution solution = solve();
+    return new SolveResult(
+        SolveStatus.FEASIBLE,
+        solution,
+        Double.NEGATIVE_INFINITY,
+        System.currentTimeMillis() - start);
+  }
+
+  /** Stops the search after the current move, for good; the best solution so far is returned. */
+  @Override
+  public void cancel() {
+    cancelled = true;
+  }
+
+  @Override
+  public void close() {}
+
+  public Solution solve() {
+    final long start = System.currentTimeMillis();
+    final long deadline = timeLimitMillis > 0 ? start + timeLimitMillis : Long.MAX_VALUE;
+    evaluatedMoves = 0;
+
+    if (warmStart != null) {
+      restore(warmStart);
+    } else {
+      reset();
+      construct();
+    }
+    final double constructed = objective;
+    localSearch(deadline);
+    saveBest(start);
+
+    int rounds = 0;
+    if (timeLimitMillis > 0) {
+      Random random = new Random(seed);
+      while (System.currentTimeMillis() < deadline && !cancelled) {
+        perturb(random);
+        localSearch(deadline);
+        if (objective < bestObjective - EPSILON) {
+          saveBest(start);
+        } else {
+          restore(bestAssignment);
+        }
+        rounds++;
+      }
+    }
+
+    final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+    LOG.info(
+        "Local search: construction "
+            + constructed
+            + ", best "
+            + bestObjective
+            + " after "
+            + rounds
+            + " perturbations, "
+            + evaluatedMoves
+            + " moves evaluated in "
+            + elapsed
+            + " ms ("
+            + (evaluatedMoves * 1000 / elapsed)
+            + " moves/s)");
+    return Solution.fromAssignment(input, bestAssignment);
+  }
+
+  /** Looks up the costs of the candidates and counts the clients of each facility. */
+  private void buildCandidateLists() {
+    Arrays.fill(candidateCosts, Double.POSITIVE_INFINITY);
+    for (int i = 0; i < candidates.length; i++) {
+      if (candidates[i] != NONE) {
+        candidateCosts[i] = input.getCostToMeetDemand(candidates[i], i / numCandidates);
+        servableStart[candidates[i] + 1]++;
+      }
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      servableStart[facility + 1] += servableStart[facility];
+    }
+  }
+
+  private void buildServableClients() {
+    int[] next = Arrays.copyOf(servableStart, numFacilities);
+    for (int client = 0; client < numClients; client++) {
+      for (int rank = 0; rank < numCandidates; rank++) {
+        final int facility = candidates[client * numCandidates + rank];
+        if (facility == NONE) {
+          break;
+        }
+        servableClients[next[facility]++] = client;
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------- solution state
+
+  private void reset() {
+    Arrays.fill(assignment, NONE);
+    Arrays.fill(assignmentCost, 0);
+    System.arraycopy(capacity, 0, residualCapacity, 0, numFacilities);
+    Arrays.fill(numAssigned, 0);
+    Arrays.fill(firstClient, NONE);
+    objective = 0;
+  }
+
+  private void restore(int[] facilityOfClient) {
+    reset();
+    for (int client = 0; client < numClients; client++) {
+      move(client, facilityOfClient[client]);
+    }
+  }
+
+  private void saveBest(long start) {
+    System.arraycopy(assignment, 0, bestAssignment, 0, numClients);
+    bestObjective = objective;
+    if (listener != null) {
+      listener.incumbentFound(
+          Solution.fromAssignment(input, bestAssignment),
+          Double.NEGATIVE_INFINITY,
+          System.currentTimeMillis() - start);
+    }
+  }
+
+  /** Assigns the client to the facility and updates the objective incrementally. */
+  private void move(int client, int facility) {
+    final int from = assignment[client];
+    final double cost = input.getCostToMeetDemand(facility, client);
+    objective += cost - assignmentCost[client];
+    if (from != NONE) {
+      unlink(client, from);
+      residualCapacity[from] += demand[client];
+      if (--numAssigned[from] == 0) {
+        objective -= buildingCost[from];
+      }
+    }
+    link(client, facility);
+    residualCapacity[facility] -= demand[client];
+    if (numAssigned[facility]++ == 0) {
+      objective += buildingCost[facility];
+    }
+    assignment[client] = facility;
+    assignmentCost[client] = cost;
+  }
+
+  private void link(int client, int facility) {
+    final int first = firstClient[facility];
+    nextClient[client] = first;
+    previousClient[client] = NONE;
+    if (first != NONE) {
+      previousClient[first] = client;
+    }
+    firstClient[facility] = client;
+  }
+
+  private void unlink(int client, int facility) {
+    final int previous = previousClient[client];
+    final int next = nextClient[client];
+    if (previous == NONE) {
+      firstClient[facility] = next;
+    } else {
+      nextClient[previous] = next;
+    }
+    if (next != NONE) {
+      previousClient[next] = previous;
+    }
+  }
+
+  private boolean fits(int client, int facility) {
+    return demand[client] <= residualCapacity[facility] + CAPACITY_EPSILON;
+  }
+
+  private void tentativeMove(int client, int facility) {
+    undoClients[undoSize] = client;
+    undoFacilities[undoSize] = assignment[client];
+    undoSize++;
+    move(client, facility);
+  }
+
+  /** Keeps the tentative moves if they improved the objective, otherwise undoes them. */
+  private boolean acceptOrUndo(double objectiveBefore) {
+    if (objective < objectiveBefore - EPSILON) {
+      undoSize = 0;
+      return true;
+    }
+    undo(objectiveBefore);
+    return false;
+  }
+
+  private void undo(double objectiveBefore) {
+    while (undoSize > 0) {
+      undoSize--;
+      move(undoClients[undoSize], undoFacilities[undoSize]);
+    }
+    objective = objectiveBefore; // avoid accumulating rounding errors
+  }
+
+  /** Copies the clients of the facility to the scratch array. */
+  private int snapshotClients(int facility) {
+    int count = 0;
+    for (int client = firstClient[facility]; client != NONE; client = nextClient[client]) {
+      scratchClients[count++] = client;
+    }
+    return count;
+  }
+
+  // ---------------------------------------------------------------- construction
+
+  private void construct() {
+    for (int client = 0; client < numClients; client++) {
+      final int base = client * numCandidates;
+      double best = Double.POSITIVE_INFINITY;
+      double second = Double.POSITIVE_INFINITY;
+      for (int rank = 0; rank < numCandidates && candidates[base + rank] != NONE; rank++) {
+        final double cost =
+            constructionCost(client, candidates[base + rank], candidateCosts[base + rank]);
+        if (cost < best) {
+          second = best;
+          best = cost;
+        } else if (cost < second) {
+          second = cost;
+        }
+      }
+      scratchClients[client] = client;
+      // clients with a single candidate get the highest regret
+      scratchKeys[client] = second == Double.POSITIVE_INFINITY ? -Double.MAX_VALUE : best - second;
+    }
+    IndexSort.sortAscending(scratchClients, scratchKeys, numClients);
+
+    for (int i = 0; i < numClients; i++) {
+      final int client = scratchClients[i];
+      final int facility = cheapestConstructionFacility(client);
+      if (facility == NONE) {
+        throw new RuntimeException(
+            "Construction heuristic found no facility with enough capacity left for client "
+                + client);
+      }
+      move(client, facility);
+    }
+  }
+
+  /** @return the cost of serving the client, plus its share of the building cost if not open */
+  private double constructionCost(int client, int facility, double cost) {
+    if (numAssigned[facility] > 0) {
+      return cost;
+    }
+    return cost + buildingCost[facility] * demand[client] / capacity[facility];
+  }
+
+  private int cheapestConstructionFacility(int client) {
+    final int base = client * numCandidates;
+    int best = NONE;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int rank = 0; rank < numCandidates && candidates[base + rank] != NONE; rank++) {
+      final int facility = candidates[base + rank];
+      if (fits(client, facility)) {
+        double cost = constructionCost(client, facility, candidateCosts[base + rank]);
+        if (cost < bestCost) {
+          best = facility;
+          bestCost = cost;
+        }
+      }
+    }
+    if (best != NONE) {
+      return best;
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (fits(client, facility)) {
+        double cost =
+            constructionCost(client, facility, input.getCostToMeetDemand(facility, client));
+        if (cost < bestCost) {
+          best = facility;
+          bestCost = cost;
+        }
+      }
+    }
+    return best;
+  }
+
+  // ---------------------------------------------------------------- local search
+
+  private void localSearch(long deadline) {
+    while (System.currentTimeMillis() < deadline && !cancelled) {
+      if (!clientMoves() && !facilityMoves()) {
+        return;
+      }
+    }
+  }
+
+  private boolean clientMoves() {
+    boolean improved = false;
+    for (int client = 0; client < numClients; client++) {
+      if (tryShift(client) || trySwap(client)) {
+        improved = true;
+      }
+    }
+    return improved;
+  }
+
+  /** Moves the client to the candidate facility that improves the objective the most. */
+  private boolean tryShift(int client) {
+    final int from = assignment[client];
+    final int base = client * numCandidates;
+    final double leaveDelta =
+        -assignmentCost[client] - (numAssigned[from] == 1 ? buildingCost[from] : 0);
+    int best = NONE;
+    double bestDelta = -EPSILON;
+    for (int rank = 0; rank < numCandidates; rank++) {
+      final int facility = candidates[base + rank];
+      if (facility == NONE || candidateCosts[base + rank] + leaveDelta >= bestDelta) {
+        break; // the remaining candidates are more expensive
+      }
+      if (facility == from || !fits(client, facility)) {
+        continue;
+      }
+      evaluatedMoves++;
+      final double delta =
+          candidateCosts[base + rank]
+              + (numAssigned[facility] == 0 ? buildingCost[facility] : 0)
+              + leaveDelta;
+      if (delta < bestDelta) {
+        best = facility;
+        bestDelta = delta;
+      }
+    }
+    if (best == NONE) {
+      return false;
+    }
+    move(client, best);
+    return true;
+  }
+
+  /** Swaps the facilities of the client and a client of one of its open candidate facilities. */
+  private boolean trySwap(int client) {
+    final int from = assignment[client];
+    final int base = client * numCandidates;
+    final double clientDemand = demand[client];
+    for (int rank = 0; rank < numCandidates; rank++) {
+      final int facility = candidates[base + rank];
+      if (facility == NONE) {
+        break;
+      }
+      if (facility == from || numAssigned[facility] == 0) {
+        continue;
+      }
+      final double gain = candidateCosts[base + rank] - assignmentCost[client];
+      for (int other = firstClient[facility]; other != NONE; other = nextClient[other]) {
+        final double difference = clientDemand - demand[other];
+        if (difference > residualCapacity[facility] + CAPACITY_EPSILON
+            || -difference > residualCapacity[from] + CAPACITY_EPSILON) {
+          continue;
+        }
+        evaluatedMoves++;
+        final double delta =
+            gain + input.getCostToMeetDemand(from, other) - assignmentCost[other];
+        if (delta < -EPSILON) {
+          move(client, facility);
+          move(other, from);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean facilityMoves() {
+    boolean improved = false;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (numAssigned[facility] > 0 && tryClose(facility)) {
+        improved = true;
+      }
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (numAssigned[facility] == 0 && tryOpen(facility)) {
+        improved = true;
+      }
+    }
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (numAssigned[facility] > 0 && trySwapFacility(facility)) {
+        improved = true;
+      }
+    }
+    return improved;
+  }
+
+  /** Closes the facility by moving its clients to the cheapest other open facilities. */
+  private boolean tryClose(int facility) {
+    final double before = objective;
+    evaluatedMoves++;
+    if (!reassignClients(facility)) {
+      undo(before);
+      return false;
+    }
+    return acceptOrUndo(before);
+  }
+
+  /**
+   * Tentatively moves the clients of the facility to the cheapest other open facility with enough
+   * capacity, largest demand first.
+   *
+   * @return false if some client could not be moved
+   */
+  private boolean reassignClients(int facility) {
+    final int count = snapshotClients(facility);
+    for (int i = 0; i < count; i++) {
+      scratchKeys[i] = -demand[scratchClients[i]];
+    }
+    IndexSort.sortAscending(scratchClients, scratchKeys, count);
+    for (int i = 0; i < count; i++) {
+      final int client = scratchClients[i];
+      final int target = cheapestOpenFacility(client, facility);
+      if (target == NONE) {
+        return false;
+      }
+      tentativeMove(client, target);
+    }
+    return true;
+  }
+
+  /** @return the cheapest open facility other than the excluded one that can serve the client */
+  private int cheapestOpenFacility(int client, int excluded) {
+    final int base = client * numCandidates;
+    for (int rank = 0; rank < numCandidates; rank++) {
+      final int facility = candidates[base + rank];
+      if (facility == NONE) {
+        break;
+      }
+      if (facility != excluded && numAssigned[facility] > 0 && fits(client, facility)) {
+        return facility;
+      }
+    }
+    int best = NONE;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (facility != excluded && numAssigned[facility] > 0 && fits(client, facility)) {
+        final double cost = input.getCostToMeetDemand(facility, client);
+        if (cost < bestCost) {
+          best = facility;
+          bestCost = cost;
+        }
+      }
+    }
+    return best;
+  }
+
+  /** Opens the facility for the clients that are cheaper to serve from it, largest saving first. */
+  private boolean tryOpen(int facility) {
+    int count = 0;
+    for (int i = servableStart[facility]; i < servableStart[facility + 1]; i++) {
+      final int client = servableClients[i];
+      final double saving = assignmentCost[client] - input.getCostToMeetDemand(facility, client);
+      if (saving > 0) {
+        scratchClients[count] = client;
+        scratchKeys[count] = -saving;
+        count++;
+      }
+    }
+    if (count == 0) {
+      return false;
+    }
+    IndexSort.sortAscending(scratchClients, scratchKeys, count);
+    final double before = objective;
+    evaluatedMoves++;
+    for (int i = 0; i < count; i++) {
+      if (fits(scratchClients[i], facility)) {
+        tentativeMove(scratchClients[i], facility);
+      }
+    }
+    return acceptOrUndo(before);
+  }
+
+  /**
+   * Closes the facility and opens a closed facility that is a candidate of one of its clients
+   * instead.
+   */
+  private boolean trySwapFacility(int facility) {
+    int numSwapCandidates = 0;
+    for (int client = firstClient[facility]; client != NONE; client = nextClient[client]) {
+      final int base = client * numCandidates;
+      for (int rank = 0; rank < numCandidates; rank++) {
+        final int candidate = candidates[base + rank];
+        if (candidate == NONE) {
+          break;
+        }
+        if (numAssigned[candidate] == 0 && !isSwapCandidate[candidate]) {
+          isSwapCandidate[candidate] = true;
+          swapCandidates[numSwapCandidates++] = candidate;
+        }
+      }
+    }
+    boolean improved = false;
+    for (int i = 0; i < numSwapCandidates; i++) {
+      final int candidate = swapCandidates[i];
+      if (!improved && numAssigned[facility] > 0 && trySwapFacility(facility, candidate)) {
+        improved = true;
+      }
+      isSwapCandidate[candidate] = false;
+    }
+    return improved;
+  }
+
+  private boolean trySwapFacility(int closing, int opening) {
+    // open the facility for the client of the closing facility that is cheapest to serve from it
+    int cheapest = NONE;
+    double cheapestCost = Double.POSITIVE_INFINITY;
+    for (int client = firstClient[closing]; client != NONE; client = nextClient[client]) {
+      if (demand[client] <= capacity[opening]) {
+        final double cost = input.getCostToMeetDemand(opening, client);
+        if (cost < cheapestCost) {
+          cheapest = client;
+          cheapestCost = cost;
+        }
+      }
+    }
+    if (cheapest == NONE) {
+      return false;
+    }
+    final double before = objective;
+    evaluatedMoves++;
+    tentativeMove(cheapest, opening);
+    // then move the remaining clients to the cheapest open facilities, including the opened one
+    if (!reassignClients(closing)) {
+      undo(before);
+      return false;
+    }
+    return acceptOrUndo(before);
+  }
+
+  /** Moves a fraction of the clients to random candidate facilities, and closes a facility. */
+  private void perturb(Random random) {
+    final int kicks = Math.max(1, (int) (numClients * PERTURBATION_FRACTION));
+    for (int i = 0; i < kicks; i++) {
+      final int client = random.nextInt(numClients);
+      final int facility = candidates[client * numCandidates + random.nextInt(numCandidates)];
+      if (facility != NONE && facility != assignment[client] && fits(client, facility)) {
+        move(client, facility);
+      }
+    }
+    final double before = objective;
+    if (reassignClients(assignment[random.nextInt(numClients)])) {
+      undoSize = 0; // keep the facility closed, even if that is worse
+    } else {
+      undo(before);
+    }
+  }
+
+  /** Creates local search engines, which are always available. */
+  public static class Provider implements SolverEngineProvider {
+
+    @Override
+    public String getName() {
+      return "local-search";
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+      return new LocalSearchSolver(input);
+    }
+  }
+}
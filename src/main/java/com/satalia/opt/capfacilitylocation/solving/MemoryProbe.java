@@ -0,0 +1,58 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Measures the peak heap usage of a phase, and the resident set size of the process, which also
+ * includes the native memory of the solver. The heap peaks are global to the JVM, so the
+ * measurements are approximate if other threads allocate at the same time.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class MemoryProbe {
+
+  private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+  private MemoryProbe() {}
+
+  /** Starts a new phase: resets the peak usage of the heap memory pools. */
+  static void resetHeapPeak() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /** @return the peak heap usage since the last reset, summed over the heap memory pools */
+  static long heapPeakBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** @return the resident set size of the process, or -1 if it is not available (non Linux) */
+  static long residentSetBytes() {
+    try {
+      for (String line : Files.readAllLines(PROC_STATUS, StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      // not available on this platform
+    }
+    return -1;
+  }
+}
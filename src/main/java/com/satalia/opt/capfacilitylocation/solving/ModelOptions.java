@@ -0,0 +1,92 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+
+/**
+ * Options for building the MIP model of the {@link CbcSolver}. By default the model is built
+ * without names and is never exported, which keeps the construction of large models fast.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class ModelOptions {
+
+  /** whether to give the variables and constraints readable names, e.g. y_f3_c17 */
+  private boolean names = false;
+  /** the file the model is exported to in LP format after construction, or null */
+  private String lpExportFile = null;
+  /** if positive, build the sparse model starting from each client's cheapest facilities */
+  private int numCandidates = 0;
+  /** whether to strengthen the model with cuts separated on the LP relaxation */
+  private boolean cuts = false;
+  /** the metrics that building and solving the model report to, or null */
+  private SolveMetrics metrics = null;
+
+  public boolean hasNames() {
+    return names;
+  }
+
+  public void setNames(boolean names) {
+    this.names = names;
+  }
+
+  public String getLpExportFile() {
+    return lpExportFile;
+  }
+
+  /** @param lpExportFile the file to export the model to in LP format, null for no export */
+  public void setLpExportFile(String lpExportFile) {
+    this.lpExportFile = lpExportFile;
+  }
+
+  public int getNumCandidates() {
+    return numCandidates;
+  }
+
+  /**
+   * @param numCandidates if positive, the model only gets the assignment variables that can be
+   *     part of an optimal solution, found by pricing from each client's numCandidates cheapest
+   *     facilities; 0 for the full model
+   */
+  public void setNumCandidates(int numCandidates) {
+    if (numCandidates < 0) {
+      throw new RuntimeException("Number of candidates cannot be negative: " + numCandidates);
+    }
+    this.numCandidates = numCandidates;
+  }
+
+  public boolean hasCuts() {
+    return cuts;
+  }
+
+  /**
+   * @param cuts if true, the model gets the total capacity row and the linking and cover cuts that
+   *     are violated by its LP relaxation, separated in rounds until the bound stalls
+   */
+  public void setCuts(boolean cuts) {
+    this.cuts = cuts;
+  }
+
+  public SolveMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics that the phases of building and solving the model and the solver
+   *     statistics are reported to; the caller completes them. If null, the solver collects them
+   *     in its own {@link CbcSolver#getMetrics()}
+   */
+  public void setMetrics(SolveMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** @return a copy of these options, e.g. to set different metrics for each solve */
+  public ModelOptions copy() {
+    ModelOptions copy = new ModelOptions();
+    copy.names = names;
+    copy.lpExportFile = lpExportFile;
+    copy.numCandidates = numCandidates;
+    copy.cuts = cuts;
+    copy.metrics = metrics;
+    return copy;
+  }
+}
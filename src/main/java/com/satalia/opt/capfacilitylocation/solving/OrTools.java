@@ -0,0 +1,45 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the native or-tools library on first use instead of when a solver class is loaded, so
+ * that classes referring to or-tools can be loaded, and other engines used, on hosts without it.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+final class OrTools {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OrTools.class);
+  private static final String LIBRARY = "jniortools";
+
+  /** null until loading was tried, then whether it succeeded */
+  private static Boolean loaded;
+  private static UnsatisfiedLinkError error;
+
+  private OrTools() {}
+
+  /** @return true if the native library is loaded or could be loaded now */
+  static synchronized boolean isAvailable() {
+    if (loaded == null) {
+      try {
+        System.loadLibrary(LIBRARY);
+        loaded = true;
+      } catch (UnsatisfiedLinkError e) {
+        LOG.debug("Could not load native library " + LIBRARY, e);
+        error = e;
+        loaded = false;
+      }
+    }
+    return loaded;
+  }
+
+  /** Loads the native library if it is not loaded yet, throwing if it is missing. */
+  static void load() {
+    if (!isAvailable()) {
+      throw new RuntimeException(
+          "Cannot load native library " + LIBRARY + ": " + error.getMessage(), error);
+    }
+  }
+}
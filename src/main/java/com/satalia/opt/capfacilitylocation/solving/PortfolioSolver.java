@@ -0,0 +1,274 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Races several {@link SolverEngine}s on the same problem input, each on its own thread, e.g. CBC
+ * next to the local search, or CBC with different seeds. Instances of very different shapes suit
+ * different engines, so on a multi-core machine the race gives robust solve times.
+ *
+ * <ul>
+ *   <li>the best solution and the best bound of all engines are shared: the listener is notified
+ *       of each solution that is better than those of all engines
+ *   <li>as soon as one engine proves optimality or infeasibility, or the shared solution and bound
+ *       close the gap, the other engines are cancelled
+ *   <li>at the time limit, the engines are cancelled and the best solution is returned after a
+ *       short grace period, even if an engine that cannot be interrupted is still running; it
+ *       stops at its own time limit and its late results are ignored
+ * </ul>
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class PortfolioSolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PortfolioSolver.class);
+
+  /** how long to wait for the engines to return their results after the time limit */
+  private static final long GRACE_MILLIS = 1000;
+  private static final double EPSILON = 1e-6;
+
+  private final ProblemInput input;
+  private final List<SolverEngineProvider> providers = new ArrayList<>();
+  /** the parameters of each engine, null for the parameters of the portfolio */
+  private final List<SolveParameters> engineParameters = new ArrayList<>();
+  private ModelOptions modelOptions = new ModelOptions();
+  private Solution warmStart;
+
+  public PortfolioSolver(final ProblemInput input) {
+    this.input = input;
+  }
+
+  /** @param provider the provider of an engine that runs with the parameters of the portfolio */
+  public void addEngine(SolverEngineProvider provider) {
+    addEngine(provider, null);
+  }
+
+  /**
+   * @param provider the provider of an engine
+   * @param parameters the parameters of the engine, e.g. with another seed; its time limit is
+   *     capped by the time left of each solve of the portfolio
+   */
+  public void addEngine(SolverEngineProvider provider, SolveParameters parameters) {
+    providers.add(provider);
+    engineParameters.add(parameters == null ? null : parameters.copy());
+  }
+
+  /** @param modelOptions the options of the engines that build a MIP model */
+  public void setModelOptions(ModelOptions modelOptions) {
+    this.modelOptions = modelOptions;
+  }
+
+  /** @param solution the solution passed to every engine as a warm start */
+  public void setWarmStart(Solution solution) {
+    this.warmStart = solution;
+  }
+
+  /**
+   * @param parameters the time limit and gap targets of the race, and the parameters of the
+   *     engines without their own
+   * @param listener notified of each solution better than those of all engines, may be null
+   * @return the best solution of all engines with the best bound of all engines
+   */
+  public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+    if (providers.isEmpty()) {
+      throw new RuntimeException("Expecting at least one engine in the portfolio.");
+    }
+    final long start = System.currentTimeMillis();
+    final long deadline =
+        parameters.getTimeLimitMillis() > 0
+            ? start + parameters.getTimeLimitMillis()
+            : Long.MAX_VALUE;
+    Race race = new Race(parameters, listener, start, providers.size());
+    for (int i = 0; i < providers.size(); i++) {
+      final SolverEngineProvider provider = providers.get(i);
+      final String name = provider.getName() + "[" + i + "]";
+      final SolveParameters own =
+          engineParameters.get(i) != null ? engineParameters.get(i).copy() : parameters.copy();
+      Thread thread = new Thread(() -> run(provider, name, own, deadline, race), "portfolio-" + name);
+      // an engine that cannot be interrupted must not keep the JVM alive after the race
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    try {
+      if (deadline == Long.MAX_VALUE) {
+        race.decided.await();
+      } else {
+        race.decided.await(
+            Math.max(0, deadline + GRACE_MILLIS - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    SolveResult result = race.stop(System.currentTimeMillis() - start);
+    LOG.info(
+        "Portfolio of "
+            + providers.size()
+            + " engines: "
+            + result
+            + (race.winner == null ? "" : ", best solution by " + race.winner));
+    return result;
+  }
+
+  /** Creates and runs one engine, reporting to the race. */
+  private void run(
+      SolverEngineProvider provider,
+      String name,
+      SolveParameters parameters,
+      long deadline,
+      Race race) {
+    SolverEngine engine = null;
+    SolveResult result = null;
+    try {
+      engine = provider.create(input, modelOptions);
+      if (!race.register(engine)) {
+        return;
+      }
+      if (warmStart != null) {
+        engine.setWarmStart(warmStart);
+      }
+      if (deadline != Long.MAX_VALUE) {
+        final long left = Math.max(1, deadline - System.currentTimeMillis());
+        parameters.setTimeLimitMillis(
+            parameters.getTimeLimitMillis() > 0
+                ? Math.min(parameters.getTimeLimitMillis(), left)
+                : left);
+      }
+      result =
+          engine.solve(
+              parameters,
+              (solution, bound, elapsedMillis) -> race.offer(name, solution, bound));
+    } catch (RuntimeException e) {
+      LOG.warn("Solver engine " + name + " failed.", e);
+    } finally {
+      race.finish(name, result);
+      if (engine != null) {
+        engine.close();
+      }
+    }
+  }
+
+  /** The shared incumbent and bound of the engines, and whether the race is decided. */
+  private static class Race {
+    private final SolveParameters parameters;
+    private final IncumbentListener listener;
+    private final long start;
+    private final List<SolverEngine> engines = new ArrayList<>();
+    /** released when the race is decided or all engines finished */
+    final CountDownLatch decided = new CountDownLatch(1);
+    private int running;
+
+    private Solution best;
+    private double bound = Double.NEGATIVE_INFINITY;
+    String winner;
+    private boolean optimal;
+    private boolean infeasible;
+    private boolean stopped;
+
+    Race(SolveParameters parameters, IncumbentListener listener, long start, int running) {
+      this.parameters = parameters;
+      this.listener = listener;
+      this.start = start;
+      this.running = running;
+    }
+
+    /** @return false if the race is already decided, in which case the engine is not run */
+    synchronized boolean register(SolverEngine engine) {
+      if (decided.getCount() == 0) {
+        return false;
+      }
+      engines.add(engine);
+      return true;
+    }
+
+    synchronized void offer(String name, Solution solution, double engineBound) {
+      if (stopped) {
+        return;
+      }
+      bound = Math.max(bound, engineBound);
+      if (best == null || solution.getObjectiveValue() < best.getObjectiveValue() - EPSILON) {
+        best = solution;
+        winner = name;
+        if (listener != null) {
+          listener.incumbentFound(
+              solution,
+              Math.min(bound, solution.getObjectiveValue()),
+              System.currentTimeMillis() - start);
+        }
+      }
+      if (isGapClosed()) {
+        decide();
+      }
+    }
+
+    synchronized void finish(String name, SolveResult result) {
+      running--;
+      if (result != null && !stopped) {
+        switch (result.getStatus()) {
+          case OPTIMAL:
+            offer(name, result.getSolution(), result.getBound());
+            optimal = true;
+            decide();
+            break;
+          case FEASIBLE:
+            offer(name, result.getSolution(), result.getBound());
+            break;
+          case INFEASIBLE:
+            infeasible = true;
+            decide();
+            break;
+          default:
+            if (result.getSolution() != null) {
+              offer(name, result.getSolution(), Double.NEGATIVE_INFINITY);
+            }
+        }
+      }
+      if (running == 0) {
+        decided.countDown();
+      }
+    }
+
+    private boolean isGapClosed() {
+      if (best == null) {
+        return false;
+      }
+      final double gap = best.getObjectiveValue() - bound;
+      return gap <= parameters.getAbsoluteGap()
+          || gap <= parameters.getRelativeGap() * Math.abs(best.getObjectiveValue());
+    }
+
+    /** Cancels all engines and releases the waiting solve. */
+    private void decide() {
+      decided.countDown();
+      for (SolverEngine engine : engines) {
+        engine.cancel();
+      }
+    }
+
+    /** Ends the race, ignoring later results, and returns its result. */
+    synchronized SolveResult stop(long elapsedMillis) {
+      decide();
+      stopped = true;
+      if (infeasible) {
+        return new SolveResult(
+            SolveStatus.INFEASIBLE, null, Double.POSITIVE_INFINITY, elapsedMillis);
+      }
+      if (best == null) {
+        return new SolveResult(
+            SolveStatus.NO_SOLUTION_FOUND, null, Double.NEGATIVE_INFINITY, elapsedMillis);
+      }
+      return new SolveResult(
+          optimal || isGapClosed() ? SolveStatus.OPTIMAL : SolveStatus.FEASIBLE,
+          best,
+          Math.min(bound, best.getObjectiveValue()),
+          elapsedMillis);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.PresolvedInput;
+
+/**
+ * Maps solutions and results of a presolved input back to the original input.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public final class Postsolver {
+
+  private Postsolver() {}
+
+  /**
+   * @param presolved the presolved input
+   * @param reducedSolution a solution of the reduced input
+   * @return the corresponding solution of the original input
+   */
+  public static Solution postsolve(PresolvedInput presolved, Solution reducedSolution) {
+    return Solution.fromAssignment(
+        presolved.getOriginalInput(), presolved.postsolve(reducedSolution.getAssignment()));
+  }
+
+  /**
+   * @param presolved the presolved input
+   * @param reducedResult the result of solving the reduced input
+   * @return the result with the solution and bound of the original input
+   */
+  public static SolveResult postsolve(PresolvedInput presolved, SolveResult reducedResult) {
+    return new SolveResult(
+        reducedResult.getStatus(),
+        reducedResult.getSolution() == null
+            ? null
+            : postsolve(presolved, reducedResult.getSolution()),
+        reducedResult.getBound() + presolved.getObjectiveOffset(),
+        reducedResult.getElapsedMillis() + presolved.getPresolveMillis());
+  }
+}
@@ -0,0 +1,398 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.CanonicalForm;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches solve results by the {@link CanonicalForm} hash of the instance and the gap targets, so
+ * that instances that are submitted again, also with their facilities and clients in another
+ * order, are not solved from scratch. An optimal result is reused as it is; a feasible result is
+ * a warm start for the new solve (see {@link CachingEngineProvider}).
+ *
+ * <p>Results are stored in canonical order in a least recently used memory tier with a maximum
+ * number of entries and, optionally, in a directory with a maximum size, from which the least
+ * recently used files are evicted. Files are written to a temporary file first and then renamed,
+ * so readers never see partial files. A cached solution is checked against the instance before it
+ * is returned, so a hash collision costs a solve, not a wrong result.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class ResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".result";
+  /** the relative difference of objective values below which a cached solution is accepted */
+  private static final double OBJECTIVE_TOLERANCE = 1e-9;
+
+  private final Map<String, CachedResult> memory;
+  /** the directory of the disk tier, null if there is none */
+  private final Path directory;
+  private final long maxDiskBytes;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong optimalHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /** @param maxEntries the maximum number of results kept in memory */
+  public ResultCache(int maxEntries) {
+    this.memory = newMemory(maxEntries);
+    this.directory = null;
+    this.maxDiskBytes = 0;
+  }
+
+  /**
+   * @param maxEntries the maximum number of results kept in memory
+   * @param directory the directory of the disk tier, which is created if needed
+   * @param maxDiskBytes the maximum size of the files in the directory
+   */
+  public ResultCache(int maxEntries, Path directory, long maxDiskBytes) throws IOException {
+    this.memory = newMemory(maxEntries);
+    this.directory = Files.createDirectories(directory);
+    this.maxDiskBytes = maxDiskBytes;
+  }
+
+  /** @return a map in access order that drops its least recently used results */
+  private static Map<String, CachedResult> newMemory(int maxEntries) {
+    return new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Computes the key of a solve, which reads the whole cost matrix twice.
+   *
+   * @param input the instance
+   * @param parameters the parameters of the solve, of which the gap targets are part of the key
+   * @return the key
+   */
+  public Key key(ProblemInput input, SolveParameters parameters) {
+    CanonicalForm form = CanonicalForm.of(input);
+    // the exact gaps, so that a result is never served for a tighter gap than it was solved for
+    String value =
+        form.getHash()
+            + "-"
+            + Long.toHexString(Double.doubleToLongBits(parameters.getRelativeGap()))
+            + "-"
+            + Long.toHexString(Double.doubleToLongBits(parameters.getAbsoluteGap()));
+    return new Key(input, form, value);
+  }
+
+  /**
+   * Looks up the result of the key, first in memory and then on disk.
+   *
+   * @return the cached result for the instance of the key, OPTIMAL or FEASIBLE, or null if there
+   *     is none
+   */
+  public SolveResult lookup(Key key) {
+    final long start = System.currentTimeMillis();
+    CachedResult entry;
+    synchronized (this) {
+      entry = memory.get(key.value);
+    }
+    boolean fromDisk = false;
+    if (entry == null && directory != null) {
+      entry = read(key.value);
+      if (entry != null) {
+        fromDisk = true;
+        synchronized (this) {
+          memory.put(key.value, entry);
+        }
+      }
+    }
+    Solution solution = entry == null ? null : entry.toSolution(key);
+    if (solution == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    (fromDisk ? diskHits : memoryHits).incrementAndGet();
+    if (entry.status == SolveStatus.OPTIMAL) {
+      optimalHits.incrementAndGet();
+    }
+    return new SolveResult(
+        entry.status, solution, entry.bound, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Stores the result of the key unless it has no solution or the cached result is better: optimal
+   * where the new one is not, or feasible with a lower objective value.
+   */
+  public void store(Key key, SolveResult result) {
+    if (!result.getStatus().hasSolution()) {
+      return;
+    }
+    CachedResult entry = new CachedResult(key, result);
+    synchronized (this) {
+      CachedResult cached = memory.get(key.value);
+      if (cached != null && !entry.isBetterThan(cached)) {
+        return;
+      }
+      memory.put(key.value, entry);
+    }
+    if (directory != null) {
+      write(key.value, entry);
+    }
+  }
+
+  /** @return the number of lookups that returned a result */
+  public long getHits() {
+    return memoryHits.get() + diskHits.get();
+  }
+
+  /** @return the number of lookups that returned a result read from disk */
+  public long getDiskHits() {
+    return diskHits.get();
+  }
+
+  /** @return the number of lookups that returned an optimal result */
+  public long getOptimalHits() {
+    return optimalHits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  @Override
+  public String toString() {
+    return "Result cache: "
+        + getHits()
+        + " hits ("
+        + getOptimalHits()
+        + " optimal, "
+        + getDiskHits()
+        + " from disk) and "
+        + getMisses()
+        + " misses";
+  }
+
+  private CachedResult read(String key) {
+    Path file = directory.resolve(key + SUFFIX);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      CachedResult entry = CachedResult.read(in);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return entry;
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Deleting unreadable cache file " + file, e);
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException deleteFailure) {
+        LOG.warn("Could not delete " + file, deleteFailure);
+      }
+      return null;
+    }
+  }
+
+  private void write(String key, CachedResult entry) {
+    Path file = directory.resolve(key + SUFFIX);
+    try {
+      Path temporary = Files.createTempFile(directory, key, ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        entry.write(out);
+      }
+      Files.move(
+          temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      evict();
+    } catch (IOException e) {
+      LOG.warn("Could not write cache file " + file, e);
+    }
+  }
+
+  /** Deletes the least recently used files until the directory is within its size. */
+  private synchronized void evict() throws IOException {
+    List<Path> files = new ArrayList<>();
+    long totalBytes = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path file : stream) {
+        files.add(file);
+        totalBytes += Files.size(file);
+      }
+    }
+    if (totalBytes <= maxDiskBytes) {
+      return;
+    }
+    Map<Path, Long> lastUsed = new LinkedHashMap<>();
+    for (Path file : files) {
+      lastUsed.put(file, Files.getLastModifiedTime(file).toMillis());
+    }
+    files.sort((a, b) -> Long.compare(lastUsed.get(a), lastUsed.get(b)));
+    for (Path file : files) {
+      if (totalBytes <= maxDiskBytes) {
+        break;
+      }
+      totalBytes -= Files.size(file);
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /** The key of a solve: the instance, its canonical form and the hash of both and the gaps. */
+  public static class Key {
+    private final ProblemInput input;
+    private final CanonicalForm form;
+    private final String value;
+
+    private Key(final ProblemInput input, final CanonicalForm form, final String value) {
+      this.input = input;
+      this.form = form;
+      this.value = value;
+    }
+
+    /** @return the key as hexadecimal digits and dashes, also the name of its file */
+    public String getValue() {
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+  }
+
+  /** A result with its solution in canonical order. */
+  private static class CachedResult {
+    final SolveStatus status;
+    final double objective;
+    final double bound;
+    /** the canonical facility of each canonical client */
+    final int[] assignment;
+    /** the canonical opened facilities */
+    final int[] opened;
+
+    CachedResult(
+        final SolveStatus status,
+        final double objective,
+        final double bound,
+        final int[] assignment,
+        final int[] opened) {
+      this.status = status;
+      this.objective = objective;
+      this.bound = bound;
+      this.assignment = assignment;
+      this.opened = opened;
+    }
+
+    CachedResult(final Key key, final SolveResult result) {
+      Solution solution = result.getSolution();
+      this.status = result.getStatus();
+      this.objective = solution.getObjectiveValue();
+      this.bound = result.getBound();
+      this.assignment = new int[key.input.getNumClients()];
+      for (int position = 0; position < assignment.length; position++) {
+        assignment[position] =
+            key.form.getFacilityPosition(
+                solution.getFacilityOfClient(key.form.getClient(position)));
+      }
+      this.opened =
+          key.input
+              .facilities()
+              .filter(solution::isOpened)
+              .map(key.form::getFacilityPosition)
+              .sorted()
+              .toArray();
+    }
+
+    boolean isBetterThan(CachedResult other) {
+      if (status != other.status) {
+        return status == SolveStatus.OPTIMAL;
+      }
+      return objective < other.objective;
+    }
+
+    /** @return the solution for the instance of the key, or null if it does not fit */
+    Solution toSolution(Key key) {
+      final ProblemInput input = key.input;
+      if (assignment.length != input.getNumClients()) {
+        return null;
+      }
+      int[] facilityOfClient = new int[assignment.length];
+      for (int position = 0; position < assignment.length; position++) {
+        if (assignment[position] < 0 || assignment[position] >= input.getNumFacilities()) {
+          return null;
+        }
+        facilityOfClient[key.form.getClient(position)] = key.form.getFacility(assignment[position]);
+      }
+      BitSet openedFacilities = new BitSet(input.getNumFacilities());
+      for (int position : opened) {
+        if (position < 0 || position >= input.getNumFacilities()) {
+          return null;
+        }
+        openedFacilities.set(key.form.getFacility(position));
+      }
+      Solution solution = new Solution(input, facilityOfClient, openedFacilities);
+      String violation = solution.findViolation();
+      final double difference = Math.abs(solution.getObjectiveValue() - objective);
+      final double tolerance = OBJECTIVE_TOLERANCE * Math.max(1, Math.abs(objective));
+      if (violation != null || difference > tolerance) {
+        LOG.warn(
+            "Ignoring cached result "
+                + key
+                + " that does not fit the instance: "
+                + (violation != null ? violation : "objective " + solution.getObjectiveValue()));
+        return null;
+      }
+      return solution;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(status.name());
+      out.writeDouble(objective);
+      out.writeDouble(bound);
+      out.writeInt(assignment.length);
+      for (int facility : assignment) {
+        out.writeInt(facility);
+      }
+      out.writeInt(opened.length);
+      for (int facility : opened) {
+        out.writeInt(facility);
+      }
+    }
+
+    static CachedResult read(DataInputStream in) throws IOException {
+      final int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported cache format version " + version);
+      }
+      SolveStatus status = SolveStatus.valueOf(in.readUTF());
+      final double objective = in.readDouble();
+      final double bound = in.readDouble();
+      int[] assignment = new int[in.readInt()];
+      for (int i = 0; i < assignment.length; i++) {
+        assignment[i] = in.readInt();
+      }
+      int[] opened = new int[in.readInt()];
+      for (int i = 0; i < opened.length; i++) {
+        opened[i] = in.readInt();
+      }
+      return new CachedResult(status, objective, bound, assignment, opened);
+    }
+  }
+}
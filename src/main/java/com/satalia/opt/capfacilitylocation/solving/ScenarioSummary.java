@@ -0,0 +1,195 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import java.util.Arrays;
+
+/**
+ * The statistics of a {@link ScenarioSweep}: the status and objective value of each scenario, how
+ * often each facility is opened, the distribution of the objective values, and the facility that
+ * serves each client in most scenarios. Solutions are counted as they arrive and not kept, so the
+ * summary takes memory linear in the number of scenarios, facilities and clients.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class ScenarioSummary {
+
+  private final SolveStatus[] statuses;
+  private final double[] objectives;
+  /** the number of solutions that open each facility */
+  private final int[] openCounts;
+  /**
+   * the facilities serving each client with their number of solutions: facility at even and
+   * count at odd positions of clientCounts[client], of which the first clientSizes[client] are used
+   */
+  private final int[][] clientCounts;
+  private final int[] clientSizes;
+  private int numSolved;
+
+  ScenarioSummary(final int numScenarios, final int numFacilities, final int numClients) {
+    this.statuses = new SolveStatus[numScenarios];
+    this.objectives = new double[numScenarios];
+    Arrays.fill(objectives, Double.POSITIVE_INFINITY);
+    this.openCounts = new int[numFacilities];
+    this.clientCounts = new int[numClients][];
+    this.clientSizes = new int[numClients];
+  }
+
+  /** Counts the result of the scenario. */
+  synchronized void add(int scenario, SolveStatus status, Solution solution) {
+    statuses[scenario] = status;
+    if (solution == null) {
+      return;
+    }
+    numSolved++;
+    objectives[scenario] = solution.getObjectiveValue();
+    for (int facility = 0; facility < openCounts.length; facility++) {
+      if (solution.isOpened(facility)) {
+        openCounts[facility]++;
+      }
+    }
+    for (int client = 0; client < clientSizes.length; client++) {
+      count(client, solution.getFacilityOfClient(client));
+    }
+  }
+
+  private void count(int client, int facility) {
+    int[] counts = clientCounts[client];
+    final int size = clientSizes[client];
+    for (int i = 0; i < size; i += 2) {
+      if (counts[i] == facility) {
+        counts[i + 1]++;
+        return;
+      }
+    }
+    if (counts == null) {
+      counts = clientCounts[client] = new int[4];
+    } else if (size == counts.length) {
+      counts = clientCounts[client] = Arrays.copyOf(counts, 2 * size);
+    }
+    counts[size] = facility;
+    counts[size + 1] = 1;
+    clientSizes[client] = size + 2;
+  }
+
+  public int getNumScenarios() {
+    return statuses.length;
+  }
+
+  /** @return the number of scenarios for which a solution was found */
+  public synchronized int getNumSolved() {
+    return numSolved;
+  }
+
+  /** @return the status of the scenario, or null if it was not solved */
+  public synchronized SolveStatus getStatus(int scenario) {
+    return statuses[scenario];
+  }
+
+  /** @return the objective value of the scenario, or infinity if no solution was found */
+  public synchronized double getObjectiveValue(int scenario) {
+    return objectives[scenario];
+  }
+
+  /** @return the share of the solved scenarios in which the facility is opened */
+  public synchronized double getOpenFrequency(int facility) {
+    return numSolved == 0 ? 0 : openCounts[facility] / (double) numSolved;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the objective value at the percentile of the solved scenarios (nearest rank), or NaN
+   *     if no scenario was solved
+   */
+  public synchronized double getObjectivePercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new RuntimeException("Expecting a percentile from 0 to 100 instead of " + percentile);
+    }
+    double[] solved = solvedObjectives();
+    if (solved.length == 0) {
+      return Double.NaN;
+    }
+    Arrays.sort(solved);
+    final int rank = (int) Math.ceil(percentile / 100 * solved.length);
+    return solved[Math.max(0, rank - 1)];
+  }
+
+  /** @return the mean objective value of the solved scenarios, or NaN if none was solved */
+  public synchronized double getMeanObjective() {
+    double[] solved = solvedObjectives();
+    return solved.length == 0 ? Double.NaN : Arrays.stream(solved).sum() / solved.length;
+  }
+
+  private double[] solvedObjectives() {
+    return Arrays.stream(objectives)
+        .filter(objective -> objective < Double.POSITIVE_INFINITY)
+        .toArray();
+  }
+
+  /**
+   * @return the facility that serves the client in most solved scenarios (ties by increasing
+   *     number), or -1 if no scenario was solved
+   */
+  public synchronized int getMostFrequentFacility(int client) {
+    int best = -1;
+    int bestCount = 0;
+    for (int i = 0; i < clientSizes[client]; i += 2) {
+      final int facility = clientCounts[client][i];
+      final int count = clientCounts[client][i + 1];
+      if (count > bestCount || (count == bestCount && facility < best)) {
+        best = facility;
+        bestCount = count;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return the share of the solved scenarios in which the client is served by its most frequent
+   *     facility: 1 if the assignment is the same in all scenarios
+   */
+  public synchronized double getAssignmentRobustness(int client) {
+    int bestCount = 0;
+    for (int i = 1; i < clientSizes[client]; i += 2) {
+      bestCount = Math.max(bestCount, clientCounts[client][i]);
+    }
+    return numSolved == 0 ? 0 : bestCount / (double) numSolved;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SCENARIOS\nSolved: ")
+        .append(numSolved)
+        .append(" of ")
+        .append(statuses.length)
+        .append("\nObjective: mean ")
+        .append(getMeanObjective())
+        .append(", min ")
+        .append(getObjectivePercentile(0))
+        .append(", median ")
+        .append(getObjectivePercentile(50))
+        .append(", 90th percentile ")
+        .append(getObjectivePercentile(90))
+        .append(", max ")
+        .append(getObjectivePercentile(100))
+        .append("\nFacilities opened in (share of scenarios):\n");
+    for (int facility = 0; facility < openCounts.length; facility++) {
+      if (openCounts[facility] > 0) {
+        sb.append("facility ")
+            .append(facility)
+            .append(": ")
+            .append(String.format("%.3f", getOpenFrequency(facility)))
+            .append('\n');
+      }
+    }
+    int robust = 0;
+    for (int client = 0; client < clientSizes.length; client++) {
+      robust += numSolved > 0 && getAssignmentRobustness(client) == 1 ? 1 : 0;
+    }
+    sb.append("Clients served by the same facility in all scenarios: ")
+        .append(robust)
+        .append(" of ")
+        .append(clientSizes.length)
+        .append('\n');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,128 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Solves many scenarios of one instance concurrently, e.g. for capacity planning under demand and
+ * cost uncertainty. The instance is loaded once and shared read-only by all workers; each scenario
+ * is an {@link InstanceDelta} that is applied as an overlay when a worker takes it, so at most one
+ * modified input per worker is alive and memory stays near that of one instance. The results are
+ * aggregated into a {@link ScenarioSummary} as they arrive.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class ScenarioSweep {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScenarioSweep.class);
+
+  private final ProblemInput input;
+  private final int numWorkers;
+  private SolverEngineProvider engine = new CbcSolver.Provider();
+  private ModelOptions modelOptions = new ModelOptions();
+  private SolveParameters parameters = new SolveParameters();
+
+  /**
+   * @param input the instance that all scenarios change
+   * @param numWorkers the number of scenarios solved concurrently
+   */
+  public ScenarioSweep(final ProblemInput input, final int numWorkers) {
+    if (numWorkers < 1) {
+      throw new RuntimeException("Expecting at least one worker instead of " + numWorkers);
+    }
+    this.input = input;
+    this.numWorkers = numWorkers;
+  }
+
+  /** @param engine the engine solving each scenario (default: CBC) */
+  public void setEngine(SolverEngineProvider engine) {
+    this.engine = engine;
+  }
+
+  /** @param modelOptions the options for building the model of each scenario */
+  public void setModelOptions(ModelOptions modelOptions) {
+    this.modelOptions = modelOptions;
+  }
+
+  /** @param parameters the time limit, gap targets and number of threads of each solve */
+  public void setParameters(SolveParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  /** @see #solve(int, IntFunction) */
+  public ScenarioSummary solve(List<InstanceDelta> scenarios) throws InterruptedException {
+    return solve(scenarios.size(), scenarios::get);
+  }
+
+  /**
+   * Solves the scenarios concurrently. A failing scenario does not stop the sweep, but gets the
+   * status {@link SolveStatus#ERROR}.
+   *
+   * @param numScenarios the number of scenarios
+   * @param scenarios creates the delta of each scenario, when a worker takes it; called
+   *     concurrently
+   * @return the statistics of the scenarios
+   */
+  public ScenarioSummary solve(int numScenarios, IntFunction<InstanceDelta> scenarios)
+      throws InterruptedException {
+    final long start = System.currentTimeMillis();
+    ScenarioSummary summary =
+        new ScenarioSummary(numScenarios, input.getNumFacilities(), input.getNumClients());
+    ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+    try {
+      List<Future<?>> futures = new ArrayList<>(numScenarios);
+      for (int scenario = 0; scenario < numScenarios; scenario++) {
+        final int number = scenario;
+        futures.add(workers.submit(() -> solveScenario(number, scenarios, summary)));
+      }
+      for (int scenario = 0; scenario < numScenarios; scenario++) {
+        try {
+          futures.get(scenario).get();
+        } catch (ExecutionException e) {
+          LOG.error("Failed to solve scenario " + scenario, e.getCause());
+          summary.add(scenario, SolveStatus.ERROR, null);
+        }
+      }
+      LOG.info(
+          "Solved "
+              + summary.getNumSolved()
+              + " of "
+              + numScenarios
+              + " scenarios with "
+              + numWorkers
+              + " workers in "
+              + (System.currentTimeMillis() - start)
+              + " ms.");
+      return summary;
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  private void solveScenario(
+      int scenario, IntFunction<InstanceDelta> scenarios, ScenarioSummary summary) {
+    try {
+      ProblemInput scenarioInput = scenarios.apply(scenario).applyTo(input);
+      ModelOptions options = modelOptions.copy();
+      options.setMetrics(null); // the scenarios are not measured as one solve
+      try (SolverEngine solver = engine.create(scenarioInput, options)) {
+        SolveResult result = solver.solve(parameters.copy(), null);
+        LOG.debug("Scenario " + scenario + ": " + result);
+        summary.add(scenario, result.getStatus(), result.getSolution());
+      }
+    } catch (RuntimeException e) {
+      // e.g. a heuristic finding no solution of a scenario with too little capacity
+      LOG.warn("Failed to solve scenario " + scenario + ": " + e.getMessage());
+      summary.add(scenario, SolveStatus.ERROR, null);
+    }
+  }
+}
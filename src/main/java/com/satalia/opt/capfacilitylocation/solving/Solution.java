@@ -2,61 +2,250 @@ package com.satalia.opt.capfacilitylocation.solving;
 
 import com.satalia.opt.capfacilitylocation.input.Client;
 import com.satalia.opt.capfacilitylocation.input.Facility;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
- * Stores the solution of the uncapacitated facility location problem
+ * Stores the solution of the capacitated facility location problem by facility and client index:
+ * the facility serving each client, the set of opened facilities and the load of each facility.
+ * The objective value and the loads are computed once, so the objective and load changes of
+ * reassigning a client can be evaluated in constant time.
  *
  * @author Andrea Rendl-Pitrey
  */
 public class Solution {
 
-  /** the set of facilities that will be opened */
-  private final List<Facility> openedFacilities;
-  /** mapping each client to the facility it will be served with */
-  private final Map<Client, Facility> facilityServingClient;
+  /** the relative amount by which a load may exceed the capacity in a feasible solution */
+  private static final double LOAD_TOLERANCE = 1e-9;
+
+  /** the facility serving each client, or -1 if the client is not served */
+  private final int[] facilityOfClient;
+  /** the facilities that are opened */
+  private final BitSet openedFacilities;
+  /** the demand served by each facility */
+  private final double[] load;
+  /** the number of clients served by each facility */
+  private final int[] numServed;
+  /** the problem input */
+  private final ProblemInput input;
   /** the objective value */
   private final double objectiveValue;
 
+  /**
+   * @param input the problem input
+   * @param facilityOfClient the facility serving each client, or -1 if the client is not served;
+   *     not copied
+   * @param openedFacilities the opened facilities, which may include facilities that serve no
+   *     client; not copied
+   */
   Solution(
-      final List<Facility> openedFacilities, final Map<Client, Facility> facilityServingClient) {
+      final ProblemInput input, final int[] facilityOfClient, final BitSet openedFacilities) {
+    if (facilityOfClient.length != input.getNumClients()) {
+      throw new RuntimeException(
+          "Expecting a facility for each of the "
+              + input.getNumClients()
+              + " clients instead of "
+              + facilityOfClient.length);
+    }
+    this.input = input;
+    this.facilityOfClient = facilityOfClient;
     this.openedFacilities = openedFacilities;
-    this.facilityServingClient = facilityServingClient;
+    this.load = new double[input.getNumFacilities()];
+    this.numServed = new int[input.getNumFacilities()];
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      final int facility = facilityOfClient[client];
+      if (facility >= 0) {
+        load[facility] += input.getDemand(client);
+        numServed[facility]++;
+      }
+    }
     this.objectiveValue = calculateObjectiveValue();
   }
 
-  private double calculateObjectiveValue() {
-    double objective =
-        openedFacilities.stream()
-            .mapToDouble(facility -> facility.getBuildingCost().getCost())
-            .sum();
-    objective +=
-        facilityServingClient.entrySet().stream()
-            .mapToDouble(e -> e.getValue().getCostToMeetDemand(e.getKey()).getCost())
-            .sum();
+  /**
+   * Creates the solution in which each client is served by the given facility. Exactly the
+   * facilities that serve at least one client are opened.
+   *
+   * @param input the problem input
+   * @param facilityOfClient the number of the facility serving each client
+   * @return the solution
+   */
+  static Solution fromAssignment(final ProblemInput input, final int[] facilityOfClient) {
+    BitSet opened = new BitSet(input.getNumFacilities());
+    for (int facility : facilityOfClient) {
+      opened.set(facility);
+    }
+    return new Solution(input, facilityOfClient.clone(), opened);
+  }
+
+  public ProblemInput getInput() {
+    return input;
+  }
+
+  public double getObjectiveValue() {
+    return objectiveValue;
+  }
+
+  /** @return the opened facilities, in index order; created on each call */
+  public List<Facility> getOpenedFacilities() {
+    List<Facility> facilities = new ArrayList<>(openedFacilities.cardinality());
+    for (int facility = openedFacilities.nextSetBit(0);
+        facility >= 0;
+        facility = openedFacilities.nextSetBit(facility + 1)) {
+      facilities.add(input.getFacility(facility));
+    }
+    return Collections.unmodifiableList(facilities);
+  }
+
+  /**
+   * @param client the client
+   * @return the facility serving the client, or null if the client is not served
+   */
+  public Facility getFacilityServing(final Client client) {
+    final int facility = facilityOfClient[client.getIndex()];
+    return facility < 0 ? null : input.getFacility(facility);
+  }
+
+  /** @return the number of the facility serving the client, or -1 if the client is not served */
+  public int getFacilityOfClient(int client) {
+    return facilityOfClient[client];
+  }
+
+  /** @return a copy of the number of the facility serving each client, -1 if not served */
+  public int[] getAssignment() {
+    return facilityOfClient.clone();
+  }
+
+  public boolean isOpened(int facility) {
+    return openedFacilities.get(facility);
+  }
+
+  public int getNumOpenedFacilities() {
+    return openedFacilities.cardinality();
+  }
+
+  /** @return the total demand of the clients served by the facility */
+  public double getLoad(int facility) {
+    return load[facility];
+  }
+
+  /**
+   * The change of the objective value if the client was served by the given facility instead,
+   * including opening the facility and closing the client's facility if it serves no other client.
+   *
+   * @param client the number of the client
+   * @param facility the number of the facility
+   * @return the change of the objective value, in constant time
+   */
+  public double reassignDelta(int client, int facility) {
+    final int current = facilityOfClient[client];
+    if (current == facility) {
+      return 0;
+    }
+    double delta = input.getCostToMeetDemand(facility, client);
+    if (!openedFacilities.get(facility)) {
+      delta += input.getBuildingCost(facility);
+    }
+    if (current >= 0) {
+      delta -= input.getCostToMeetDemand(current, client);
+      if (numServed[current] == 1) {
+        delta -= input.getBuildingCost(current);
+      }
+    }
+    return delta;
+  }
+
+  /**
+   * @param client the number of the client
+   * @param facility the number of the facility
+   * @return the load of the facility if the client was served by it instead, in constant time
+   */
+  public double loadAfterReassign(int client, int facility) {
+    return facilityOfClient[client] == facility
+        ? load[facility]
+        : load[facility] + input.getDemand(client);
+  }
+
+  /**
+   * @param client the number of the client
+   * @param facility the number of the facility
+   * @return true if the facility has enough remaining capacity for the client
+   */
+  public boolean canReassign(int client, int facility) {
+    return loadAfterReassign(client, facility) <= input.getCapacity(facility);
+  }
+
+  /** @return true if every client is served by an opened facility within its capacity */
+  public boolean isFeasible() {
+    return findViolation() == null;
+  }
+
+  /**
+   * Checks the feasibility of the solution in O(C + F).
+   *
+   * @return a description of the first violated constraint, or null if the solution is feasible
+   */
+  public String findViolation() {
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      final int facility = facilityOfClient[client];
+      if (facility < 0) {
+        return "client " + client + " is not served";
+      }
+      if (!openedFacilities.get(facility)) {
+        return "client " + client + " is served by closed facility " + facility;
+      }
+    }
+    for (int facility = 0; facility < load.length; facility++) {
+      // tolerate the rounding errors of summing the demands
+      if (load[facility] > input.getCapacity(facility) * (1 + LOAD_TOLERANCE)) {
+        return "facility "
+            + facility
+            + " serves "
+            + load[facility]
+            + " demand with capacity "
+            + input.getCapacity(facility);
+      }
+    }
+    return null;
+  }
+
+  double calculateObjectiveValue() {
+    double objective = 0;
+    for (int facility = openedFacilities.nextSetBit(0);
+        facility >= 0;
+        facility = openedFacilities.nextSetBit(facility + 1)) {
+      objective += input.getBuildingCost(facility);
+    }
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      if (facilityOfClient[client] >= 0) {
+        objective += input.getCostToMeetDemand(facilityOfClient[client], client);
+      }
+    }
     return objective;
   }
 
   @Override
   public String toString() {
-    StringBuffer sb = new StringBuffer();
+    StringBuilder sb = new StringBuilder();
     sb.append("SOLUTION\nOpened Facilities:\n");
-    openedFacilities.forEach(
-        f -> {
-          sb.append(f);
-          sb.append("\n");
-        });
+    for (int facility = openedFacilities.nextSetBit(0);
+        facility >= 0;
+        facility = openedFacilities.nextSetBit(facility + 1)) {
+      sb.append(input.getFacility(facility));
+      sb.append("\n");
+    }
     sb.append("\nClients served by:\n");
-    facilityServingClient
-        .keySet()
-        .forEach(
-            client -> {
-              sb.append(client);
-              sb.append(" --> ");
-              sb.append(facilityServingClient.get(client));
-              sb.append("\n");
-            });
+    for (int client = 0; client < facilityOfClient.length; client++) {
+      if (facilityOfClient[client] >= 0) {
+        sb.append(input.getClient(client));
+        sb.append(" --> ");
+        sb.append(input.getFacility(facilityOfClient[client]));
+        sb.append("\n");
+      }
+    }
     sb.append("Objective: ");
     sb.append(objectiveValue);
     sb.append("\n");
@@ -0,0 +1,106 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import java.util.Arrays;
+
+/**
+ * The difference between two solutions of instances with the same facilities and clients, e.g.
+ * before and after a change of the instance: the facilities that are opened and closed, the
+ * clients that are served by another facility, and the change of the objective value.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class SolutionDiff {
+
+  private final Solution before;
+  private final Solution after;
+  private final int[] openedFacilities;
+  private final int[] closedFacilities;
+  private final int[] reassignedClients;
+
+  public SolutionDiff(final Solution before, final Solution after) {
+    final int numFacilities = before.getInput().getNumFacilities();
+    final int numClients = before.getInput().getNumClients();
+    if (after.getInput().getNumFacilities() != numFacilities
+        || after.getInput().getNumClients() != numClients) {
+      throw new RuntimeException(
+          "Cannot compare solutions of instances with different facilities or clients.");
+    }
+    this.before = before;
+    this.after = after;
+    int[] opened = new int[numFacilities];
+    int[] closed = new int[numFacilities];
+    int numOpened = 0;
+    int numClosed = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      if (after.isOpened(facility) && !before.isOpened(facility)) {
+        opened[numOpened++] = facility;
+      } else if (before.isOpened(facility) && !after.isOpened(facility)) {
+        closed[numClosed++] = facility;
+      }
+    }
+    int[] reassigned = new int[numClients];
+    int numReassigned = 0;
+    for (int client = 0; client < numClients; client++) {
+      if (before.getFacilityOfClient(client) != after.getFacilityOfClient(client)) {
+        reassigned[numReassigned++] = client;
+      }
+    }
+    this.openedFacilities = Arrays.copyOf(opened, numOpened);
+    this.closedFacilities = Arrays.copyOf(closed, numClosed);
+    this.reassignedClients = Arrays.copyOf(reassigned, numReassigned);
+  }
+
+  public Solution getBefore() {
+    return before;
+  }
+
+  public Solution getAfter() {
+    return after;
+  }
+
+  /** @return the facilities opened after but not before, in increasing order */
+  public int[] getOpenedFacilities() {
+    return openedFacilities.clone();
+  }
+
+  /** @return the facilities opened before but not after, in increasing order */
+  public int[] getClosedFacilities() {
+    return closedFacilities.clone();
+  }
+
+  /** @return the clients served by a different facility after, in increasing order */
+  public int[] getReassignedClients() {
+    return reassignedClients.clone();
+  }
+
+  /** @return the objective value after minus the objective value before */
+  public double getObjectiveChange() {
+    return after.getObjectiveValue() - before.getObjectiveValue();
+  }
+
+  /** @return true if both solutions open the same facilities and serve clients alike */
+  public boolean isEmpty() {
+    return openedFacilities.length == 0
+        && closedFacilities.length == 0
+        && reassignedClients.length == 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Objective change: ").append(getObjectiveChange()).append('\n');
+    sb.append("Opened facilities: ").append(Arrays.toString(openedFacilities)).append('\n');
+    sb.append("Closed facilities: ").append(Arrays.toString(closedFacilities)).append('\n');
+    sb.append("Reassigned clients:\n");
+    for (int client : reassignedClients) {
+      sb.append("client ")
+          .append(client)
+          .append(": facility ")
+          .append(before.getFacilityOfClient(client))
+          .append(" --> ")
+          .append(after.getFacilityOfClient(client))
+          .append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,101 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * Limits and targets of a solve: the solver stops at the time limit, or as soon as the gap between
+ * its best solution and its bound reaches the relative or the absolute gap target.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class SolveParameters {
+
+  /** the default relative gap target of or-tools */
+  public static final double DEFAULT_RELATIVE_GAP = 1e-4;
+
+  private long timeLimitMillis = 0;
+  private double relativeGap = DEFAULT_RELATIVE_GAP;
+  private double absoluteGap = 0;
+  private int numThreads = 1;
+  private long seed = 0;
+
+  /** @return the wall-clock time limit in milliseconds, 0 if there is none */
+  public long getTimeLimitMillis() {
+    return timeLimitMillis;
+  }
+
+  /** @param timeLimitMillis the wall-clock time limit in milliseconds, 0 for none */
+  public void setTimeLimitMillis(long timeLimitMillis) {
+    if (timeLimitMillis < 0) {
+      throw new RuntimeException("Time limit cannot be negative: " + timeLimitMillis);
+    }
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  public double getRelativeGap() {
+    return relativeGap;
+  }
+
+  /** @param relativeGap stop when (objective - bound) / objective is at most this value */
+  public void setRelativeGap(double relativeGap) {
+    if (relativeGap < 0) {
+      throw new RuntimeException("Relative gap cannot be negative: " + relativeGap);
+    }
+    this.relativeGap = relativeGap;
+  }
+
+  public double getAbsoluteGap() {
+    return absoluteGap;
+  }
+
+  /** @param absoluteGap stop when objective - bound is at most this value */
+  public void setAbsoluteGap(double absoluteGap) {
+    if (absoluteGap < 0) {
+      throw new RuntimeException("Absolute gap cannot be negative: " + absoluteGap);
+    }
+    this.absoluteGap = absoluteGap;
+  }
+
+  public int getNumThreads() {
+    return numThreads;
+  }
+
+  public void setNumThreads(int numThreads) {
+    if (numThreads < 1) {
+      throw new RuntimeException("Expecting at least one thread instead of " + numThreads);
+    }
+    this.numThreads = numThreads;
+  }
+
+  /** @return the seed of the solver's random choices */
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** @return a copy of these parameters */
+  public SolveParameters copy() {
+    SolveParameters copy = new SolveParameters();
+    copy.timeLimitMillis = timeLimitMillis;
+    copy.relativeGap = relativeGap;
+    copy.absoluteGap = absoluteGap;
+    copy.numThreads = numThreads;
+    copy.seed = seed;
+    return copy;
+  }
+
+  @Override
+  public String toString() {
+    return "time limit: "
+        + (timeLimitMillis > 0 ? timeLimitMillis + " ms" : "none")
+        + ", relative gap: "
+        + relativeGap
+        + ", absolute gap: "
+        + absoluteGap
+        + ", threads: "
+        + numThreads
+        + ", seed: "
+        + seed;
+  }
+}
@@ -0,0 +1,88 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+
+/**
+ * The result of a solve with {@link SolveParameters}: the status, the best solution found (if
+ * any), and the best lower bound on the optimal objective value.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class SolveResult {
+
+  private final SolveStatus status;
+  /** the best solution found, or null if there is none */
+  private final Solution solution;
+  private final double bound;
+  private final long elapsedMillis;
+
+  SolveResult(
+      final SolveStatus status,
+      final Solution solution,
+      final double bound,
+      final long elapsedMillis) {
+    this.status = status;
+    this.solution = solution;
+    this.bound = bound;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public SolveStatus getStatus() {
+    return status;
+  }
+
+  public Solution getSolution() {
+    return solution;
+  }
+
+  /** @return the objective value of the best solution, or infinity if there is none */
+  public double getObjectiveValue() {
+    return solution == null ? Double.POSITIVE_INFINITY : solution.getObjectiveValue();
+  }
+
+  /** @return the best lower bound, or negative infinity if none is known */
+  public double getBound() {
+    return bound;
+  }
+
+  /** @return the relative optimality gap (objective - bound) / objective */
+  public double getGap() {
+    if (solution == null || bound == Double.NEGATIVE_INFINITY) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double objective = getObjectiveValue();
+    return objective == 0 ? 0 : Math.max(0, objective - bound) / Math.abs(objective);
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Records the status, objective value, bound and gap as statistics of the solve, replacing those
+   * of an earlier result, e.g. of the reduced instance before postsolve.
+   */
+  public void recordTo(SolveMetrics metrics) {
+    if (solution != null) {
+      metrics.incumbent(getObjectiveValue(), bound);
+    }
+    metrics.setStatistic("status", status.toString());
+    metrics.setStatistic("objective", getObjectiveValue());
+    metrics.setStatistic("bound", bound);
+    metrics.setStatistic("gap", getGap());
+  }
+
+  @Override
+  public String toString() {
+    return status
+        + ": objective "
+        + getObjectiveValue()
+        + ", bound "
+        + bound
+        + ", gap "
+        + String.format("%.4f%%", 100 * getGap())
+        + " in "
+        + elapsedMillis
+        + " ms";
+  }
+}
@@ -0,0 +1,23 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * The outcome of a solve.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public enum SolveStatus {
+  /** the solution is optimal within the gap targets */
+  OPTIMAL,
+  /** a solution was found, but the solver stopped before proving it optimal */
+  FEASIBLE,
+  /** the problem has no solution */
+  INFEASIBLE,
+  /** the solver stopped before finding a solution */
+  NO_SOLUTION_FOUND,
+  /** the solver failed, for instance because the model is invalid */
+  ERROR;
+
+  public boolean hasSolution() {
+    return this == OPTIMAL || this == FEASIBLE;
+  }
+}
@@ -0,0 +1,34 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * A solver created for one problem input, e.g. the {@link CbcSolver} or the {@link
+ * LocalSearchSolver}. Engines are created by their {@link SolverEngineProvider}, so that the
+ * solver can be chosen by name and engines can be raced by the {@link PortfolioSolver}.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public interface SolverEngine extends AutoCloseable {
+
+  /** @param solution a solution to start from, which engines may use as a hint or ignore */
+  void setWarmStart(Solution solution);
+
+  /**
+   * Solves the problem within the limits of the parameters and returns the best solution found
+   * with its status and bound.
+   *
+   * @param parameters the time limit, gap targets, number of threads and seed
+   * @param listener notified of each better solution, may be null
+   * @return the best solution found, its status and the best bound
+   */
+  SolveResult solve(SolveParameters parameters, IncumbentListener listener);
+
+  /**
+   * Asks a running solve, on another thread, to stop as soon as possible and return its best
+   * solution. Engines that cannot be interrupted ignore it and stop at their time limit.
+   */
+  default void cancel() {}
+
+  /** Releases the resources of the engine; it cannot be used afterwards. */
+  @Override
+  void close();
+}
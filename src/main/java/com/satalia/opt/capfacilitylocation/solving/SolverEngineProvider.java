@@ -0,0 +1,30 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+
+/**
+ * Creates the {@link SolverEngine}s of one kind. Providers are discovered with the {@link
+ * java.util.ServiceLoader}, so engines in other jars are found if they list their provider in
+ * {@code META-INF/services/com.satalia.opt.capfacilitylocation.solving.SolverEngineProvider}. See
+ * {@link SolverEngines}.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public interface SolverEngineProvider {
+
+  /** @return the unique name of the engine, e.g. "cbc" */
+  String getName();
+
+  /**
+   * @return true if engines can be created on this host, e.g. false if a native library is
+   *     missing; must not throw
+   */
+  boolean isAvailable();
+
+  /**
+   * @param input the problem input
+   * @param modelOptions the options of engines that build a MIP model, ignored by others
+   * @return a new engine for the input
+   */
+  SolverEngine create(ProblemInput input, ModelOptions modelOptions);
+}
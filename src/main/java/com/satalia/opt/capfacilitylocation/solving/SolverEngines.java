@@ -0,0 +1,47 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the {@link SolverEngineProvider}s on the class path.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public final class SolverEngines {
+
+  private SolverEngines() {}
+
+  /** @return all providers on the class path, whether their engines are available or not */
+  public static List<SolverEngineProvider> providers() {
+    List<SolverEngineProvider> providers = new ArrayList<>();
+    for (SolverEngineProvider provider : ServiceLoader.load(SolverEngineProvider.class)) {
+      providers.add(provider);
+    }
+    return providers;
+  }
+
+  /**
+   * @param name the name of the engine
+   * @return the provider of the engine
+   * @throws RuntimeException if there is no such engine or it is not available on this host
+   */
+  public static SolverEngineProvider find(String name) {
+    List<SolverEngineProvider> providers = providers();
+    for (SolverEngineProvider provider : providers) {
+      if (provider.getName().equals(name)) {
+        if (!provider.isAvailable()) {
+          throw new RuntimeException("Solver engine " + name + " is not available on this host.");
+        }
+        return provider;
+      }
+    }
+    throw new RuntimeException(
+        "Unknown solver engine "
+            + name
+            + ", expecting one of "
+            + providers.stream().map(SolverEngineProvider::getName).collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,41 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+/**
+ * The result of a solve of a {@link WhatIfSession}: the result of the changed instance and its
+ * difference from the previous solution of the session.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class WhatIfResult {
+
+  private final SolveResult result;
+  /** the change from the previous solution, null if there is no previous or no new solution */
+  private final SolutionDiff diff;
+
+  WhatIfResult(final SolveResult result, final SolutionDiff diff) {
+    this.result = result;
+    this.diff = diff;
+  }
+
+  public SolveResult getResult() {
+    return result;
+  }
+
+  /** @return the best solution found, or null if there is none */
+  public Solution getSolution() {
+    return result.getSolution();
+  }
+
+  /**
+   * @return the change from the previous solution of the session, or null for the first solve or
+   *     if no solution was found
+   */
+  public SolutionDiff getDiff() {
+    return diff;
+  }
+
+  @Override
+  public String toString() {
+    return diff == null ? result.toString() : result + "\n" + diff;
+  }
+}
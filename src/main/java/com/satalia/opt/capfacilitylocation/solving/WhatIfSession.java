@@ -0,0 +1,168 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Answers what-if questions about one instance on one live model: demands, capacities, building
+ * costs and costs to meet demand are changed and facilities are forced open or closed in place in
+ * the {@link CbcSolver} model, instead of building a new model for each question. Each solve is
+ * warm started with the previous solution, if it is still feasible, and reports what changed.
+ *
+ * <p>Changes accumulate: each solve answers for the original instance with all changes made so
+ * far. The model has a column for every facility and client and no sparse pricing or cuts, since
+ * those depend on the data that is changed.
+ *
+ * @author Andrea Rendl-Pitrey
+ */
+public class WhatIfSession implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WhatIfSession.class);
+
+  private final ProblemInput originalInput;
+  private final CbcSolver solver;
+  /** all changes of the original input */
+  private final InstanceDelta delta = new InstanceDelta();
+  /** the original input with all changes, null if it must be created again */
+  private ProblemInput input;
+  private SolveParameters parameters = new SolveParameters();
+  /** the last solution found, null before the first */
+  private Solution solution;
+
+  public WhatIfSession(ProblemInput input) {
+    this(input, new ModelOptions());
+  }
+
+  /**
+   * Builds the model of the instance.
+   *
+   * @param input the original instance
+   * @param modelOptions the options for building the model, without candidates and cuts
+   */
+  public WhatIfSession(ProblemInput input, ModelOptions modelOptions) {
+    this.originalInput = input;
+    this.input = input;
+    this.solver = new CbcSolver(input, modelOptions, true);
+  }
+
+  /** @param parameters the limits and gap targets of each solve */
+  public void setParameters(SolveParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  /**
+   * Changes the demand of the client. The cost to meet its demand stays the same unless it is
+   * changed with {@link #setCost(int, int, double)}.
+   */
+  public void setDemand(int client, double demand) {
+    checkClient(client);
+    delta.setDemand(client, demand);
+    solver.setDemand(client, demand);
+    input = null;
+  }
+
+  public void setCapacity(int facility, double capacity) {
+    checkFacility(facility);
+    delta.setCapacity(facility, capacity);
+    solver.setCapacity(facility, capacity);
+    input = null;
+  }
+
+  public void setBuildingCost(int facility, double buildingCost) {
+    checkFacility(facility);
+    delta.setBuildingCost(facility, buildingCost);
+    solver.setBuildingCost(facility, buildingCost);
+    input = null;
+  }
+
+  /** Changes the cost to meet the demand of the client by the facility. */
+  public void setCost(int facility, int client, double cost) {
+    checkFacility(facility);
+    checkClient(client);
+    delta.setCost(facility, client, cost);
+    solver.setCost(facility, client, cost);
+    input = null;
+  }
+
+  /** Forces the facility to be opened, even if it serves no client. */
+  public void forceOpen(int facility) {
+    checkFacility(facility);
+    solver.fixFacility(facility, CandidatePricer.OPENED);
+  }
+
+  /** Forces the facility to be closed. */
+  public void forceClosed(int facility) {
+    checkFacility(facility);
+    solver.fixFacility(facility, CandidatePricer.CLOSED);
+  }
+
+  /** Lets the solver decide again whether to open the facility. */
+  public void release(int facility) {
+    checkFacility(facility);
+    solver.fixFacility(facility, CandidatePricer.FREE);
+  }
+
+  /** @return the original instance with all changes made so far */
+  public ProblemInput getInput() {
+    if (input == null) {
+      input = delta.applyTo(originalInput);
+    }
+    return input;
+  }
+
+  /** @return the last solution found, or null if none was found yet */
+  public Solution getSolution() {
+    return solution;
+  }
+
+  /**
+   * Solves the changed instance, warm started with the last solution found.
+   *
+   * @return the result and its difference from the last solution
+   */
+  public WhatIfResult solve() {
+    solver.setInput(getInput());
+    if (solution != null) {
+      solver.setWarmStart(solution.getAssignment());
+    }
+    SolveResult result = solver.solve(parameters);
+    SolutionDiff diff = null;
+    if (result.getSolution() != null) {
+      if (solution != null) {
+        diff = new SolutionDiff(solution, result.getSolution());
+        LOG.info(
+            "What-if solve changed the objective by "
+                + diff.getObjectiveChange()
+                + ", opened "
+                + diff.getOpenedFacilities().length
+                + " and closed "
+                + diff.getClosedFacilities().length
+                + " facilities and reassigned "
+                + diff.getReassignedClients().length
+                + " clients.");
+      }
+      solution = result.getSolution();
+    }
+    return new WhatIfResult(result, diff);
+  }
+
+  /** Releases the native memory of the model; the session cannot be used afterwards. */
+  @Override
+  public void close() {
+    solver.close();
+  }
+
+  private void checkClient(int client) {
+    if (client < 0 || client >= originalInput.getNumClients()) {
+      throw new RuntimeException("Cannot find client, invalid client number: " + client);
+    }
+  }
+
+  private void checkFacility(int facility) {
+    if (facility < 0 || facility >= originalInput.getNumFacilities()) {
+      throw new RuntimeException("Cannot find facility, invalid facility number: " + facility);
+    }
+  }
+}
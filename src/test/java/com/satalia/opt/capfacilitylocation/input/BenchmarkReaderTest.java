@@ -0,0 +1,89 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BenchmarkReaderTest {
+
+  private static final String CAP61 = "src/main/resources/beasley/cap61";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readBeasleyBenchmark() throws IOException {
+    ProblemInput input = new BenchmarkReader(CAP61).readBeasleyBenchmark();
+
+    assertEquals(16, input.getNumFacilities());
+    assertEquals(50, input.getNumClients());
+    assertEquals(15000, input.getCapacity(15), 0);
+    assertEquals(7500, input.getBuildingCost(15), 0);
+    assertEquals(146, input.getDemand(0), 0);
+    assertEquals(6739.725, input.getCostToMeetDemand(0, 0), 0);
+    assertEquals(5457.075, input.getCostToMeetDemand(1, 1), 0);
+  }
+
+  @Test
+  public void readBeasleyBenchmark_whenRowsWrapAndChunksAreSmall() throws IOException {
+    // rewrite cap61 with three numbers per line and repeated whitespace
+    String[] numbers =
+        new String(Files.readAllBytes(Paths.get(CAP61)), StandardCharsets.US_ASCII)
+            .trim()
+            .split("\\s+");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < numbers.length; i++) {
+      sb.append(numbers[i]).append(i % 3 == 2 ? " \r\n" : "  \t");
+    }
+    File wrapped = folder.newFile("cap61-wrapped");
+    Files.write(wrapped.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+    ProblemInput expected = new BenchmarkReader(CAP61).readBeasleyBenchmark();
+    ProblemInput actual = new BenchmarkReader(wrapped.getPath(), false, 7).readBeasleyBenchmark();
+
+    for (int facility = 0; facility < expected.getNumFacilities(); facility++) {
+      for (int client = 0; client < expected.getNumClients(); client++) {
+        assertEquals(
+            expected.getCostToMeetDemand(facility, client),
+            actual.getCostToMeetDemand(facility, client),
+            0);
+      }
+    }
+  }
+
+  @Test
+  public void readBeasleyBenchmark_withSinglePrecisionCosts() throws IOException {
+    ProblemInput input = new BenchmarkReader(CAP61, true).readBeasleyBenchmark();
+
+    assertEquals(6739.725, input.getCostToMeetDemand(0, 0), 1e-3);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void readBeasleyBenchmarkThrowsException_whenCostsAreMissing() throws IOException {
+    File file = folder.newFile("incomplete");
+    Files.write(file.toPath(), "2 2\n10 5\n10 5\n1 1\n1 2\n3\n".getBytes(StandardCharsets.US_ASCII));
+
+    new BenchmarkReader(file.getPath()).readBeasleyBenchmark();
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void readBeasleyBenchmarkThrowsException_whenCostIsNotANumber() throws IOException {
+    File file = folder.newFile("invalid");
+    Files.write(
+        file.toPath(), "1 2\n10 5\n1 1\n1 abc\n".getBytes(StandardCharsets.US_ASCII));
+
+    new BenchmarkReader(file.getPath()).readBeasleyBenchmark();
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void createReaderThrowsException_whenFileDoesNotExist() throws IOException {
+    new BenchmarkReader("does/not/exist");
+  }
+}
@@ -0,0 +1,80 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinaryInstanceTest {
+
+  private static final String CAP61 = "src/main/resources/beasley/cap61";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private void assertSameInput(ProblemInput expected, ProblemInput actual, double delta) {
+    assertEquals(expected.getNumFacilities(), actual.getNumFacilities());
+    assertEquals(expected.getNumClients(), actual.getNumClients());
+    for (int facility = 0; facility < expected.getNumFacilities(); facility++) {
+      assertEquals(expected.getCapacity(facility), actual.getCapacity(facility), 0);
+      assertEquals(expected.getBuildingCost(facility), actual.getBuildingCost(facility), 0);
+      for (int client = 0; client < expected.getNumClients(); client++) {
+        assertEquals(
+            expected.getCostToMeetDemand(facility, client),
+            actual.getCostToMeetDemand(facility, client),
+            delta);
+      }
+    }
+    for (int client = 0; client < expected.getNumClients(); client++) {
+      assertEquals(expected.getDemand(client), actual.getDemand(client), 0);
+    }
+  }
+
+  @Test
+  public void writeAndRead() throws IOException {
+    File binary = folder.newFile("cap61.bin");
+    ProblemInput expected = new BenchmarkReader(CAP61).readBeasleyBenchmark();
+
+    new BinaryInstanceWriter(binary.getPath()).write(expected);
+    ProblemInput actual = new BinaryInstanceReader(binary.getPath(), true).read();
+
+    assertSameInput(expected, actual, 0);
+  }
+
+  @Test
+  public void convertWithSinglePrecisionCosts() throws IOException {
+    File binary = folder.newFile("cap61.bin");
+
+    BinaryInstanceWriter.convert(CAP61, binary.getPath(), true);
+    ProblemInput actual = new BinaryInstanceReader(binary.getPath(), true).read();
+
+    assertSameInput(new BenchmarkReader(CAP61, true).readBeasleyBenchmark(), actual, 0);
+  }
+
+  @Test
+  public void instanceLoaderDetectsFormat() throws IOException {
+    File binary = folder.newFile("cap61.bin");
+    BinaryInstanceWriter.convert(CAP61, binary.getPath(), false);
+
+    assertTrue(BinaryInstanceReader.isBinaryInstance(binary.getPath()));
+    assertFalse(BinaryInstanceReader.isBinaryInstance(CAP61));
+    assertSameInput(InstanceLoader.load(CAP61), InstanceLoader.load(binary.getPath()), 0);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void readThrowsException_whenChecksumDoesNotMatch() throws IOException {
+    File binary = folder.newFile("cap61.bin");
+    BinaryInstanceWriter.convert(CAP61, binary.getPath(), false);
+    try (RandomAccessFile file = new RandomAccessFile(binary, "rw")) {
+      file.seek(file.length() - 1);
+      file.write(42);
+    }
+
+    new BinaryInstanceReader(binary.getPath(), true).read();
+  }
+}
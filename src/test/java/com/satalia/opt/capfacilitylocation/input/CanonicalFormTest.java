@@ -0,0 +1,90 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class CanonicalFormTest {
+
+  // 3 facilities, 4 clients
+  private static final double[] CAPACITIES = {100, 200, 300};
+  private static final double[] BUILDING_COSTS = {1000, 1000, 3000};
+  private static final double[] DEMANDS = {10, 20, 20, 40};
+  private static final double[][] COSTS = {
+    {1, 2, 3, 4},
+    {5, 6, 7, 8},
+    {9, 10, 11, 12}
+  };
+
+  /** @return the instance with facility f at position facilityOrder[f], clients likewise */
+  private static ProblemInput permuted(int[] facilityOrder, int[] clientOrder) {
+    double[] capacities = new double[CAPACITIES.length];
+    double[] buildingCosts = new double[CAPACITIES.length];
+    double[] demands = new double[DEMANDS.length];
+    double[] costs = new double[CAPACITIES.length * DEMANDS.length];
+    for (int facility = 0; facility < CAPACITIES.length; facility++) {
+      capacities[facilityOrder[facility]] = CAPACITIES[facility];
+      buildingCosts[facilityOrder[facility]] = BUILDING_COSTS[facility];
+      for (int client = 0; client < DEMANDS.length; client++) {
+        costs[facilityOrder[facility] * DEMANDS.length + clientOrder[client]] =
+            COSTS[facility][client];
+      }
+    }
+    for (int client = 0; client < DEMANDS.length; client++) {
+      demands[clientOrder[client]] = DEMANDS[client];
+    }
+    return new ProblemInput(
+        capacities,
+        buildingCosts,
+        demands,
+        new DenseCostMatrix(CAPACITIES.length, DEMANDS.length, costs));
+  }
+
+  @Test
+  public void permutedInstancesHaveTheSameHash() {
+    ProblemInput input = permuted(new int[] {0, 1, 2}, new int[] {0, 1, 2, 3});
+    ProblemInput other = permuted(new int[] {2, 0, 1}, new int[] {3, 1, 0, 2});
+    CanonicalForm form = CanonicalForm.of(input);
+    CanonicalForm otherForm = CanonicalForm.of(other);
+
+    assertEquals(64, form.getHash().length());
+    assertEquals(form.getHash(), otherForm.getHash());
+    // the same position stands for the same facility and client in both instances
+    for (int position = 0; position < 3; position++) {
+      assertEquals(
+          input.getCapacity(form.getFacility(position)),
+          other.getCapacity(otherForm.getFacility(position)),
+          0);
+      assertEquals(position, form.getFacilityPosition(form.getFacility(position)));
+    }
+    for (int position = 0; position < 4; position++) {
+      for (int facility = 0; facility < 3; facility++) {
+        assertEquals(
+            input.getCostToMeetDemand(form.getFacility(facility), form.getClient(position)),
+            other.getCostToMeetDemand(
+                otherForm.getFacility(facility), otherForm.getClient(position)),
+            0);
+      }
+      assertEquals(position, form.getClientPosition(form.getClient(position)));
+    }
+  }
+
+  @Test
+  public void changedInstancesHaveOtherHashes() {
+    ProblemInput input = permuted(new int[] {0, 1, 2}, new int[] {0, 1, 2, 3});
+    final String hash = CanonicalForm.of(input).getHash();
+
+    InstanceDelta cost = new InstanceDelta();
+    cost.setCost(1, 2, 7.5);
+    assertFalse(hash.equals(CanonicalForm.of(cost.applyTo(input)).getHash()));
+    InstanceDelta demand = new InstanceDelta();
+    demand.setDemand(0, 11);
+    assertFalse(hash.equals(CanonicalForm.of(demand.applyTo(input)).getHash()));
+    // swapping two costs keeps all multisets of costs, but not the instance
+    InstanceDelta swap = new InstanceDelta();
+    swap.setCost(0, 0, 2);
+    swap.setCost(0, 1, 1);
+    assertFalse(hash.equals(CanonicalForm.of(swap.applyTo(input)).getHash()));
+  }
+}
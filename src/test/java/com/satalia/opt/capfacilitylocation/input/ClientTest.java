@@ -1,19 +1,43 @@
 package com.satalia.opt.capfacilitylocation.input;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import org.junit.Test;
 
 public class ClientTest {
 
+  private ProblemInput createProblemInput(double... demands) {
+    return new ProblemInput(
+        new double[] {1000},
+        new double[] {8000},
+        demands,
+        new DenseCostMatrix(1, demands.length, new double[demands.length]));
+  }
+
   @Test
   public void getDemand() {
     double demand = 1000;
-    String id = "client-1";
+    ProblemInput input = createProblemInput(500, demand);
 
-    Client client = new Client(demand, id);
+    Client client = input.getClient(1);
 
     assertEquals(demand, client.getDemand(), 0);
   }
 
+  @Test
+  public void equalsAndHashCode_whenSameClientNumber() {
+    ProblemInput input = createProblemInput(500, 1000);
+
+    assertEquals(input.getClient(1), input.getClient(1));
+    assertEquals(input.getClient(1).hashCode(), input.getClient(1).hashCode());
+    assertFalse(input.getClient(0).equals(input.getClient(1)));
+  }
+
+  @Test
+  public void toStringIsClientId() {
+    ProblemInput input = createProblemInput(500, 1000);
+
+    assertEquals("client-1", input.getClient(0).toString());
+  }
 }
@@ -1,86 +1,66 @@
 package com.satalia.opt.capfacilitylocation.input;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.when;
 
-import java.util.HashMap;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mockito;
 
 public class FacilityTest {
 
-  private Client clientA;
-  private Client clientB;
-  private Cost costA ;
-  private Cost costB;
-  private HashMap<Client,Cost> costToMeetDemand;
+  private ProblemInput input;
 
   @Before
-  public void setup(){
-    clientA = Mockito.mock(Client.class);
-    clientB = Mockito.mock(Client.class);
-    costA = Mockito.mock(Cost.class);
-    costB = Mockito.mock(Cost.class);
-    costToMeetDemand = new HashMap<>();
-    costToMeetDemand.put(clientA, costA);
-    costToMeetDemand.put(clientB, costB);
+  public void setup() {
+    // 2 facilities, 2 clients
+    input =
+        new ProblemInput(
+            new double[] {1000, 2000},
+            new double[] {8000, 9000},
+            new double[] {10, 20},
+            new DenseCostMatrix(2, 2, new double[] {1, 2, 3, 4}));
   }
 
   @Test
   public void getCapacity() {
-    String id = "1";
-    double capacity = 1000;
-    Cost buildingCost = Mockito.mock(Cost.class);
-    when(buildingCost.isGreaterOrEqualZero()).thenReturn(true);
-    Facility facility = new Facility(capacity, buildingCost, costToMeetDemand, id);
+    Facility facility = input.getFacility(1);
 
     double returnedCapacity = facility.getCapacity();
 
-    assertEquals(capacity, returnedCapacity, 0);
+    assertEquals(2000, returnedCapacity, 0);
   }
 
   @Test
   public void getBuildingCost() {
-    String id = "1";
-    double capacity = 1000;
-    double expectedCost = 8000;
-    Cost buildingCost = new Cost(expectedCost);
-    Facility facility = new Facility(capacity, buildingCost, costToMeetDemand, id);
+    Facility facility = input.getFacility(0);
 
-    Cost returnedBuildingCost = facility.getBuildingCost();
+    double returnedBuildingCost = facility.getBuildingCost();
 
-    assertEquals(expectedCost, returnedBuildingCost.getCost(), 0);
+    assertEquals(8000, returnedBuildingCost, 0);
   }
 
   @Test(expected = RuntimeException.class)
   public void createFacilityThrowsException_whenCapacityIsSmallerThanZero() {
-    String id = "1";
-    double capacity = -1;
-    Cost buildingCost = Mockito.mock(Cost.class);
-    when(buildingCost.isGreaterOrEqualZero()).thenReturn(true);
-
-    new Facility(capacity, buildingCost, costToMeetDemand, id);
+    new ProblemInput(
+        new double[] {-1},
+        new double[] {8000},
+        new double[] {10},
+        new DenseCostMatrix(1, 1, new double[] {1}));
   }
 
   @Test(expected = RuntimeException.class)
   public void createFacilityThrowsException_whenBuildingCostIsSmallerThanZero() {
-    String id = "1";
-    double capacity = 1000;
-    Cost buildingCost = Mockito.mock(Cost.class);
-    when(buildingCost.isGreaterOrEqualZero()).thenReturn(false);
-
-    new Facility(capacity, buildingCost, costToMeetDemand, id);
+    new ProblemInput(
+        new double[] {1000},
+        new double[] {-1},
+        new double[] {10},
+        new DenseCostMatrix(1, 1, new double[] {1}));
   }
 
   @Test
   public void getCostForClient() {
-    String id = "1";
-    double capacity = 1000;
-    double expectedCost = 8000;
-    Cost buildingCost = new Cost(expectedCost);
-    Facility facility = new Facility(capacity, buildingCost, costToMeetDemand, id);
+    Facility facility = input.getFacility(1);
+    Client client = input.getClient(0);
 
-    assertEquals(costA, facility.getCostToMeetDemand(clientA));
+    assertEquals(3, facility.getCostToMeetDemand(client), 0);
   }
 }
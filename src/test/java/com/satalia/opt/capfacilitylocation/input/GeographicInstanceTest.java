@@ -0,0 +1,108 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GeographicInstanceTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void costsMatchTheGeneratedFile() throws IOException {
+    File file = folder.newFile("instance");
+    new InstanceGenerator(20, 100, 3, 4).write(file.getPath());
+    ProblemInput written = new BenchmarkReader(file.getPath()).readBeasleyBenchmark();
+
+    ProblemInput input = new InstanceGenerator(20, 100, 3, 4).generateGeographic().getProblemInput();
+
+    // rows are cached while they are read repeatedly
+    for (int repetition = 0; repetition < 3; repetition++) {
+      for (int facility = 0; facility < 20; facility++) {
+        assertEquals(written.getCapacity(facility), input.getCapacity(facility), 0);
+        for (int client = 0; client < 100; client++) {
+          assertEquals(
+              written.getCostToMeetDemand(facility, client),
+              input.getCostToMeetDemand(facility, client),
+              0.005);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void spatialQueriesMatchBruteForce() {
+    Random random = new Random(5);
+    double[] facilityX = random.doubles(50).toArray();
+    double[] facilityY = random.doubles(50).toArray();
+    double[] clientX = random.doubles(300).toArray();
+    double[] clientY = random.doubles(300).toArray();
+    double[] capacities = new double[50];
+    Arrays.fill(capacities, 10);
+    GeographicInstance instance =
+        new GeographicInstance(
+            facilityX,
+            facilityY,
+            capacities,
+            new double[50],
+            clientX,
+            clientY,
+            new double[300],
+            CostFunction.linear(1));
+
+    for (int client = 0; client < 300; client++) {
+      final int c = client;
+      int[] expected =
+          IntStream.range(0, 50)
+              .boxed()
+              .sorted(
+                  (f, g) ->
+                      Double.compare(instance.getDistance(f, c), instance.getDistance(g, c)))
+              .limit(7)
+              .mapToInt(Integer::intValue)
+              .toArray();
+      assertArrayEquals(expected, instance.nearestFacilities(client, 7));
+    }
+    for (int facility = 0; facility < 50; facility++) {
+      final int f = facility;
+      int[] expected =
+          IntStream.range(0, 300).filter(c -> instance.getDistance(f, c) <= 0.2).toArray();
+      assertArrayEquals(expected, instance.clientsWithinRadius(facility, 0.2));
+    }
+  }
+
+  @Test
+  public void cheapestFacilitiesUseTheSpatialIndex() {
+    GeographicInstance instance = new InstanceGenerator(30, 200, 1.2, 6).generateGeographic();
+    ProblemInput input = instance.getProblemInput();
+    // the same input with a materialised cost matrix, answered by scanning it
+    double[] costs = new double[30 * 200];
+    for (int facility = 0; facility < 30; facility++) {
+      for (int client = 0; client < 200; client++) {
+        costs[facility * 200 + client] = input.getCostToMeetDemand(facility, client);
+      }
+    }
+    ProblemInput dense =
+        new ProblemInput(
+            input.facilities().mapToDouble(input::getCapacity).toArray(),
+            input.facilities().mapToDouble(input::getBuildingCost).toArray(),
+            input.clients().mapToDouble(input::getDemand).toArray(),
+            new DenseCostMatrix(30, 200, costs));
+
+    assertArrayEquals(dense.cheapestFacilities(5), input.cheapestFacilities(5));
+    int[] facilities = {3, 7, 11};
+    int[] clients = {0, 5, 199};
+    double[] capacities = {1000, 1000, 1000};
+    assertArrayEquals(
+        dense.subproblem(facilities, clients, capacities, new double[3]).cheapestFacilities(2),
+        input.subproblem(facilities, clients, capacities, new double[3]).cheapestFacilities(2));
+  }
+}
@@ -0,0 +1,89 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstanceDeltaTest {
+
+  private ProblemInput input;
+
+  @Before
+  public void setup() {
+    // 2 facilities, 3 clients
+    input =
+        new ProblemInput(
+            new double[] {1000, 2000},
+            new double[] {8000, 9000},
+            new double[] {10, 20, 30},
+            new DenseCostMatrix(2, 3, new double[] {1, 2, 3, 4, 5, 6}));
+  }
+
+  @Test
+  public void appliesChangesWithoutChangingTheOriginal() {
+    InstanceDelta delta = new InstanceDelta();
+    delta.setDemand(1, 25);
+    delta.setCapacity(0, 500);
+    delta.setBuildingCost(1, 7000);
+    delta.setCost(1, 2, 60);
+    delta.setCost(1, 2, 61); // replaces the earlier change
+
+    ProblemInput modified = delta.applyTo(input);
+
+    assertEquals(25, modified.getDemand(1), 0);
+    assertEquals(30, modified.getDemand(2), 0);
+    assertEquals(500, modified.getCapacity(0), 0);
+    assertEquals(2000, modified.getCapacity(1), 0);
+    assertEquals(7000, modified.getBuildingCost(1), 0);
+    assertEquals(61, modified.getCostToMeetDemand(1, 2), 0);
+    assertEquals(4, modified.getCostToMeetDemand(1, 0), 0);
+    assertEquals(3, modified.getCostToMeetDemand(0, 2), 0);
+
+    assertEquals(20, input.getDemand(1), 0);
+    assertEquals(1000, input.getCapacity(0), 0);
+    assertEquals(9000, input.getBuildingCost(1), 0);
+    assertEquals(6, input.getCostToMeetDemand(1, 2), 0);
+  }
+
+  @Test
+  public void sharesTheCostsWithoutCostChanges() {
+    InstanceDelta delta = new InstanceDelta();
+    assertTrue(delta.isEmpty());
+    delta.setDemand(0, 5);
+    assertSame(input.getCosts(), delta.applyTo(input).getCosts());
+  }
+
+  @Test
+  public void scalesWithoutOverridingSetValues() {
+    InstanceDelta delta = new InstanceDelta();
+    delta.scaleDemands(2);
+    delta.setDemand(2, 35);
+    delta.scaleCosts(0, 0.5);
+    delta.setCost(0, 1, 7);
+    delta.scaleCosts(1, 3);
+
+    ProblemInput modified = delta.applyTo(input);
+
+    assertEquals(20, modified.getDemand(0), 0);
+    assertEquals(35, modified.getDemand(2), 0);
+    assertEquals(0.5, modified.getCostToMeetDemand(0, 0), 0);
+    assertEquals(7, modified.getCostToMeetDemand(0, 1), 0);
+    assertEquals(1.5, modified.getCostToMeetDemand(0, 2), 0);
+    assertEquals(18, modified.getCostToMeetDemand(1, 2), 0);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void rejectsNegativeDemand() {
+    new InstanceDelta().setDemand(0, -1);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void rejectsUnknownFacility() {
+    InstanceDelta delta = new InstanceDelta();
+    delta.setCost(2, 0, 1);
+    delta.applyTo(input);
+  }
+}
@@ -0,0 +1,55 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstanceGeneratorTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File generate(String name, long seed) throws IOException {
+    File file = folder.newFile(name);
+    new InstanceGenerator(20, 100, 3, seed).write(file.getPath());
+    return file;
+  }
+
+  @Test
+  public void generatedInstanceIsReadable() throws IOException {
+    ProblemInput input = new BenchmarkReader(generate("instance", 1).getPath()).readBeasleyBenchmark();
+
+    assertEquals(20, input.getNumFacilities());
+    assertEquals(100, input.getNumClients());
+    double totalDemand = input.clients().mapToDouble(input::getDemand).sum();
+    double totalCapacity = input.facilities().mapToDouble(input::getCapacity).sum();
+    assertEquals(3, totalCapacity / totalDemand, 0.01);
+    input
+        .clients()
+        .forEach(
+            client -> {
+              assertTrue(input.getDemand(client) >= 5 && input.getDemand(client) <= 35);
+              input
+                  .facilities()
+                  .forEach(facility -> assertTrue(input.getCostToMeetDemand(facility, client) >= 0));
+            });
+  }
+
+  @Test
+  public void generationIsReproducible() throws IOException {
+    byte[] first = Files.readAllBytes(generate("first", 7).toPath());
+    byte[] second = Files.readAllBytes(generate("second", 7).toPath());
+    byte[] otherSeed = Files.readAllBytes(generate("other", 8).toPath());
+
+    assertArrayEquals(first, second);
+    assertFalse(Arrays.equals(first, otherSeed));
+  }
+}
@@ -0,0 +1,37 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class NumberParserTest {
+
+  private double parse(String number) {
+    ByteBuffer buffer = ByteBuffer.wrap((" " + number + " ").getBytes(StandardCharsets.US_ASCII));
+    return NumberParser.parse(buffer, 1, number.length() + 1);
+  }
+
+  @Test
+  public void parseMatchesParseDouble() {
+    String[] numbers = {
+      "0", "7", "-3", "+12", "15000.0", "6739.72500", "0.1", "-0.000123", "1e5", "2.5E-3",
+      "123456789012345678901234", "0.30000000000000004", "1.7976931348623157e308", "4.9e-324",
+      ".5", "5."
+    };
+    for (String number : numbers) {
+      assertEquals(number, Double.parseDouble(number), parse(number), 0);
+    }
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseThrowsException_whenNotANumber() {
+    parse("12a");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseThrowsException_whenOnlySign() {
+    parse("-");
+  }
+}
@@ -0,0 +1,138 @@
+package com.satalia.opt.capfacilitylocation.input;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class PresolverTest {
+
+  @Test
+  public void removesUselessAndDominatedFacilities_andTightensCapacities() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {30, 1000, 5},
+            new double[] {200, 100, 0},
+            new double[] {10, 20, 30},
+            new DenseCostMatrix(3, 3, new double[] {2, 2, 2, 1, 1, 1, 0, 0, 0}));
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    ProblemInput reduced = presolved.getReducedInput();
+    assertEquals(1, reduced.getNumFacilities());
+    assertEquals(3, reduced.getNumClients());
+    assertEquals(1, presolved.getOriginalFacility(0));
+    assertEquals(60, reduced.getCapacity(0), 0);
+    // the remaining facility is mandatory
+    assertEquals(0, reduced.getBuildingCost(0), 0);
+    assertEquals(100, presolved.getObjectiveOffset(), 0);
+    assertArrayEquals(new int[] {1, 1, 1}, presolved.postsolve(new int[] {0, 0, 0}));
+    assertEquals(1.0 / 3, presolved.getReductionRatio(), 1e-12);
+  }
+
+  @Test
+  public void fixesMandatoryFacilities() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {40, 40},
+            new double[] {100, 200},
+            new double[] {20, 20, 20},
+            new DenseCostMatrix(2, 3, new double[] {1, 2, 3, 3, 2, 1}));
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    ProblemInput reduced = presolved.getReducedInput();
+    assertEquals(2, reduced.getNumFacilities());
+    assertEquals(0, reduced.getBuildingCost(0), 0);
+    assertEquals(0, reduced.getBuildingCost(1), 0);
+    assertEquals(300, presolved.getObjectiveOffset(), 0);
+  }
+
+  @Test
+  public void mergesIdenticalClientsWithoutDemand() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {15, 15, 15},
+            new double[] {100, 200, 300},
+            new double[] {0, 10, 0, 10, 0},
+            new DenseCostMatrix(
+                3, 5, new double[] {1, 2, 1, 2, 3, 4, 5, 4, 5, 4, 7, 8, 7, 8, 7}));
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    ProblemInput reduced = presolved.getReducedInput();
+    assertEquals(4, reduced.getNumClients()); // client 2 merged into client 0, not the others
+    assertEquals(0, presolved.getObjectiveOffset(), 0);
+    assertEquals(2, reduced.getCostToMeetDemand(0, 0), 0); // the summed costs of clients 0 and 2
+    assertEquals(5, reduced.getCostToMeetDemand(1, 1), 0);
+    assertEquals(10, reduced.getDemand(2), 0);
+    assertArrayEquals(
+        new int[] {1, 2, 1, 0, 2}, presolved.postsolve(new int[] {1, 2, 0, 2}));
+  }
+
+  @Test
+  public void readsNoCostsWithoutClientsToMergeOrDominatingFacilities() {
+    final int[] numReads = new int[1];
+    CostMatrix costs =
+        new CostMatrix() {
+          @Override
+          public int getNumFacilities() {
+            return 2;
+          }
+
+          @Override
+          public int getNumClients() {
+            return 3;
+          }
+
+          @Override
+          public double get(int facility, int client) {
+            numReads[0]++;
+            return facility + client;
+          }
+        };
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {25, 25}, new double[] {100, 200}, new double[] {10, 0, 20}, costs);
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    assertEquals(3, presolved.getReducedInput().getNumClients());
+    assertEquals(0, numReads[0]);
+  }
+
+  @Test
+  public void mergesGroupsOfClientsWithoutDemand() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {15, 15},
+            new double[] {100, 200},
+            new double[] {0, 0, 0, 0, 0, 10},
+            new DenseCostMatrix(2, 6, new double[] {1, 2, 1, 3, 2, 1, 4, 5, 4, 6, 5, 4}));
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    ProblemInput reduced = presolved.getReducedInput();
+    assertEquals(4, reduced.getNumClients());
+    assertEquals(2, reduced.getCostToMeetDemand(0, 0), 0);
+    assertEquals(4, reduced.getCostToMeetDemand(0, 1), 0);
+    assertEquals(3, reduced.getCostToMeetDemand(0, 2), 0);
+    assertEquals(10, reduced.getDemand(3), 0);
+  }
+
+  @Test
+  public void keepsInputWithoutReductions() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {30, 30},
+            new double[] {100, 200},
+            new double[] {10, 20},
+            new DenseCostMatrix(2, 2, new double[] {1, 2, 2, 1}));
+
+    PresolvedInput presolved = new Presolver(input).presolve();
+
+    assertSame(input, presolved.getReducedInput());
+    assertEquals(1, presolved.getReductionRatio(), 0);
+  }
+}
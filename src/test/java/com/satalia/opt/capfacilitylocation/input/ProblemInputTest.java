@@ -2,31 +2,89 @@ package com.satalia.opt.capfacilitylocation.input;
 
 import static org.junit.Assert.assertEquals;
 
-import java.util.Collections;
+import java.util.Arrays;
+import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mockito;
 
 public class ProblemInputTest {
 
+  private ProblemInput problemInput;
+
+  @Before
+  public void setup() {
+    // 2 facilities, 3 clients
+    problemInput =
+        new ProblemInput(
+            new double[] {1000, 2000},
+            new double[] {8000, 9000},
+            new double[] {10, 20, 30},
+            new DenseCostMatrix(2, 3, new double[] {1, 2, 3, 4, 5, 6}));
+  }
+
   @Test
   public void getFacilities() {
-    Facility facility = Mockito.mock(Facility.class);
-    Client client = Mockito.mock(Client.class);
+    assertEquals(
+        Arrays.asList(problemInput.getFacility(0), problemInput.getFacility(1)),
+        problemInput.getFacilities());
+  }
 
-    ProblemInput problemInput =
-        new ProblemInput(Collections.singletonList(facility), Collections.singletonList(client));
+  @Test
+  public void getClients() {
+    assertEquals(
+        Arrays.asList(
+            problemInput.getClient(0), problemInput.getClient(1), problemInput.getClient(2)),
+        problemInput.getClients());
+  }
 
-    assertEquals(Collections.singletonList(facility), problemInput.getFacilities());
+  @Test
+  public void getCostToMeetDemand() {
+    assertEquals(2, problemInput.getCostToMeetDemand(0, 1), 0);
+    assertEquals(6, problemInput.getCostToMeetDemand(1, 2), 0);
   }
 
   @Test
-  public void getClients() {
-    Facility facility = Mockito.mock(Facility.class);
-    Client client = Mockito.mock(Client.class);
+  public void getCostToMeetDemand_withSinglePrecisionCosts() {
+    ProblemInput input =
+        new ProblemInput(
+            new double[] {1000},
+            new double[] {8000},
+            new double[] {10, 20},
+            new FloatCostMatrix(1, 2, new float[] {1.5f, 2.5f}));
 
-    ProblemInput problemInput =
-        new ProblemInput(Collections.singletonList(facility), Collections.singletonList(client));
+    assertEquals(2.5, input.getCostToMeetDemand(0, 1), 0);
+  }
+
+  @Test
+  public void subproblem() {
+    ProblemInput subproblem =
+        problemInput.subproblem(
+            new int[] {1}, new int[] {2, 0}, new double[] {500}, new double[] {0});
+
+    assertEquals(1, subproblem.getNumFacilities());
+    assertEquals(2, subproblem.getNumClients());
+    assertEquals(500, subproblem.getCapacity(0), 0);
+    assertEquals(0, subproblem.getBuildingCost(0), 0);
+    assertEquals(30, subproblem.getDemand(0), 0);
+    assertEquals(6, subproblem.getCostToMeetDemand(0, 0), 0);
+    assertEquals(4, subproblem.getCostToMeetDemand(0, 1), 0);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void subproblemThrowsException_whenFacilityIsOutOfBounds() {
+    problemInput.subproblem(new int[] {2}, new int[] {0}, new double[] {1}, new double[] {1});
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void getCostToMeetDemandThrowsException_whenClientIsOutOfBounds() {
+    problemInput.getCostToMeetDemand(0, 3);
+  }
 
-    assertEquals(Collections.singletonList(client), problemInput.getClients());
+  @Test(expected = RuntimeException.class)
+  public void createProblemInputThrowsException_whenCostMatrixDoesNotMatchClients() {
+    new ProblemInput(
+        new double[] {1000},
+        new double[] {8000},
+        new double[] {10, 20},
+        new DenseCostMatrix(1, 3, new double[] {1, 2, 3}));
   }
 }
@@ -0,0 +1,103 @@
+package com.satalia.opt.capfacilitylocation.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SolveMetricsTest {
+
+  @Test
+  public void recordsPhasesInOrder() {
+    SolveMetrics metrics = new SolveMetrics();
+    try (Phase phase = metrics.startPhase("read")) {
+      double[] allocated = new double[100000];
+      assertEquals(100000, allocated.length);
+    }
+    try (Phase phase = metrics.startPhase("solve")) {
+      // empty
+    }
+    metrics.complete();
+
+    assertEquals(2, metrics.getPhases().size());
+    assertEquals("read", metrics.getPhases().get(0).getName());
+    assertEquals("solve", metrics.getPhases().get(1).getName());
+    assertNull(metrics.getPhase("build"));
+    PhaseMetrics read = metrics.getPhase("read");
+    assertTrue(read.getWallNanos() >= 0);
+    assertTrue(metrics.getWallNanos() >= read.getWallNanos());
+    // -1 if the JVM cannot measure the allocations of a thread
+    assertTrue(read.getAllocatedBytes() == -1 || read.getAllocatedBytes() >= 800000);
+  }
+
+  @Test
+  public void writesOneJsonLinePerSolve() {
+    StringWriter out = new StringWriter();
+    JsonMetricsRegistry registry = new JsonMetricsRegistry(out);
+    for (int solve = 0; solve < 2; solve++) {
+      SolveMetrics metrics = new SolveMetrics(registry);
+      metrics.setInstance("file", "cap\"61\"");
+      metrics.setInstance("facilities", 16);
+      try (Phase phase = metrics.startPhase("build")) {
+        metrics.setStatistic("variables", 816);
+      }
+      metrics.setStatistic("gap", Double.POSITIVE_INFINITY);
+      metrics.complete();
+      metrics.complete(); // only the first completion is reported
+    }
+
+    String[] lines = out.toString().split("\n");
+    assertEquals(2, lines.length);
+    String line = lines[0];
+    assertTrue(line, line.startsWith("{\"type\":\"solve\",\"solveId\":\""));
+    assertTrue(line, line.contains("\"instance\":{\"file\":\"cap\\\"61\\\"\",\"facilities\":16}"));
+    assertTrue(line, line.contains("\"phases\":[{\"name\":\"build\",\"wallMillis\":"));
+    assertTrue(line, line.contains("\"statistics\":{\"variables\":816,\"gap\":null}"));
+    assertTrue(line, line.endsWith("}}"));
+  }
+
+  @Test
+  public void samplesTheRunningSolve() throws InterruptedException {
+    CountDownLatch sampled = new CountDownLatch(2);
+    List<ProgressSample> samples = new ArrayList<>();
+    SolveMetrics metrics =
+        new SolveMetrics(
+            new MetricsRegistry() {
+              @Override
+              public void solveCompleted(SolveMetrics metrics) {}
+
+              @Override
+              public void progress(ProgressSample sample) {
+                synchronized (samples) {
+                  samples.add(sample);
+                }
+                sampled.countDown();
+              }
+            });
+    metrics.incumbent(120, Double.NEGATIVE_INFINITY);
+    metrics.incumbent(100, 90);
+    try (Phase phase = metrics.startPhase("solve")) {
+      metrics.startProgress(10);
+      assertTrue(sampled.await(10, TimeUnit.SECONDS));
+    }
+    metrics.complete();
+
+    ProgressSample sample;
+    synchronized (samples) {
+      sample = samples.get(0);
+    }
+    assertEquals(metrics.getId(), sample.getSolveId());
+    assertEquals("solve", sample.getPhase());
+    assertEquals(100, sample.getObjective(), 0);
+    assertEquals(90, sample.getBound(), 0);
+    assertNotNull(sample.toJson());
+    assertTrue(sample.toJson().startsWith("{\"type\":\"progress\""));
+  }
+}
@@ -0,0 +1,186 @@
+package com.satalia.opt.capfacilitylocation.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceGenerator;
+import com.satalia.opt.capfacilitylocation.solving.SolveParameters;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SolveServerTest {
+
+  private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private SolveServer server;
+  private byte[] instance;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new SolveServer(0, 1, 1, new SolveParameters(), "local-search");
+    server.start();
+    File file = folder.newFile("instance");
+    new InstanceGenerator(10, 40, 1.5, 1).write(file.getPath());
+    instance = Files.readAllBytes(file.toPath());
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void solvesSubmittedInstance() throws IOException {
+    Response submitted = request("POST", "/jobs", instance);
+    assertEquals(202, submitted.status);
+    final String id = id(submitted.body);
+    assertEquals("/jobs/" + id, submitted.location);
+
+    // the stream ends with the final status when the job has finished
+    Response events = request("GET", "/jobs/" + id + "/events", null);
+    assertEquals(200, events.status);
+    String[] lines = events.body.split("\n");
+    assertTrue(events.body, lines[0].startsWith("{\"type\":\"incumbent\""));
+    assertTrue(events.body, lines[lines.length - 1].contains("\"state\":\"DONE\""));
+
+    Response solution = request("GET", "/jobs/" + id + "/solution", null);
+    assertEquals(200, solution.status);
+    assertTrue(solution.body, solution.body.contains("\"final\":true"));
+    assertTrue(solution.body, solution.body.contains("\"facilityOfClient\":["));
+
+    Response stats = request("GET", "/stats", null);
+    assertTrue(stats.body, stats.body.contains("\"submitted\":1"));
+    assertTrue(stats.body, stats.body.contains("\"finished\":1"));
+    assertEquals(404, request("GET", "/jobs/unknown", null).status);
+  }
+
+  @Test
+  public void rejectsInstancesLargerThanTheLimit() throws IOException {
+    server.setMaxBodyBytes(instance.length - 1);
+    assertEquals(413, request("POST", "/jobs", instance).status);
+    assertEquals(413, postChunked(instance));
+
+    server.setMaxBodyBytes(instance.length);
+    assertEquals(202, request("POST", "/jobs", instance).status);
+  }
+
+  @Test
+  public void rejectsWhenSaturatedAndCancels() throws IOException {
+    // the local search improves until the time limit: the only worker stays busy
+    String running = id(request("POST", "/jobs?timeLimit=30", instance).body);
+    awaitFirstIncumbent(running);
+    String queued = id(request("POST", "/jobs?timeLimit=30", instance).body);
+
+    Response rejected = request("POST", "/jobs", instance);
+    assertEquals(429, rejected.status);
+    assertNotNull(rejected.retryAfter);
+    assertTrue(Long.parseLong(rejected.retryAfter) >= 1);
+
+    assertTrue(request("DELETE", "/jobs/" + queued, null).body.contains("\"CANCELLED\""));
+    assertEquals(202, request("POST", "/jobs?timeLimit=30", instance).status);
+    assertTrue(request("DELETE", "/jobs/" + running, null).body.contains("\"CANCELLED\""));
+
+    Response stats = request("GET", "/stats", null);
+    assertTrue(stats.body, stats.body.contains("\"rejected\":1"));
+  }
+
+  @Test
+  public void retryAfterCountsQueuesShorterThanTheWorkers() {
+    assertEquals(2, SolveServer.retryAfterSeconds(2000, 0, 4));
+    assertEquals(4, SolveServer.retryAfterSeconds(2000, 3, 4));
+    assertEquals(6, SolveServer.retryAfterSeconds(2000, 8, 4));
+    assertEquals(1, SolveServer.retryAfterSeconds(10, 0, 1));
+  }
+
+  /** Waits until the job has reported its first incumbent, i.e. is running. */
+  private void awaitFirstIncumbent(String id) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection)
+            new URL("http://localhost:" + server.getPort() + "/jobs/" + id + "/events")
+                .openConnection();
+    connection.setReadTimeout(10000);
+    try (BufferedReader events =
+        new BufferedReader(
+            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+      String line = events.readLine();
+      assertNotNull("Job " + id + " ended its events without an incumbent", line);
+      assertTrue(line, line.startsWith("{\"type\":\"incumbent\""));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /** @return the status of a submission without a Content-Length, as the limit is unknown */
+  private int postChunked(byte[] body) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection)
+            new URL("http://localhost:" + server.getPort() + "/jobs").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setChunkedStreamingMode(1024);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    } catch (IOException e) {
+      // the server may respond and close the connection before the whole body is sent
+    }
+    return connection.getResponseCode();
+  }
+
+  private static String id(String json) {
+    Matcher matcher = ID.matcher(json);
+    assertTrue(json, matcher.find());
+    return matcher.group(1);
+  }
+
+  private Response request(String method, String path, byte[] body) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    connection.setRequestMethod(method);
+    if (body != null) {
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+    }
+    Response response = new Response();
+    response.status = connection.getResponseCode();
+    response.location = connection.getHeaderField("Location");
+    response.retryAfter = connection.getHeaderField("Retry-After");
+    try (InputStream in =
+        response.status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        bytes.write(buffer, 0, read);
+      }
+      response.body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+    return response;
+  }
+
+  private static class Response {
+    int status;
+    String body;
+    String location;
+    String retryAfter;
+  }
+}
@@ -0,0 +1,121 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.BitSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssignmentSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void boundsOptimalAssignment_onSmallInstances() throws IOException {
+    for (long seed = 0; seed < 5; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 4, 7, seed);
+      AssignmentSolver solver = new AssignmentSolver(input);
+      // all sets of opened facilities, reusing the solver
+      for (int set = 1; set < 16; set++) {
+        BitSet opened = BitSet.valueOf(new long[] {set});
+        double optimum = enumerateAssignmentCost(input, opened);
+
+        AssignmentResult result = solver.solve(opened);
+
+        assertEquals(optimum < Double.POSITIVE_INFINITY, result.isFeasible());
+        if (result.isFeasible()) {
+          assertTrue(result.getLowerBound() <= optimum + 1e-6);
+          assertTrue(result.getAssignmentCost() >= optimum - 1e-6);
+          Solution solution = result.getSolution();
+          assertTrue(solution.isFeasible());
+          assertEquals(result.getObjectiveValue(), solution.getObjectiveValue(), 1e-6);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void assignsToOptimalFacilities_onCap61() throws IOException {
+    ProblemInput input = TestInstances.cap61();
+    Solution optimal = new LocalSearchSolver(input).solve();
+    BitSet opened = new BitSet();
+    optimal.getOpenedFacilities().forEach(facility -> opened.set(facility.getIndex()));
+
+    AssignmentResult result = new AssignmentSolver(input).solve(opened);
+
+    assertTrue(result.isFeasible());
+    assertTrue(result.getLowerBound() <= result.getAssignmentCost());
+    assertTrue(result.getGap() < 0.01);
+    assertTrue(result.getObjectiveValue() <= TestInstances.CAP61_OPTIMUM * 1.01);
+  }
+
+  @Test
+  public void rejectsNoOpenedFacility_evenWithoutDemand() throws IOException {
+    InstanceDelta delta = new InstanceDelta();
+    delta.scaleDemands(0);
+    ProblemInput input = delta.applyTo(TestInstances.generate(folder, 4, 7, 1));
+    AssignmentSolver solver = new AssignmentSolver(input);
+    BitSet some = BitSet.valueOf(new long[] {0b0110});
+    AssignmentResult feasible = solver.solve(some);
+
+    AssignmentResult result = solver.solve(new BitSet());
+
+    assertFalse(result.isFeasible());
+    assertNull(result.getAssignment());
+    // the lists of the empty set do not leak into the next solve
+    AssignmentResult again = solver.solve(some);
+    assertTrue(again.isFeasible());
+    assertEquals(feasible.getAssignmentCost(), again.getAssignmentCost(), 1e-9);
+    assertEquals(feasible.getLowerBound(), again.getLowerBound(), 1e-6);
+  }
+
+  @Test
+  public void detectsInsufficientCapacity() throws IOException {
+    ProblemInput input = TestInstances.cap61();
+    BitSet opened = new BitSet();
+    opened.set(0);
+
+    AssignmentResult result = new AssignmentSolver(input).solve(opened);
+
+    assertFalse(result.isFeasible());
+    assertNull(result.getSolution());
+    assertEquals(Double.POSITIVE_INFINITY, result.getLowerBound(), 0);
+  }
+
+  /** @return the minimal cost of assigning the clients to the opened facilities */
+  private static double enumerateAssignmentCost(ProblemInput input, BitSet opened) {
+    final int numFacilities = input.getNumFacilities();
+    int numAssignments = 1;
+    for (int client = 0; client < input.getNumClients(); client++) {
+      numAssignments *= numFacilities;
+    }
+    double optimum = Double.POSITIVE_INFINITY;
+    for (int assignment = 0; assignment < numAssignments; assignment++) {
+      double[] load = new double[numFacilities];
+      double cost = 0;
+      boolean feasible = true;
+      int remaining = assignment;
+      for (int client = 0; client < input.getNumClients(); client++) {
+        int facility = remaining % numFacilities;
+        remaining /= numFacilities;
+        feasible &= opened.get(facility);
+        load[facility] += input.getDemand(client);
+        cost += input.getCostToMeetDemand(facility, client);
+      }
+      for (int facility = 0; facility < numFacilities; facility++) {
+        feasible &= load[facility] <= input.getCapacity(facility);
+      }
+      if (feasible) {
+        optimum = Math.min(optimum, cost);
+      }
+    }
+    return optimum;
+  }
+}
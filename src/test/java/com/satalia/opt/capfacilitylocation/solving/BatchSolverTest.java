@@ -0,0 +1,74 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void findInstances_inDirectory() throws IOException {
+    File b = folder.newFile("cap62");
+    File a = folder.newFile("cap61");
+    folder.newFolder("subdirectory");
+
+    assertEquals(
+        Arrays.asList(a.getPath(), b.getPath()),
+        BatchSolver.findInstances(folder.getRoot().getPath()));
+  }
+
+  @Test
+  public void findInstances_matchingGlob() throws IOException {
+    File a = folder.newFile("cap61");
+    File b = folder.newFile("cap62");
+    folder.newFile("cap71");
+    folder.newFile("Readme.txt");
+
+    assertEquals(
+        Arrays.asList(a.getPath(), b.getPath()),
+        BatchSolver.findInstances(new File(folder.getRoot(), "cap6*").getPath()));
+  }
+
+  @Test
+  public void findInstances_singleFile() throws IOException {
+    File a = folder.newFile("cap61");
+
+    assertEquals(
+        Collections.singletonList(a.getPath()), BatchSolver.findInstances(a.getPath()));
+  }
+
+  @Test(expected = IOException.class)
+  public void findInstances_missingFile() throws IOException {
+    BatchSolver.findInstances(new File(folder.getRoot(), "missing").getPath());
+  }
+
+  @Test
+  public void writeResults() throws IOException {
+    List<BatchResult> results =
+        Arrays.asList(
+            new BatchResult(
+                "cap61", new SolveResult(SolveStatus.OPTIMAL, null, 10, 1500), 20, 30),
+            new BatchResult("dir,with,commas/cap62", "RuntimeException: \"bad\" file", 5, 0));
+    File file = new File(folder.getRoot(), "results.csv");
+
+    BatchSolver.writeResults(results, file.getPath());
+
+    assertEquals(
+        Arrays.asList(
+            "instance,status,objective,bound,gap,load_ms,build_ms,solve_ms,error",
+            "cap61,OPTIMAL,,10.000000,,20,30,1500,",
+            "\"dir,with,commas/cap62\",ERROR,,,,5,0,0,\"RuntimeException: \"\"bad\"\" file\""),
+        Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+  }
+}
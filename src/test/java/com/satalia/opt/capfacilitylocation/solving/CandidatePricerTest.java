@@ -0,0 +1,102 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CandidatePricerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void gapIsTheDifferenceOfIncumbentAndBound_plusATolerance() {
+    final double gap = CandidatePricer.gap(1000, 900);
+    assertTrue(gap >= 100);
+    assertTrue(gap < 100.001);
+  }
+
+  @Test
+  public void dropsColumnsOnlyWhenTheirReducedCostIsAboveTheGap() {
+    assertTrue(CandidatePricer.isKept(-5, 10));
+    assertTrue(CandidatePricer.isKept(0, 10));
+    assertTrue(CandidatePricer.isKept(10, 10));
+    assertFalse(CandidatePricer.isKept(10.001, 10));
+    assertFalse(CandidatePricer.isKept(1e9, 10));
+  }
+
+  @Test
+  public void fixesFacilitiesWhoseReducedCostExceedsTheGap() {
+    assertEquals(CandidatePricer.CLOSED, CandidatePricer.fixing(10.001, 10));
+    assertEquals(CandidatePricer.FREE, CandidatePricer.fixing(10, 10));
+    assertEquals(CandidatePricer.FREE, CandidatePricer.fixing(0, 10));
+    assertEquals(CandidatePricer.FREE, CandidatePricer.fixing(-10, 10));
+    assertEquals(CandidatePricer.OPENED, CandidatePricer.fixing(-10.001, 10));
+    // without a gap, the incumbent is optimal for the LP and any nonzero reduced cost fixes
+    assertEquals(CandidatePricer.FREE, CandidatePricer.fixing(0, 0));
+    assertEquals(CandidatePricer.CLOSED, CandidatePricer.fixing(1, 0));
+  }
+
+  @Test
+  public void keepsTheIncumbentAndBoundsTheOptimum() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    ProblemInput input = TestInstances.cap61();
+    int[] incumbent = new LocalSearchSolver(input).solve().getAssignment();
+
+    CandidatePricer.Result result = new CandidatePricer(input, 3, incumbent).run();
+
+    assertNotNull(result);
+    assertTrue(result.lowerBound <= TestInstances.CAP61_OPTIMUM + 1e-6);
+    for (int client = 0; client < input.getNumClients(); client++) {
+      assertTrue(hasColumn(result, incumbent[client], client));
+      assertFalse(result.fixing[incumbent[client]] == CandidatePricer.CLOSED);
+    }
+  }
+
+  @Test
+  public void sparseModelHasTheOptimumOfTheFullModel() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    assertEquals(TestInstances.CAP61_OPTIMUM, solveSparse(TestInstances.cap61(), 3), 1e-3);
+    for (int seed = 1; seed <= 3; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 15, 60, seed);
+      assertEquals(solveFull(input), solveSparse(input, 2), 1e-6);
+    }
+  }
+
+  private static boolean hasColumn(CandidatePricer.Result result, int facility, int client) {
+    for (int column = 0; column < result.numColumns; column++) {
+      if (result.facility[column] == facility && result.client[column] == client) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double solveSparse(ProblemInput input, int numCandidates) {
+    ModelOptions options = new ModelOptions();
+    options.setNumCandidates(numCandidates);
+    return solve(new CbcSolver(input, options), input);
+  }
+
+  private static double solveFull(ProblemInput input) {
+    return solve(new CbcSolver(input), input);
+  }
+
+  private static double solve(CbcSolver solver, ProblemInput input) {
+    try {
+      SolveResult result = solver.solve(TestInstances.exact());
+      assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+      TestInstances.assertFeasible(input, result.getSolution());
+      return result.getObjectiveValue();
+    } finally {
+      solver.close();
+    }
+  }
+}
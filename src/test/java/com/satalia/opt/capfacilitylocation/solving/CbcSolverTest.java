@@ -0,0 +1,190 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.ortools.linearsolver.MPSolver;
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import com.satalia.opt.capfacilitylocation.metrics.SolveMetrics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CbcSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /** Records the settings instead of passing them to a native solver. */
+  private static class RecordingSolver extends MPSolver {
+    final List<String> calls = new ArrayList<>();
+
+    RecordingSolver() {
+      super(0, false); // no native solver
+    }
+
+    @Override
+    public void setTimeLimit(long timeLimitMilliseconds) {
+      calls.add("timeLimit " + timeLimitMilliseconds);
+    }
+
+    @Override
+    public boolean setNumThreads(int numThreads) {
+      calls.add("threads " + numThreads);
+      return true;
+    }
+
+    @Override
+    public boolean setSolverSpecificParametersAsString(String parameters) {
+      calls.add("specific " + parameters);
+      return true;
+    }
+  }
+
+  @Test
+  public void applyParametersResetsTheSettingsOfThePreviousSolve() {
+    RecordingSolver solver = new RecordingSolver();
+    SolveParameters first = new SolveParameters();
+    first.setTimeLimitMillis(5000);
+    first.setNumThreads(4);
+    first.setAbsoluteGap(10);
+    first.setSeed(7);
+
+    CbcSolver.applyParameters(solver, first, null);
+    CbcSolver.applyParameters(solver, new SolveParameters(), null);
+
+    assertEquals(
+        Arrays.asList(
+            "timeLimit 5000",
+            "threads 4",
+            "specific allowableGap 10.0\nrandomCbcSeed 7\n",
+            "timeLimit 0",
+            "threads 1",
+            "specific "),
+        solver.calls);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void checkWarmStartThrowsException_whenLengthIsWrong() {
+    CbcSolver.checkWarmStart(new int[] {0, 1}, 2, 3);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void checkWarmStartThrowsException_whenFacilityIsTooLarge() {
+    CbcSolver.checkWarmStart(new int[] {0, 2, 1}, 2, 3);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void checkWarmStartThrowsException_whenFacilityIsNegative() {
+    CbcSolver.checkWarmStart(new int[] {0, -1, 1}, 2, 3);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void setWarmStartThrowsException_whenFacilityIsInvalid() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    ProblemInput input = TestInstances.generate(folder, 4, 7, 1);
+    CbcSolver solver = new CbcSolver(input);
+    try {
+      int[] facilityOfClient = new int[input.getNumClients()];
+      facilityOfClient[3] = input.getNumFacilities();
+      solver.setWarmStart(facilityOfClient);
+    } finally {
+      solver.close();
+    }
+  }
+
+  @Test
+  public void warmStartsKeepTheOptimum() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 2);
+    Solution start = new LocalSearchSolver(input).solve();
+    final double optimum = solve(input, null, false, null);
+
+    List<Solution> incumbents = new CopyOnWriteArrayList<>();
+    assertEquals(optimum, solve(input, start.getAssignment(), false, incumbents), 1e-6);
+    // the warm start is accepted: it is reported as the first incumbent
+    assertEquals(start.getObjectiveValue(), incumbents.get(0).getObjectiveValue(), 1e-6);
+
+    incumbents.clear();
+    assertEquals(optimum, solve(input, null, true, incumbents), 1e-6);
+    assertTrue(incumbents.size() >= 1);
+  }
+
+  @Test
+  public void checkNumColumnsAcceptsColumnsThatFitAnArray() {
+    assertEquals(Integer.MAX_VALUE - 8, CbcSolver.checkNumColumns(CbcSolver.MAX_COLUMNS));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void checkNumColumnsThrowsException_whenProductOverflowsAnInt() {
+    CbcSolver.checkNumColumns((long) 50_000 * 50_000);
+  }
+
+  @Test
+  public void leavesOutColumnsWhoseDemandDoesNotFit() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    ProblemInput generated = TestInstances.generate(folder, 8, 30, 3);
+    double[] demands = generated.clients().mapToDouble(generated::getDemand).sorted().toArray();
+    InstanceDelta delta = new InstanceDelta();
+    delta.setCapacity(0, demands[demands.length / 2]);
+    ProblemInput input = delta.applyTo(generated);
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    int numFitting = 0;
+    for (int facility = 0; facility < numFacilities; facility++) {
+      for (int client = 0; client < numClients; client++) {
+        numFitting += input.getDemand(client) <= input.getCapacity(facility) ? 1 : 0;
+      }
+    }
+    assertTrue(numFitting < numFacilities * numClients);
+
+    CbcSolver fitting = new CbcSolver(input);
+    // the modifiable model is the baseline model with a column for every facility and client
+    CbcSolver baseline = new CbcSolver(input, new ModelOptions(), true);
+    try {
+      SolveMetrics metrics = fitting.getMetrics();
+      SolveMetrics baselineMetrics = baseline.getMetrics();
+      assertEquals(numFacilities + numFitting, metrics.getStatistic("variables"));
+      assertEquals(
+          numFacilities + numFacilities * numClients, baselineMetrics.getStatistic("variables"));
+      assertEquals(numFacilities + numClients, metrics.getStatistic("constraints"));
+      assertEquals(numFacilities + numClients, baselineMetrics.getStatistic("constraints"));
+
+      SolveResult result = fitting.solve(TestInstances.exact());
+      SolveResult baselineResult = baseline.solve(TestInstances.exact());
+      assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+      assertEquals(SolveStatus.OPTIMAL, baselineResult.getStatus());
+      assertEquals(baselineResult.getObjectiveValue(), result.getObjectiveValue(), 1e-6);
+      TestInstances.assertFeasible(input, result.getSolution());
+    } finally {
+      fitting.close();
+      baseline.close();
+    }
+  }
+
+  /** @return the optimal objective value found with the warm start */
+  private static double solve(
+      ProblemInput input, int[] warmStart, boolean greedyWarmStart, List<Solution> incumbents) {
+    CbcSolver solver = new CbcSolver(input);
+    try {
+      if (warmStart != null) {
+        solver.setWarmStart(warmStart);
+      }
+      solver.setGreedyWarmStart(greedyWarmStart);
+      SolveResult result =
+          solver.solve(
+              TestInstances.exact(),
+              incumbents == null ? null : (solution, bound, elapsed) -> incumbents.add(solution));
+      assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+      return result.getObjectiveValue();
+    } finally {
+      solver.close();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.satalia.opt.capfacilitylocation.input.CanonicalForm;
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckpointTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void writesAndReadsCheckpoints() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 300, 600, 1);
+    CanonicalForm form = CanonicalForm.of(input);
+    Solution solution = solveByLocalSearch(input, 0).getSolution();
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(60_000);
+    parameters.setNumThreads(2);
+    Path file = new File(folder.getRoot(), "checkpoint").toPath();
+
+    Checkpoint.of(form, "local-search", parameters, SolveStatus.FEASIBLE, 45_000, 100, solution)
+        .write(file);
+    Checkpoint checkpoint = Checkpoint.read(file);
+
+    assertEquals(form.getHash(), checkpoint.getInstanceHash());
+    assertEquals("local-search", checkpoint.getEngine());
+    assertEquals(2, checkpoint.getParameters().getNumThreads());
+    assertEquals(15_000, checkpoint.getRemainingMillis());
+    assertEquals(100, checkpoint.getBound(), 0);
+    assertFalse(checkpoint.isFinished());
+    Solution incumbent = checkpoint.getIncumbent(input, form);
+    assertEquals(solution.getObjectiveValue(), incumbent.getObjectiveValue(), 1e-6);
+    for (int client = 0; client < input.getNumClients(); client++) {
+      assertEquals(solution.getFacilityOfClient(client), incumbent.getFacilityOfClient(client));
+    }
+    // more than 256 facilities take two bytes per client, and no temporary file is left
+    File[] files = folder.getRoot().listFiles((dir, name) -> name.startsWith("checkpoint"));
+    assertEquals(1, files.length);
+    assertTrue(Files.size(file) < 200 + 2 * input.getNumClients());
+  }
+
+  @Test
+  public void checkpointsAndResumesSolves() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 15, 60, 2);
+    Path file = new File(folder.getRoot(), "checkpoint").toPath();
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(600);
+    SolveResult result;
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(input, null)) {
+      CheckpointingSolver solver = new CheckpointingSolver(input, engine, "local-search", file);
+      solver.setInterval(50);
+      solver.setSlice(200);
+      result = solver.solve(parameters, null);
+      assertTrue(solver.getNumWrites() >= 2);
+    }
+    Checkpoint checkpoint = Checkpoint.read(file);
+    assertEquals(SolveStatus.FEASIBLE, checkpoint.getStatus());
+    assertEquals(result.getObjectiveValue(), checkpoint.getObjectiveValue(), 1e-6);
+    assertTrue(checkpoint.getElapsedMillis() >= 200);
+
+    // resume with more time left, as if the process had stopped after 400 ms
+    Checkpoint stopped =
+        Checkpoint.of(
+            CanonicalForm.of(input),
+            "local-search",
+            parameters,
+            SolveStatus.FEASIBLE,
+            400,
+            Double.NEGATIVE_INFINITY,
+            checkpoint.getIncumbent(input, CanonicalForm.of(input)));
+    final long start = System.currentTimeMillis();
+    SolveResult resumed;
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(input, null)) {
+      CheckpointingSolver solver = new CheckpointingSolver(input, engine, "local-search", file);
+      resumed = solver.resume(stopped, null);
+    }
+    assertTrue(System.currentTimeMillis() - start < 500);
+    assertTrue(resumed.getObjectiveValue() <= result.getObjectiveValue() + 1e-6);
+    assertTrue(resumed.getElapsedMillis() >= 600);
+    TestInstances.assertFeasible(input, resumed.getSolution());
+  }
+
+  @Test
+  public void stopsSlicesWithoutProgress() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 4);
+    Path file = new File(folder.getRoot(), "checkpoint").toPath();
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(input, null)) {
+      CheckpointingSolver solver = new CheckpointingSolver(input, engine, "local-search", file);
+      solver.setSlice(100);
+      try {
+        solver.solve(new SolveParameters(), null); // no time limit
+        fail("Expecting slices without a time limit to be rejected");
+      } catch (RuntimeException e) {
+        assertFalse(Files.exists(file));
+      }
+
+      // the local search soon finds no better solution on this small instance
+      SolveParameters parameters = new SolveParameters();
+      parameters.setTimeLimitMillis(60_000);
+      final long start = System.currentTimeMillis();
+      SolveResult result = solver.solve(parameters, null);
+      assertTrue(System.currentTimeMillis() - start < 30_000);
+      assertEquals(SolveStatus.FEASIBLE, result.getStatus());
+      TestInstances.assertFeasible(input, result.getSolution());
+    }
+  }
+
+  @Test
+  public void rejectsNegativeFacilities() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 10, 30, 5);
+    CanonicalForm form = CanonicalForm.of(input);
+    Path file = new File(folder.getRoot(), "checkpoint").toPath();
+    Checkpoint.of(
+            form,
+            "local-search",
+            new SolveParameters(),
+            SolveStatus.FEASIBLE,
+            0,
+            Double.NEGATIVE_INFINITY,
+            solveByLocalSearch(input, 0).getSolution())
+        .write(file);
+    // replace the one-byte facilities by four-byte ones, the first of them negative
+    byte[] bytes = Files.readAllBytes(file);
+    final int numClients = input.getNumClients();
+    ByteBuffer corrupted = ByteBuffer.allocate(bytes.length + 3 * numClients);
+    corrupted.put(bytes, 0, bytes.length - numClients - 1).put((byte) 4).putInt(-1);
+    for (int position = 1; position < numClients; position++) {
+      corrupted.putInt(0);
+    }
+    Files.write(file, corrupted.array());
+
+    try {
+      Checkpoint.read(file).getIncumbent(input, form);
+      fail("Expecting the negative facility to be rejected");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("missing facility -1"));
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void rejectsCheckpointsOfOtherInstances() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 10, 30, 3);
+    Checkpoint checkpoint =
+        Checkpoint.of(
+            CanonicalForm.of(input),
+            "local-search",
+            new SolveParameters(),
+            SolveStatus.FEASIBLE,
+            0,
+            Double.NEGATIVE_INFINITY,
+            solveByLocalSearch(input, 0).getSolution());
+    InstanceDelta delta = new InstanceDelta();
+    delta.setDemand(0, input.getDemand(0) + 1);
+    ProblemInput changed = delta.applyTo(input);
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(changed, null)) {
+      new CheckpointingSolver(changed, engine, "local-search", folder.getRoot().toPath())
+          .resume(checkpoint, null);
+    }
+  }
+
+  private static SolveResult solveByLocalSearch(ProblemInput input, long timeLimitMillis) {
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(timeLimitMillis);
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(input, null)) {
+      return engine.solve(parameters, null);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CutSeparatorTest {
+
+  private CutSeparator separator;
+
+  @Before
+  public void setUp() throws IOException {
+    separator = new CutSeparator(TestInstances.cap61(), new int[17], column -> 0, null);
+  }
+
+  @Test
+  public void separatesViolatedMinimalCover() {
+    // 3 y_0 + 4 y_1 + 5 y_2 + 6 y_3 <= 10 x with x = 1: {0, 1, 2} is a minimal cover, and the cut
+    // y_0 + y_1 + y_2 + y_3 <= 2 x, extended by the heavier item 3, is violated
+    double[] values = {1, 1, 0.5, 0};
+    double[] weights = {3, 4, 5, 6};
+
+    CutSeparator.Cut cut = separator.separateCover(7, 100, 1, values, weights, 10, 4);
+
+    assertEquals(7, cut.facility);
+    assertEquals(2, cut.rhsCoefficient);
+    int[] columns = cut.columns.clone();
+    Arrays.sort(columns);
+    assertArrayEquals(new int[] {100, 101, 102, 103}, columns);
+  }
+
+  @Test
+  public void leavesOutItemsWithoutWeight() {
+    // item 0 is a client without demand, whose sort key (x - y_0) / 0 is not a number
+    double[] values = {1, 1, 1, 0.5, 0, 0.5};
+    double[] weights = {0, 3, 4, 5, 6, 0};
+
+    CutSeparator.Cut cut = separator.separateCover(7, 100, 1, values, weights, 10, 6);
+
+    assertEquals(2, cut.rhsCoefficient);
+    int[] columns = cut.columns.clone();
+    Arrays.sort(columns);
+    assertArrayEquals(new int[] {101, 102, 103, 104}, columns);
+  }
+
+  @Test
+  public void ignoresSatisfiedCovers() {
+    double[] values = {0.5, 0.5, 0.5, 0.5};
+    double[] weights = {3, 4, 5, 6};
+
+    assertNull(separator.separateCover(0, 0, 1, values, weights, 10, 4));
+  }
+
+  @Test
+  public void ignoresRowsWithoutCover() {
+    double[] values = {1, 1};
+    double[] weights = {3, 4};
+
+    assertNull(separator.separateCover(0, 0, 1, values, weights, 10, 2));
+  }
+}
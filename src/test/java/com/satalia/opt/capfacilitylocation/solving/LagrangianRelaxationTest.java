@@ -0,0 +1,45 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LagrangianRelaxationTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void boundsOnCap61() throws IOException {
+    ProblemInput input = TestInstances.cap61();
+
+    LagrangianResult result = new LagrangianRelaxation(input, 2).solve();
+
+    assertTrue(result.getLowerBound() <= TestInstances.CAP61_OPTIMUM + 1e-6);
+    assertTrue(result.getLowerBound() >= 0.99 * TestInstances.CAP61_OPTIMUM);
+    assertTrue(result.getUpperBound() >= TestInstances.CAP61_OPTIMUM - 1e-6);
+    assertEquals(
+        (result.getUpperBound() - result.getLowerBound()) / result.getUpperBound(),
+        result.getGap(),
+        1e-12);
+    TestInstances.assertFeasible(input, result.getSolution());
+  }
+
+  @Test
+  public void lowerBoundIsValid_onSmallInstances() throws IOException {
+    for (long seed = 0; seed < 10; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 4, 7, seed);
+      double optimum = TestInstances.enumerateOptimum(input);
+
+      LagrangianResult result = new LagrangianRelaxation(input, 1).solve();
+
+      assertTrue(result.getLowerBound() <= optimum + 1e-6);
+      assertTrue(result.getUpperBound() >= optimum - 1e-6);
+      TestInstances.assertFeasible(input, result.getSolution());
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LnsSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /** solves the subproblems with the local search instead of CBC, which needs native libraries */
+  private static int[] solveWithLocalSearch(
+      ProblemInput subproblem, int[] warmStart, long timeLimitMillis) {
+    try {
+      return new LocalSearchSolver(subproblem, 5).solve().getAssignment();
+    } catch (RuntimeException e) {
+      // the construction heuristic can fail on subproblems with little spare capacity
+      return warmStart;
+    }
+  }
+
+  @Test
+  public void improvesSolutionOpeningAllFacilities() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 30, 200, 5);
+    BitSet all = new BitSet();
+    all.set(0, input.getNumFacilities());
+    Solution initial = new AssignmentSolver(input).solve(all).getSolution();
+    List<Solution> incumbents = new CopyOnWriteArrayList<>();
+
+    LnsSolver solver = new LnsSolver(input, LnsSolverTest::solveWithLocalSearch);
+    solver.setInitialSolution(initial);
+    solver.setTimeLimit(300);
+    solver.setNumWorkers(3);
+    solver.setNeighbourhoodSize(5);
+    solver.setIncumbentListener((solution, bound, elapsedMillis) -> incumbents.add(solution));
+    Solution solution = solver.solve();
+
+    TestInstances.assertFeasible(input, solution);
+    assertTrue(solution.getObjectiveValue() < initial.getObjectiveValue());
+    assertFalse(incumbents.isEmpty());
+    for (int i = 1; i < incumbents.size(); i++) {
+      assertTrue(
+          incumbents.get(i).getObjectiveValue() < incumbents.get(i - 1).getObjectiveValue());
+    }
+    assertEquals(
+        solution.getObjectiveValue(),
+        incumbents.get(incumbents.size() - 1).getObjectiveValue(),
+        1e-6);
+  }
+
+  @Test
+  public void keepsInitialSolution_whenSubproblemsDoNotImprove() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 6);
+    Solution initial = new LocalSearchSolver(input).solve();
+
+    LnsSolver solver =
+        new LnsSolver(input, (subproblem, warmStart, timeLimitMillis) -> warmStart);
+    solver.setInitialSolution(initial);
+    solver.setTimeLimit(100);
+    solver.setNumWorkers(2);
+    Solution solution = solver.solve();
+
+    assertEquals(initial.getObjectiveValue(), solution.getObjectiveValue(), 1e-6);
+  }
+
+  @Test
+  public void solveParametersDoNotChangeTheSettingsOfTheSolver() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 8);
+    LnsSolver solver =
+        new LnsSolver(input, (subproblem, warmStart, timeLimitMillis) -> warmStart);
+    solver.setInitialSolution(new LocalSearchSolver(input).solve());
+    solver.setTimeLimit(400);
+    solver.setNumWorkers(1);
+    SolveParameters limited = new SolveParameters();
+    limited.setTimeLimitMillis(50);
+    limited.setNumThreads(2);
+
+    SolveResult result = solver.solve(limited, null);
+    assertTrue(result.getElapsedMillis() < 400);
+    // without a limit in the parameters, the solver's own limit applies, not the previous one
+    SolveResult unlimited = solver.solve(new SolveParameters(), null);
+
+    assertEquals(SolveStatus.FEASIBLE, unlimited.getStatus());
+    assertTrue(unlimited.getElapsedMillis() >= 400);
+  }
+
+  @Test
+  public void stopsWorkers_whenSubproblemsKeepFailing() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 7);
+    Solution initial = new LocalSearchSolver(input).solve();
+    AtomicInteger calls = new AtomicInteger();
+
+    LnsSolver solver =
+        new LnsSolver(
+            input,
+            (subproblem, warmStart, timeLimitMillis) -> {
+              calls.incrementAndGet();
+              throw new RuntimeException("no solver");
+            });
+    solver.setInitialSolution(initial);
+    solver.setTimeLimit(10_000);
+    solver.setNumWorkers(2);
+    final long start = System.currentTimeMillis();
+    Solution solution = solver.solve();
+
+    assertTrue(System.currentTimeMillis() - start < 5_000);
+    assertTrue(calls.get() <= 10);
+    assertEquals(initial.getObjectiveValue(), solution.getObjectiveValue(), 1e-6);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void rejectsInfeasibleInitialSolutions() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 8);
+    LnsSolver solver = new LnsSolver(input);
+    // all clients at one facility, far beyond its capacity
+    solver.setInitialSolution(Solution.fromAssignment(input, new int[input.getNumClients()]));
+  }
+}
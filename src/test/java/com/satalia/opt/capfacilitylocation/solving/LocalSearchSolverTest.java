@@ -0,0 +1,90 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalSearchSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void solvesCap61() throws IOException {
+    ProblemInput input = TestInstances.cap61();
+
+    Solution solution = new LocalSearchSolver(input).solve();
+
+    TestInstances.assertFeasible(input, solution);
+    assertTrue(solution.getObjectiveValue() >= TestInstances.CAP61_OPTIMUM - 1e-6);
+    assertTrue(solution.getObjectiveValue() <= 1.05 * TestInstances.CAP61_OPTIMUM);
+  }
+
+  @Test
+  public void perturbationDoesNotMakeTheSolutionWorse() throws IOException {
+    ProblemInput input = TestInstances.cap61();
+    double descent = new LocalSearchSolver(input, 5).solve().getObjectiveValue();
+
+    LocalSearchSolver solver = new LocalSearchSolver(input, 5);
+    solver.setTimeLimit(200);
+    solver.setSeed(7);
+    Solution solution = solver.solve();
+
+    TestInstances.assertFeasible(input, solution);
+    assertTrue(solution.getObjectiveValue() <= descent + 1e-6);
+  }
+
+  @Test
+  public void ignoresInfeasibleWarmStarts() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 5);
+    LocalSearchSolver solver = new LocalSearchSolver(input);
+    // all clients at one facility, far beyond its capacity
+    solver.setWarmStart(Solution.fromAssignment(input, new int[input.getNumClients()]));
+
+    Solution solution = solver.solve();
+
+    TestInstances.assertFeasible(input, solution);
+  }
+
+  @Test
+  public void reportsImprovingIncumbents() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 30, 200, 3);
+    List<Solution> incumbents = new ArrayList<>();
+    LocalSearchSolver solver = new LocalSearchSolver(input, 5);
+    solver.setTimeLimit(200);
+    solver.setIncumbentListener((solution, bound, elapsedMillis) -> incumbents.add(solution));
+
+    Solution solution = solver.solve();
+
+    assertFalse(incumbents.isEmpty());
+    for (int i = 1; i < incumbents.size(); i++) {
+      assertTrue(
+          incumbents.get(i).getObjectiveValue() < incumbents.get(i - 1).getObjectiveValue());
+    }
+    assertEquals(
+        solution.getObjectiveValue(),
+        incumbents.get(incumbents.size() - 1).getObjectiveValue(),
+        1e-9);
+  }
+
+  @Test
+  public void findsFeasibleSolutions_onSmallInstances() throws IOException {
+    for (long seed = 0; seed < 10; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 4, 7, seed);
+      double optimum = TestInstances.enumerateOptimum(input);
+
+      Solution solution = new LocalSearchSolver(input, 2).solve();
+
+      TestInstances.assertFeasible(input, solution);
+      assertTrue(solution.getObjectiveValue() >= optimum - 1e-6);
+      assertEquals(solution.calculateObjectiveValue(), solution.getObjectiveValue(), 1e-9);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PortfolioSolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /** Creates engines that return a fixed result, after waiting until they are cancelled. */
+  private static SolverEngineProvider fixed(SolveResult result, boolean waitForCancel) {
+    return new SolverEngineProvider() {
+      @Override
+      public String getName() {
+        return "fixed";
+      }
+
+      @Override
+      public boolean isAvailable() {
+        return true;
+      }
+
+      @Override
+      public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+        CountDownLatch cancelled = new CountDownLatch(waitForCancel ? 1 : 0);
+        return new SolverEngine() {
+          @Override
+          public void setWarmStart(Solution solution) {}
+
+          @Override
+          public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+            try {
+              cancelled.await(parameters.getTimeLimitMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return result;
+          }
+
+          @Override
+          public void cancel() {
+            cancelled.countDown();
+          }
+
+          @Override
+          public void close() {}
+        };
+      }
+    };
+  }
+
+  /** @return the solution that opens all facilities */
+  private static Solution openAll(ProblemInput input) {
+    BitSet all = new BitSet();
+    all.set(0, input.getNumFacilities());
+    return new AssignmentSolver(input).solve(all).getSolution();
+  }
+
+  @Test
+  public void returnsBestSolutionOfAllEngines() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 7);
+    Solution good = new LocalSearchSolver(input).solve();
+    Solution bad = openAll(input);
+    PortfolioSolver solver = new PortfolioSolver(input);
+    solver.addEngine(fixed(new SolveResult(SolveStatus.FEASIBLE, bad, 0, 0), false));
+    solver.addEngine(fixed(new SolveResult(SolveStatus.FEASIBLE, good, 0, 0), false));
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(5000);
+
+    SolveResult result = solver.solve(parameters, null);
+
+    assertEquals(SolveStatus.FEASIBLE, result.getStatus());
+    assertSame(good, result.getSolution());
+    assertEquals(0, result.getBound(), 0);
+  }
+
+  @Test
+  public void optimalEngineCancelsTheOthers() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 8);
+    Solution solution = new LocalSearchSolver(input).solve();
+    PortfolioSolver solver = new PortfolioSolver(input);
+    solver.addEngine(fixed(new SolveResult(SolveStatus.FEASIBLE, openAll(input), 0, 0), true));
+    solver.addEngine(
+        fixed(
+            new SolveResult(SolveStatus.OPTIMAL, solution, solution.getObjectiveValue(), 0),
+            false));
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(20000);
+
+    SolveResult result = solver.solve(parameters, null);
+
+    assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+    assertSame(solution, result.getSolution());
+    assertTrue(result.getElapsedMillis() < 10000);
+  }
+
+  @Test
+  public void racesEnginesFoundByName() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 30, 200, 9);
+    PortfolioSolver solver = new PortfolioSolver(input);
+    for (int seed = 0; seed < 2; seed++) {
+      SolveParameters parameters = new SolveParameters();
+      parameters.setSeed(seed);
+      solver.addEngine(SolverEngines.find("local-search"), parameters);
+    }
+    List<Solution> incumbents = new CopyOnWriteArrayList<>();
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(200);
+
+    SolveResult result =
+        solver.solve(parameters, (solution, bound, elapsedMillis) -> incumbents.add(solution));
+
+    assertEquals(SolveStatus.FEASIBLE, result.getStatus());
+    TestInstances.assertFeasible(input, result.getSolution());
+    for (int i = 1; i < incumbents.size(); i++) {
+      assertTrue(
+          incumbents.get(i).getObjectiveValue() < incumbents.get(i - 1).getObjectiveValue());
+    }
+    assertSame(incumbents.get(incumbents.size() - 1), result.getSolution());
+  }
+
+  @Test
+  public void capsTheTimeLimitOfEachSolveOnly() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 20, 100, 10);
+    Solution solution = openAll(input);
+    List<Long> timeLimits = new CopyOnWriteArrayList<>();
+    PortfolioSolver solver = new PortfolioSolver(input);
+    solver.addEngine(
+        new SolverEngineProvider() {
+          @Override
+          public String getName() {
+            return "recording";
+          }
+
+          @Override
+          public boolean isAvailable() {
+            return true;
+          }
+
+          @Override
+          public SolverEngine create(ProblemInput input, ModelOptions modelOptions) {
+            return new SolverEngine() {
+              @Override
+              public void setWarmStart(Solution solution) {}
+
+              @Override
+              public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+                timeLimits.add(parameters.getTimeLimitMillis());
+                return new SolveResult(SolveStatus.FEASIBLE, solution, 0, 0);
+              }
+
+              @Override
+              public void cancel() {}
+
+              @Override
+              public void close() {}
+            };
+          }
+        },
+        new SolveParameters());
+    SolveParameters shortRace = new SolveParameters();
+    shortRace.setTimeLimitMillis(100);
+    SolveParameters longRace = new SolveParameters();
+    longRace.setTimeLimitMillis(60000);
+
+    solver.solve(shortRace, null);
+    solver.solve(longRace, null);
+
+    assertEquals(2, timeLimits.size());
+    assertTrue(timeLimits.get(0) <= 100);
+    assertTrue(timeLimits.get(1) > 100);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void findThrowsException_whenEngineIsUnknown() {
+    SolverEngines.find("simplex");
+  }
+}
@@ -0,0 +1,47 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+
+import com.satalia.opt.capfacilitylocation.input.PresolvedInput;
+import com.satalia.opt.capfacilitylocation.input.Presolver;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PostsolverTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void presolveKeepsOptimum() throws IOException {
+    for (long seed = 1; seed <= 5; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 4, 6, seed);
+      PresolvedInput presolved = new Presolver(input).presolve();
+
+      assertEquals(
+          TestInstances.enumerateOptimum(input),
+          TestInstances.enumerateOptimum(presolved.getReducedInput())
+              + presolved.getObjectiveOffset(),
+          1e-6);
+    }
+  }
+
+  @Test
+  public void postsolvedSolutionIsFeasibleWithOffset() throws IOException {
+    for (long seed = 1; seed <= 5; seed++) {
+      ProblemInput input = TestInstances.generate(folder, 5, 20, seed);
+      PresolvedInput presolved = new Presolver(input).presolve();
+      Solution reduced = new LocalSearchSolver(presolved.getReducedInput()).solve();
+
+      Solution solution = Postsolver.postsolve(presolved, reduced);
+
+      TestInstances.assertFeasible(input, solution);
+      assertEquals(
+          reduced.getObjectiveValue() + presolved.getObjectiveOffset(),
+          solution.getObjectiveValue(),
+          1e-6);
+    }
+  }
+}
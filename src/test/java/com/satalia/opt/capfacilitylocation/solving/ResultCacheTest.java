@@ -0,0 +1,223 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.BenchmarkReader;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultCacheTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void countsHitsAndMisses() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 1);
+    ResultCache cache = new ResultCache(10);
+    ResultCache.Key key = cache.key(input, new SolveParameters());
+    assertNull(cache.lookup(key));
+
+    SolveResult result = solveByLocalSearch(input);
+    cache.store(key, result);
+    SolveResult cached = cache.lookup(key);
+
+    assertNotNull(cached);
+    assertEquals(SolveStatus.FEASIBLE, cached.getStatus());
+    assertEquals(result.getObjectiveValue(), cached.getObjectiveValue(), 1e-6);
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0, cache.getOptimalHits());
+    // other gap targets are other keys
+    SolveParameters parameters = new SolveParameters();
+    parameters.setRelativeGap(0.1);
+    assertNull(cache.lookup(cache.key(input, parameters)));
+  }
+
+  @Test
+  public void readsResultsOfPermutedInstancesFromDisk() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 2);
+    Path directory = folder.newFolder("cache").toPath();
+    SolveResult result = solveByLocalSearch(input);
+    ResultCache cache = new ResultCache(10, directory, 1 << 20);
+    cache.store(cache.key(input, new SolveParameters()), result);
+
+    // a new cache, as in another run, and the instance in reverse order
+    ProblemInput reversed = reverse(input);
+    ResultCache otherCache = new ResultCache(10, directory, 1 << 20);
+    SolveResult cached = otherCache.lookup(otherCache.key(reversed, new SolveParameters()));
+
+    assertNotNull(cached);
+    assertEquals(1, otherCache.getDiskHits());
+    TestInstances.assertFeasible(reversed, cached.getSolution());
+    assertEquals(result.getObjectiveValue(), cached.getObjectiveValue(), 1e-6);
+    final int last = input.getNumClients() - 1;
+    assertEquals(
+        input.getNumFacilities() - 1 - result.getSolution().getFacilityOfClient(0),
+        cached.getSolution().getFacilityOfClient(last));
+  }
+
+  @Test
+  public void keepsTheBetterResult() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 3);
+    ResultCache cache = new ResultCache(10);
+    ResultCache.Key key = cache.key(input, new SolveParameters());
+    SolveResult result = solveByLocalSearch(input);
+    cache.store(key, result);
+
+    // the same assignment with all facilities opened
+    BitSet all = new BitSet();
+    all.set(0, input.getNumFacilities());
+    Solution worse = new Solution(input, result.getSolution().getAssignment(), all);
+    cache.store(key, new SolveResult(SolveStatus.FEASIBLE, worse, 0, 0));
+    assertEquals(result.getObjectiveValue(), cache.lookup(key).getObjectiveValue(), 1e-6);
+
+    cache.store(key, new SolveResult(SolveStatus.OPTIMAL, worse, 0, 0));
+    assertEquals(SolveStatus.OPTIMAL, cache.lookup(key).getStatus());
+  }
+
+  @Test
+  public void reusesOptimalResultsWithoutSolving() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 4);
+    ResultCache cache = new ResultCache(10);
+    SolveResult result = solveByLocalSearch(input);
+    SolveResult optimal =
+        new SolveResult(
+            SolveStatus.OPTIMAL, result.getSolution(), result.getObjectiveValue(), 0);
+    cache.store(cache.key(input, new SolveParameters()), optimal);
+    SolverEngineProvider failing =
+        new LocalSearchSolver.Provider() {
+          @Override
+          public SolverEngine create(ProblemInput problemInput, ModelOptions modelOptions) {
+            throw new AssertionError("the cached result is optimal");
+          }
+        };
+
+    try (SolverEngine engine =
+        new CachingEngineProvider(failing, cache).create(input, new ModelOptions())) {
+      SolveResult cached = engine.solve(new SolveParameters(), null);
+      assertSame(SolveStatus.OPTIMAL, cached.getStatus());
+      assertEquals(result.getObjectiveValue(), cached.getObjectiveValue(), 1e-6);
+    }
+    assertEquals(1, cache.getOptimalHits());
+  }
+
+  @Test
+  public void keysTheExactGaps() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 5);
+    ResultCache cache = new ResultCache(10);
+    SolveParameters parameters = new SolveParameters();
+    parameters.setRelativeGap(0.01);
+    SolveParameters closeParameters = parameters.copy();
+    closeParameters.setRelativeGap(Math.nextUp(0.01));
+
+    String key = cache.key(input, parameters).getValue();
+
+    assertEquals(key, cache.key(input, parameters.copy()).getValue());
+    assertFalse(key.equals(cache.key(input, closeParameters).getValue()));
+  }
+
+  @Test
+  public void createsOneEngineForAllSolves() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 6);
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger closed = new AtomicInteger();
+    SolverEngineProvider counting =
+        new LocalSearchSolver.Provider() {
+          @Override
+          public SolverEngine create(ProblemInput problemInput, ModelOptions modelOptions) {
+            created.incrementAndGet();
+            SolverEngine engine = super.create(problemInput, modelOptions);
+            return new SolverEngine() {
+              @Override
+              public void setWarmStart(Solution solution) {
+                engine.setWarmStart(solution);
+              }
+
+              @Override
+              public SolveResult solve(SolveParameters parameters, IncumbentListener listener) {
+                return engine.solve(parameters, listener);
+              }
+
+              @Override
+              public void close() {
+                closed.incrementAndGet();
+                engine.close();
+              }
+            };
+          }
+        };
+
+    ResultCache cache = new ResultCache(10);
+    try (SolverEngine engine =
+        new CachingEngineProvider(counting, cache).create(input, new ModelOptions())) {
+      engine.solve(new SolveParameters(), null);
+      engine.solve(new SolveParameters(), null); // warm started from the cached result
+    }
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, created.get());
+    assertEquals(1, closed.get());
+  }
+
+  @Test
+  public void cancelsOnlyTheNextSolve() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 8, 30, 7);
+    SolveParameters parameters = new SolveParameters();
+    parameters.setTimeLimitMillis(300);
+
+    try (SolverEngine engine =
+        new CachingEngineProvider(new LocalSearchSolver.Provider(), new ResultCache(10))
+            .create(input, new ModelOptions())) {
+      engine.solve(parameters, null);
+      engine.cancel(); // between solves, as by a portfolio before the solve starts
+      SolveResult cancelled = engine.solve(parameters, null);
+      SolveResult next = engine.solve(parameters, null);
+
+      assertTrue(cancelled.getElapsedMillis() < 250);
+      assertTrue(next.getElapsedMillis() >= 250);
+    }
+  }
+
+  private static SolveResult solveByLocalSearch(ProblemInput input) {
+    try (SolverEngine engine = new LocalSearchSolver.Provider().create(input, new ModelOptions())) {
+      return engine.solve(new SolveParameters(), null);
+    }
+  }
+
+  /** @return the instance with its facilities and clients in reverse order */
+  private ProblemInput reverse(ProblemInput input) throws IOException {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    File file = folder.newFile("reversed");
+    try (PrintWriter out = new PrintWriter(file)) {
+      out.println(numFacilities + " " + numClients);
+      for (int facility = numFacilities - 1; facility >= 0; facility--) {
+        out.println(input.getCapacity(facility) + " " + input.getBuildingCost(facility));
+      }
+      for (int client = numClients - 1; client >= 0; client--) {
+        out.print(input.getDemand(client) + " ");
+      }
+      out.println();
+      for (int facility = numFacilities - 1; facility >= 0; facility--) {
+        for (int client = numClients - 1; client >= 0; client--) {
+          out.print(input.getCostToMeetDemand(facility, client) + " ");
+        }
+        out.println();
+      }
+    }
+    return new BenchmarkReader(file.getPath()).readBeasleyBenchmark();
+  }
+}
@@ -0,0 +1,102 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.InstanceDelta;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ScenarioSweepTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void unchangedScenariosAgree() throws IOException, InterruptedException {
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 3);
+    ScenarioSweep sweep = new ScenarioSweep(input, 3);
+    sweep.setEngine(new LocalSearchSolver.Provider());
+
+    ScenarioSummary summary = sweep.solve(6, scenario -> new InstanceDelta());
+
+    assertEquals(6, summary.getNumSolved());
+    final double objective = summary.getObjectiveValue(0);
+    for (int scenario = 0; scenario < 6; scenario++) {
+      assertTrue(summary.getStatus(scenario).hasSolution());
+      assertEquals(objective, summary.getObjectiveValue(scenario), 0);
+    }
+    assertEquals(objective, summary.getObjectivePercentile(50), 0);
+    assertEquals(objective, summary.getMeanObjective(), 1e-6);
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      final double frequency = summary.getOpenFrequency(facility);
+      assertTrue(frequency == 0 || frequency == 1);
+    }
+    for (int client = 0; client < input.getNumClients(); client++) {
+      assertEquals(1, summary.getAssignmentRobustness(client), 0);
+    }
+  }
+
+  @Test
+  public void failingScenariosDoNotStopTheSweep() throws IOException, InterruptedException {
+    ProblemInput input = TestInstances.generate(folder, 10, 40, 4);
+    ScenarioSweep sweep = new ScenarioSweep(input, 2);
+    sweep.setEngine(new LocalSearchSolver.Provider());
+
+    ScenarioSummary summary =
+        sweep.solve(
+            3,
+            scenario -> {
+              InstanceDelta delta = new InstanceDelta();
+              if (scenario == 1) {
+                delta.scaleDemands(1000); // no facility can serve a client
+              } else if (scenario == 2) {
+                delta.setCapacity(10, 1); // no such facility
+              }
+              return delta;
+            });
+
+    assertEquals(1, summary.getNumSolved());
+    assertTrue(summary.getStatus(0).hasSolution());
+    assertFalse(summary.getStatus(1).hasSolution());
+    assertEquals(SolveStatus.ERROR, summary.getStatus(2));
+    assertEquals(Double.POSITIVE_INFINITY, summary.getObjectiveValue(2), 0);
+    assertEquals(summary.getObjectiveValue(0), summary.getObjectivePercentile(100), 0);
+  }
+
+  @Test
+  public void countsOpenedFacilitiesAndAssignments() throws IOException {
+    ProblemInput input = TestInstances.generate(folder, 5, 20, 5);
+    int[] toFirst = new int[input.getNumClients()];
+    int[] mostlyToSecond = new int[input.getNumClients()];
+    Arrays.fill(mostlyToSecond, 1);
+    mostlyToSecond[0] = 0;
+    Solution first = Solution.fromAssignment(input, toFirst);
+    Solution second = Solution.fromAssignment(input, mostlyToSecond);
+
+    ScenarioSummary summary =
+        new ScenarioSummary(4, input.getNumFacilities(), input.getNumClients());
+    summary.add(0, SolveStatus.FEASIBLE, first);
+    summary.add(1, SolveStatus.FEASIBLE, second);
+    summary.add(2, SolveStatus.OPTIMAL, first);
+    summary.add(3, SolveStatus.INFEASIBLE, null);
+
+    assertEquals(3, summary.getNumSolved());
+    assertEquals(1, summary.getOpenFrequency(0), 0);
+    assertEquals(1.0 / 3, summary.getOpenFrequency(1), 1e-12);
+    assertEquals(0, summary.getOpenFrequency(2), 0);
+    assertEquals(0, summary.getMostFrequentFacility(0));
+    assertEquals(1, summary.getAssignmentRobustness(0), 0);
+    assertEquals(0, summary.getMostFrequentFacility(1));
+    assertEquals(2.0 / 3, summary.getAssignmentRobustness(1), 1e-12);
+    final double low = Math.min(first.getObjectiveValue(), second.getObjectiveValue());
+    final double high = Math.max(first.getObjectiveValue(), second.getObjectiveValue());
+    assertEquals(low, summary.getObjectivePercentile(0), 0);
+    assertEquals(high, summary.getObjectivePercentile(100), 0);
+    assertEquals(first.getObjectiveValue(), summary.getObjectivePercentile(50), 0);
+  }
+}
@@ -0,0 +1,112 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolutionTest {
+
+  private ProblemInput input;
+  private Solution solution;
+
+  @Before
+  public void setUp() throws IOException {
+    input = TestInstances.cap61();
+    solution = new LocalSearchSolver(input).solve();
+  }
+
+  @Test
+  public void computesLoadsAndOpenedFacilities() {
+    double totalLoad = 0;
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      totalLoad += solution.getLoad(facility);
+      assertEquals(solution.getLoad(facility) > 0, solution.isOpened(facility));
+    }
+    assertEquals(input.clients().mapToDouble(input::getDemand).sum(), totalLoad, 1e-6);
+    assertEquals(solution.getNumOpenedFacilities(), solution.getOpenedFacilities().size());
+    assertTrue(solution.isFeasible());
+  }
+
+  @Test
+  public void reassignDeltaMatchesObjectiveChange() {
+    Random random = new Random(1);
+    for (int i = 0; i < 200; i++) {
+      final int client = random.nextInt(input.getNumClients());
+      final int facility = random.nextInt(input.getNumFacilities());
+      int[] assignment = solution.getAssignment();
+      assignment[client] = facility;
+
+      Solution reassigned = Solution.fromAssignment(input, assignment);
+
+      assertEquals(
+          reassigned.getObjectiveValue() - solution.getObjectiveValue(),
+          solution.reassignDelta(client, facility),
+          1e-6);
+      assertEquals(
+          reassigned.getLoad(facility), solution.loadAfterReassign(client, facility), 1e-6);
+      assertEquals(reassigned.isFeasible(), solution.canReassign(client, facility));
+    }
+  }
+
+  @Test
+  public void findsViolations() {
+    int[] assignment = solution.getAssignment();
+    assignment[3] = -1;
+    BitSet opened = new BitSet();
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      opened.set(facility, solution.isOpened(facility));
+    }
+    assertNotNull(new Solution(input, assignment, opened).findViolation());
+
+    assignment = solution.getAssignment();
+    opened.clear(assignment[3]);
+    assertFalse(new Solution(input, assignment, opened).isFeasible());
+
+    // all clients served by one facility exceed its capacity
+    assignment = new int[input.getNumClients()];
+    Solution overloaded = Solution.fromAssignment(input, assignment);
+    assertEquals(
+        "facility 0 serves "
+            + overloaded.getLoad(0)
+            + " demand with capacity "
+            + input.getCapacity(0),
+        overloaded.findViolation());
+    assertNull(solution.findViolation());
+  }
+
+  @Test
+  public void diffsSolutions() {
+    assertTrue(new SolutionDiff(solution, solution).isEmpty());
+
+    int closedFacility = 0;
+    while (solution.isOpened(closedFacility)) {
+      closedFacility++;
+    }
+    final int previousFacility = solution.getFacilityOfClient(0);
+    int[] assignment = solution.getAssignment();
+    assignment[0] = closedFacility;
+    Solution after = Solution.fromAssignment(input, assignment);
+    SolutionDiff diff = new SolutionDiff(solution, after);
+
+    assertFalse(diff.isEmpty());
+    assertArrayEquals(new int[] {0}, diff.getReassignedClients());
+    assertArrayEquals(new int[] {closedFacility}, diff.getOpenedFacilities());
+    assertArrayEquals(
+        solution.getLoad(previousFacility) == input.getDemand(0)
+            ? new int[] {previousFacility}
+            : new int[0],
+        diff.getClosedFacilities());
+    assertEquals(
+        after.getObjectiveValue() - solution.getObjectiveValue(), diff.getObjectiveChange(), 1e-6);
+  }
+}
@@ -0,0 +1,89 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.satalia.opt.capfacilitylocation.input.BenchmarkReader;
+import com.satalia.opt.capfacilitylocation.input.Client;
+import com.satalia.opt.capfacilitylocation.input.Facility;
+import com.satalia.opt.capfacilitylocation.input.InstanceGenerator;
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.File;
+import java.io.IOException;
+import org.junit.rules.TemporaryFolder;
+
+/** Instances and assertions shared by the solver tests. */
+final class TestInstances {
+
+  /** optimal objective value of the single-source cap61 instance */
+  static final double CAP61_OPTIMUM = 932615.750;
+
+  private TestInstances() {}
+
+  static ProblemInput cap61() throws IOException {
+    return new BenchmarkReader("src/main/resources/beasley/cap61").readBeasleyBenchmark();
+  }
+
+  /** @return parameters that solve to optimality without a gap, for comparing objectives */
+  static SolveParameters exact() {
+    SolveParameters parameters = new SolveParameters();
+    parameters.setRelativeGap(0);
+    return parameters;
+  }
+
+  static void assertFeasible(ProblemInput input, Solution solution) {
+    double[] load = new double[input.getNumFacilities()];
+    for (int client = 0; client < input.getNumClients(); client++) {
+      Client c = input.getClient(client);
+      Facility facility = solution.getFacilityServing(c);
+      assertNotNull(facility);
+      assertTrue(solution.getOpenedFacilities().contains(facility));
+      load[facility.getIndex()] += c.getDemand();
+    }
+    for (int facility = 0; facility < input.getNumFacilities(); facility++) {
+      assertTrue(load[facility] <= input.getCapacity(facility) + 1e-6);
+    }
+    assertNull(solution.findViolation());
+  }
+
+  /** @return the optimal objective value, by enumerating all assignments */
+  static double enumerateOptimum(ProblemInput input) {
+    final int numFacilities = input.getNumFacilities();
+    final int numClients = input.getNumClients();
+    int numAssignments = 1;
+    for (int client = 0; client < numClients; client++) {
+      numAssignments *= numFacilities;
+    }
+    double optimum = Double.POSITIVE_INFINITY;
+    for (int assignment = 0; assignment < numAssignments; assignment++) {
+      double[] load = new double[numFacilities];
+      double objective = 0;
+      int remaining = assignment;
+      for (int client = 0; client < numClients; client++) {
+        int facility = remaining % numFacilities;
+        remaining /= numFacilities;
+        if (load[facility] == 0) {
+          objective += input.getBuildingCost(facility);
+        }
+        load[facility] += input.getDemand(client);
+        objective += input.getCostToMeetDemand(facility, client);
+      }
+      boolean feasible = true;
+      for (int facility = 0; facility < numFacilities; facility++) {
+        feasible &= load[facility] <= input.getCapacity(facility);
+      }
+      if (feasible) {
+        optimum = Math.min(optimum, objective);
+      }
+    }
+    return optimum;
+  }
+
+  static ProblemInput generate(TemporaryFolder folder, int facilities, int clients, long seed)
+      throws IOException {
+    File file = folder.newFile("instance-" + seed);
+    new InstanceGenerator(facilities, clients, 1.5, seed).write(file.getPath());
+    return new BenchmarkReader(file.getPath()).readBeasleyBenchmark();
+  }
+}
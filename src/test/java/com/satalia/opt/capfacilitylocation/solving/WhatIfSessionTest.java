@@ -0,0 +1,36 @@
+package com.satalia.opt.capfacilitylocation.solving;
+
+import static org.junit.Assert.assertEquals;
+
+import com.satalia.opt.capfacilitylocation.input.ProblemInput;
+import java.io.IOException;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WhatIfSessionTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void solvesAgainWithoutTheLimitsOfThePreviousSolve() throws IOException {
+    Assume.assumeTrue(OrTools.isAvailable());
+    ProblemInput input = TestInstances.generate(folder, 4, 7, 1);
+    try (WhatIfSession session = new WhatIfSession(input)) {
+      SolveParameters limited = new SolveParameters();
+      limited.setTimeLimitMillis(10_000);
+      limited.setNumThreads(2);
+      limited.setAbsoluteGap(1e6);
+      limited.setSeed(3);
+      session.setParameters(limited);
+      session.solve();
+
+      session.setParameters(new SolveParameters());
+      SolveResult result = session.solve().getResult();
+
+      assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+      assertEquals(TestInstances.enumerateOptimum(input), result.getObjectiveValue(), 1e-6);
+    }
+  }
+}